@@ -2,7 +2,9 @@ package ch.unibas.dmi.dbis.cs108;
 
 import ch.unibas.dmi.dbis.cs108.client.Client;
 import ch.unibas.dmi.dbis.cs108.gui.GUI;
+import ch.unibas.dmi.dbis.cs108.server.Lobby;
 import ch.unibas.dmi.dbis.cs108.server.Server;
+import ch.unibas.dmi.dbis.cs108.server.ServerEngine;
 import javafx.application.Application;
 
 /**
@@ -21,7 +23,15 @@ public class Starter {
             String input = args[0];
             if (input.equalsIgnoreCase("server")) {
                 int port = Integer.parseInt(args[1]);
-                Server server = new Server(port);
+                ServerEngine engine = ServerEngine.BLOCKING;
+                for (int i = 2; i < args.length; i++) {
+                    if (args[i].startsWith(Lobby.TURN_OPTION)) {
+                        Lobby.setTurnSeconds(Long.parseLong(args[i].substring(Lobby.TURN_OPTION.length())));
+                    } else {
+                        engine = ServerEngine.fromOption(args[i]);
+                    }
+                }
+                Server server = new Server(port, engine);
                 server.start();
                 //LOGGER.info("Server started");
             } else if (input.equalsIgnoreCase("client")) {
@@ -44,7 +54,7 @@ public class Starter {
         } catch (Exception e) {
             System.out.println("Your input was incorrect. Please try again! \n\n"
                     + "It has to be done as followed: \n"
-                    + "client <hostadress>:<port> [<username>] | server <port> \n\n");
+                    + "client <hostadress>:<port> [<username>] | server <port> [--engine=blocking|virtual|nio] [--turn-seconds=<seconds>] \n\n");
         }
     }
 }
\ No newline at end of file
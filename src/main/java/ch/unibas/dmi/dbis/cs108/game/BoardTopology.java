@@ -0,0 +1,321 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.*;
+
+/**
+ * This class specifies the fields of a board variant and how they are connected. A topology is
+ * built once and is read-only afterwards, so all {@link GameBoard}s of the same variant share it
+ * and only keep the state of their player.
+ * <p>
+ * A board has at most {@link #MAX_FIELDS} fields, so a set of fields fits into one {@code long}: bit
+ * {@code i} stands for the field with index {@code i}. The neighbors of every field and the fields
+ * of every color are precomputed as such masks, which turns move validation into a few bit
+ * operations.
+ * </p>
+ */
+public final class BoardTopology {
+
+    /**
+     * The board every game is played on.
+     */
+    public static final BoardTopology STANDARD = createStandard();
+
+    /**
+     * The maximum number of fields of a board, one per bit of a {@code long}.
+     */
+    public static final int MAX_FIELDS = Long.SIZE;
+
+    /**
+     * All fields, indexed by {@link Field#getIndex()}.
+     */
+    private final Field[] fields;
+
+    /**
+     * Mapping from field ID (e.g., "blue3") to the corresponding Field object.
+     */
+    private final Map<String, Field> fieldsById;
+
+    /**
+     * The field every player starts on.
+     */
+    private final Field startField;
+
+    /**
+     * The neighbors of each field as a mask, indexed by field index.
+     */
+    private final long[] neighborMasks;
+
+    /**
+     * The fields of each color as a mask.
+     */
+    private final Map<String, Long> colorMasks;
+
+    /**
+     * The fields a player wins on, as a mask.
+     */
+    private final long finishMask;
+
+    /**
+     * The distances between the fields, computed when they are first needed.
+     */
+    private volatile DistanceOracle distances;
+
+    /**
+     * Creates a topology with the given fields and neighbors.
+     *
+     * @param colors      The colors of the fields in the order they are numbered.
+     * @param fieldCounts The number of fields of each color.
+     * @param neighborMap The IDs of the neighbors of each field. Unknown IDs are skipped.
+     * @param startId     The ID of the start field.
+     * @param finishIds   The IDs of the fields a player wins on.
+     */
+    BoardTopology(String[] colors, int[] fieldCounts, Map<String, List<String>> neighborMap, String startId,
+                  String... finishIds) {
+        List<Field> fieldList = new ArrayList<>();
+        Map<String, Field> byId = new HashMap<>();
+        for (int i = 0; i < colors.length; i++) {
+            for (int j = 1; j <= fieldCounts[i]; j++) {
+                Field field = new Field(colors[i] + j, colors[i], fieldList.size());
+                fieldList.add(field);
+                byId.put(field.getFieldId(), field);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : neighborMap.entrySet()) {
+            Field field = byId.get(entry.getKey());
+            for (String neighborId : entry.getValue()) {
+                field.addNeighbor(byId.get(neighborId));
+            }
+        }
+        if (fieldList.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("A board has at most " + MAX_FIELDS + " fields");
+        }
+        this.neighborMasks = new long[fieldList.size()];
+        Map<String, Long> masksByColor = new HashMap<>();
+        for (Field field : fieldList) {
+            field.freeze();
+            for (Field neighbor : field.getNeighbors()) {
+                neighborMasks[field.getIndex()] |= mask(neighbor);
+            }
+            masksByColor.merge(field.getColor(), mask(field), (a, b) -> a | b);
+        }
+        this.fields = fieldList.toArray(new Field[0]);
+        this.fieldsById = Collections.unmodifiableMap(byId);
+        this.colorMasks = Collections.unmodifiableMap(masksByColor);
+        this.startField = byId.get(startId);
+        long finish = 0;
+        for (String finishId : finishIds) {
+            finish |= mask(byId.get(finishId));
+        }
+        this.finishMask = finish;
+    }
+
+    /**
+     * Returns the field with the given ID.
+     *
+     * @param fieldId the ID of the field
+     * @return the field, or null if the board has no such field
+     */
+    public Field getFieldById(String fieldId) {
+        return fieldsById.get(fieldId);
+    }
+
+    /**
+     * Returns the field with the given index.
+     *
+     * @param index the index of the field
+     * @return the field
+     */
+    public Field getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Returns the neighbors of a field as a mask.
+     *
+     * @param index the index of the field
+     * @return the mask of the neighbors
+     */
+    public long getNeighborMask(int index) {
+        return neighborMasks[index];
+    }
+
+    /**
+     * Returns the fields of a color as a mask.
+     *
+     * @param color the color, e.g. "blue"
+     * @return the mask of the fields, 0 if the board has no field of that color
+     */
+    public long getColorMask(String color) {
+        Long mask = colorMasks.get(color);
+        return mask == null ? 0L : mask;
+    }
+
+    /**
+     * Returns the bit of a field.
+     *
+     * @param field a field of a topology
+     * @return the mask with only the bit of the field set, or 0 for a field that belongs to no
+     * topology
+     */
+    public static long mask(Field field) {
+        return field.getIndex() < 0 ? 0L : 1L << field.getIndex();
+    }
+
+    /**
+     * Returns the number of fields.
+     *
+     * @return the number of fields
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * Returns the field every player starts on.
+     *
+     * @return the start field
+     */
+    public Field getStartField() {
+        return startField;
+    }
+
+    /**
+     * Returns the fields a player wins on.
+     *
+     * @return the finish fields as a mask
+     */
+    public long getFinishMask() {
+        return finishMask;
+    }
+
+    /**
+     * Checks whether a player who moves to a field wins.
+     *
+     * @param field the field
+     * @return true if the field is a finish field of this board
+     */
+    public boolean isFinish(Field field) {
+        return contains(field) && (finishMask & mask(field)) != 0;
+    }
+
+    /**
+     * Returns the distances between the fields of this board. They are computed on the first call
+     * and shared afterwards.
+     *
+     * @return the distance oracle
+     */
+    public DistanceOracle getDistances() {
+        DistanceOracle oracle = distances;
+        if (oracle == null) {
+            synchronized (this) {
+                oracle = distances;
+                if (oracle == null) {
+                    oracle = new DistanceOracle(this);
+                    distances = oracle;
+                }
+            }
+        }
+        return oracle;
+    }
+
+    /**
+     * Returns a fingerprint of the fields, their neighbors and the finish fields. Files computed for
+     * a board, like a {@link Tablebase}, store it to recognise that the board has changed.
+     *
+     * @return the fingerprint
+     */
+    public long fingerprint() {
+        long fingerprint = finishMask;
+        for (Field field : fields) {
+            fingerprint = fingerprint * 31 + field.getFieldId().hashCode();
+            fingerprint = fingerprint * 31 + neighborMasks[field.getIndex()];
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Checks whether a field belongs to this topology.
+     *
+     * @param field the field
+     * @return true if the field is one of the fields of this board
+     */
+    public boolean contains(Field field) {
+        return field != null && field.getIndex() >= 0 && field.getIndex() < fields.length
+                && fields[field.getIndex()] == field;
+    }
+
+    /**
+     * Builds the standard board with its 55 fields.
+     *
+     * @return the standard topology
+     */
+    private static BoardTopology createStandard() {
+        String[] colors = {"white", "purple", "yellow", "orange", "blue", "pink", "red"};
+        int[] fieldCounts = {1, 10, 7, 10, 10, 10, 7};
+
+        Map<String, List<String>> neighborMap = new HashMap<>();
+
+        neighborMap.put("white1", Arrays.asList("purple1", "yellow1", "orange1"));
+        neighborMap.put("blue1", Arrays.asList("orange1", "yellow1", "purple2", "pink1"));
+        neighborMap.put("blue2", Arrays.asList("orange2", "pink2"));
+        neighborMap.put("blue3",
+                Arrays.asList("pink1", "pink2", "orange3", "orange4", "purple3", "red2"));
+        neighborMap.put("blue4",
+                Arrays.asList("red2", "purple4", "orange5", "purple5", "pink3", "yellow2"));
+        neighborMap.put("blue5", Arrays.asList("pink4", "yellow3", "blue6", "purple6"));
+        neighborMap.put("blue6", Arrays.asList("blue5", "yellow3", "red4", "purple6", "yellow4"));
+        neighborMap.put("blue7", Arrays.asList("orange7", "pink6", "red6", "orange9"));
+        neighborMap.put("blue8", Arrays.asList("orange9", "pink8", "yellow5", "purple9"));
+        neighborMap.put("blue9", Arrays.asList("purple9", "yellow5", "pink9", "yellow6"));
+        neighborMap.put("blue10", Arrays.asList("purple10", "orange10", "pink10"));
+        neighborMap.put("red1", Arrays.asList("purple1", "yellow1", "purple2", "orange2"));
+        neighborMap.put("red2", Arrays.asList("orange4", "blue3", "purple3", "purple4", "blue4"));
+        neighborMap.put("red3", Arrays.asList("purple5", "orange5", "pink4", "pink5", "yellow3"));
+        neighborMap.put("red4", Arrays.asList("orange6", "yellow3", "blue6"));
+        neighborMap.put("red5", Arrays.asList("yellow4", "orange7", "purple7"));
+        neighborMap.put("red6",
+                Arrays.asList("pink7", "orange8", "pink6", "blue7", "orange9", "pink8"));
+        neighborMap.put("red7", Arrays.asList("purple9", "yellow7", "orange10"));
+        neighborMap.put("orange1", Arrays.asList("yellow1", "blue1"));
+        neighborMap.put("orange2", Arrays.asList("red1", "purple2", "blue2"));
+        neighborMap.put("orange3", Arrays.asList("pink2", "blue3", "purple3"));
+        neighborMap.put("orange4", Arrays.asList("pink1", "blue3", "red2"));
+        neighborMap.put("orange5", Arrays.asList("blue4", "purple4", "pink4", "red3", "purple5"));
+        neighborMap.put("orange6", Arrays.asList("pink5", "yellow3", "red4"));
+        neighborMap.put("orange7", Arrays.asList("yellow4", "red5", "purple7", "pink6", "blue7"));
+        neighborMap.put("orange8", Arrays.asList("pink7", "red6"));
+        neighborMap.put("orange9", Arrays.asList("blue7", "red6", "pink8", "blue8"));
+        neighborMap.put("orange10", Arrays.asList("purple10", "yellow7", "red7", "pink10", "blue10"));
+        neighborMap.put("purple1", Arrays.asList("yellow1", "red1"));
+        neighborMap.put("purple2", Arrays.asList("yellow1", "blue1", "pink1", "red1", "orange2"));
+        neighborMap.put("purple3", Arrays.asList("orange3", "blue3", "red2"));
+        neighborMap.put("purple4", Arrays.asList("red2", "blue4", "orange5", "pink4"));
+        neighborMap.put("purple5", Arrays.asList("pink3", "blue4", "orange5", "red3", "pink5"));
+        neighborMap.put("purple6", Arrays.asList("blue5", "blue6", "yellow4"));
+        neighborMap.put("purple7", Arrays.asList("red5", "orange7", "pink6", "pink7"));
+        neighborMap.put("purple8", Arrays.asList("pink8", "yellow5", "pink9"));
+        neighborMap.put("purple9", Arrays.asList("blue8", "yellow5", "blue9", "red7"));
+        neighborMap.put("purple10", Arrays.asList("yellow6", "orange10", "blue10"));
+        neighborMap.put("yellow1", Arrays.asList("orange1", "purple1", "blue1", "red1", "purple2"));
+        neighborMap.put("yellow2", Arrays.asList("blue4", "pink3"));
+        neighborMap.put("yellow3",
+                Arrays.asList("blue6", "red4", "blue5", "orange6", "pink4", "red3", "pink5"));
+        neighborMap.put("yellow4", Arrays.asList("orange7", "red5", "purple6", "blue6"));
+        neighborMap.put("yellow5",
+                Arrays.asList("pink8", "purple8", "pink9", "blue9", "purple9", "blue8"));
+        neighborMap.put("yellow6", Arrays.asList("pink9", "blue9", "purple10"));
+        neighborMap.put("yellow7", Arrays.asList("red7", "orange10", "pink10"));
+        neighborMap.put("pink1", Arrays.asList("blue1", "purple2", "blue3", "orange4"));
+        neighborMap.put("pink2", Arrays.asList("blue2", "blue3", "orange3"));
+        neighborMap.put("pink3", Arrays.asList("yellow2", "blue4", "purple5"));
+        neighborMap.put("pink4", Arrays.asList("purple4", "orange5", "red3", "yellow3", "blue5"));
+        neighborMap.put("pink5", Arrays.asList("purple5", "red3", "yellow3", "orange6"));
+        neighborMap.put("pink6", Arrays.asList("purple7", "orange7", "blue7", "red6"));
+        neighborMap.put("pink7", Arrays.asList("purple7", "red6", "orange8"));
+        neighborMap.put("pink8", Arrays.asList("purple8", "blue8", "red6", "orange9", "yellow5"));
+        neighborMap.put("pink9", Arrays.asList("purple8", "yellow5", "blue9", "yellow6"));
+        neighborMap.put("pink10", Arrays.asList("yellow7", "orange10", "blue10"));
+
+        return new BoardTopology(colors, fieldCounts, neighborMap, "white1", "blue10", "pink10");
+    }
+}
@@ -0,0 +1,118 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.Arrays;
+
+/**
+ * This class answers how many moves apart two fields of a {@link BoardTopology} are, and how far
+ * each field is from the nearest finish field. The distances are computed once per topology with a
+ * breadth-first search from every field and kept in one byte matrix, so every query is a single
+ * array access, e.g. for hints, bots or the progress display.
+ * <p>
+ * A distance is the smallest number of fields a player has to select to get from one field to the
+ * other, following the neighbors in their direction. It ignores the colors of the dice.
+ * </p>
+ */
+public final class DistanceOracle {
+
+    /**
+     * The distance of a field that cannot be reached.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * The number of fields.
+     */
+    private final int size;
+
+    /**
+     * The distance from field {@code i} to field {@code j} at {@code i * size + j}, or
+     * {@link #UNREACHABLE}.
+     */
+    private final byte[] distances;
+
+    /**
+     * The distance from each field to the nearest finish field, or {@link #UNREACHABLE}.
+     */
+    private final byte[] finishDistances;
+
+    /**
+     * Computes the distances of a topology.
+     *
+     * @param topology the fields and neighbors of the board
+     */
+    DistanceOracle(BoardTopology topology) {
+        this.size = topology.size();
+        this.distances = new byte[size * size];
+        this.finishDistances = new byte[size];
+        Arrays.fill(distances, (byte) UNREACHABLE);
+        Arrays.fill(finishDistances, (byte) UNREACHABLE);
+
+        int[] queue = new int[size];
+        for (int from = 0; from < size; from++) {
+            int offset = from * size;
+            distances[offset + from] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = from;
+            while (head < tail) {
+                int field = queue[head++];
+                for (long rest = topology.getNeighborMask(field); rest != 0; rest &= rest - 1) {
+                    int neighbor = Long.numberOfTrailingZeros(rest);
+                    if (distances[offset + neighbor] == UNREACHABLE) {
+                        distances[offset + neighbor] = (byte) (distances[offset + field] + 1);
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            for (long rest = topology.getFinishMask(); rest != 0; rest &= rest - 1) {
+                int distance = distances[offset + Long.numberOfTrailingZeros(rest)];
+                if (distance != UNREACHABLE
+                        && (finishDistances[from] == UNREACHABLE || distance < finishDistances[from])) {
+                    finishDistances[from] = (byte) distance;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distance between two fields.
+     *
+     * @param from the index of the start field
+     * @param to   the index of the target field
+     * @return the number of moves, or {@link #UNREACHABLE}
+     */
+    public int distance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    /**
+     * Returns the distance between two fields.
+     *
+     * @param from the start field
+     * @param to   the target field
+     * @return the number of moves, or {@link #UNREACHABLE}
+     */
+    public int distance(Field from, Field to) {
+        return distance(from.getIndex(), to.getIndex());
+    }
+
+    /**
+     * Returns the distance from a field to the nearest finish field.
+     *
+     * @param from the index of the field
+     * @return the number of moves, 0 on a finish field, or {@link #UNREACHABLE}
+     */
+    public int distanceToFinish(int from) {
+        return finishDistances[from];
+    }
+
+    /**
+     * Returns the distance from a field to the nearest finish field.
+     *
+     * @param from the field
+     * @return the number of moves, 0 on a finish field, or {@link #UNREACHABLE}
+     */
+    public int distanceToFinish(Field from) {
+        return distanceToFinish(from.getIndex());
+    }
+}
@@ -1,5 +1,6 @@
 package ch.unibas.dmi.dbis.cs108.game;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -26,6 +27,11 @@ public class Field {
      */
     Set<Field> neighbors;
 
+    /**
+     * The index of the field in its {@link BoardTopology}, or -1 if it belongs to none.
+     */
+    private final int index;
+
     /**
      * Constructor of the class Field
      *
@@ -33,15 +39,29 @@ public class Field {
      * @param color   the color of the field
      */
     public Field(String fieldId, String color) {
+        this(fieldId, color, -1);
+    }
+
+    /**
+     * Constructor for the fields of a {@link BoardTopology}.
+     *
+     * @param fieldId the id of the field
+     * @param color   the color of the field
+     * @param index   the index of the field in the topology
+     */
+    Field(String fieldId, String color, int index) {
         this.fieldId = fieldId;
         this.color = color;
         this.neighbors = new HashSet<>();
+        this.index = index;
     }
 
     /**
-     * Method to add a neighbor to the HashSet of neighbors of field.
+     * Method to add a neighbor to the HashSet of neighbors of field. The fields of a
+     * {@link BoardTopology} are shared and can no longer be changed.
      *
      * @param neighbor neighbor of the field
+     * @throws UnsupportedOperationException If the field belongs to a topology.
      */
     public void addNeighbor(Field neighbor) {
         if (neighbor != null) {
@@ -75,4 +95,20 @@ public class Field {
     public Set<Field> getNeighbors() {
         return neighbors;
     }
+
+    /**
+     * Method to get the index of a field in its {@link BoardTopology}
+     *
+     * @return the index, or -1 if the field belongs to no topology
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Makes the neighbors read-only once the topology is built.
+     */
+    void freeze() {
+        this.neighbors = Collections.unmodifiableSet(neighbors);
+    }
 }
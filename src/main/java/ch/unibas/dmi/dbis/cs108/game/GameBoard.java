@@ -3,22 +3,18 @@ package ch.unibas.dmi.dbis.cs108.game;
 import java.util.*;
 
 /**
- * This class specifies the GameBoard with its fields. Every player has its own object of this
- * class.
+ * This class specifies the GameBoard of one player. The fields and their neighbors are shared with
+ * all other boards of the same {@link BoardTopology}; the board itself only keeps the state of its
+ * player: the current field, the selected path and the colors of the last roll.
  *
  * @author Jana
  */
 public class GameBoard {
 
     /**
-     * Mapping from field ID (e.g., "blue3") to the corresponding Field object.
+     * The shared fields and neighbors of the board.
      */
-    private final Map<String, Field> fields;
-
-    /**
-     * Set of fields currently selected by the player (for move planning).
-     */
-    private final Set<Field> selectedFields;
+    private final BoardTopology topology;
 
     /**
      * Ordered list of selected fields, preserving the sequence of selections for {@code MOVE} operations.
@@ -32,153 +28,101 @@ public class GameBoard {
     public String[] colors;
 
     /**
-     * The current field on which the player currently resides.
+     * The index of the field on which the player currently resides.
      */
-    private Field currentField;
+    private int currentField;
 
     /**
-     * Constructor of the class GameBoard. Defines the Map over the fields. Defines the Set over the
-     * selectedFields.
+     * The selected fields as a mask, see {@link BoardTopology}.
      */
-    public GameBoard() {
-        this.fields = new HashMap<>();
-        this.selectedFields = new HashSet<>();
-
-        initializeFields();
-        initializeNeighbors();
-    }
+    private long selectedMask;
 
     /**
-     * This method initializes every field with its fieldId. Sets the current field for the start.
+     * The fields that can be selected next as a mask: the neighbors of the current field and of all
+     * selected fields.
      */
-    private void initializeFields() {
-        String[] colors = {"white", "purple", "yellow", "orange", "blue", "pink", "red"};
-        int[] fieldCounts = {1, 10, 7, 10, 10, 10, 7};
+    private long frontierMask;
 
-        for (int i = 0; i < colors.length; i++) {
-            for (int j = 1; j <= fieldCounts[i]; j++) {
-                String fieldId = colors[i] + j;
-                fields.put(fieldId, new Field(fieldId, colors[i]));
-            }
-        }
-        this.currentField = fields.get("white1");
+    /**
+     * Constructor of the class GameBoard. Uses the standard board and sets the current field for the
+     * start.
+     */
+    public GameBoard() {
+        this(BoardTopology.STANDARD);
     }
 
     /**
-     * This method initializes all the neighbors for every single field. By assigning an ArrayList
-     * with every neighbor to the single fields.
+     * Creates a board for a player on the given topology and sets the current field for the start.
+     *
+     * @param topology the fields and neighbors of the board
      */
-    private void initializeNeighbors() {
-        Map<String, List<String>> neighborMap = new HashMap<>();
-
-        neighborMap.put("white1", Arrays.asList("purple1", "yellow1", "orange1"));
-        neighborMap.put("blue1", Arrays.asList("orange1", "yellow1", "purple2", "pink1"));
-        neighborMap.put("blue2", Arrays.asList("orange2", "pink2"));
-        neighborMap.put("blue3",
-                Arrays.asList("pink1", "pink2", "orange3", "orange4", "purple3", "red2"));
-        neighborMap.put("blue4",
-                Arrays.asList("red2", "purple4", "orange5", "purple5", "pink3", "yellow2"));
-        neighborMap.put("blue5", Arrays.asList("pink4", "yellow3", "blue6", "purple6"));
-        neighborMap.put("blue6", Arrays.asList("blue5", "yellow3", "red4", "purple6", "yellow4"));
-        neighborMap.put("blue7", Arrays.asList("orange7", "pink6", "red6", "orange9"));
-        neighborMap.put("blue8", Arrays.asList("orange9", "pink8", "yellow5", "purple9"));
-        neighborMap.put("blue9", Arrays.asList("purple9", "yellow5", "pink9", "yellow6"));
-        neighborMap.put("blue10", Arrays.asList("purple10", "orange10", "pink10"));
-        neighborMap.put("red1", Arrays.asList("purple1", "yellow1", "purple2", "orange2"));
-        neighborMap.put("red2", Arrays.asList("orange4", "blue3", "purple3", "purple4", "blue4"));
-        neighborMap.put("red3", Arrays.asList("purple5", "orange5", "pink4", "pink5", "yellow3"));
-        neighborMap.put("red4", Arrays.asList("orange6", "yellow3", "blue6"));
-        neighborMap.put("red5", Arrays.asList("yellow4", "orange7", "purple7"));
-        neighborMap.put("red6",
-                Arrays.asList("pink7", "orange8", "pink6", "blue7", "orange9", "pink8"));
-        neighborMap.put("red7", Arrays.asList("purple9", "yellow7", "orange10"));
-        neighborMap.put("orange1", Arrays.asList("yellow1", "blue1"));
-        neighborMap.put("orange2", Arrays.asList("red1", "purple2", "blue2"));
-        neighborMap.put("orange3", Arrays.asList("pink2", "blue3", "purple3"));
-        neighborMap.put("orange4", Arrays.asList("pink1", "blue3", "red2"));
-        neighborMap.put("orange5", Arrays.asList("blue4", "purple4", "pink4", "red3", "purple5"));
-        neighborMap.put("orange6", Arrays.asList("pink5", "yellow3", "red4"));
-        neighborMap.put("orange7", Arrays.asList("yellow4", "red5", "purple7", "pink6", "blue7"));
-        neighborMap.put("orange8", Arrays.asList("pink7", "red6"));
-        neighborMap.put("orange9", Arrays.asList("blue7", "red6", "pink8", "blue8"));
-        neighborMap.put("orange10", Arrays.asList("purple10", "yellow7", "red7", "pink10", "blue10"));
-        neighborMap.put("purple1", Arrays.asList("yellow1", "red1"));
-        neighborMap.put("purple2", Arrays.asList("yellow1", "blue1", "pink1", "red1", "orange2"));
-        neighborMap.put("purple3", Arrays.asList("orange3", "blue3", "red2"));
-        neighborMap.put("purple4", Arrays.asList("red2", "blue4", "orange5", "pink4"));
-        neighborMap.put("purple5", Arrays.asList("pink3", "blue4", "orange5", "red3", "pink5"));
-        neighborMap.put("purple6", Arrays.asList("blue5", "blue6", "yellow4"));
-        neighborMap.put("purple7", Arrays.asList("red5", "orange7", "pink6", "pink7"));
-        neighborMap.put("purple8", Arrays.asList("pink8", "yellow5", "pink9"));
-        neighborMap.put("purple9", Arrays.asList("blue8", "yellow5", "blue9", "red7"));
-        neighborMap.put("purple10", Arrays.asList("yellow6", "orange10", "blue10"));
-        neighborMap.put("yellow1", Arrays.asList("orange1", "purple1", "blue1", "red1", "purple2"));
-        neighborMap.put("yellow2", Arrays.asList("blue4", "pink3"));
-        neighborMap.put("yellow3",
-                Arrays.asList("blue6", "red4", "blue5", "orange6", "pink4", "red3", "pink5"));
-        neighborMap.put("yellow4", Arrays.asList("orange7", "red5", "purple6", "blue6"));
-        neighborMap.put("yellow5",
-                Arrays.asList("pink8", "purple8", "pink9", "blue9", "purple9", "blue8"));
-        neighborMap.put("yellow6", Arrays.asList("pink9", "blue9", "purple10"));
-        neighborMap.put("yellow7", Arrays.asList("red7", "orange10", "pink10"));
-        neighborMap.put("pink1", Arrays.asList("blue1", "purple2", "blue3", "orange4"));
-        neighborMap.put("pink2", Arrays.asList("blue2", "blue3", "orange3"));
-        neighborMap.put("pink3", Arrays.asList("yellow2", "blue4", "purple5"));
-        neighborMap.put("pink4", Arrays.asList("purple4", "orange5", "red3", "yellow3", "blue5"));
-        neighborMap.put("pink5", Arrays.asList("purple5", "red3", "yellow3", "orange6"));
-        neighborMap.put("pink6", Arrays.asList("purple7", "orange7", "blue7", "red6"));
-        neighborMap.put("pink7", Arrays.asList("purple7", "red6", "orange8"));
-        neighborMap.put("pink8", Arrays.asList("purple8", "blue8", "red6", "orange9", "yellow5"));
-        neighborMap.put("pink9", Arrays.asList("purple8", "yellow5", "blue9", "yellow6"));
-        neighborMap.put("pink10", Arrays.asList("yellow7", "orange10", "blue10"));
-
-        for (Map.Entry<String, List<String>> entry : neighborMap.entrySet()) {
-            Field field = fields.get(entry.getKey());
-            for (String neighborId : entry.getValue()) {
-                Field neighbor = fields.get(neighborId);
-                if (neighbor != null) {
-                    field.addNeighbor(neighbor);
-                }
-            }
-        }
+    public GameBoard(BoardTopology topology) {
+        this.topology = topology;
+        this.currentField = topology.getStartField().getIndex();
+        updateMasks();
     }
 
     /**
      * This method checks whether the field chosen by the user is valid or not. It checks if the field
      * is connected to the field the player is currently on or if it is connected to an already
      * selected field. It checks if the filed corresponds to a color that was rolled and is not
-     * already used.
+     * already used. If it is valid, the color is used up.
+     * <p>
+     * The connection is checked with the precomputed neighbor masks of the {@link BoardTopology}.
      *
      * @param fieldId the id of the chosen field.
      * @return true if field is valid, false if field is not valid
      */
     public boolean isValidField(String fieldId) {
-        Field targetField = fields.get(fieldId);
-        String fieldColor = fieldId.split("\\d")[0];
-
-        boolean isNeighbor = currentField.getNeighbors().contains(targetField);
-
-        boolean isConnectedNeighbor = false;
-        for (Field selectedField : selectedFields) {
-            if (selectedField.getNeighbors().contains(targetField)) {
-                isConnectedNeighbor = true;
-                break;
-            }
+        Field targetField = topology.getFieldById(fieldId);
+        if (targetField == null || (frontierMask & BoardTopology.mask(targetField)) == 0) {
+            return false;
         }
-        if (isNeighbor || isConnectedNeighbor) {
-            boolean colormatches = false;
-            for (int i = 0; i < colors.length; i++) {
-                if (fieldColor.equals(colors[i])) {
-                    colors[i] = null;
-                    colormatches = true;
-                    break;
-                }
+        String fieldColor = targetField.getColor();
+        for (int i = 0; i < colors.length; i++) {
+            if (fieldColor.equals(colors[i])) {
+                colors[i] = null;
+                return true;
             }
-            return colormatches;
         }
         return false;
     }
 
+    /**
+     * Returns the fields that can be selected next, without looking at the colors.
+     *
+     * @return the neighbors of the current field and of all selected fields as a mask
+     */
+    public long getFrontierMask() {
+        return frontierMask;
+    }
+
+    /**
+     * Returns the selected fields.
+     *
+     * @return the selected fields as a mask
+     */
+    public long getSelectedMask() {
+        return selectedMask;
+    }
+
+    /**
+     * Recomputes the masks of the selected fields and of the frontier after the selection or the
+     * current field changed.
+     */
+    private void updateMasks() {
+        long selected = 0;
+        long frontier = topology.getNeighborMask(currentField);
+        for (Field field : selectedFieldList) {
+            if (topology.contains(field)) {
+                selected |= BoardTopology.mask(field);
+                frontier |= topology.getNeighborMask(field.getIndex());
+            }
+        }
+        selectedMask = selected;
+        frontierMask = frontier;
+    }
+
     /**
      * Get the correct Field using the fieldIds.
      *
@@ -186,37 +130,52 @@ public class GameBoard {
      * @return the field corresponding to the fieldId
      */
     public Field getFieldById(String fieldId) {
-        return fields.get(fieldId);
+        return topology.getFieldById(fieldId);
     }
 
     /**
-     * Takes a chosen field out of the Set of selectedFields.
+     * Returns the shared fields and neighbors of this board.
+     *
+     * @return the topology
+     */
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Takes a chosen field out of the selected path.
      *
      * @param field the chosen field
      */
     public void removeSelectedField(Field field) {
-        selectedFields.remove(field);
         selectedFieldList.remove(field); // for MOVE
+        updateMasks();
     }
 
     /**
-     * Adds a chosen field to the Set of selectedFields.
+     * Adds a chosen field to the selected path.
      *
      * @param field the chosen field
      */
     public void addSelectedField(Field field) {
-        selectedFields.add(field);
         selectedFieldList.add(field); // for MOVE
+        if (topology.contains(field)) {
+            selectedMask |= BoardTopology.mask(field);
+            frontierMask |= topology.getNeighborMask(field.getIndex());
+        }
     }
 
     /**
-     * checks if given field is in the HashSet selectedFields
+     * checks if given field is in the selected path
      *
      * @param field the field searched for
-     * @return true or false (depending on whether the field is in selectedFields or not)
+     * @return true or false (depending on whether the field is selected or not)
      */
     public boolean inSelectedField(Field field) {
-        return selectedFields.contains(field);
+        if (topology.contains(field)) {
+            return (selectedMask & BoardTopology.mask(field)) != 0;
+        }
+        return selectedFieldList.contains(field);
     }
 
     /**
@@ -239,9 +198,8 @@ public class GameBoard {
     public void moveToLastSelected() {
         Field last = getLastSelectedField();
         if (last != null) {
-            currentField = last;
-            selectedFields.clear();
             selectedFieldList.clear();
+            setCurrentField(last);
         }
     }
 
@@ -252,7 +210,7 @@ public class GameBoard {
      * @return the current field.
      */
     public Field getCurrentField() {
-        return currentField;
+        return topology.getField(currentField);
     }
 
     /**
@@ -261,14 +219,20 @@ public class GameBoard {
      *
      * @param field the field that should be the currentField
      * @return returns the current field
+     * @throws IllegalArgumentException If the field is not on this board.
      */
     public Field setCurrentField(Field field) {
-        currentField = field;
-        return currentField;
+        Field boardField = field == null ? null : topology.getFieldById(field.getFieldId());
+        if (boardField == null) {
+            throw new IllegalArgumentException("Field is not on this board: " + field);
+        }
+        currentField = boardField.getIndex();
+        updateMasks();
+        return boardField;
     }
 
     /**
-     * checks if the HashSet selectedFields is empty
+     * checks if the selected path is empty
      *
      * @return true or false
      */
@@ -277,7 +241,7 @@ public class GameBoard {
     }
 
     /**
-     * Goes through the hashSet selectedFields, as soon as it found the deselectedField it is removed.
+     * Goes through the selected path, as soon as it found the deselectedField it is removed.
      * Every field that comes after the deselectedField is removed to and the fieldcolors are put back
      * in the colors array.
      *
@@ -291,8 +255,7 @@ public class GameBoard {
             Field field = iterator.next();
             if (found || field.equals(deselectedField)) {
                 iterator.remove();
-                selectedFields.remove(field);
-                String fieldColor = field.getFieldId().split("\\d")[0];
+                String fieldColor = field.getColor();
                 for (int i = 0; i < colors.length; i++) {
                     if (colors[i] == null) {
                         colors[i] = fieldColor;
@@ -302,6 +265,7 @@ public class GameBoard {
                 found = true;
             }
         }
+        updateMasks();
 
         return Arrays.toString(colors);
     }
@@ -310,8 +274,8 @@ public class GameBoard {
      * Clears all selected fields. Used for resetting the selected fields without moving.
      */
     public void clearSelectedFields() {
-        selectedFields.clear();
         selectedFieldList.clear();
+        updateMasks();
     }
 
     /**
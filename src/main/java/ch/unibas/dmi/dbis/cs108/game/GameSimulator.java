@@ -0,0 +1,180 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+
+/**
+ * The {@code GameSimulator} plays complete games without a server, sockets or user interface, to
+ * balance the board and to check rule changes. Every player has a real {@link GameBoard}, rolls a
+ * {@link Dice} and selects its fields with {@link GameBoard#isValidField(String)}, like a client
+ * does with ROLL, CHOS and MOVE. The turns follow {@code Lobby.advanceTurn}: the player in the
+ * second seat starts and players who reached the finish are skipped. A game ends when only one
+ * player is left.
+ * <p>
+ * The games run in parallel on all cores. Game {@code i} uses a random generator seeded with
+ * {@code seed + i}, so a simulation with the same seed always gives the same result.
+ * </p>
+ */
+public class GameSimulator {
+
+    /**
+     * Games in which nobody reached the finish after this many rounds are stopped.
+     */
+    public static final int MAX_ROUNDS = 1000;
+
+    /**
+     * The board the games are played on.
+     */
+    private final BoardTopology topology;
+
+    /**
+     * The reachable fields of the board.
+     */
+    private final MoveGenerator moveGenerator;
+
+    /**
+     * The strategy of each seat.
+     */
+    private final SimulationStrategy[] strategies;
+
+    /**
+     * Creates a simulator for the standard board.
+     *
+     * @param strategies the strategy of each seat, between 2 and 4 of them
+     * @throws IllegalArgumentException If the number of players is not between 2 and 4.
+     */
+    public GameSimulator(SimulationStrategy... strategies) {
+        this(BoardTopology.STANDARD, strategies);
+    }
+
+    /**
+     * Creates a simulator.
+     *
+     * @param topology   the board the games are played on
+     * @param strategies the strategy of each seat, between 2 and 4 of them
+     * @throws IllegalArgumentException If the number of players is not between 2 and 4.
+     */
+    public GameSimulator(BoardTopology topology, SimulationStrategy... strategies) {
+        if (strategies.length < 2 || strategies.length > 4) {
+            throw new IllegalArgumentException("A game needs 2 to 4 players, not " + strategies.length);
+        }
+        this.topology = topology;
+        this.moveGenerator = topology == BoardTopology.STANDARD ? MoveGenerator.STANDARD : new MoveGenerator(topology);
+        this.strategies = strategies.clone();
+    }
+
+    /**
+     * Plays games in parallel.
+     *
+     * @param games the number of games
+     * @param seed  the seed of the first game
+     * @return the result of all games
+     */
+    public SimulationResult run(long games, long seed) {
+        long start = System.nanoTime();
+        SimulationResult result = LongStream.range(0, games).parallel().collect(
+                () -> new SimulationResult(strategies.length),
+                (partial, game) -> play(partial, seed + game),
+                SimulationResult::merge);
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Plays one game and adds it to a result.
+     *
+     * @param result the result
+     * @param seed   the seed of the game
+     */
+    void play(SimulationResult result, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Dice dice = new Dice() {
+            @Override
+            public double getRandom() {
+                return random.nextDouble();
+            }
+        };
+        int players = strategies.length;
+        GameBoard[] boards = new GameBoard[players];
+        int[] rolls = new int[players];
+        boolean[] finished = new boolean[players];
+        for (int seat = 0; seat < players; seat++) {
+            boards[seat] = new GameBoard(topology);
+        }
+
+        int firstWinner = -1;
+        int winners = 0;
+        int current = 0;
+        for (int turn = 0; turn < MAX_ROUNDS * players && winners < players - 1; turn++) {
+            do {
+                current = (current + 1) % players;
+            } while (finished[current]);
+
+            GameBoard board = boards[current];
+            board.setLastRoll(dice.roll());
+            rolls[current]++;
+            if (move(board, strategies[current], random) && topology.isFinish(board.getCurrentField())) {
+                finished[current] = true;
+                winners++;
+                if (firstWinner < 0) {
+                    firstWinner = current;
+                }
+            }
+            board.consumeLastRoll();
+        }
+
+        if (firstWinner < 0) {
+            result.addUnfinishedGame();
+        } else {
+            result.addGame(firstWinner, rolls[firstWinner]);
+        }
+    }
+
+    /**
+     * Lets a strategy choose a field and moves there, selecting the fields on the way one after the
+     * other.
+     *
+     * @param board    the board of the player, with the roll stored
+     * @param strategy the strategy of the player
+     * @param random   the random generator of the game
+     * @return true if the player moved
+     * @throws IllegalStateException If the strategy chose a field that cannot be reached.
+     */
+    private boolean move(GameBoard board, SimulationStrategy strategy, RandomGenerator random) {
+        ReachableFields reachable = moveGenerator.generate(board, board.peekLastRoll());
+        Field target = strategy.choose(board, reachable, random);
+        if (target == null) {
+            return false;
+        }
+        List<Field> chain = reachable.getChain(target);
+        if (chain.isEmpty()) {
+            throw new IllegalStateException("The field " + target.getFieldId() + " cannot be reached");
+        }
+        for (Field field : chain) {
+            if (!board.isValidField(field.getFieldId())) {
+                throw new IllegalStateException("The field " + field.getFieldId() + " is not valid");
+            }
+            board.addSelectedField(field);
+        }
+        board.moveToLastSelected();
+        return true;
+    }
+
+    /**
+     * Plays games with greedy players and prints the result. The arguments are the number of games
+     * (default 1'000'000), the number of players (default 4) and the seed (default 0).
+     *
+     * @param args the optional arguments
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        SimulationStrategy[] strategies = new SimulationStrategy[players];
+        Arrays.fill(strategies, SimulationStrategy.GREEDY);
+        System.out.println(new GameSimulator(strategies).run(games, seed));
+    }
+}
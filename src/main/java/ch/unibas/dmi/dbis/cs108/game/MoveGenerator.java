@@ -0,0 +1,230 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class computes every field a player can reach with a roll, so clients no longer have to
+ * find valid fields by trial and error.
+ * <p>
+ * A field is reachable if there is a chain of selections that ends on it: every selected field is a
+ * neighbor of the current field or of an earlier selection, and each one uses up a rolled die of
+ * its color (see {@link GameBoard#isValidField(String)}). Following the earlier selection each field
+ * was connected to leads back to the current field, so a field is reachable exactly if there is a
+ * path to it whose colors are contained in the roll. The generator searches these paths breadth
+ * first, which also yields the shortest chain for every field.
+ * </p>
+ * <p>
+ * Results only depend on the current field and the colors of the roll, not on their order, and are
+ * memoized for each such pair.
+ * </p>
+ */
+public final class MoveGenerator {
+
+    /**
+     * The colors the dice can show, see {@link Dice}.
+     */
+    static final String[] DICE_COLORS = {"yellow", "orange", "red", "pink", "purple", "blue"};
+
+    /**
+     * The number of bits used for the count of one color in a roll key. A roll has six dice, so the
+     * count is at most 6.
+     */
+    private static final int BITS_PER_COLOR = 3;
+
+    /**
+     * The generator for the standard board. Declared after the colors it needs.
+     */
+    public static final MoveGenerator STANDARD = new MoveGenerator(BoardTopology.STANDARD);
+
+    /**
+     * The topology the moves are generated for.
+     */
+    private final BoardTopology topology;
+
+    /**
+     * The index in {@link #DICE_COLORS} of the color of each field, or -1 if no die shows it.
+     */
+    private final int[] fieldColors;
+
+    /**
+     * The memoized results by field index and roll key.
+     */
+    private final Map<Long, ReachableFields> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a generator for a topology.
+     *
+     * @param topology the fields and neighbors of the board
+     */
+    public MoveGenerator(BoardTopology topology) {
+        this.topology = topology;
+        this.fieldColors = new int[topology.size()];
+        for (int i = 0; i < fieldColors.length; i++) {
+            fieldColors[i] = colorIndex(topology.getField(i).getColor());
+        }
+    }
+
+    /**
+     * Computes the fields a player can reach from the current field of the board with a roll.
+     *
+     * @param board the board of the player
+     * @param roll  the rolled colors; {@code null} entries are used up and ignored
+     * @return the reachable fields
+     */
+    public ReachableFields generate(GameBoard board, String[] roll) {
+        return generate(board.getCurrentField(), roll);
+    }
+
+    /**
+     * Computes the fields that can be reached from a field with a roll.
+     *
+     * @param from the field the player is on
+     * @param roll the rolled colors; {@code null} entries are used up and ignored
+     * @return the reachable fields
+     * @throws IllegalArgumentException If the field is not on the board of this generator.
+     */
+    public ReachableFields generate(Field from, String[] roll) {
+        if (!topology.contains(from)) {
+            throw new IllegalArgumentException("Field is not on this board: " + from);
+        }
+        int rollKey = rollKey(roll);
+        long key = ((long) rollKey << Integer.SIZE) | from.getIndex();
+        return cache.computeIfAbsent(key, k -> search(from.getIndex(), rollKey));
+    }
+
+    /**
+     * Returns the number of memoized results.
+     *
+     * @return the number of cached (field, roll) pairs
+     */
+    public int cacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Searches all paths from a field breadth first. A state is a field together with the colors
+     * that are left; the first time a field is reached, the path to it is the shortest chain.
+     *
+     * @param start   the index of the current field
+     * @param rollKey the colors of the roll
+     * @return the reachable fields
+     */
+    private ReachableFields search(int start, int rollKey) {
+        Map<Long, Long> parents = new HashMap<>();
+        Queue<Long> queue = new ArrayDeque<>();
+        Map<Integer, int[]> chains = new HashMap<>();
+        long reachable = 0;
+
+        long startState = state(start, rollKey);
+        parents.put(startState, -1L);
+        queue.add(startState);
+        while (!queue.isEmpty()) {
+            long current = queue.poll();
+            int field = (int) (current & 0xFFFF);
+            int left = (int) (current >>> 16);
+            for (long rest = topology.getNeighborMask(field); rest != 0; rest &= rest - 1) {
+                int neighbor = Long.numberOfTrailingZeros(rest);
+                int color = fieldColors[neighbor];
+                if (neighbor == start || color < 0 || count(left, color) == 0) {
+                    continue;
+                }
+                long next = state(neighbor, left - (1 << (color * BITS_PER_COLOR)));
+                if (parents.putIfAbsent(next, current) != null) {
+                    continue;
+                }
+                queue.add(next);
+                if ((reachable & (1L << neighbor)) == 0) {
+                    reachable |= 1L << neighbor;
+                    chains.put(neighbor, chain(parents, next));
+                }
+            }
+        }
+        return new ReachableFields(topology, reachable, chains);
+    }
+
+    /**
+     * Follows the parents of a state back to the start.
+     *
+     * @param parents the parent of each visited state
+     * @param state   the last state of the chain
+     * @return the field indexes of the chain without the start field
+     */
+    private static int[] chain(Map<Long, Long> parents, long state) {
+        int length = 0;
+        for (long s = state; parents.get(s) != -1L; s = parents.get(s)) {
+            length++;
+        }
+        int[] chain = new int[length];
+        long s = state;
+        for (int i = length - 1; i >= 0; i--) {
+            chain[i] = (int) (s & 0xFFFF);
+            s = parents.get(s);
+        }
+        return chain;
+    }
+
+    /**
+     * Encodes a field and the colors that are left as one search state.
+     *
+     * @param field   the index of the field
+     * @param rollKey the colors that are left
+     * @return the state
+     */
+    private static long state(int field, int rollKey) {
+        return ((long) rollKey << 16) | field;
+    }
+
+    /**
+     * Returns how many dice of a color are left.
+     *
+     * @param rollKey the colors that are left
+     * @param color   the index of the color
+     * @return the count
+     */
+    private static int count(int rollKey, int color) {
+        return (rollKey >>> (color * BITS_PER_COLOR)) & ((1 << BITS_PER_COLOR) - 1);
+    }
+
+    /**
+     * Encodes the colors of a roll as counts per color, so rolls with the same colors in a different
+     * order have the same key.
+     *
+     * @param roll the rolled colors
+     * @return the roll key
+     * @throws IllegalArgumentException If the roll has more than six dice.
+     */
+    private static int rollKey(String[] roll) {
+        int key = 0;
+        int dice = 0;
+        for (String color : roll) {
+            int index = colorIndex(color);
+            if (index >= 0) {
+                key += 1 << (index * BITS_PER_COLOR);
+                dice++;
+            }
+        }
+        if (dice > 6) {
+            throw new IllegalArgumentException("A roll has at most six dice");
+        }
+        return key;
+    }
+
+    /**
+     * Returns the index of a color in {@link #DICE_COLORS}.
+     *
+     * @param color the color
+     * @return the index, or -1 if no die shows the color
+     */
+    static int colorIndex(String color) {
+        for (int i = 0; i < DICE_COLORS.length; i++) {
+            if (DICE_COLORS[i].equals(color)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,103 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds the result of the {@link MoveGenerator}: every field a player can reach with a
+ * roll, and for each of them the shortest chain of fields to select. The result is immutable and
+ * can be shared between players.
+ */
+public final class ReachableFields {
+
+    /**
+     * The topology the fields belong to.
+     */
+    private final BoardTopology topology;
+
+    /**
+     * The reachable fields as a mask, see {@link BoardTopology}.
+     */
+    private final long mask;
+
+    /**
+     * The shortest chain of field indexes for each reachable field, ending with the field itself.
+     */
+    private final Map<Integer, int[]> chains;
+
+    /**
+     * Creates the result of a move generation.
+     *
+     * @param topology the topology of the board
+     * @param mask     the reachable fields as a mask
+     * @param chains   the shortest chain to each reachable field
+     */
+    ReachableFields(BoardTopology topology, long mask, Map<Integer, int[]> chains) {
+        this.topology = topology;
+        this.mask = mask;
+        this.chains = Collections.unmodifiableMap(chains);
+    }
+
+    /**
+     * Returns the reachable fields as a mask.
+     *
+     * @return the mask
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Returns the number of reachable fields.
+     *
+     * @return the number of fields
+     */
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * Checks whether a field can be reached.
+     *
+     * @param field the field
+     * @return true if some valid selection ends on the field
+     */
+    public boolean contains(Field field) {
+        return topology.contains(field) && (mask & BoardTopology.mask(field)) != 0;
+    }
+
+    /**
+     * Returns the IDs of all reachable fields in the order of their index.
+     *
+     * @return the field IDs
+     */
+    public List<String> getFieldIds() {
+        List<String> fieldIds = new ArrayList<>(size());
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            fieldIds.add(topology.getField(Long.numberOfTrailingZeros(rest)).getFieldId());
+        }
+        return fieldIds;
+    }
+
+    /**
+     * Returns the shortest chain of fields a player has to select to reach a field. It uses as few
+     * colors of the roll as possible.
+     *
+     * @param target the field to reach
+     * @return the fields to select in this order, ending with the target, or an empty list if the
+     * field cannot be reached
+     */
+    public List<Field> getChain(Field target) {
+        if (!contains(target)) {
+            return List.of();
+        }
+        int[] chain = chains.get(target.getIndex());
+        List<Field> fields = new ArrayList<>(chain.length);
+        for (int index : chain) {
+            fields.add(topology.getField(index));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,207 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+/**
+ * This class collects the outcome of simulated games: how many rolls the winner needed (the value
+ * the highscore list records), which seat won and how fast the games were played. Results of
+ * different threads are merged with {@link #merge(SimulationResult)}.
+ */
+public final class SimulationResult {
+
+    /**
+     * Rolls to win from this value on are counted in the last bucket of the histogram.
+     */
+    public static final int MAX_ROLLS = 200;
+
+    /**
+     * The number of games that were played.
+     */
+    private long games;
+
+    /**
+     * The number of games that were stopped because nobody reached the finish.
+     */
+    private long unfinished;
+
+    /**
+     * The number of games won by each seat, in the order the players joined.
+     */
+    private final long[] winsBySeat;
+
+    /**
+     * The number of games for each number of rolls the winner needed.
+     */
+    private final long[] rollsToWin = new long[MAX_ROLLS + 1];
+
+    /**
+     * The sum of the rolls the winners needed.
+     */
+    private long totalRollsToWin;
+
+    /**
+     * The time the simulation took, in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Creates an empty result.
+     *
+     * @param players the number of players per game
+     */
+    SimulationResult(int players) {
+        this.winsBySeat = new long[players];
+    }
+
+    /**
+     * Records a finished game.
+     *
+     * @param winner the seat of the player that reached the finish first
+     * @param rolls  the rolls that player needed
+     */
+    void addGame(int winner, int rolls) {
+        games++;
+        winsBySeat[winner]++;
+        rollsToWin[Math.min(rolls, MAX_ROLLS)]++;
+        totalRollsToWin += rolls;
+    }
+
+    /**
+     * Records a game in which nobody reached the finish.
+     */
+    void addUnfinishedGame() {
+        games++;
+        unfinished++;
+    }
+
+    /**
+     * Adds the games of another result to this one.
+     *
+     * @param other the other result
+     */
+    void merge(SimulationResult other) {
+        games += other.games;
+        unfinished += other.unfinished;
+        totalRollsToWin += other.totalRollsToWin;
+        for (int i = 0; i < winsBySeat.length; i++) {
+            winsBySeat[i] += other.winsBySeat[i];
+        }
+        for (int i = 0; i < rollsToWin.length; i++) {
+            rollsToWin[i] += other.rollsToWin[i];
+        }
+    }
+
+    /**
+     * Sets the time the simulation took.
+     *
+     * @param elapsedNanos the time in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of games.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games in which nobody reached the finish.
+     *
+     * @return the number of unfinished games
+     */
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    /**
+     * Returns the number of games won by a seat.
+     *
+     * @param seat the seat, 0 for the player that joined first
+     * @return the number of wins
+     */
+    public long getWins(int seat) {
+        return winsBySeat[seat];
+    }
+
+    /**
+     * Returns the share of the finished games won by a seat.
+     *
+     * @param seat the seat, 0 for the player that joined first
+     * @return the win rate between 0 and 1
+     */
+    public double getWinRate(int seat) {
+        long finished = games - unfinished;
+        return finished == 0 ? 0 : (double) winsBySeat[seat] / finished;
+    }
+
+    /**
+     * Returns the number of games the winner needed a number of rolls for.
+     *
+     * @param rolls the number of rolls, {@link #MAX_ROLLS} for that many or more
+     * @return the number of games
+     */
+    public long getRollsToWinCount(int rolls) {
+        return rollsToWin[rolls];
+    }
+
+    /**
+     * Returns the mean number of rolls the winners needed.
+     *
+     * @return the mean
+     */
+    public double getMeanRollsToWin() {
+        long finished = games - unfinished;
+        return finished == 0 ? 0 : (double) totalRollsToWin / finished;
+    }
+
+    /**
+     * Returns the number of rolls that a share of the winners needed at most.
+     *
+     * @param quantile the share between 0 and 1, e.g. 0.5 for the median
+     * @return the number of rolls
+     */
+    public int getRollsToWinQuantile(double quantile) {
+        long finished = games - unfinished;
+        long needed = (long) Math.ceil(quantile * finished);
+        long seen = 0;
+        for (int rolls = 0; rolls < rollsToWin.length; rolls++) {
+            seen += rollsToWin[rolls];
+            if (seen >= needed && seen > 0) {
+                return rolls;
+            }
+        }
+        return MAX_ROLLS;
+    }
+
+    /**
+     * Returns the number of games played per second.
+     *
+     * @return the throughput
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the result as text.
+     *
+     * @return a summary of the result
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+                .append(games).append(" games, ").append(unfinished).append(" unfinished, ")
+                .append(String.format("%.0f games/s", getGamesPerSecond())).append('\n')
+                .append(String.format("rolls to win: mean %.2f, median %d, 90%% %d, 99%% %d",
+                        getMeanRollsToWin(), getRollsToWinQuantile(0.5), getRollsToWinQuantile(0.9),
+                        getRollsToWinQuantile(0.99))).append('\n')
+                .append("wins by seat:");
+        for (int seat = 0; seat < winsBySeat.length; seat++) {
+            text.append(String.format(" %d: %.1f%%", seat + 1, 100 * getWinRate(seat)));
+        }
+        return text.toString();
+    }
+}
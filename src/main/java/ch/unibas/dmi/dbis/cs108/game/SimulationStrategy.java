@@ -0,0 +1,73 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A {@code SimulationStrategy} decides where a simulated player moves after a roll. The
+ * {@link GameSimulator} selects the shortest chain to the chosen field on the player's
+ * {@link GameBoard}, so every move is checked by the real rules.
+ */
+@FunctionalInterface
+public interface SimulationStrategy {
+
+    /**
+     * Moves to the reachable field that is closest to the finish, or stays if none is closer than the
+     * current field.
+     */
+    SimulationStrategy GREEDY = (board, reachable, random) -> {
+        DistanceOracle distances = board.getTopology().getDistances();
+        Field best = null;
+        int bestDistance = distance(distances, board.getCurrentField());
+        for (String fieldId : reachable.getFieldIds()) {
+            Field field = board.getFieldById(fieldId);
+            int distance = distance(distances, field);
+            if (distance < bestDistance) {
+                best = field;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    };
+
+    /**
+     * Moves to a random reachable field.
+     */
+    SimulationStrategy RANDOM = (board, reachable, random) -> {
+        if (reachable.size() == 0) {
+            return null;
+        }
+        return board.getFieldById(reachable.getFieldIds().get(random.nextInt(reachable.size())));
+    };
+
+    /**
+     * Chooses the field to move to.
+     *
+     * @param board     the board of the player, with the roll stored
+     * @param reachable the fields the player can reach with the roll
+     * @param random    the random generator of the simulated game
+     * @return one of the reachable fields, or {@code null} to stay
+     */
+    Field choose(GameBoard board, ReachableFields reachable, RandomGenerator random);
+
+    /**
+     * Returns a strategy that plays the best moves of a solved board.
+     *
+     * @param tablebase the solved board
+     * @return the optimal strategy
+     */
+    static SimulationStrategy optimal(Tablebase tablebase) {
+        return (board, reachable, random) -> tablebase.bestMove(board.getCurrentField(), board.peekLastRoll());
+    }
+
+    /**
+     * Returns the distance of a field to the finish, with unreachable fields as far as possible.
+     *
+     * @param distances the distances of the board
+     * @param field     the field
+     * @return the distance
+     */
+    private static int distance(DistanceOracle distances, Field field) {
+        int distance = distances.distanceToFinish(field);
+        return distance == DistanceOracle.UNREACHABLE ? Integer.MAX_VALUE : distance;
+    }
+}
@@ -0,0 +1,199 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class gives access to the solved board: for every field the expected number of rolls a
+ * player needs to reach the finish when playing optimally, and for every field and full roll the
+ * best field to move to. The values are computed offline by the {@link TablebaseSolver} and stored
+ * in a binary file that is memory-mapped, so a lookup is a single read from the mapped file.
+ * <p>
+ * File format (big-endian): the magic number {@code CRTB}, the format version, the
+ * {@link BoardTopology#fingerprint() fingerprint} of the board, the number of fields and of rolls,
+ * then one {@code float} per field with the expected rolls and one {@code byte} per field and roll
+ * with the index of the best target field, or -1 to stay.
+ * </p>
+ * <p>
+ * Rolls are identified by their colors only. They are numbered by the number of dice of each color,
+ * see {@link #rollIndex(String[])}.
+ * </p>
+ */
+public final class Tablebase {
+
+    /**
+     * The default name of the tablebase file.
+     */
+    public static final String DEFAULT_FILE = "colorracer.tablebase";
+
+    /**
+     * The magic number at the start of the file: "CRTB".
+     */
+    static final int MAGIC = 0x43525442;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The number of dice of a roll.
+     */
+    static final int DICE = 6;
+
+    /**
+     * The number of different rolls, i.e. multisets of six dice with six colors.
+     */
+    public static final int ROLL_COUNT = multisets(DICE, MoveGenerator.DICE_COLORS.length);
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+    /**
+     * The board the tablebase was computed for.
+     */
+    private final BoardTopology topology;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Wraps the content of a tablebase file after checking its header.
+     *
+     * @param topology the board the tablebase must belong to
+     * @param buffer   the content of the file
+     * @throws IOException If the content is not a tablebase of this board.
+     */
+    Tablebase(BoardTopology topology, ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tablebase file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(4));
+        }
+        if (buffer.getLong(8) != topology.fingerprint() || buffer.getInt(16) != topology.size()
+                || buffer.getInt(20) != ROLL_COUNT) {
+            throw new IOException("The tablebase was computed for a different board");
+        }
+        if (buffer.capacity() != fileSize(topology)) {
+            throw new IOException("The tablebase file is truncated");
+        }
+        this.topology = topology;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Memory-maps a tablebase file.
+     *
+     * @param topology the board the tablebase must belong to
+     * @param file     the file written by the {@link TablebaseSolver}
+     * @return the tablebase
+     * @throws IOException If the file cannot be read or belongs to a different board.
+     */
+    public static Tablebase load(BoardTopology topology, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Tablebase(topology, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the expected number of rolls to reach the finish from a field with optimal play.
+     *
+     * @param field a field of the board
+     * @return the expected rolls, 0 on a finish field, or {@link Float#POSITIVE_INFINITY} if the
+     * finish cannot be reached
+     */
+    public float expectedRolls(Field field) {
+        return buffer.getFloat(HEADER_SIZE + 4 * field.getIndex());
+    }
+
+    /**
+     * Returns the best field to move to with a full roll.
+     *
+     * @param field the field the player is on
+     * @param roll  the six rolled colors, in any order
+     * @return the best target, or {@code null} if staying is best
+     * @throws IllegalArgumentException If the roll does not have six dice.
+     */
+    public Field bestMove(Field field, String[] roll) {
+        int offset = HEADER_SIZE + 4 * topology.size() + field.getIndex() * ROLL_COUNT + rollIndex(roll);
+        int target = buffer.get(offset);
+        return target < 0 ? null : topology.getField(target);
+    }
+
+    /**
+     * Returns the size of a tablebase file for a board.
+     *
+     * @param topology the board
+     * @return the size in bytes
+     */
+    static int fileSize(BoardTopology topology) {
+        return HEADER_SIZE + 4 * topology.size() + topology.size() * ROLL_COUNT;
+    }
+
+    /**
+     * Returns the number of a full roll. Rolls are ordered by the number of dice of the first color,
+     * then of the second color and so on, so rolls with the same colors have the same number.
+     *
+     * @param roll the six rolled colors
+     * @return the number between 0 and {@link #ROLL_COUNT} - 1
+     * @throws IllegalArgumentException If the roll does not have six dice of known colors.
+     */
+    public static int rollIndex(String[] roll) {
+        int[] counts = new int[MoveGenerator.DICE_COLORS.length];
+        int dice = 0;
+        for (String color : roll) {
+            int index = MoveGenerator.colorIndex(color);
+            if (index >= 0) {
+                counts[index]++;
+                dice++;
+            }
+        }
+        if (dice != DICE) {
+            throw new IllegalArgumentException("A full roll has " + DICE + " dice");
+        }
+        return rollIndex(counts);
+    }
+
+    /**
+     * Returns the number of a roll given as the number of dice of each color.
+     *
+     * @param counts the dice of each color, adding up to six
+     * @return the number of the roll
+     */
+    static int rollIndex(int[] counts) {
+        int index = 0;
+        int left = DICE;
+        for (int i = 0; i < counts.length - 1; i++) {
+            for (int v = 0; v < counts[i]; v++) {
+                index += multisets(left - v, counts.length - 1 - i);
+            }
+            left -= counts[i];
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of ways to roll a number of dice with a number of colors, ignoring the
+     * order.
+     *
+     * @param dice   the number of dice
+     * @param colors the number of colors
+     * @return the number of multisets
+     */
+    static int multisets(int dice, int colors) {
+        // binomial(dice + colors - 1, colors - 1)
+        long result = 1;
+        for (int i = 1; i < colors; i++) {
+            result = result * (dice + i) / i;
+        }
+        return (int) result;
+    }
+}
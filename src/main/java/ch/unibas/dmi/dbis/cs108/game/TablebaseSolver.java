@@ -0,0 +1,263 @@
+package ch.unibas.dmi.dbis.cs108.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * This class solves a board offline and writes the {@link Tablebase} file.
+ * <p>
+ * One turn costs one roll. After the roll the player moves to one of the fields the
+ * {@link MoveGenerator} finds, or stays. The expected number of rolls to the finish therefore is
+ * {@code E(f) = 1 + sum over rolls r of P(r) * min(E(f), min over reachable t of E(t))} with
+ * {@code E = 0} on the finish fields. The solver finds these values by value iteration, starting
+ * from the distance to the finish, which is a lower bound, and stores the best move for every field
+ * and roll.
+ * </p>
+ * <p>
+ * Usage: {@code java ch.unibas.dmi.dbis.cs108.game.TablebaseSolver [file]}, or the Gradle task
+ * {@code tablebase}.
+ * </p>
+ */
+public final class TablebaseSolver {
+
+    /**
+     * The iteration stops when no value changes by more than this.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * The maximum number of iterations.
+     */
+    private static final int MAX_ITERATIONS = 100_000;
+
+    /**
+     * The board to solve.
+     */
+    private final BoardTopology topology;
+
+    /**
+     * The rolls by their number, see {@link Tablebase#rollIndex(int[])}.
+     */
+    private final String[][] rolls = new String[Tablebase.ROLL_COUNT][];
+
+    /**
+     * The probability of each roll.
+     */
+    private final double[] probabilities = new double[Tablebase.ROLL_COUNT];
+
+    /**
+     * The reachable fields for each field and roll, as masks.
+     */
+    private final long[][] reachable;
+
+    /**
+     * The expected number of rolls to the finish of each field.
+     */
+    private final double[] expected;
+
+    /**
+     * The number of iterations the last {@link #solve()} needed.
+     */
+    private int iterations;
+
+    /**
+     * Creates a solver for a board.
+     *
+     * @param topology the board
+     */
+    public TablebaseSolver(BoardTopology topology) {
+        this.topology = topology;
+        this.reachable = new long[topology.size()][Tablebase.ROLL_COUNT];
+        this.expected = new double[topology.size()];
+        enumerateRolls(new int[MoveGenerator.DICE_COLORS.length], 0, Tablebase.DICE);
+
+        MoveGenerator generator = new MoveGenerator(topology);
+        for (int f = 0; f < topology.size(); f++) {
+            for (int r = 0; r < rolls.length; r++) {
+                reachable[f][r] = generator.generate(topology.getField(f), rolls[r]).getMask();
+            }
+        }
+    }
+
+    /**
+     * Computes the expected number of rolls of every field by value iteration.
+     */
+    public void solve() {
+        DistanceOracle distances = topology.getDistances();
+        for (int f = 0; f < expected.length; f++) {
+            int distance = distances.distanceToFinish(f);
+            expected[f] = distance == DistanceOracle.UNREACHABLE ? Double.POSITIVE_INFINITY : distance;
+        }
+        long finish = topology.getFinishMask();
+        for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+            double change = 0;
+            for (int f = 0; f < expected.length; f++) {
+                if ((finish & (1L << f)) != 0 || Double.isInfinite(expected[f])) {
+                    continue;
+                }
+                double value = 1;
+                for (int r = 0; r < rolls.length; r++) {
+                    value += probabilities[r] * Math.min(expected[f], bestValue(reachable[f][r]));
+                }
+                change = Math.max(change, Math.abs(value - expected[f]));
+                expected[f] = value;
+            }
+            if (change < EPSILON) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the expected number of rolls of a field after {@link #solve()}.
+     *
+     * @param field the index of the field
+     * @return the expected rolls
+     */
+    public double expectedRolls(int field) {
+        return expected[field];
+    }
+
+    /**
+     * Returns the number of iterations the last {@link #solve()} needed.
+     *
+     * @return the number of iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the best field to move to after {@link #solve()}.
+     *
+     * @param field the index of the field the player is on
+     * @param roll  the number of the roll
+     * @return the index of the target, or -1 if staying is best
+     */
+    public int bestMove(int field, int roll) {
+        if ((topology.getFinishMask() & (1L << field)) != 0) {
+            return -1;
+        }
+        int best = -1;
+        double bestValue = expected[field];
+        for (long rest = reachable[field][roll]; rest != 0; rest &= rest - 1) {
+            int target = Long.numberOfTrailingZeros(rest);
+            if (expected[target] < bestValue) {
+                best = target;
+                bestValue = expected[target];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the tablebase. The file is written next to the target and then renamed, so a server
+     * never maps a half-written file.
+     *
+     * @param file the target file
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(Tablebase.VERSION);
+            out.writeLong(topology.fingerprint());
+            out.writeInt(topology.size());
+            out.writeInt(Tablebase.ROLL_COUNT);
+            for (double value : expected) {
+                out.writeFloat((float) value);
+            }
+            for (int f = 0; f < topology.size(); f++) {
+                for (int r = 0; r < Tablebase.ROLL_COUNT; r++) {
+                    out.writeByte(bestMove(f, r));
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the smallest expected value of the fields in a mask.
+     *
+     * @param mask the fields
+     * @return the smallest value, or infinity if the mask is empty
+     */
+    private double bestValue(long mask) {
+        double best = Double.POSITIVE_INFINITY;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            best = Math.min(best, expected[Long.numberOfTrailingZeros(rest)]);
+        }
+        return best;
+    }
+
+    /**
+     * Lists all rolls in the order of their numbers together with their probabilities.
+     *
+     * @param counts the dice of each color chosen so far
+     * @param color  the next color to choose the count for
+     * @param left   the dice left
+     */
+    private void enumerateRolls(int[] counts, int color, int left) {
+        if (color == counts.length - 1) {
+            counts[color] = left;
+            int index = Tablebase.rollIndex(counts);
+            String[] roll = new String[Tablebase.DICE];
+            int die = 0;
+            double permutations = factorial(Tablebase.DICE);
+            for (int c = 0; c < counts.length; c++) {
+                permutations /= factorial(counts[c]);
+                for (int n = 0; n < counts[c]; n++) {
+                    roll[die++] = MoveGenerator.DICE_COLORS[c];
+                }
+            }
+            rolls[index] = roll;
+            probabilities[index] = permutations / Math.pow(counts.length, Tablebase.DICE);
+            return;
+        }
+        for (int count = 0; count <= left; count++) {
+            counts[color] = count;
+            enumerateRolls(counts, color + 1, left - count);
+        }
+    }
+
+    /**
+     * Returns n!.
+     *
+     * @param n a small number
+     * @return the factorial
+     */
+    private static double factorial(int n) {
+        double result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    /**
+     * Solves the standard board and writes the tablebase.
+     *
+     * @param args the target file, {@value Tablebase#DEFAULT_FILE} if omitted
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : Tablebase.DEFAULT_FILE);
+        TablebaseSolver solver = new TablebaseSolver(BoardTopology.STANDARD);
+        solver.solve();
+        solver.write(file);
+        System.out.printf("Solved in %d iterations, %.2f rolls expected from the start. Written to %s%n",
+                solver.getIterations(),
+                solver.expectedRolls(BoardTopology.STANDARD.getStartField().getIndex()), file);
+    }
+}
@@ -155,7 +155,25 @@ public enum Command {
     /**
      * Handles that the game has ended. Either the host stopped it or the game was finished.
      */
-    FNSH;
+    FNSH,
+
+    /**
+     * Server sends a versioned change of the users, lobbies or lobby members, see
+     * {@link PresenceState}.
+     */
+    DLTA,
+
+    /**
+     * Server announces the version of the following LIST, GLST and LOME snapshot. Client requests a
+     * new snapshot after it missed a {@link #DLTA}.
+     */
+    SYNC,
+
+    /**
+     * Server sends the fields the player can reach with the current roll, right after
+     * {@link #ROLL}. Example format: {@code REAC%yellow1,orange1,blue1}.
+     */
+    REAC;
 
     /**
      * The character used to separate command parts in a message.
@@ -0,0 +1,337 @@
+package ch.unibas.dmi.dbis.cs108.network;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code PresenceState} is the versioned presence information of the server: the nicknames of
+ * all users, the game lobbies with their state and the members of each lobby. The server keeps the
+ * state it last published, the client the state it received.
+ * <p>
+ * A client receives a complete snapshot once, which is a {@link Command#SYNC} message with the
+ * current version followed by {@link Command#LIST}, {@link Command#GLST} and {@link Command#LOME}.
+ * After that, the server only sends {@link Command#DLTA} messages, each with the next version and one
+ * {@link Op}. Example format: {@code DLTA%42%RENU%Client3%Jana}. If a client sees a version gap, it
+ * asks for a new snapshot with {@code SYNC%}.
+ * </p>
+ * <p>
+ * Applying a delta is idempotent: adding an existing entry or removing a missing one has no effect.
+ * </p>
+ */
+public class PresenceState {
+
+    /**
+     * The operations a {@link Command#DLTA} message can carry.
+     */
+    public enum Op {
+        /**
+         * A user joined the server. Argument: nickname.
+         */
+        ADDU,
+        /**
+         * A user left the server. Argument: nickname.
+         */
+        DELU,
+        /**
+         * A user changed the nickname. Arguments: old nickname, new nickname.
+         */
+        RENU,
+        /**
+         * A game lobby was created. Arguments: lobby name, state.
+         */
+        ADDL,
+        /**
+         * A game lobby was removed. Argument: lobby name.
+         */
+        DELL,
+        /**
+         * The game state of a lobby changed. Arguments: lobby name, state.
+         */
+        STAL,
+        /**
+         * A player joined a lobby. Arguments: lobby name, nickname.
+         */
+        ADDM,
+        /**
+         * A player left a lobby. Arguments: lobby name, nickname.
+         */
+        DELM
+    }
+
+    /**
+     * The nicknames of all users.
+     */
+    private final List<String> users = new ArrayList<>();
+
+    /**
+     * The state text ("open", "running", ...) of every game lobby, in the order of creation.
+     */
+    private final Map<String, String> lobbyStates = new LinkedHashMap<>();
+
+    /**
+     * The members of every game lobby.
+     */
+    private final Map<String, List<String>> lobbyMembers = new LinkedHashMap<>();
+
+    /**
+     * The version of this state, or -1 if no snapshot was received yet.
+     */
+    private long version = -1;
+
+    /**
+     * Returns the version of this state.
+     *
+     * @return the version, or -1 if the state is not synchronized
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of this state, e.g. when a snapshot starts.
+     *
+     * @param version The new version.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Applies an operation to this state without changing the version.
+     *
+     * @param op   The operation.
+     * @param args The arguments of the operation.
+     * @throws IllegalArgumentException If arguments are missing.
+     */
+    public void apply(Op op, String... args) {
+        int needed = switch (op) {
+            case ADDU, DELU, DELL -> 1;
+            default -> 2;
+        };
+        if (args.length < needed) {
+            throw new IllegalArgumentException("Missing arguments for " + op);
+        }
+        switch (op) {
+            case ADDU -> {
+                if (!users.contains(args[0])) {
+                    users.add(args[0]);
+                }
+            }
+            case DELU -> users.remove(args[0]);
+            case RENU -> {
+                int index = users.indexOf(args[0]);
+                if (index >= 0) {
+                    users.set(index, args[1]);
+                }
+                for (List<String> members : lobbyMembers.values()) {
+                    int memberIndex = members.indexOf(args[0]);
+                    if (memberIndex >= 0) {
+                        members.set(memberIndex, args[1]);
+                    }
+                }
+            }
+            case ADDL -> {
+                lobbyStates.putIfAbsent(args[0], args[1]);
+                lobbyMembers.putIfAbsent(args[0], new ArrayList<>());
+            }
+            case DELL -> {
+                lobbyStates.remove(args[0]);
+                lobbyMembers.remove(args[0]);
+            }
+            case STAL -> lobbyStates.replace(args[0], args[1]);
+            case ADDM -> {
+                List<String> members = lobbyMembers.get(args[0]);
+                if (members != null && !members.contains(args[1])) {
+                    members.add(args[1]);
+                }
+            }
+            case DELM -> {
+                List<String> members = lobbyMembers.get(args[0]);
+                if (members != null) {
+                    members.remove(args[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the payload of a {@link Command#DLTA} message if it has the next version.
+     *
+     * @param payload The message without the command, e.g. {@code 42%ADDU%Jana}.
+     * @return true if the delta was applied, false if its version does not follow the current one
+     * @throws IllegalArgumentException If the payload is malformed.
+     */
+    public boolean applyDelta(String payload) {
+        String[] parts = payload.split(Command.SEPARATOR);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Malformed delta: " + payload);
+        }
+        long deltaVersion = Long.parseLong(parts[0].trim());
+        if (version < 0 || deltaVersion != version + 1) {
+            return false;
+        }
+        String[] args = new String[parts.length - 2];
+        System.arraycopy(parts, 2, args, 0, args.length);
+        apply(Op.valueOf(parts[1].trim()), args);
+        version = deltaVersion;
+        return true;
+    }
+
+    /**
+     * Formats a delta message.
+     *
+     * @param version The version of the delta.
+     * @param op      The operation.
+     * @param args    The arguments of the operation.
+     * @return the message, e.g. {@code DLTA%42%ADDU%Jana}
+     */
+    public static String deltaMessage(long version, Op op, String... args) {
+        StringBuilder message = new StringBuilder()
+                .append(Command.DLTA).append(Command.SEPARATOR)
+                .append(version).append(Command.SEPARATOR)
+                .append(op);
+        for (String arg : args) {
+            message.append(Command.SEPARATOR).append(arg);
+        }
+        return message.toString();
+    }
+
+    /**
+     * Replaces the users with the content of a {@link Command#LIST} snapshot.
+     *
+     * @param nicknames The nicknames of all users.
+     */
+    public void setUsers(List<String> nicknames) {
+        users.clear();
+        users.addAll(nicknames);
+    }
+
+    /**
+     * Replaces the lobby states with the content of a {@link Command#GLST} snapshot. The entries have
+     * the format {@code [Lobby: name] state}.
+     *
+     * @param games The entries of the game list.
+     */
+    public void setGames(List<String> games) {
+        Map<String, String> states = new LinkedHashMap<>();
+        for (String game : games) {
+            int end = game.indexOf(']');
+            if (game.startsWith("[Lobby: ") && end > 0) {
+                states.put(game.substring("[Lobby: ".length(), end), game.substring(end + 1).trim());
+            }
+        }
+        lobbyStates.clear();
+        lobbyStates.putAll(states);
+        lobbyMembers.keySet().retainAll(states.keySet());
+        for (String lobby : states.keySet()) {
+            lobbyMembers.putIfAbsent(lobby, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Replaces the lobby members with the content of a {@link Command#LOME} snapshot. The entries
+     * have the format {@code [Lobby: name] Players: a | b}.
+     *
+     * @param entries The entries of the member list.
+     */
+    public void setMembers(List<String> entries) {
+        for (String entry : entries) {
+            int end = entry.indexOf(']');
+            if (!entry.startsWith("[Lobby: ") || end < 0) {
+                continue;
+            }
+            String lobby = entry.substring("[Lobby: ".length(), end);
+            String rest = entry.substring(end + 1).trim();
+            if (rest.startsWith("Players:")) {
+                rest = rest.substring("Players:".length());
+            }
+            List<String> members = new ArrayList<>();
+            for (String member : rest.split("\\|")) {
+                if (!member.trim().isEmpty()) {
+                    members.add(member.trim());
+                }
+            }
+            lobbyMembers.put(lobby, members);
+        }
+    }
+
+    /**
+     * Returns the nicknames of all users.
+     *
+     * @return a copy of the user list
+     */
+    public List<String> getUsers() {
+        return new ArrayList<>(users);
+    }
+
+    /**
+     * Returns the game list in the format of a {@link Command#GLST} message.
+     *
+     * @return entries like {@code [Lobby: name] open}
+     */
+    public List<String> getGames() {
+        List<String> games = new ArrayList<>();
+        for (Map.Entry<String, String> lobby : lobbyStates.entrySet()) {
+            games.add("[Lobby: " + lobby.getKey() + "] " + lobby.getValue());
+        }
+        return games;
+    }
+
+    /**
+     * Returns the member list in the format of a {@link Command#LOME} message.
+     *
+     * @return entries like {@code [Lobby: name] Players: a | b}
+     */
+    public List<String> getMembers() {
+        List<String> entries = new ArrayList<>();
+        for (Map.Entry<String, List<String>> lobby : lobbyMembers.entrySet()) {
+            entries.add("[Lobby: " + lobby.getKey() + "] " + "Players: " + String.join(" | ", lobby.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the state text of a lobby.
+     *
+     * @param lobbyName The name of the lobby.
+     * @return the state, or {@code null} if the lobby is unknown
+     */
+    public String getLobbyState(String lobbyName) {
+        return lobbyStates.get(lobbyName);
+    }
+
+    /**
+     * Returns the members of a lobby.
+     *
+     * @param lobbyName The name of the lobby.
+     * @return a copy of the members, empty if the lobby is unknown
+     */
+    public List<String> getLobbyMembers(String lobbyName) {
+        List<String> members = lobbyMembers.get(lobbyName);
+        return members == null ? new ArrayList<>() : new ArrayList<>(members);
+    }
+
+    /**
+     * Returns the names of all game lobbies.
+     *
+     * @return the lobby names in the order of creation
+     */
+    public List<String> getLobbyNames() {
+        return new ArrayList<>(lobbyStates.keySet());
+    }
+
+    /**
+     * Returns the three snapshot messages of this state.
+     *
+     * @return the {@code LIST}, {@code GLST} and {@code LOME} messages
+     */
+    public String[] snapshotMessages() {
+        return new String[]{
+                Command.LIST + Command.SEPARATOR + users,
+                Command.GLST + Command.SEPARATOR + getGames(),
+                Command.LOME + Command.SEPARATOR + getMembers()
+        };
+    }
+}
@@ -56,6 +56,16 @@ public class ProtocolReaderClient {
      */
     public boolean gameLobby = false;
 
+    /**
+     * The presence information received from the server, kept up to date by {@code DLTA} messages.
+     */
+    private final PresenceState presence = new PresenceState();
+
+    /**
+     * Flag indicating whether a new snapshot was requested and deltas are ignored until it arrives.
+     */
+    private boolean awaitingSync = false;
+
     /**
      * Creates a new {@code ProtocolReaderClient}.
      *
@@ -273,6 +283,14 @@ public class ProtocolReaderClient {
                     );
                     break;
 
+                case REAC:
+                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                        System.out.println("No field can be reached with these colors.");
+                        break;
+                    }
+                    System.out.println("Reachable fields: " + parts[1].trim());
+                    break;
+
                 case DEOS:
                     if (parts.length < 2 || parts[1].trim().isEmpty()) {
                         System.err.println("Error: No fieldId received.");
@@ -345,6 +363,7 @@ public class ProtocolReaderClient {
                 case LIST:
                     String playersStr = parts[1];
                     List<String> players = parseListFromString(playersStr);
+                    presence.setUsers(players);
                     if (!gameLobby) {
                         waitForControllerAndUpdate(
                                 () -> WelcomeLobbyController.getInstance().updatePlayerList(players));
@@ -357,6 +376,7 @@ public class ProtocolReaderClient {
                 case GLST:
                     String gamesStr = parts[1];
                     List<String> games = parseListFromString(gamesStr);
+                    presence.setGames(games);
                     if (!gameLobby) {
                         waitForControllerAndUpdate(
                                 () -> WelcomeLobbyController.getInstance().updateGameList(games));
@@ -368,6 +388,7 @@ public class ProtocolReaderClient {
                 case LOME:
                     String lobbyMembersStr = parts[1];
                     List<String> members = parseListFromString(lobbyMembersStr);
+                    presence.setMembers(members);
                     if (!gameLobby) {
                         waitForControllerAndUpdate(
                                 () -> WelcomeLobbyController.getInstance().updateLobbyList(members));
@@ -377,6 +398,28 @@ public class ProtocolReaderClient {
                             () -> GameLobbyController.getInstance().updateLobbyList(members));
                     break;
 
+                case SYNC:
+                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                        System.err.println("Error: No presence version received.");
+                        break;
+                    }
+                    presence.setVersion(Long.parseLong(parts[1].trim()));
+                    awaitingSync = false;
+                    break;
+
+                case DLTA:
+                    if (parts.length < 3 || presence.getVersion() < 0 || awaitingSync) {
+                        break;
+                    }
+                    if (!presence.applyDelta(parts[1] + Command.SEPARATOR + parts[2])) {
+                        System.out.println("Presence version gap, requesting a new snapshot.");
+                        awaitingSync = true;
+                        protocolWriterClient.sendCommand(Command.SYNC);
+                        break;
+                    }
+                    showPresence();
+                    break;
+
                 case HIGH:
                     if (parts.length < 2 || parts[1].trim().isEmpty()) {
                         System.err.println("Error: No Data received.");
@@ -523,6 +566,31 @@ public class ProtocolReaderClient {
         }
     }
 
+    /**
+     * Shows the user list, the game list and the lobby members of the current presence state in the
+     * welcome lobby or the game lobby.
+     */
+    private void showPresence() {
+        List<String> players = presence.getUsers();
+        List<String> games = presence.getGames();
+        List<String> members = presence.getMembers();
+        if (!gameLobby) {
+            waitForControllerAndUpdate(() -> {
+                WelcomeLobbyController controller = WelcomeLobbyController.getInstance();
+                controller.updatePlayerList(players);
+                controller.updateGameList(games);
+                controller.updateLobbyList(members);
+            });
+            return;
+        }
+        waitForControllerAndUpdate(() -> {
+            GameLobbyController controller = GameLobbyController.getInstance();
+            controller.updatePlayerList(players);
+            controller.updateGameList(games);
+            controller.updateLobbyList(members);
+        });
+    }
+
     /**
      * Parses a string representation of a list (e.g., "[elem1, elem2, ...]") into a
      * {@link List<String>}. This method trims the input string, removes the square brackets if
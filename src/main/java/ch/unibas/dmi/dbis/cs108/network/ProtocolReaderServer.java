@@ -30,12 +30,26 @@ public class ProtocolReaderServer {
      * Wrapped in a synchronized list for thread safety.
      */
     private static final List<PrintWriter> clientWriters = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * The commands that change the state of the player's game lobby. They are run in the
+     * {@link LobbyMailbox} of that lobby instead of on the reader thread, in the order they arrived.
+     * JOIN changes the lobbies in their own mailboxes, see {@link Server#joinLobby(String, int)}, and
+     * QCNF only queues the removal of the player, see {@link Server#leaveLobby(Lobby, String)}: it
+     * closes the connection, which must not wait on the thread of a shard. The other commands do not
+     * change an existing lobby: CRLO only adds a new one to the {@link LobbyRegistry}, which is safe
+     * from any thread, and the chat, list and highscore commands only read. Players in the "Welcome" lobby run all commands on the reader thread, see
+     * {@link Lobby#runInMailbox(Runnable)}.
+     */
+    private static final Set<Command> LOBBY_COMMANDS = EnumSet.of(Command.ROLL, Command.CHOS,
+            Command.DEOS, Command.MOVE, Command.NEXT, Command.STRT, Command.RSTT, Command.RADY,
+            Command.FNSH, Command.VELO, Command.NICK);
     /**
      * Logger instance for recording server-side events and errors.
      */
     private static final Logger LOGGER = LogManager.getLogger(ProtocolReaderServer.class);
     /**
-     * Reader for incoming character lines from the client socket.
+     * Reader for incoming character lines from the client socket, or {@code null} if the lines are
+     * passed to {@link #handleLine(String)} by a server engine.
      */
     private final BufferedReader reader;
     /**
@@ -47,31 +61,70 @@ public class ProtocolReaderServer {
      */
     private final OutputStream out;
     /**
-     * Thread responsible for sending periodic ping messages to the client
-     * to detect and close dead connections.
+     * The heartbeat of the connection, told about every message and PONG, or {@code null} if the
+     * connection has no heartbeat.
      */
-    private final PingThread pingThread;
+    private final HeartbeatService.Heartbeat heartbeat;
     /**
-     * Reference to the {@link ClientHandler} that manages this client's socket lifecycle.
+     * Callback that closes the client's connection cleanly, e.g. after a confirmed QUIT.
      */
-    private final ClientHandler clientHandler;
+    private final Runnable disconnectCallback;
+    /**
+     * Writer used to answer the client directly.
+     */
+    private final ProtocolWriterServer protocolWriterServer;
+    /**
+     * Server instance used for requests that are not static, e.g. the highscore list.
+     */
+    private final Server server;
 
     /**
      * Creates a new {@code ProtocolReaderServer}.
      *
-     * @param in            The InputStream from which the messages are to be read.
-     * @param userId        The unique ID of the user.
-     * @param out           The OutputStream to which replies are written.
-     * @param pingThread    The PingThread handling heartbeat messages for this client.
-     * @param clientHandler the ClientHandler managing this client's connection.
+     * @param in         The InputStream from which the messages are to be read.
+     * @param out        The OutputStream to which replies are written.
+     * @param session    The session of the client's connection, closed after a confirmed QUIT.
+     * @param heartbeat  The heartbeat of this client, or {@code null}.
      * @throws IOException If an error occurs when creating the BufferedReader.
      */
-    public ProtocolReaderServer(InputStream in, int userId, OutputStream out, PingThread pingThread, ClientHandler clientHandler) throws IOException {
-        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    public ProtocolReaderServer(InputStream in, OutputStream out, ClientSession session,
+                                HeartbeatService.Heartbeat heartbeat) throws IOException {
+        this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), session.getUserId(), out,
+                heartbeat, session::close);
+    }
+
+    /**
+     * Creates a new {@code ProtocolReaderServer} without an input stream. The lines have to be passed
+     * to {@link #handleLine(String)} by the caller, as done by the {@link NioServer} engine.
+     *
+     * @param userId             The unique ID of the user.
+     * @param out                The OutputStream to which replies are written.
+     * @param heartbeat          The heartbeat of this client, or {@code null}.
+     * @param disconnectCallback The callback that closes the connection of the client.
+     */
+    public ProtocolReaderServer(int userId, OutputStream out, HeartbeatService.Heartbeat heartbeat,
+                                Runnable disconnectCallback) {
+        this(null, userId, out, heartbeat, disconnectCallback);
+    }
+
+    /**
+     * Creates a new {@code ProtocolReaderServer} with all of its collaborators.
+     *
+     * @param reader             The reader for incoming lines, or {@code null} if lines are pushed.
+     * @param userId             The unique ID of the user.
+     * @param out                The OutputStream to which replies are written.
+     * @param heartbeat          The heartbeat of this client, or {@code null}.
+     * @param disconnectCallback The callback that closes the connection of the client.
+     */
+    private ProtocolReaderServer(BufferedReader reader, int userId, OutputStream out,
+                                 HeartbeatService.Heartbeat heartbeat, Runnable disconnectCallback) {
+        this.reader = reader;
         this.userId = userId;
         this.out = out;
-        this.pingThread = pingThread;
-        this.clientHandler = clientHandler;
+        this.heartbeat = heartbeat;
+        this.disconnectCallback = disconnectCallback;
+        this.protocolWriterServer = new ProtocolWriterServer(clientWriters, out);
+        this.server = new Server(Server.port);
     }
 
     /**
@@ -83,7 +136,7 @@ public class ProtocolReaderServer {
      */
     private boolean isMyTurn(ProtocolWriterServer writer) throws IOException {
         String nickname = UserList.getUserName(userId);
-        Lobby lobby = Server.getLobbyOfPlayer(nickname);
+        Lobby lobby = Server.getLobbyOfUser(userId);
 
         if (lobby == null || !lobby.isCurrentPlayer(nickname)) {
             writer.sendInfo("It's not your turn.");
@@ -109,536 +162,511 @@ public class ProtocolReaderServer {
      */
     public void readLoop() throws IOException {
         String line;
-        Server server = new Server(Server.port);
-        ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, out);
         while ((line = reader.readLine()) != null) {
-            if (line.trim().isEmpty()) {
-                continue;
-            }
+            handleLine(line);
+        }
+    }
+
+    /**
+     * Processes a single protocol message that was received from the client. The message is split at
+     * the {@link Command#SEPARATOR}, its {@link Command} is decoded and the corresponding server action
+     * is executed. This method is used by {@link #readLoop()} for socket streams and directly by the
+     * {@link NioServer} engine, which decodes the lines from its own buffers.
+     * <p>
+     * All messages that the command produces, for this client and for others, are collected in an
+     * {@link OutboundBatch} and sent with one write per recipient once the command is handled.
+     * Commands that change the state of the player's lobby are handed to the {@link LobbyMailbox} of
+     * the lobby and run there, see {@link #LOBBY_COMMANDS}.
+     * </p>
+     * <p>
+     * Every line counts as a sign of life for the {@link HeartbeatService}, so busy clients are not
+     * pinged.
+     * </p>
+     *
+     * @param line The received line without its line break.
+     * @throws IOException If an answer could not be sent to the client.
+     */
+    public void handleLine(String line) throws IOException {
+        if (heartbeat != null) {
+            heartbeat.activity();
+        }
+        OutboundBatch.run(() -> dispatch(line));
+    }
+
+    /**
+     * Decodes a single protocol message and executes the corresponding server action.
+     *
+     * @param line The received line without its line break.
+     * @throws IOException If an answer could not be sent to the client.
+     */
+    private void dispatch(String line) throws IOException {
+        if (line.trim().isEmpty()) {
+            return;
+        }
 
-            //LOGGER.error("server:  {}", line);
+        //LOGGER.error("server:  {}", line);
 
-            String[] parts = line.split(Command.SEPARATOR, 2);
-            String rawCommand = parts[0];
-            Command command;
+        String[] parts = line.split(Command.SEPARATOR, 2);
+        String rawCommand = parts[0];
+        Command command;
 
-            try {
-                command = Command.valueOf(rawCommand);
-            } catch (IllegalArgumentException e) {
-                System.err.println("Unknown command from user ID " + userId + ": " + line);
-                continue;
+        try {
+            command = Command.valueOf(rawCommand);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown command from user ID " + userId + ": " + line);
+            return;
+        }
+
+        if (LOBBY_COMMANDS.contains(command)) {
+            Lobby lobby = Server.getLobbyOfUser(userId);
+            if (lobby != null && !lobby.isWelcome() && !lobby.getMailbox().isOwner()) {
+                lobby.submit(() -> runInLobby(lobby, command, parts, line));
+                return;
             }
+        }
+        execute(command, parts, line);
+    }
 
-            switch (command) {
-                case JOIN: {
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        protocolWriterServer.sendInfo("-ERR lobbyName missing");
-                        break;
-                    }
-                    String lobbyName = parts[1].trim();
-                    if (!lobbyName.matches("^[a-zA-Z0-9_äöüÄÖÜß]{1,50}$")) {
-                        protocolWriterServer.sendInfo("-ERR Invalid lobbyName: " + lobbyName);
-                        break;
-                    }
-                    Server.joinLobby(lobbyName, userId);
-                    Server.updateAllClients();
+    /**
+     * Runs a command in the mailbox of the lobby the player was in when the command arrived. The
+     * command is dropped if the player has left the server or that lobby in the meantime, e.g. by a
+     * JOIN that was queued before it. The command shows that the player is not away.
+     *
+     * @param lobby   The lobby the command was submitted to.
+     * @param command The decoded command.
+     * @param parts   The command and its argument.
+     * @param line    The received line.
+     */
+    private void runInLobby(Lobby lobby, Command command, String[] parts, String line) {
+        User user = UserList.getUser(userId);
+        if (user == null || user.getLobby() != lobby) {
+            LOGGER.debug("Dropped {} of user ID {} because they left {}", command, userId, lobby.getLobbyName());
+            return;
+        }
+        lobby.playerActive(user.getNickname());
+        try {
+            execute(command, parts, line);
+        } catch (IOException e) {
+            LOGGER.error("Error while answering {} of user ID {}", command, userId, e);
+        }
+    }
+
+    /**
+     * Executes the server action of a decoded protocol message.
+     *
+     * @param command The decoded command.
+     * @param parts   The command and its argument.
+     * @param line    The received line.
+     * @throws IOException If an answer could not be sent to the client.
+     */
+    private void execute(Command command, String[] parts, String line) throws IOException {
+        switch (command) {
+            case JOIN: {
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    protocolWriterServer.sendInfo("-ERR lobbyName missing");
                     break;
                 }
-                case CRLO: {
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        protocolWriterServer.sendInfo("-ERR lobbyName missing");
-                        break;
-                    }
-                    String lobbyName = parts[1].trim();
-                    if (!lobbyName.matches("^[a-zA-Z0-9_äöüÄÖÜß]{1,50}$")) {
-                        protocolWriterServer.sendInfo("-ERR Invalid lobbyName: " + lobbyName);
-                        break;
-                    }
-                    Server.createLobby(lobbyName, userId);
-                    Server.updateAllClients();
+                String lobbyName = parts[1].trim();
+                if (!lobbyName.matches("^[a-zA-Z0-9_äöüÄÖÜß]{1,50}$")) {
+                    protocolWriterServer.sendInfo("-ERR Invalid lobbyName: " + lobbyName);
                     break;
                 }
-                case NICK:
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        protocolWriterServer.sendInfo("-ERR Nickname missing");
-                        break;
-                    }
-                    String newNick = parts[1].trim();
-                    Server.changeNickname(userId, newNick);
-                    Server.updateAllClients();
+                Server.joinLobby(lobbyName, userId);
+                break;
+            }
+            case CRLO: {
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    protocolWriterServer.sendInfo("-ERR lobbyName missing");
                     break;
-                case CHAT: {
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR Empty chat message from user ID " + userId);
-                        break;
-                    }
-
-                    String message = parts[1].trim();
-                    if (message.length() > 500) {
-                        System.err.println("-ERR Message too long from user ID " + userId);
-                        break;
-                    }
+                }
+                String lobbyName = parts[1].trim();
+                if (!lobbyName.matches("^[a-zA-Z0-9_äöüÄÖÜß]{1,50}$")) {
+                    protocolWriterServer.sendInfo("-ERR Invalid lobbyName: " + lobbyName);
+                    break;
+                }
+                Server.createLobby(lobbyName, userId);
+                Server.updateAllClients();
+                break;
+            }
+            case NICK:
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    protocolWriterServer.sendInfo("-ERR Nickname missing");
+                    break;
+                }
+                String newNick = parts[1].trim();
+                Server.changeNickname(userId, newNick);
+                Server.updateAllClients();
+                break;
+            case CHAT: {
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR Empty chat message from user ID " + userId);
+                    break;
+                }
 
-                    String sender = UserList.getUserName(userId);
-                    if (sender == null) {
-                        System.err.println("-ERR Unknown user ID: " + userId);
-                        break;
-                    }
+                String message = parts[1].trim();
+                if (message.length() > 500) {
+                    System.err.println("-ERR Message too long from user ID " + userId);
+                    break;
+                }
 
-                    Lobby userLobby = null;
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(sender)) {
-                            userLobby = lobby;
-                            break;
-                        }
-                    }
+                String sender = UserList.getUserName(userId);
+                if (sender == null) {
+                    System.err.println("-ERR Unknown user ID: " + userId);
+                    break;
+                }
 
-                    if (userLobby == null) {
-                        protocolWriterServer.sendInfo("You are not currently in a lobby.");
-                        break;
-                    }
+                Lobby userLobby = Server.getLobbyOfUser(userId);
 
-                    String lobbyName = userLobby.getLobbyName();
-                    List<String> lobbyPlayers = userLobby.getPlayers();
+                if (userLobby == null) {
+                    protocolWriterServer.sendInfo("You are not currently in a lobby.");
+                    break;
+                }
 
-                    for (String recipientName : lobbyPlayers) {
-                        User recipient = UserList.getUserByName(recipientName);
-                        if (recipient != null) {
-                            ProtocolWriterServer writer = new ProtocolWriterServer(Server.clientWriters,
-                                    recipient.getOut());
-                            writer.sendChat(message, sender);
-                        }
-                    }
+                String lobbyName = userLobby.getLobbyName();
+                List<String> lobbyPlayers = userLobby.getPlayers();
 
-                    System.out.println("[" + lobbyName + "] " + sender + ": " + message);
-                    break;
+                OutboundFrame chatFrame = OutboundFrame.of(Command.CHAT, sender + Command.SEPARATOR + message);
+                for (String recipientName : lobbyPlayers) {
+                    chatFrame.sendTo(UserList.getUserByName(recipientName));
                 }
 
-                case PONG:
-                    System.out.println("PONG received from Client " + userId);
-                    if (pingThread != null) {
-                        pingThread.notifyPong();
-                        Server.updateAllClients();
-                    }
-                    break;
+                System.out.println("[" + lobbyName + "] " + sender + ": " + message);
+                break;
+            }
 
-                case QUIT:
-                    protocolWriterServer.sendInfo("Quit request received. Please confirm [YES/NO]");
-                    break;
+            case PONG:
+                System.out.println("PONG received from Client " + userId);
+                if (heartbeat != null) {
+                    heartbeat.pongReceived();
+                    Server.presence.updateSkipped();
+                }
+                break;
 
-                case QCNF:
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR No confirmation received from user ID" + userId);
-                        break;
-                    }
-                    String confirmation = parts[1].trim().toUpperCase();
-                    String nickname = UserList.getUserName(userId);
-                    if ("YES".equals(confirmation)) {
-                        protocolWriterServer.sendInfo("Disconnecting...");
-
-                        Server.broadcastToAll("+LFT " + nickname + " has left the game");
-                        UserList.removeUser(userId);
-                        Lobby userLobby = null;
-                        for (Lobby lobby : Server.lobbies) {
-                            if (lobby.getPlayers().contains(nickname)) {
-                                userLobby = lobby;
-                            }
-                        }
-                        if (userLobby != null && nickname != null) {
-                            userLobby.removePlayer(nickname);
-                            if (userLobby.getGameState() == 2) {
-                                if (userLobby.players.size() < 2) {
-                                    userLobby.changeGameState(3);
-                                    userLobby.readyStatus.clear();
-                                    for (String player : userLobby.players) {
-                                        userLobby.readyStatus.put(player, false);
-                                    }
-                                    for (String player : userLobby.getPlayers()) {
-                                        User u = UserList.getUserByName(player);
-                                        if (u != null) {
-                                            ProtocolWriterServer writer = Server.getOrCreateWriter(u);
-                                            try {
-                                                writer.sendInfo("The game has stopped due to too few players!");
-                                            } catch (IOException e) {
-                                                throw new RuntimeException(e);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        clientHandler.disconnectClient();
+            case QUIT:
+                protocolWriterServer.sendInfo("Quit request received. Please confirm [YES/NO]");
+                break;
 
-                    } else if ("NO".equals(confirmation)) {
-                        protocolWriterServer.sendInfo("You are still in the game.");
-                    } else {
-                        System.err.println("-ERR Invalid QCNF response from user ID " + userId);
-                    }
+            case QCNF:
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR No confirmation received from user ID" + userId);
                     break;
+                }
+                String confirmation = parts[1].trim().toUpperCase();
+                String nickname = UserList.getUserName(userId);
+                if ("YES".equals(confirmation)) {
+                    protocolWriterServer.sendInfo("Disconnecting...");
+
+                    Server.broadcastToAll("+LFT " + nickname + " has left the game");
+                    Lobby userLobby = Server.getLobbyOfUser(userId);
+                    UserList.removeUser(userId);
+                    if (userLobby != null && nickname != null) {
+                        Server.leaveLobby(userLobby, nickname);
+                    }
+                    disconnectCallback.run();
+
+                } else if ("NO".equals(confirmation)) {
+                    protocolWriterServer.sendInfo("You are still in the game.");
+                } else {
+                    System.err.println("-ERR Invalid QCNF response from user ID " + userId);
+                }
+                break;
 
-                case WISP:
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR Empty chat message from user ID " + userId);
-                        break;
-                    }
-                    String nicknameAndMessage = String.join(" ", parts[1]);
-                    String[] nicknameAndMessageParts = nicknameAndMessage.split(Command.SEPARATOR, 2);
-                    String whisperMessage = nicknameAndMessageParts[1].trim();
-                    if (whisperMessage.length() > 500) {
-                        System.err.println("-ERR Message too long from user ID " + userId);
-                        break;
-                    }
-                    String senderName = UserList.getUserName(userId);
-                    String receiverName = nicknameAndMessageParts[0].trim();
-                    if (senderName != null && receiverName != null) {
-                        Server.chatToOne(whisperMessage, senderName, receiverName);
-                    } else {
-                        System.err.println("-ERR Unknown user ID: " + userId);
-                    }
+            case WISP:
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR Empty chat message from user ID " + userId);
                     break;
-
-                case ROLL:
-                    Server.rollTheDice(userId);
+                }
+                String nicknameAndMessage = String.join(" ", parts[1]);
+                String[] nicknameAndMessageParts = nicknameAndMessage.split(Command.SEPARATOR, 2);
+                String whisperMessage = nicknameAndMessageParts[1].trim();
+                if (whisperMessage.length() > 500) {
+                    System.err.println("-ERR Message too long from user ID " + userId);
                     break;
+                }
+                String senderName = UserList.getUserName(userId);
+                String receiverName = nicknameAndMessageParts[0].trim();
+                if (senderName != null && receiverName != null) {
+                    Server.chatToOne(whisperMessage, senderName, receiverName);
+                } else {
+                    System.err.println("-ERR Unknown user ID: " + userId);
+                }
+                break;
 
-                case CHOS:
-                    if (!isMyTurn(protocolWriterServer)) {
-                        break;
-                    }
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR No FieldId from Client " + userId);
-                    } else {
-                        String fieldId = parts[1].trim();
-                        Server.checkField(userId, fieldId);
-                    }
+            case ROLL:
+                Server.rollTheDice(userId);
+                break;
+
+            case CHOS:
+                if (!isMyTurn(protocolWriterServer)) {
                     break;
+                }
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR No FieldId from Client " + userId);
+                } else {
+                    String fieldId = parts[1].trim();
+                    Server.checkField(userId, fieldId);
+                }
+                break;
 
-                case MOVE:
-                    String nick = UserList.getUserName(userId);
-                    Lobby userLob = Server.getLobbyOfPlayer(nick);
+            case MOVE:
+                String nick = UserList.getUserName(userId);
+                Lobby userLob = Server.getLobbyOfUser(userId);
 
-                    if (userLob != null) {
-                        if (!(userLob.getGameState() == 2)) {
-                            protocolWriterServer.sendInfo("The game has not started yet or is already finished.");
-                            break;
-                        }
-                        if (!isMyTurn(protocolWriterServer)) {
-                            break;
-                        }
-                        Server.moveToLastSelectedField(userId);
+                if (userLob != null) {
+                    if (!(userLob.getGameState() == 2)) {
+                        protocolWriterServer.sendInfo("The game has not started yet or is already finished.");
                         break;
                     }
-
-                case NEXT: {
-                    String nickn = UserList.getUserName(userId);
-                    Lobby userLobby = Server.getLobbyOfPlayer(nickn);
-                    if (userLobby != null) {
-                        if (!(userLobby.getGameState() == 2)) {
-                            protocolWriterServer.sendInfo("The game has not started yet or is already finished.");
-                            break;
-                        }
-
-                        if (!isMyTurn(protocolWriterServer)) {
-                            break;
-                        }
-                        userLobby.advanceTurn();
-
-                    } else {
-                        protocolWriterServer.sendInfo("-ERR You are not in a valid lobby.");
-                    }
-                    break;
-                }
-
-                case DEOS:
                     if (!isMyTurn(protocolWriterServer)) {
                         break;
                     }
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR No FieldId from Client " + userId);
-                    } else {
-                        String fieldId = parts[1].trim();
-                        Server.deselectField(userId, fieldId);
-                    }
+                    Server.moveToLastSelectedField(userId);
                     break;
+                }
 
-                case VELO: {
-                    String sender = UserList.getUserName(userId);
-                    Lobby userLobby = null;
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(sender)) {
-                            userLobby = lobby;
-                            break;
-                        }
-                    }
-                    if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                        protocolWriterServer.sendInfo(
-                                "You are not currently in a lobby or still in the Welcome lobby and therefore can't choose a bike.");
+            case NEXT: {
+                String nickn = UserList.getUserName(userId);
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby != null) {
+                    if (!(userLobby.getGameState() == 2)) {
+                        protocolWriterServer.sendInfo("The game has not started yet or is already finished.");
                         break;
                     }
 
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        protocolWriterServer.sendInfo(
-                                "-ERR No color provided. Please select: black, green, magenta, darkblue.");
+                    if (!isMyTurn(protocolWriterServer)) {
                         break;
                     }
+                    userLobby.advanceTurn();
 
-                    String color = parts[1].trim().toLowerCase();
-                    List<String> validColors = Arrays.asList("black", "green", "magenta", "darkblue");
-
-                    if (!validColors.contains(color)) {
-                        protocolWriterServer.sendInfo("-ERR The color " + color
-                                + " is not selectable. Please choose one of: black, green, magenta, darkblue.");
-                        break;
-                    }
+                } else {
+                    protocolWriterServer.sendInfo("-ERR You are not in a valid lobby.");
+                }
+                break;
+            }
 
-                    if (userLobby.getGameState() == 2) {
-                        protocolWriterServer.sendInfo("-ERR The game already started.");
-                        break;
-                    }
+            case DEOS:
+                if (!isMyTurn(protocolWriterServer)) {
+                    break;
+                }
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR No FieldId from Client " + userId);
+                } else {
+                    String fieldId = parts[1].trim();
+                    Server.deselectField(userId, fieldId);
+                }
+                break;
 
-                    User user = UserList.getUser(userId);
-                    if (user != null) {
-                        user.setBikeColor(color);
-                        Lobby lobby = Server.getLobbyOfPlayer(sender);
-                        assert lobby != null;
-                        for (String member : lobby.getPlayers()) {
-                            User u = UserList.getUserByName(member);
-                            ProtocolWriterServer w = new ProtocolWriterServer(clientWriters,
-                                    Objects.requireNonNull(u).getOut());
-                            w.sendCommandAndString(Command.VELO, sender + " " + color);
-                        }
-                        Server.updateAllClients();
-                    }
+            case VELO: {
+                String sender = UserList.getUserName(userId);
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    protocolWriterServer.sendInfo(
+                            "You are not currently in a lobby or still in the Welcome lobby and therefore can't choose a bike.");
                     break;
                 }
 
-                case BROD:
-                    if (parts.length < 2 || parts[1].trim().isEmpty()) {
-                        System.err.println("-ERR Broadcast message missing " + userId);
-                        break;
-                    }
-                    String msg = parts[1].trim();
-                    String broadcasterName = UserList.getUserName(userId);
-                    Server.broadcastToAll(broadcasterName + " broadcasted: " + msg);
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    protocolWriterServer.sendInfo(
+                            "-ERR No color provided. Please select: black, green, magenta, darkblue.");
                     break;
+                }
 
-                case STRT: {
-                    String userName = UserList.getUserName(userId);
-                    if (userName == null || userName.isBlank()) {
-                        System.err.println("-ERR No user for ID " + userId);
-                        break;
-                    }
+                String color = parts[1].trim().toLowerCase();
+                List<String> validColors = Arrays.asList("black", "green", "magenta", "darkblue");
 
-                    List<Lobby> playerLobbies = new ArrayList<>();
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(userName)) {
-                            playerLobbies.add(lobby);
-                        }
-                    }
+                if (!validColors.contains(color)) {
+                    protocolWriterServer.sendInfo("-ERR The color " + color
+                            + " is not selectable. Please choose one of: black, green, magenta, darkblue.");
+                    break;
+                }
 
-                    if (playerLobbies.isEmpty()) {
-                        protocolWriterServer.sendInfo(
-                                "You aren't part of a gameLobby. Please create a lobby or join an existing lobby to start a game.");
-                        break;
-                    }
-                    boolean onlyInWelcome = playerLobbies.stream()
-                            .allMatch(l -> l.getLobbyName().equalsIgnoreCase("Welcome"));
+                if (userLobby.getGameState() == 2) {
+                    protocolWriterServer.sendInfo("-ERR The game already started.");
+                    break;
+                }
 
-                    if (onlyInWelcome) {
-                        protocolWriterServer.sendInfo(
-                                "You aren't part of a gameLobby. Please create a lobby or join an existing lobby to start a game.");
-                        break;
-                    }
-                    if (allPlayersReady()) {
-                        for (Lobby lobby : playerLobbies) {
-                            if (!lobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                                lobby.startGame(userId);
-                                Server.updateAllClients();
-                                break;
-                            }
-                        }
-                    }
-                    if (!allPlayersReady()) {
-                        protocolWriterServer.sendInfo("Not all players are ready to play.");
+                User user = UserList.getUser(userId);
+                if (user != null) {
+                    user.setBikeColor(color);
+                    OutboundFrame colorFrame = OutboundFrame.of(Command.VELO, sender + " " + color);
+                    for (String member : userLobby.getPlayers()) {
+                        colorFrame.sendTo(Objects.requireNonNull(UserList.getUserByName(member)).getOut());
                     }
+                    Server.updateAllClients();
+                }
+                break;
+            }
+
+            case BROD:
+                if (parts.length < 2 || parts[1].trim().isEmpty()) {
+                    System.err.println("-ERR Broadcast message missing " + userId);
                     break;
                 }
+                String msg = parts[1].trim();
+                String broadcasterName = UserList.getUserName(userId);
+                Server.broadcastToAll(broadcasterName + " broadcasted: " + msg);
+                break;
 
-                case RSTT: {
-                    String userName = UserList.getUserName(userId);
-                    if (userName == null || userName.isBlank()) {
-                        System.err.println("-ERR No user for ID " + userId);
-                        break;
-                    }
+            case STRT: {
+                String userName = UserList.getUserName(userId);
+                if (userName == null || userName.isBlank()) {
+                    System.err.println("-ERR No user for ID " + userId);
+                    break;
+                }
 
-                    List<Lobby> playerLobbies = new ArrayList<>();
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(userName)) {
-                            playerLobbies.add(lobby);
-                            break;
-                        }
-                    }
-                    if (playerLobbies.isEmpty()) {
-                        protocolWriterServer.sendInfo("You aren't part of a gameLobby.");
-                        break;
-                    }
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    protocolWriterServer.sendInfo(
+                            "You aren't part of a gameLobby. Please create a lobby or join an existing lobby to start a game.");
+                    break;
+                }
+                if (allPlayersReady()) {
+                    userLobby.startGame(userId);
+                    Server.updateAllClients();
+                }
+                if (!allPlayersReady()) {
+                    protocolWriterServer.sendInfo("Not all players are ready to play.");
+                }
+                break;
+            }
 
-                    boolean onlyInWelcome = playerLobbies.stream()
-                            .allMatch(l -> l.getLobbyName().equalsIgnoreCase("Welcome"));
+            case RSTT: {
+                String userName = UserList.getUserName(userId);
+                if (userName == null || userName.isBlank()) {
+                    System.err.println("-ERR No user for ID " + userId);
+                    break;
+                }
 
-                    if (onlyInWelcome) {
-                        protocolWriterServer.sendInfo("You aren't part of a gameLobby.");
-                        break;
-                    }
-                    if (allPlayersReady()) {
-                        for (Lobby lobby : playerLobbies) {
-                            if (!lobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                                lobby.restartGame(userId);
-                                Server.updateAllClients();
-                                break;
-                            }
-                        }
-                    }
-                    if (!allPlayersReady()) {
-                        protocolWriterServer.sendInfo("Not all players are ready to play.");
-                    }
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    protocolWriterServer.sendInfo("You aren't part of a gameLobby.");
                     break;
                 }
+                if (allPlayersReady()) {
+                    userLobby.restartGame(userId);
+                    Server.updateAllClients();
+                }
+                if (!allPlayersReady()) {
+                    protocolWriterServer.sendInfo("Not all players are ready to play.");
+                }
+                break;
+            }
 
-                case LIST: {
-                    User user = UserList.getUser(userId);
-                    if (user == null) {
-                        System.err.println("-ERR No user found for ID " + userId);
-                        break;
-                    }
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                            break;
-                        }
-                    }
+            case LIST: {
+                User user = UserList.getUser(userId);
+                if (user == null) {
+                    System.err.println("-ERR No user found for ID " + userId);
                     break;
                 }
-                case LOME: {
-                    User user = UserList.getUser(userId);
-                    if (user == null) {
-                        System.err.println("-ERR No user for ID " + userId);
+                for (Lobby lobby : Server.lobbies) {
+                    if (lobby.getLobbyName().equalsIgnoreCase("Welcome")) {
                         break;
                     }
+                }
+                break;
+            }
+            case LOME: {
+                User user = UserList.getUser(userId);
+                if (user == null) {
+                    System.err.println("-ERR No user for ID " + userId);
+                    break;
+                }
 
-                    ProtocolWriterServer writer = new ProtocolWriterServer(Server.clientWriters,
-                            user.getOut());
-                    String username = user.getNickname();
+                ProtocolWriterServer writer = new ProtocolWriterServer(Server.clientWriters,
+                        user.getOut());
+                String username = user.getNickname();
 
-                    Lobby userLobby = null;
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(username)) {
-                            userLobby = lobby;
-                            break;
-                        }
-                    }
-                    if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                        try {
-                            writer.sendInfo("You are not currently in a real lobby.");
-                        } catch (IOException e) {
-                            System.err.println("Error sending no-lobby message to user " + userId);
-                        }
-                        break;
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    try {
+                        writer.sendInfo("You are not currently in a real lobby.");
+                    } catch (IOException e) {
+                        System.err.println("Error sending no-lobby message to user " + userId);
                     }
                     break;
                 }
-                case GLST: {
-                    User user = UserList.getUser(userId);
-                    if (user == null) {
-                        System.err.println("-ERR No user found for ID " + userId);
-                        break;
-                    }
-                    List<Lobby> realLobbies = Server.lobbies.stream()
-                            .filter(l -> !l.getLobbyName().equalsIgnoreCase("Welcome"))
-                            .toList();
+                break;
+            }
+            case GLST: {
+                User user = UserList.getUser(userId);
+                if (user == null) {
+                    System.err.println("-ERR No user found for ID " + userId);
+                    break;
+                }
+                List<Lobby> realLobbies = Server.lobbies.stream()
+                        .filter(l -> !l.getLobbyName().equalsIgnoreCase("Welcome"))
+                        .toList();
 
-                    if (realLobbies.isEmpty()) {
-                        break;
-                    }
-                    for (Lobby lobby : realLobbies) {
-                        List<String> players = lobby.getPlayers();
-                        int state = lobby.getGameState();
-                        String stateText = switch (state) {
-                            case 1 -> "open";
-                            case 2 -> "running";
-                            case 3 -> "finished";
-                            default -> "unknown";
-                        };
-                    }
+                if (realLobbies.isEmpty()) {
+                    break;
+                }
+                for (Lobby lobby : realLobbies) {
+                    List<String> players = lobby.getPlayers();
+                    int state = lobby.getGameState();
+                    String stateText = switch (state) {
+                        case 1 -> "open";
+                        case 2 -> "running";
+                        case 3 -> "finished";
+                        default -> "unknown";
+                    };
+                }
+                break;
+            }
+            case RADY: {
+                String userName = UserList.getUserName(userId);
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    protocolWriterServer.sendInfo(
+                            "You are not currently in a lobby or in the Welcome lobby and therefore can't write ready.");
+                    break;
+                }
+                if (userLobby.getGameState() == 2) {
+                    protocolWriterServer.sendInfo("The game already started.");
                     break;
                 }
-                case RADY: {
-                    String userName = UserList.getUserName(userId);
-                    Lobby userLobby = null;
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(userName)) {
-                            userLobby = lobby;
-                            break;
-                        }
-                    }
-                    if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                        protocolWriterServer.sendInfo(
-                                "You are not currently in a lobby or in the Welcome lobby and therefore can't write ready.");
-                        break;
-                    }
-                    if (userLobby.getGameState() == 2) {
-                        protocolWriterServer.sendInfo("The game already started.");
-                        break;
-                    }
 
-                    userLobby.makeReady(userName);
-                    System.out.println(userName + " is ready!");
-                    String info = userName + " is ready.";
-                    Server.broadcastInLobby(info, userName);
+                userLobby.makeReady(userName);
+                System.out.println(userName + " is ready!");
+                String info = userName + " is ready.";
+                Server.broadcastInLobby(info, userName);
+                break;
+            }
+            case FNSH: {
+                String username = UserList.getUserName(userId);
+                Lobby userLobby = Server.getLobbyOfUser(userId);
+                if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
+                    protocolWriterServer.sendInfo("You are not currently in a lobby or in the Welcome lobby");
                     break;
                 }
-                case FNSH: {
-                    String username = UserList.getUserName(userId);
-                    Lobby userLobby = null;
-                    for (Lobby lobby : Server.lobbies) {
-                        if (lobby.getPlayers().contains(username)) {
-                            userLobby = lobby;
-                            break;
-                        }
-                    }
-                    if (userLobby == null || userLobby.getLobbyName().equalsIgnoreCase("Welcome")) {
-                        protocolWriterServer.sendInfo("You are not currently in a lobby or in the Welcome lobby");
-                        break;
-                    }
-                    if (username.trim().equalsIgnoreCase(userLobby.getHostName().trim()) || !userLobby.winners.isEmpty()) {
-                        userLobby.changeGameState(3);
-                        userLobby.readyStatus.clear();
-                        for (String player : userLobby.players) {
-                            userLobby.readyStatus.put(player, false);
-                        }
-                        for (String player : userLobby.getPlayers()) {
-                            User u = UserList.getUserByName(player);
-                            if (u != null) {
-                                ProtocolWriterServer writer = Server.getOrCreateWriter(u);
-                                try {
-                                    writer.sendInfo("The game has stopped.");
-                                } catch (IOException e) {
-                                    throw new RuntimeException(e);
-                                }
+                if (username.trim().equalsIgnoreCase(userLobby.getHostName().trim()) || !userLobby.getWinners().isEmpty()) {
+                    userLobby.changeGameState(3);
+                    userLobby.resetReadyStatus();
+                    for (String player : userLobby.getPlayers()) {
+                        User u = UserList.getUserByName(player);
+                        if (u != null) {
+                            ProtocolWriterServer writer = Server.getOrCreateWriter(u);
+                            try {
+                                writer.sendInfo("The game has stopped.");
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
                             }
                         }
-                        Server.updateAllClients();
-                        break;
                     }
-                    protocolWriterServer.sendInfo("You are not the host of the lobby and cannot end the game.");
+                    Server.updateAllClients();
                     break;
                 }
-                case HIGH:
-                    server.getHighscoreList(userId);
-                    break;
-                default:
-                    System.out.println("Unknown command from user ID " + userId + ": " + line);
-                    break;
+                protocolWriterServer.sendInfo("You are not the host of the lobby and cannot end the game.");
+                break;
             }
+            case HIGH:
+                server.getHighscoreList(userId);
+                break;
+            case SYNC:
+                Server.presence.resync(userId);
+                break;
+            default:
+                System.out.println("Unknown command from user ID " + userId + ": " + line);
+                break;
         }
     }
 
@@ -650,15 +678,9 @@ public class ProtocolReaderServer {
      */
     private boolean allPlayersReady() {
         String username = UserList.getUserName(userId);
-        Lobby userLobby = null;
-        for (Lobby lobby : Server.lobbies) {
-            if (lobby.getPlayers().contains(username)) {
-                userLobby = lobby;
-                break;
-            }
-        }
+        Lobby userLobby = Server.getLobbyOfUser(userId);
         if (userLobby != null) {
-            if (!userLobby.readyStatus.isEmpty() && userLobby.readyStatus.values().stream().allMatch(Boolean::booleanValue)) {
+            if (userLobby.getSnapshot().allReady()) {
                 return true;
             }
         }
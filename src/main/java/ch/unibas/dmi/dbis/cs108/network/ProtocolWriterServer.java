@@ -12,6 +12,11 @@ import java.util.List;
  * server to connected clients. It supports broadcasting messages, sending individual commands, and
  * whispering to specific clients. All messages are encoded in UTF-8 to ensure cross-platform
  * compatibility.
+ * <p>
+ * On the server, the output stream of a client is its {@link ch.unibas.dmi.dbis.cs108.server.OutboundQueue}.
+ * Every message is one line that the writer hands to the queue with a single flush, so sending never
+ * waits for a slow client.
+ * </p>
  */
 public class ProtocolWriterServer {
 
@@ -48,7 +53,6 @@ public class ProtocolWriterServer {
     public void sendChat(String message, String sender) {
         String formatted = Command.CHAT + Command.SEPARATOR + sender + Command.SEPARATOR + message;
         writer.println(formatted);
-        writer.flush();
     }
 
     /**
@@ -83,7 +87,6 @@ public class ProtocolWriterServer {
     public void sendCommandAndString(Command command, String text) throws IOException {
         sendToClient(command + Command.SEPARATOR + text);
         System.out.println(command + " sent");
-        writer.flush();
     }
 
     /**
@@ -94,7 +97,6 @@ public class ProtocolWriterServer {
      */
     public void sendToClient(String message) {
         writer.println(message);
-        writer.flush();
     }
 
     /**
@@ -109,7 +111,6 @@ public class ProtocolWriterServer {
         String formatted = Command.WISP + Command.SEPARATOR + sender + Command.SEPARATOR + message;
         if (receiver != null) {
             writer.println(formatted);
-            writer.flush();
         }
     }
 
@@ -12,12 +12,24 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The {@code ClientHandler} class handles an individual client connection to the server. It manages
- * communication, initiates a {@link ProtocolReaderServer} for incoming messages, starts a
- * {@link PingThread} for connection health monitoring, and handles disconnection logic. This class
- * is run in its own thread for each client.
+ * communication, initiates a {@link ProtocolReaderServer} for incoming messages, registers
+ * the connection with the {@link HeartbeatService} for connection health monitoring, and handles disconnection logic. This class
+ * is run in its own thread for each client. Depending on the {@link ServerEngine}, the handler and
+ * its reader run on platform threads or on virtual threads.
+ * <p>
+ * The lifecycle of the connection is kept in a {@link ClientSession}. The reader, the heartbeat and
+ * {@link #disconnectClient()} all close the session, the cleanup runs as close hooks, and the handler
+ * thread parks until the session is closed.
+ * </p>
+ * <p>
+ * Messages to the client are not written to the socket by the thread that sends them. They are put
+ * into the client's {@link OutboundQueue}, which a writer thread of this handler drains, so a slow
+ * client cannot stall the lobby or the other clients.
+ * </p>
  *
  * @author Jana
  */
@@ -38,11 +50,6 @@ public class ClientHandler implements Runnable {
      */
     private final int userId;
 
-    /**
-     * The ping thread responsible for sending PINGs and detecting lost connections.
-     */
-    private PingThread pingThread;
-
     /**
      * Input stream for reading data from the client.
      */
@@ -54,9 +61,30 @@ public class ClientHandler implements Runnable {
     private OutputStream out;
 
     /**
-     * Flag indicating if the handler is still running.
+     * The lifecycle of this client's connection.
+     */
+    private final ClientSession session;
+
+    /**
+     * The queue of messages that wait to be written to the client.
+     */
+    private final OutboundQueue outbound;
+
+    /**
+     * The thread that writes the queued messages to the socket.
      */
-    private boolean running = true;
+    private Thread writerThread;
+
+    /**
+     * Maximum time in milliseconds to wait for the queued messages to be written when the client is
+     * disconnected.
+     */
+    private static final long LINGER_TIMEOUT = 1000;
+
+    /**
+     * Factory for the reader and writer threads of this client.
+     */
+    private final ThreadFactory threadFactory;
 
     /**
      * List of all client output streams for broadcasting messages.
@@ -72,91 +100,187 @@ public class ClientHandler implements Runnable {
      * @param userId       The user ID for identification
      */
     public ClientHandler(int clientNumber, Socket socket, int userId) {
+        this(clientNumber, socket, userId, ServerEngine.BLOCKING.connectionThreads());
+    }
+
+    /**
+     * Constructs a new {@link  ClientHandler} whose reader and writer run on threads of the given
+     * factory.
+     *
+     * @param clientNumber  The client’s unique number on the server
+     * @param socket        The socket connected to the client
+     * @param userId        The user ID for identification
+     * @param threadFactory The factory for the reader and writer threads
+     */
+    public ClientHandler(int clientNumber, Socket socket, int userId, ThreadFactory threadFactory) {
+        this(clientNumber, socket, userId, threadFactory, new OutboundQueue());
+    }
+
+    /**
+     * Constructs a new {@link  ClientHandler} that writes the messages of the given queue to the
+     * client. The queue is the stream that is registered for the user in the {@link UserList}.
+     *
+     * @param clientNumber  The client’s unique number on the server
+     * @param socket        The socket connected to the client
+     * @param userId        The user ID for identification
+     * @param threadFactory The factory for the reader and writer threads
+     * @param outbound      The queue of messages for the client
+     */
+    public ClientHandler(int clientNumber, Socket socket, int userId, ThreadFactory threadFactory,
+                         OutboundQueue outbound) {
         this.clientNumber = clientNumber;
         this.clientSocket = socket;
         this.userId = userId;
+        this.threadFactory = threadFactory;
+        this.outbound = outbound;
+        this.session = new ClientSession(clientNumber, userId);
+    }
+
+    /**
+     * Returns the session that describes the lifecycle of this client's connection.
+     *
+     * @return the client session
+     */
+    public ClientSession getSession() {
+        return session;
     }
 
     /**
      * The main run method of this client handler.
      * <ul>
      *     <li>Initializes input/output streams</li>
-     *     <li>Starts the {@link PingThread} for health monitoring</li>
-     *     <li>Starts the {@link ProtocolReaderServer} to handle client messages</li>
+     *     <li>Registers the cleanup of the connection as close hooks of the {@link ClientSession}</li>
+     *     <li>Starts the writer that drains the {@link OutboundQueue}</li>
      *     <li>Sends a welcome message</li>
-     *     <li>Handles clean disconnection on error or manual leave</li>
+     *     <li>Registers the connection with the {@link HeartbeatService}</li>
+     *     <li>Starts the {@link ProtocolReaderServer} to handle client messages</li>
+     *     <li>Parks until the session is closed, without using any CPU</li>
      * </ul>
      */
     public void run() {
         try {
             in = clientSocket.getInputStream();
-            out = clientSocket.getOutputStream();
+            OutputStream socketOut = clientSocket.getOutputStream();
+            out = outbound;
             ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, out);
 
-            pingThread = new PingThread(clientSocket, clientNumber, in, out, this::disconnectClient);
-            pingThread.start();
+            session.onClose(this::closeOutbound);
+            session.onClose(this::closeSocket);
+            session.onClose(this::releaseUser);
+            HeartbeatService.Heartbeat heartbeat = Server.heartbeats.register(session, out, session::close);
 
-            ProtocolReaderServer protocolReader = new ProtocolReaderServer(in, userId, out, pingThread, this); // Pass disconnect callback
+            ProtocolReaderServer protocolReader = new ProtocolReaderServer(in, out, session, heartbeat);
+            writerThread = threadFactory.newThread(() -> writeLoop(socketOut));
+            writerThread.start();
 
-            Thread readerThread = new Thread(() -> {
+            session.activate();
+            String welcomeMsg = "Welcome to the Server!\n";
+            protocolWriterServer.sendInfo(welcomeMsg);
+
+            threadFactory.newThread(() -> {
                 try {
                     protocolReader.readLoop();
                 } catch (IOException e) {
-                    System.err.println(
-                            "Error when reading the message from Client " + clientNumber + ": " + e.getMessage());
+                    if (session.isOpen()) {
+                        System.err.println(
+                                "Error when reading the message from Client " + clientNumber + ": " + e.getMessage());
+                    }
+                } finally {
+                    session.close();
                 }
-            });
-            readerThread.start();
-
-            String welcomeMsg = "Welcome to the Server!\n";
-            protocolWriterServer.sendInfo(welcomeMsg);
+            }).start();
 
-            while (running) {
-            }
+            session.awaitClose();
         } catch (IOException e) {
             System.err.println("Error with Client " + clientNumber + ": " + e.getMessage());
+            session.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Removes a user from the {@link UserList} based on their client number.
+     * Writes the queued messages to the client until the queue is closed. If the client does not read
+     * its messages and the queue overflows, or if writing fails, the session is closed.
      *
-     * @param clientNumber The ID of the user to be removed
+     * @param socketOut The output stream of the client's socket.
      */
-    private void removeUser(int clientNumber) {
+    private void writeLoop(OutputStream socketOut) {
+        try {
+            outbound.drainTo(socketOut);
+        } catch (IOException e) {
+            if (session.isOpen()) {
+                System.err.println("Error when writing to Client " + clientNumber + ": " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (outbound.isOverflowed()) {
+            System.out.println("Client " + clientNumber + " does not read its messages and is disconnected ("
+                    + ServerMetrics.summary() + ")");
+        }
+        session.close();
+    }
 
-        UserList.removeUser(clientNumber);
+    /**
+     * Closes the outbound queue and gives the writer a moment to send the remaining messages, e.g. the
+     * QCNF of a timeout. Runs as a close hook of the session.
+     */
+    private void closeOutbound() {
+        outbound.close();
+        Thread writer = writerThread;
+        if (writer == null || writer == Thread.currentThread()) {
+            return;
+        }
+        try {
+            writer.join(LINGER_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Called when the client is detected to be disconnected or times out. This method handles full
-     * cleanup:
-     * <ul>
-     *     <li>Closes socket</li>
-     *     <li>Removes user from lobby and user list</li>
-     *     <li>Stops ping thread</li>
-     *     <li>Notifies the server of disconnection</li>
-     * </ul>
+     * Closes the socket of the client. Runs as a close hook of the session.
      */
-    public void disconnectClient() {
+    private void closeSocket() {
+        System.out.println("Connection closed for Client " + clientNumber);
         try {
-            running = false;
-            System.out.println("Connection closed for Client " + clientNumber);
             clientSocket.close();
-            if (pingThread != null) {
-                pingThread.stopPinging();
-            }
-            removeUser(clientNumber);
-            Server.updateAllClients();
-            Server.ClientDisconnected();
         } catch (IOException e) {
             System.err.println("Error while closing client socket: " + e.getMessage());
         }
+    }
+
+    /**
+     * Removes the user from its lobby and from the {@link UserList} and informs the server. Runs as a
+     * close hook of the session; the lobby is changed in its mailbox.
+     */
+    private void releaseUser() {
         String nickname = UserList.getUserName(userId);
-        Lobby userLobby = Server.getLobbyOfPlayer(nickname);
-        if (userLobby != null) {
-            userLobby.removePlayer(nickname);
-            System.out.println("User '" + nickname + "' removed from lobby: " + userLobby.getLobbyName());
+        if (nickname != null) {
+            Lobby userLobby = Server.getLobbyOfUser(userId);
+            if (userLobby != null) {
+                Server.leaveLobby(userLobby, nickname);
+            }
         }
+        UserList.removeUser(userId);
+        Server.updateAllClients();
+        Server.ClientDisconnected();
+    }
+
+    /**
+     * Called when the client is detected to be disconnected, times out or quits. Closes the
+     * {@link ClientSession}, whose close hooks handle the full cleanup:
+     * <ul>
+     *     <li>Sends the remaining queued messages</li>
+     *     <li>Closes socket</li>
+     *     <li>Stops the heartbeat</li>
+     *     <li>Removes user from lobby and user list</li>
+     *     <li>Notifies the server of disconnection</li>
+     * </ul>
+     * Calling this method more than once has no effect.
+     */
+    public void disconnectClient() {
+        session.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,199 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@code ClientSession} describes the lifecycle of one client connection. It moves through the
+ * states {@link State#CONNECTING}, {@link State#ACTIVE}, {@link State#CLOSING} and
+ * {@link State#CLOSED} exactly once and completes a future when the connection is closed.
+ * <p>
+ * Everything that has to be cleaned up when a client leaves (socket, ping loop, user list, lobby)
+ * is registered as a close hook. Whoever notices the end of the connection first (the reader at the
+ * end of the stream, the ping loop on a timeout or a confirmed QUIT) calls {@link #close()}, and the
+ * hooks run exactly once. Threads that only wait for the end of the connection park on
+ * {@link #awaitClose()} and use no CPU while the client is idle.
+ * </p>
+ */
+public class ClientSession {
+
+    /**
+     * The states of a client connection.
+     */
+    public enum State {
+        /**
+         * The connection was accepted, but the client is not served yet.
+         */
+        CONNECTING,
+        /**
+         * The client is served and can send commands.
+         */
+        ACTIVE,
+        /**
+         * The connection is being closed and the close hooks are running.
+         */
+        CLOSING,
+        /**
+         * The connection is closed and all close hooks have run.
+         */
+        CLOSED
+    }
+
+    /**
+     * The number of the client on the server.
+     */
+    private final int clientNumber;
+
+    /**
+     * The ID of the user of this connection.
+     */
+    private final int userId;
+
+    /**
+     * The current state of the connection.
+     */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CONNECTING);
+
+    /**
+     * Completed as soon as the connection is closed and all close hooks have run.
+     */
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+    /**
+     * The actions that run when the connection is closed, in the order of registration.
+     */
+    private final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new session in the state {@link State#CONNECTING}.
+     *
+     * @param clientNumber The number of the client on the server.
+     * @param userId       The ID of the user of this connection.
+     */
+    public ClientSession(int clientNumber, int userId) {
+        this.clientNumber = clientNumber;
+        this.userId = userId;
+    }
+
+    /**
+     * Returns the number of the client on the server.
+     *
+     * @return the client number
+     */
+    public int getClientNumber() {
+        return clientNumber;
+    }
+
+    /**
+     * Returns the ID of the user of this connection.
+     *
+     * @return the user ID
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns the current state of the connection.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Checks whether the connection is neither closing nor closed.
+     *
+     * @return true if the session is connecting or active
+     */
+    public boolean isOpen() {
+        State current = state.get();
+        return current == State.CONNECTING || current == State.ACTIVE;
+    }
+
+    /**
+     * Marks the connection as active. This only has an effect while the session is connecting.
+     *
+     * @return true if the session is now active
+     */
+    public boolean activate() {
+        return state.compareAndSet(State.CONNECTING, State.ACTIVE);
+    }
+
+    /**
+     * Registers an action that runs when the connection is closed. If the session is already closing
+     * or closed, the action runs immediately.
+     *
+     * @param hook The action to run on close.
+     */
+    public void onClose(Runnable hook) {
+        closeHooks.add(hook);
+        if (!isOpen() && closeHooks.remove(hook)) {
+            hook.run();
+        }
+    }
+
+    /**
+     * Closes the connection. The first call moves the session to {@link State#CLOSING}, runs all close
+     * hooks, moves it to {@link State#CLOSED} and completes the close future. Later calls have no
+     * effect, so every part of the server can call this method when it notices the end of the
+     * connection.
+     *
+     * @return true if this call closed the session, false if it was already closing or closed
+     */
+    public boolean close() {
+        State current = state.get();
+        while (current == State.CONNECTING || current == State.ACTIVE) {
+            if (state.compareAndSet(current, State.CLOSING)) {
+                runCloseHooks();
+                state.set(State.CLOSED);
+                closeFuture.complete(null);
+                return true;
+            }
+            current = state.get();
+        }
+        return false;
+    }
+
+    /**
+     * Runs and removes all registered close hooks. A failing hook does not stop the others.
+     */
+    private void runCloseHooks() {
+        for (Runnable hook : closeHooks) {
+            if (!closeHooks.remove(hook)) {
+                continue; // already run by onClose
+            }
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error while closing Client " + clientNumber + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the future that is completed when the connection is closed.
+     *
+     * @return the close future
+     */
+    public CompletableFuture<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    /**
+     * Parks the calling thread until the connection is closed.
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void awaitClose() throws InterruptedException {
+        try {
+            closeFuture.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Session was completed exceptionally", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@code ClientWriter} is the {@link PrintWriter} of a connection that is registered in
+ * {@link Server#clientWriters}. Besides printing lines like any writer, it can hand an
+ * {@link OutboundFrame} directly to the connection's {@link OutboundQueue}, so a broadcast is encoded
+ * once for all clients.
+ */
+public class ClientWriter extends PrintWriter {
+
+    /**
+     * The queue of the connection.
+     */
+    private final OutboundQueue queue;
+
+    /**
+     * Creates an autoflushing writer for the given queue.
+     *
+     * @param queue The queue of the connection.
+     */
+    public ClientWriter(OutboundQueue queue) {
+        super(new OutputStreamWriter(queue, StandardCharsets.UTF_8), true);
+        this.queue = queue;
+    }
+
+    /**
+     * Queues an already encoded frame for the connection.
+     *
+     * @param frame The frame to send.
+     */
+    public void send(OutboundFrame frame) {
+        queue.send(frame);
+    }
+}
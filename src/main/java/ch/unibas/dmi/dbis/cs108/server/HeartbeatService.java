@@ -0,0 +1,347 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+import ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code HeartbeatService} watches the connections of all clients, whatever engine serves them.
+ * It replaces the ping loop every client used to have.
+ * <p>
+ * Every message a client sends counts as a sign of life. A sweep on the {@link ServerTimers} sends a
+ * PING only to clients that were silent for the interval, and measures the round trip time when the
+ * PONG arrives. A client that stays silent for another interval after its PING gets a QCNF and is
+ * disconnected. The disconnects run on a thread of the service, so a slow cleanup does not delay the
+ * other timers.
+ * </p>
+ */
+public class HeartbeatService {
+
+    /**
+     * The default time a client may be silent before it gets a PING, and the time it has to answer,
+     * in milliseconds.
+     */
+    public static final long DEFAULT_INTERVAL = 10000;
+
+    /**
+     * The longest time between two sweeps, in milliseconds.
+     */
+    private static final long MAX_SWEEP_PERIOD = 1000;
+
+    /**
+     * The silence before a PING, and the time to answer it, in nanoseconds.
+     */
+    private final long intervalNanos;
+
+    /**
+     * The watched clients by their user ID.
+     */
+    private final Map<Integer, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+
+    /**
+     * The thread that disconnects clients that did not answer.
+     */
+    private final ExecutorService disconnector = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "heartbeat-disconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The clock of the service in nanoseconds, {@link System#nanoTime()} outside of tests.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The timers that run the sweeps.
+     */
+    private final ServerTimers timers;
+
+    /**
+     * The time between two sweeps, in milliseconds.
+     */
+    private final long sweepPeriod;
+
+    /**
+     * The timer of the sweeps, or {@code null} before {@link #start()}.
+     */
+    private volatile ScheduledFuture<?> sweeper;
+
+    /**
+     * Creates the service. The sweeps begin with {@link #start()}.
+     *
+     * @param timers   The timers that run the sweeps.
+     * @param interval The time a client may be silent before it gets a PING, and the time it has to
+     *                 answer, in milliseconds.
+     */
+    public HeartbeatService(ServerTimers timers, long interval) {
+        this(timers, interval, System::nanoTime);
+    }
+
+    /**
+     * Creates the service with its own clock. The sweeps begin with {@link #start()}.
+     *
+     * @param timers   The timers that run the sweeps.
+     * @param interval The time a client may be silent before it gets a PING, and the time it has to
+     *                 answer, in milliseconds.
+     * @param clock    The clock in nanoseconds.
+     */
+    HeartbeatService(ServerTimers timers, long interval, LongSupplier clock) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.clock = clock;
+        this.timers = timers;
+        this.sweepPeriod = Math.max(1, Math.min(MAX_SWEEP_PERIOD, interval / 10));
+    }
+
+    /**
+     * Starts sweeping on the timers. Called once the service is fully created, so a sweep never sees
+     * a half-built service.
+     *
+     * @return this service
+     */
+    public synchronized HeartbeatService start() {
+        if (sweeper == null) {
+            sweeper = timers.scheduleAtFixedRate(this::sweep, sweepPeriod, sweepPeriod, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Starts watching a client.
+     *
+     * @param session   The session of the client.
+     * @param out       The stream for the PING and QCNF messages.
+     * @param onTimeout The callback that disconnects the client when it does not answer.
+     * @return the heartbeat of the client
+     */
+    public Heartbeat register(ClientSession session, OutputStream out, Runnable onTimeout) {
+        Heartbeat heartbeat = new Heartbeat(session.getClientNumber(), session.getUserId(),
+                new ProtocolWriterServer(Server.clientWriters, out), onTimeout);
+        heartbeats.put(session.getUserId(), heartbeat);
+        session.onClose(() -> heartbeats.remove(session.getUserId(), heartbeat));
+        return heartbeat;
+    }
+
+    /**
+     * Records that a client sent a message.
+     *
+     * @param userId The ID of the user of the client.
+     */
+    public void activity(int userId) {
+        Heartbeat heartbeat = heartbeats.get(userId);
+        if (heartbeat != null) {
+            heartbeat.activity();
+        }
+    }
+
+    /**
+     * Records that a client answered a PING.
+     *
+     * @param userId The ID of the user of the client.
+     */
+    public void pongReceived(int userId) {
+        Heartbeat heartbeat = heartbeats.get(userId);
+        if (heartbeat != null) {
+            heartbeat.pongReceived();
+        }
+    }
+
+    /**
+     * Returns the heartbeat of a client.
+     *
+     * @param userId The ID of the user of the client.
+     * @return the heartbeat, or {@code null} if the client is not watched
+     */
+    public Heartbeat get(int userId) {
+        return heartbeats.get(userId);
+    }
+
+    /**
+     * Returns the number of watched clients.
+     *
+     * @return the number of clients
+     */
+    public int size() {
+        return heartbeats.size();
+    }
+
+    /**
+     * Returns the mean of the last measured round trip times of all clients.
+     *
+     * @return the mean round trip time in milliseconds, or -1 if none was measured yet
+     */
+    public double getMeanRoundTripMillis() {
+        long sum = 0;
+        int count = 0;
+        for (Heartbeat heartbeat : heartbeats.values()) {
+            long rtt = heartbeat.roundTripNanos;
+            if (rtt >= 0) {
+                sum += rtt;
+                count++;
+            }
+        }
+        return count == 0 ? -1 : sum / 1e6 / count;
+    }
+
+    /**
+     * Stops sweeping. The watched clients are no longer pinged.
+     */
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.cancel(false);
+        }
+        disconnector.shutdown();
+    }
+
+    /**
+     * Checks all clients: a PING goes to those that were silent for the interval, and those that did
+     * not answer their PING in time are disconnected.
+     */
+    void sweep() {
+        long now = clock.getAsLong();
+        for (Heartbeat heartbeat : heartbeats.values()) {
+            heartbeat.check(now);
+        }
+    }
+
+    /**
+     * The {@code Heartbeat} of a single client. Its times are written by the thread that reads the
+     * client and read by the sweep.
+     */
+    public final class Heartbeat {
+
+        /**
+         * The number of the client, used in logs.
+         */
+        private final int clientNumber;
+
+        /**
+         * The ID of the user of the client.
+         */
+        private final int userId;
+
+        /**
+         * The writer for the PING and QCNF messages.
+         */
+        private final ProtocolWriterServer writer;
+
+        /**
+         * The callback that disconnects the client.
+         */
+        private final Runnable onTimeout;
+
+        /**
+         * The time of the last message from the client.
+         */
+        private volatile long lastActivity = clock.getAsLong();
+
+        /**
+         * The time the last PING was sent, or 0 if no PING is waiting for its PONG. Only the PONG clears
+         * it.
+         */
+        private volatile long pingSent;
+
+        /**
+         * The last measured round trip time in nanoseconds, or -1 if none was measured yet.
+         */
+        private volatile long roundTripNanos = -1;
+
+        /**
+         * Creates the heartbeat of a client.
+         *
+         * @param clientNumber The number of the client.
+         * @param userId       The ID of the user of the client.
+         * @param writer       The writer for the PING and QCNF messages.
+         * @param onTimeout    The callback that disconnects the client.
+         */
+        private Heartbeat(int clientNumber, int userId, ProtocolWriterServer writer, Runnable onTimeout) {
+            this.clientNumber = clientNumber;
+            this.userId = userId;
+            this.writer = writer;
+            this.onTimeout = onTimeout;
+        }
+
+        /**
+         * Records that the client sent a message.
+         */
+        public void activity() {
+            lastActivity = clock.getAsLong();
+        }
+
+        /**
+         * Records that the client answered the PING and measures the round trip time.
+         */
+        public void pongReceived() {
+            long now = clock.getAsLong();
+            long sent = pingSent;
+            if (sent != 0) {
+                roundTripNanos = now - sent;
+                pingSent = 0;
+            }
+            lastActivity = now;
+        }
+
+        /**
+         * Returns the last measured round trip time.
+         *
+         * @return the round trip time in milliseconds, or -1 if none was measured yet
+         */
+        public double getRoundTripMillis() {
+            long rtt = roundTripNanos;
+            return rtt < 0 ? -1 : rtt / 1e6;
+        }
+
+        /**
+         * Checks whether the client needs a PING or did not answer in time.
+         *
+         * @param now The current time of the clock.
+         */
+        private void check(long now) {
+            long sent = pingSent;
+            long last = lastActivity;
+            // Another message after the PING shows that the client is alive. The PING stays open, so
+            // its PONG still measures the round trip time.
+            boolean answered = sent == 0 || last - sent >= 0;
+            if (!answered) {
+                if (now - sent >= intervalNanos) {
+                    timeout();
+                }
+            } else if (now - last >= intervalNanos) {
+                try {
+                    writer.sendCommand(Command.PING);
+                    pingSent = now == 0 ? 1 : now;
+                    ServerMetrics.pingSent();
+                } catch (IOException e) {
+                    System.err.println("Error sending PING to Client " + clientNumber + ": " + e.getMessage());
+                    timeout();
+                }
+            }
+        }
+
+        /**
+         * Stops watching the client, sends it a QCNF and disconnects it.
+         */
+        private void timeout() {
+            if (!heartbeats.remove(userId, this)) {
+                return;
+            }
+            System.out.println("Connection timed out for Client " + clientNumber);
+            ServerMetrics.heartbeatTimeout();
+            try {
+                writer.sendCommand(Command.QCNF);
+            } catch (IOException e) {
+                System.err.println("Error sending QCNF to Client " + clientNumber + ": " + e.getMessage());
+            }
+            disconnector.execute(onTimeout);
+        }
+    }
+}
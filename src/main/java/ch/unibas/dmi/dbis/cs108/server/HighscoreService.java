@@ -0,0 +1,310 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code HighscoreService} keeps the highscore list of the server in memory. The file is read
+ * once when the service is created; after that the list is read without touching the disk.
+ * <p>
+ * A new entry only changes the list in memory and schedules a write on the {@link ServerTimers}.
+ * All entries that arrive until the write starts are saved together, on a writer thread of the
+ * service and not on the thread of the game. The file is written next to the target and then
+ * renamed, so a crash during the write leaves the old list intact. The file keeps the format of
+ * {@link Highscore}: one line {@code "1. nickname, rolls: 7"} per entry.
+ * </p>
+ */
+public class HighscoreService {
+
+    /**
+     * The number of entries the list keeps.
+     */
+    public static final int MAX_ENTRIES = 10;
+
+    /**
+     * The default time between a new entry and the write, in milliseconds.
+     */
+    public static final long DEFAULT_WRITE_DELAY = 1000;
+
+    /**
+     * The separator between the nickname and the number of rolls of an entry.
+     */
+    private static final String ROLLS = ", rolls: ";
+
+    /**
+     * The file of the highscore list.
+     */
+    private final Path file;
+
+    /**
+     * The timers that schedule the writes.
+     */
+    private final ServerTimers timers;
+
+    /**
+     * The time between a new entry and the write, in milliseconds.
+     */
+    private final long writeDelay;
+
+    /**
+     * The entries, ordered by the number of rolls and, for equal rolls, by their age. Guarded by
+     * {@code this}.
+     */
+    private final TreeSet<Entry> entries = new TreeSet<>(
+            Comparator.comparingInt(Entry::getRolls).thenComparingLong(Entry::getSequence));
+
+    /**
+     * The number of entries that were added, used to order entries with equal rolls. Guarded by
+     * {@code this}.
+     */
+    private long sequence;
+
+    /**
+     * The lines of the current list, replaced whenever the list changes.
+     */
+    private volatile List<String> lines = List.of();
+
+    /**
+     * Guards the file, so a {@link #flush()} and a scheduled write do not write it at the same time.
+     * Separate from {@code this}, so {@link #add(String, int)} does not wait for the disk.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Set while a write is scheduled and has not started yet.
+     */
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * The thread that writes the file.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "highscore-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates the service and reads the highscore list from the file.
+     *
+     * @param file       The file of the highscore list.
+     * @param timers     The timers that schedule the writes.
+     * @param writeDelay The time between a new entry and the write, in milliseconds.
+     */
+    public HighscoreService(Path file, ServerTimers timers, long writeDelay) {
+        this.file = file;
+        this.timers = timers;
+        this.writeDelay = writeDelay;
+        load();
+    }
+
+    /**
+     * Adds the result of a winner. The list keeps the {@link #MAX_ENTRIES} entries with the fewest
+     * rolls; an entry with as many rolls as an older one is placed after it.
+     *
+     * @param nickname  The name of the winner.
+     * @param rollCount The number of rolls the winner needed.
+     * @return true if the entry made it onto the list
+     */
+    public boolean add(String nickname, int rollCount) {
+        Entry entry;
+        synchronized (this) {
+            entry = new Entry(nickname, rollCount, sequence++);
+            entries.add(entry);
+            if (entries.size() > MAX_ENTRIES) {
+                entries.pollLast();
+            }
+            if (!entries.contains(entry)) {
+                return false;
+            }
+            lines = format();
+        }
+        scheduleWrite();
+        return true;
+    }
+
+    /**
+     * Returns the highscore list.
+     *
+     * @return the lines of the list, e.g. {@code "1. nickname, rolls: 7"}, best first
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Writes the list now, e.g. before the server shuts down.
+     */
+    public void flush() {
+        writeScheduled.set(false);
+        write();
+    }
+
+    /**
+     * Writes the pending entries and stops the writer thread.
+     */
+    public void shutdown() {
+        flush();
+        writer.shutdown();
+    }
+
+    /**
+     * Schedules a write, unless one is already waiting.
+     */
+    private void scheduleWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            timers.schedule(writer, this::flush, writeDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the current list to a temporary file next to the target and renames it to the target.
+     */
+    private void write() {
+        synchronized (writeLock) {
+            List<String> current = lines;
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    for (String line : current) {
+                        out.write(line);
+                        out.newLine();
+                    }
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                ServerMetrics.highscoreWritten();
+            } catch (IOException e) {
+                System.err.println("Error while saving Highscore: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the list from the file. Lines that are not entries are skipped.
+     */
+    private synchronized void load() {
+        List<String> read;
+        try {
+            read = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            System.out.println("Highscore file not found. A new one is created.");
+            return;
+        } catch (IOException e) {
+            System.err.println("Error while reading Highscore file");
+            return;
+        }
+        for (String line : read) {
+            int rank = line.indexOf(". ");
+            int rolls = line.lastIndexOf(ROLLS);
+            if (rank < 0 || rolls < rank) {
+                continue;
+            }
+            try {
+                int rollCount = Integer.parseInt(line.substring(rolls + ROLLS.length()).trim());
+                entries.add(new Entry(line.substring(rank + 2, rolls), rollCount, sequence++));
+            } catch (NumberFormatException e) {
+                System.err.println("Skipping invalid highscore entry: " + line);
+            }
+        }
+        while (entries.size() > MAX_ENTRIES) {
+            entries.pollLast();
+        }
+        lines = format();
+    }
+
+    /**
+     * Formats the entries as the lines of the file.
+     *
+     * @return the numbered lines, best first
+     */
+    private List<String> format() {
+        List<String> formatted = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            formatted.add((formatted.size() + 1) + ". " + entry.getNickname() + ROLLS + entry.getRolls());
+        }
+        return List.copyOf(formatted);
+    }
+
+    /**
+     * One entry of the highscore list.
+     */
+    private static final class Entry {
+
+        /**
+         * The name of the winner.
+         */
+        private final String nickname;
+
+        /**
+         * The number of rolls the winner needed.
+         */
+        private final int rolls;
+
+        /**
+         * The order in which the entry was added.
+         */
+        private final long sequence;
+
+        /**
+         * Creates an entry.
+         *
+         * @param nickname The name of the winner.
+         * @param rolls    The number of rolls the winner needed.
+         * @param sequence The order in which the entry was added.
+         */
+        private Entry(String nickname, int rolls, long sequence) {
+            this.nickname = nickname;
+            this.rolls = rolls;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns the name of the winner.
+         *
+         * @return the nickname
+         */
+        private String getNickname() {
+            return nickname;
+        }
+
+        /**
+         * Returns the number of rolls the winner needed.
+         *
+         * @return the rolls
+         */
+        private int getRolls() {
+            return rolls;
+        }
+
+        /**
+         * Returns the order in which the entry was added.
+         *
+         * @return the sequence number
+         */
+        private long getSequence() {
+            return sequence;
+        }
+    }
+}
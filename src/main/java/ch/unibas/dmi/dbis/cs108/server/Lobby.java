@@ -5,17 +5,25 @@ import ch.unibas.dmi.dbis.cs108.network.Command;
 import ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents a game lobby that holds a list of players and manages the game state.
  * <p>
- * Each lobby is identified by a unique name and keeps track of the players in it. The lobby can be
- * run as a separate thread (e.g., to manage game state, timers, etc.).
+ * Each lobby is identified by a unique name and keeps track of the players in it. The game commands
+ * and the game timer of the lobby run in its {@link LobbyMailbox} on one of the {@link LobbyShards}.
+ * <p>
+ * Every turn has a deadline. If the current player does not finish the turn in time, the turn passes
+ * on as with NEXT. A player who misses {@link #AFK_STRIKES} turns in a row is marked as away and
+ * skipped until they send a game command again.
+ * </p>
  *
  * @author milo
  */
@@ -27,39 +35,51 @@ public class Lobby implements Runnable {
     public static final int MAX_PLAYERS = 4;
 
     /**
-     * List of players' names currently in the lobby.
+     * The duration of a game in minutes. When it is over, the game is finished.
      */
-    public final List<String> players;
+    public static final long GAME_DURATION_MINUTES = 60;
 
     /**
-     * The name of the lobby.
+     * The default time a player has for a turn, in seconds.
      */
-    private final String lobbyName;
+    public static final long DEFAULT_TURN_SECONDS = 90;
 
     /**
-     * Mapping from player names to their personal game board.
+     * The prefix of the command line option that sets the time for a turn, e.g.
+     * {@code --turn-seconds=60}. 0 turns the deadlines off.
      */
-    private final Map<String, GameBoard> playerGameBoards;
+    public static final String TURN_OPTION = "--turn-seconds=";
 
     /**
-     * The order of players according to their join order.
+     * The number of turns in a row a player can miss before being marked as away.
      */
-    public final List<String> playerOrder = new ArrayList<>();
+    public static final int AFK_STRIKES = 2;
 
     /**
-     * Index of the current player in {@link #playerOrder} whose turn it is.
+     * The time a player has for a turn in seconds, or 0 if turns have no deadline.
      */
-    int currentPlayerIndex;
+    private static volatile long turnSeconds = DEFAULT_TURN_SECONDS;
+
+    /**
+     * The players, their turn order, the host, the winners and the ready flags. Changes publish a new
+     * snapshot while holding the {@link #lock}; readers use the current one without locking.
+     */
+    private volatile LobbySnapshot snapshot = LobbySnapshot.EMPTY;
 
     /**
-     * The name of the host (player who joined the lobby first).
+     * The name of the lobby.
      */
-    private String hostName;
+    private final String lobbyName;
 
     /**
-     * A list of winners at the end of the game.
+     * Mapping from player names to their personal game board.
      */
-    public final List<String> winners = new ArrayList<>();
+    private final Map<String, GameBoard> playerGameBoards;
+
+    /**
+     * Index of the current player in the turn order of the {@link #snapshot} whose turn it is.
+     */
+    int currentPlayerIndex;
 
     /**
      * The first podium place to assign when a player finishes.
@@ -67,9 +87,11 @@ public class Lobby implements Runnable {
     private int podestPlace;
 
     /**
-     * Readiness status of each player, keyed by player name (true = ready).
+     * Lock that guards the game state and the player lists. A {@link ReentrantLock} is used instead
+     * of {@code synchronized} because messages are sent while it is held, and a virtual thread that
+     * blocks on a socket inside a monitor would pin its carrier thread.
      */
-    public final Map<String, Boolean> readyStatus = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Current state of the game: 1 = open (waiting for players), 2 = running (game in progress), 3 =
@@ -77,72 +99,222 @@ public class Lobby implements Runnable {
      */
     private int gamestate;
 
+    /**
+     * Set when the lobby was removed from the {@link LobbyRegistry}; a closed lobby accepts no
+     * players.
+     */
+    private boolean closed;
+
+    /**
+     * The mailbox that runs the game commands of this lobby one after the other.
+     */
+    private final LobbyMailbox mailbox;
+
+    /**
+     * The timer that finishes the running game, or {@code null} if no game was started.
+     */
+    private ScheduledFuture<?> gameTimer;
+
+    /**
+     * The time the lobby was created, in milliseconds.
+     */
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * The time a player last joined or left or the game state last changed, in milliseconds. The
+     * {@link LobbyReaper} retires lobbies that did not change for a while.
+     */
+    private volatile long lastChange = createdAt;
+
+    /**
+     * The deadline of the current turn, or {@code null} if no turn is running.
+     */
+    private ScheduledFuture<?> turnTimer;
+
+    /**
+     * Counts the turns, so a deadline that expires while the next turn starts is ignored.
+     */
+    private long turnNumber;
+
+    /**
+     * The number of turns in a row each player missed.
+     */
+    private final Map<String, Integer> missedTurns = new HashMap<>();
+
+    /**
+     * The players that are away and skipped.
+     */
+    private final Set<String> awayPlayers = new HashSet<>();
+
     /**
      * Constructs a new Lobby instance with the given name.
      *
      * @param lobbyName the name of the lobby
      */
     public Lobby(String lobbyName) {
-        this.players = new ArrayList<>();
         this.lobbyName = lobbyName;
         this.playerGameBoards = new HashMap<>();
         this.gamestate = 1; // Default state: open
         this.podestPlace = 1;
         this.currentPlayerIndex = -1;
+        this.mailbox = Server.shards.createMailbox(lobbyName);
     }
 
     /**
      * Adds a player to the lobby based on their user ID. The first player added becomes the host. The
-     * player is only added if the lobby is not full and the user isn't already in it.
+     * player is only added if the lobby is not full or closed and the user isn't already in it.
      *
      * @param userId the unique ID of the user to add
      * @return true if the player was added successfully, false otherwise
      */
     public boolean addPlayers(int userId) {
-        if (players.size() >= MAX_PLAYERS) {
-            System.out.println("Lobby is full: " + players.size() + " / " + MAX_PLAYERS);
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            List<String> players = snapshot.getPlayers();
+            if (players.size() >= MAX_PLAYERS) {
+                System.out.println("Lobby is full: " + players.size() + " / " + MAX_PLAYERS);
+                return false;
+            }
+
+            User user = UserList.getUser(userId);
+            String userName = (user != null) ? user.getNickname() : null;
+            if (userName != null && !players.contains(userName)) {
+                snapshot = snapshot.withPlayer(userName);
+                lastChange = System.currentTimeMillis();
+                user.enterLobby(this);
+                playerGameBoards.put(userName, new GameBoard());
+                return true;
+            }
+
             return false;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        String userName = UserList.getUserName(userId);
-        if (userName != null && !players.contains(userName)) {
-            players.add(userName);
-            playerOrder.add(userName);
-            playerGameBoards.put(userName, new GameBoard());
-
-            if (hostName == null) {
-                hostName = userName;
+    /**
+     * Closes the lobby if no player is in it. Called by {@link LobbyRegistry#removeIfEmpty(Lobby)}
+     * while it removes the lobby.
+     *
+     * @return true if the lobby is empty and now closed
+     */
+    boolean closeIfEmpty() {
+        lock.lock();
+        try {
+            if (snapshot.getPlayers().isEmpty() && !closed) {
+                closed = true;
+                if (gameTimer != null) {
+                    gameTimer.cancel(false);
+                }
+                cancelTurnTimer();
+                playerGameBoards.clear();
+                Server.shards.release(mailbox);
             }
-            makeReadyStatusList();
-            return true;
+            return closed;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        return false;
+    /**
+     * Returns the mailbox that runs the game commands of this lobby.
+     *
+     * @return the mailbox
+     */
+    public LobbyMailbox getMailbox() {
+        return mailbox;
     }
 
+    /**
+     * Puts a game command into the mailbox of this lobby. The commands of a lobby run one after the
+     * other in the order they were submitted.
+     *
+     * @param command The command to run.
+     */
+    public void submit(Runnable command) {
+        mailbox.execute(command);
+    }
 
     /**
-     * This method creates a map which shows all players in the lobby ands states if they are ready to
-     * play. At the beginning all players are not ready.
+     * Runs a change of this lobby in its mailbox, after the commands that are already waiting. If the
+     * caller already runs in the mailbox, the change runs right away. The "Welcome" lobby has no game;
+     * its changes run directly on the calling thread, so the players who are not in a game are not all
+     * served by the thread of one shard.
+     *
+     * @param change The change to run.
+     */
+    public void runInMailbox(Runnable change) {
+        if (isWelcome() || mailbox.isOwner()) {
+            change.run();
+        } else {
+            submit(change);
+        }
+    }
+
+    /**
+     * Checks whether this is the "Welcome" lobby, where the players wait who are not in a game.
+     *
+     * @return true for the "Welcome" lobby
+     */
+    public boolean isWelcome() {
+        return lobbyName.equalsIgnoreCase(LobbyRegistry.WELCOME);
+    }
+
+    /**
+     * Checks whether the lobby was removed from the server.
+     *
+     * @return true if the lobby is closed
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * This method adds a ready flag for every player in the lobby that has none yet. At the beginning
+     * all players are not ready.
      */
     public void makeReadyStatusList() {
-        for (String username : players) {
-            if (!readyStatus.containsKey(username)) {
-                readyStatus.put(username, false);
-            }
+        lock.lock();
+        try {
+            snapshot = snapshot.withReadyStatusList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks all players as not ready, e.g. when a game stopped.
+     */
+    public void resetReadyStatus() {
+        lock.lock();
+        try {
+            snapshot = snapshot.withReadyReset();
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Marks a player as ready by setting their status to {@code true} in the {@code readyStatus} map.
      * It checks if the specified username exists in the map before updating their readiness. If the
      * username is not found, no changes are made.
      *
      * @param username the name of the player to mark as ready
      */
     public void makeReady(String username) {
-        if (readyStatus.containsKey(username)) {
-            readyStatus.put(username, true);
+        lock.lock();
+        try {
+            snapshot = snapshot.withReady(username);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -152,8 +324,7 @@ public class Lobby implements Runnable {
      * @return true if the lobby has reached MAX_PLAYERS, false otherwise
      */
     public boolean isFull() {
-
-        return players.size() >= MAX_PLAYERS;
+        return snapshot.getPlayers().size() >= MAX_PLAYERS;
     }
 
     /**
@@ -161,10 +332,22 @@ public class Lobby implements Runnable {
      *
      * @param state the new state to set
      */
-    public synchronized void changeGameState(int state) {
-        System.out.println(
-                "[Lobby: " + lobbyName + "] Game state changed from " + gamestate + " to " + state);
-        this.gamestate = state;
+    public void changeGameState(int state) {
+        lock.lock();
+        try {
+            System.out.println(
+                    "[Lobby: " + lobbyName + "] Game state changed from " + gamestate + " to " + state);
+            this.gamestate = state;
+            lastChange = System.currentTimeMillis();
+            if (state == 2) {
+                missedTurns.clear();
+                awayPlayers.clear();
+            } else {
+                cancelTurnTimer();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -172,8 +355,13 @@ public class Lobby implements Runnable {
      *
      * @return the current game state (1=open, 2=ongoing, 3=finished)
      */
-    public synchronized int getGameState() {
-        return gamestate;
+    public int getGameState() {
+        lock.lock();
+        try {
+            return gamestate;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -185,14 +373,52 @@ public class Lobby implements Runnable {
         return lobbyName;
     }
 
+    /**
+     * Returns the time the lobby was created.
+     *
+     * @return the time in milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
 
     /**
-     * Gets a copy of the list of players currently in the lobby.
+     * Returns the time a player last joined or left or the game state last changed.
      *
-     * @return list of player usernames
+     * @return the time in milliseconds
+     */
+    public long getLastChange() {
+        return lastChange;
+    }
+
+
+    /**
+     * Gets the players currently in the lobby. The list is part of the current snapshot and does not
+     * change when players join or leave later.
+     *
+     * @return unmodifiable list of player usernames
      */
     public List<String> getPlayers() {
-        return new ArrayList<>(players);
+        return snapshot.getPlayers();
+    }
+
+    /**
+     * Gets the players that reached the finish in the current game.
+     *
+     * @return unmodifiable list of winners
+     */
+    public List<String> getWinners() {
+        return snapshot.getWinners();
+    }
+
+    /**
+     * Gets the current snapshot of the players, their turn order, the host, the winners and the
+     * ready flags.
+     *
+     * @return the snapshot
+     */
+    public LobbySnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -204,30 +430,32 @@ public class Lobby implements Runnable {
      *
      * @param playerName The nickname of the player to remove.
      */
-    public synchronized void removePlayer(String playerName) {
-        boolean wasCurrent = playerName.equals(getCurrentPlayer());
-        int removedIndex = playerOrder.indexOf(playerName);
-
-        players.remove(playerName);
-        playerOrder.remove(playerName);
-        playerGameBoards.remove(playerName);
-        readyStatus.remove(playerName);
-        winners.remove(playerName);
+    public void removePlayer(String playerName) {
+        lock.lock();
+        try {
+            boolean wasCurrent = playerName.equals(getCurrentPlayer());
+            int removedIndex = snapshot.getPlayerOrder().indexOf(playerName);
 
-        if (playerName.equalsIgnoreCase(hostName)) {
-            if (!players.isEmpty()) {
-                hostName = players.getFirst();
-            } else {
-                hostName = null;
+            if (snapshot.getPlayers().contains(playerName)) {
+                User user = UserList.findUser(playerName);
+                if (user != null) {
+                    user.leaveLobby(this);
+                }
             }
-        }
-
-        if (gamestate == 2 && wasCurrent && !playerOrder.isEmpty()) {
-            currentPlayerIndex = removedIndex - 1;
-            if (currentPlayerIndex < 0) {
-                currentPlayerIndex = playerOrder.size() - 1;
+            snapshot = snapshot.withoutPlayer(playerName);
+            lastChange = System.currentTimeMillis();
+            playerGameBoards.remove(playerName);
+
+            List<String> playerOrder = snapshot.getPlayerOrder();
+            if (gamestate == 2 && wasCurrent && !playerOrder.isEmpty()) {
+                currentPlayerIndex = removedIndex - 1;
+                if (currentPlayerIndex < 0) {
+                    currentPlayerIndex = playerOrder.size() - 1;
+                }
+                advanceTurn();
             }
-            advanceTurn();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -241,79 +469,77 @@ public class Lobby implements Runnable {
      *
      * @param userId the ID of the user who requested to start the game
      */
-    public synchronized void startGame(int userId) {
-        String requester = UserList.getUserName(userId);
-        if (!isHost(requester)) {
-            User user = UserList.getUser(userId);
-            if (user != null) {
-                ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
-                        user.getOut());
-                try {
-                    protocolWriterServer.sendInfo("Only the host can start the game.");
-                } catch (IOException e) {
-                    System.err.println("Error sending host-only message to user " + userId);
+    public void startGame(int userId) {
+        lock.lock();
+        try {
+            String requester = UserList.getUserName(userId);
+            if (!isHost(requester)) {
+                User user = UserList.getUser(userId);
+                if (user != null) {
+                    ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
+                            user.getOut());
+                    try {
+                        protocolWriterServer.sendInfo("Only the host can start the game.");
+                    } catch (IOException e) {
+                        System.err.println("Error sending host-only message to user " + userId);
+                    }
                 }
+                return;
             }
-            return;
-        }
 
-        User user = UserList.getUser(userId);
-        if (user == null) {
-            return;
-        }
-
-        ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
-                user.getOut());
-
-        if (gamestate == 2) {
-            try {
-                protocolWriterServer.sendInfo("Game has already started or is finished.");
-            } catch (IOException e) {
-                System.err.println("Error sending game state message to user " + userId);
+            User user = UserList.getUser(userId);
+            if (user == null) {
+                return;
             }
-            return;
-        }
 
-        // Welcome-lobby is not a valid game lobby
-        if (lobbyName.equalsIgnoreCase("Welcome")) {
-            try {
-                protocolWriterServer.sendInfo(
-                        "You are not in a real lobby. Please join or create a lobby to start a game.");
-            } catch (IOException e) {
-                System.err.println("Error sending Welcome lobby warning to user " + userId);
-            }
-            return;
-        }
+            ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
+                    user.getOut());
 
-        // Not enough players to start
-        if (players.size() < 2) {
-            try {
-                protocolWriterServer.sendInfo("At least 2 players are required to start the game.");
-            } catch (IOException e) {
-                System.err.println("Error sending player count warning to user " + userId);
+            if (gamestate == 2) {
+                try {
+                    protocolWriterServer.sendInfo("Game has already started or is finished.");
+                } catch (IOException e) {
+                    System.err.println("Error sending game state message to user " + userId);
+                }
+                return;
             }
-            return;
-        }
 
-        changeGameState(2);
-        System.out.println("[Lobby: " + lobbyName + "] Game is starting...");
+            // Welcome-lobby is not a valid game lobby
+            if (lobbyName.equalsIgnoreCase("Welcome")) {
+                try {
+                    protocolWriterServer.sendInfo(
+                            "You are not in a real lobby. Please join or create a lobby to start a game.");
+                } catch (IOException e) {
+                    System.err.println("Error sending Welcome lobby warning to user " + userId);
+                }
+                return;
+            }
 
-        for (String playerName : players) {
-            User u = UserList.getUserByName(playerName);
-            if (u != null) {
-                ProtocolWriterServer playerWriter = new ProtocolWriterServer(Server.clientWriters,
-                        u.getOut());
+            // Not enough players to start
+            List<String> players = snapshot.getPlayers();
+            if (players.size() < 2) {
                 try {
-                    playerWriter.sendCommand(Command.STRT);
+                    protocolWriterServer.sendInfo("At least 2 players are required to start the game.");
                 } catch (IOException e) {
-                    System.err.println("Error sending STRT to " + playerName);
+                    System.err.println("Error sending player count warning to user " + userId);
                 }
+                return;
             }
-        }
-        currentPlayerIndex = -1;
 
-        advanceTurn();
-        new Thread(this).start(); // Start game thread
+            changeGameState(2);
+            System.out.println("[Lobby: " + lobbyName + "] Game is starting...");
+
+            OutboundFrame startFrame = OutboundFrame.of(Command.STRT, "");
+            for (String playerName : players) {
+                startFrame.sendTo(UserList.getUserByName(playerName));
+            }
+            currentPlayerIndex = -1;
+
+            advanceTurn();
+            startGameTimer();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -322,94 +548,108 @@ public class Lobby implements Runnable {
      *
      * @param userId The userId of the player who typed restart.
      */
-    public synchronized void restartGame(int userId) {
-        // Verify that the requesting user is the host.
-        String requester = UserList.getUserName(userId);
-        if (!isHost(requester)) {
-            User user = UserList.getUser(userId);
-            if (user != null) {
-                ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
-                        user.getOut());
-                try {
-                    protocolWriterServer.sendInfo("Only the host can start the game.");
-                } catch (IOException e) {
-                    System.err.println("Error sending host-only message to user " + userId);
+    public void restartGame(int userId) {
+        lock.lock();
+        try {
+            // Verify that the requesting user is the host.
+            String requester = UserList.getUserName(userId);
+            if (!isHost(requester)) {
+                User user = UserList.getUser(userId);
+                if (user != null) {
+                    ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
+                            user.getOut());
+                    try {
+                        protocolWriterServer.sendInfo("Only the host can start the game.");
+                    } catch (IOException e) {
+                        System.err.println("Error sending host-only message to user " + userId);
+                    }
                 }
+                return;
             }
-            return;
-        }
 
-        User user = UserList.getUser(userId);
-        if (user == null) {
-            return;
-        }
+            User user = UserList.getUser(userId);
+            if (user == null) {
+                return;
+            }
 
-        ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
-                user.getOut());
+            ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(Server.clientWriters,
+                    user.getOut());
 
-        if (gamestate == 1) {
-            try {
-                protocolWriterServer.sendInfo("Game hasn't started yet. You need to start a game first.");
-            } catch (IOException e) {
-                System.err.println("Error sending game state message to user " + userId);
+            if (gamestate == 1) {
+                try {
+                    protocolWriterServer.sendInfo("Game hasn't started yet. You need to start a game first.");
+                } catch (IOException e) {
+                    System.err.println("Error sending game state message to user " + userId);
+                }
+                return;
             }
-            return;
-        }
 
-        // Not enough players to restart
-        if (players.size() < 2) {
-            try {
-                protocolWriterServer.sendInfo("At least 2 players are required to restart the game.");
-            } catch (IOException e) {
-                System.err.println("Error sending player count warning to user " + userId);
+            // Not enough players to restart
+            List<String> players = snapshot.getPlayers();
+            if (players.size() < 2) {
+                try {
+                    protocolWriterServer.sendInfo("At least 2 players are required to restart the game.");
+                } catch (IOException e) {
+                    System.err.println("Error sending player count warning to user " + userId);
+                }
+                return;
             }
-            return;
-        }
 
-        // Reset the currentField for each player
-        for (String playerName : players) {
-            GameBoard board = getGameBoard(playerName);
-            board.setCurrentField(board.getFieldById("white1"));
-        }
+            // Reset the currentField for each player
+            for (String playerName : players) {
+                GameBoard board = getGameBoard(playerName);
+                board.setCurrentField(board.getFieldById("white1"));
+            }
 
-        for (String player : players) {
-            User u = UserList.getUserByName(player);
-            if (u != null) {
-                u.setHasRolled(false);
-                u.setBackRollCount();
-                ProtocolWriterServer writer = new ProtocolWriterServer(Server.clientWriters, u.getOut());
-                try {
-                    writer.sendCommand(Command.RSTT);
-                } catch (IOException e) {
-                    System.err.println("Error sending RSTT");
+            OutboundFrame restartFrame = OutboundFrame.of(Command.RSTT, "");
+            for (String player : players) {
+                User u = UserList.getUserByName(player);
+                if (u != null) {
+                    u.setHasRolled(false);
+                    u.setBackRollCount();
+                    restartFrame.sendTo(u);
                 }
             }
-        }
 
-//    changeGameState(3); //ends the current game
-        changeGameState(1);
-        winners.clear();
-        startGame(userId);
+    //    changeGameState(3); //ends the current game
+            changeGameState(1);
+            snapshot = snapshot.withoutWinners();
+            startGame(userId);
 
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Logic to run when this lobby is executed in a separate thread. You can implement countdowns,
-     * game loops, or timeouts here.
+     * Starts the timer of a new game in the {@link ServerTimers}. When it expires, the game ends in
+     * the mailbox of this lobby. The timer of a previous game is cancelled, so a restarted game gets
+     * the full duration.
      */
-    @Override
-    public void run() {
+    private void startGameTimer() {
+        if (gameTimer != null) {
+            gameTimer.cancel(false);
+        }
         System.out.println("[Lobby: " + lobbyName + "] Game loop started.");
+        gameTimer = mailbox.schedule(this, GAME_DURATION_MINUTES, TimeUnit.MINUTES);
+    }
 
+    /**
+     * Finishes the game when its time is over. Runs in the mailbox of the lobby when the game timer
+     * expires.
+     */
+    @Override
+    public void run() {
+        lock.lock();
         try {
-            // Starts 60-minute game session
-            Thread.sleep(60 * 60 * 1000);
-        } catch (InterruptedException e) {
-            System.err.println("[Lobby: " + lobbyName + "] Game loop was interrupted.");
+            if (gamestate != 2) {
+                return;
+            }
+            changeGameState(3); // Game finished
+            System.out.println("[Lobby: " + lobbyName + "] Game ended.");
+        } finally {
+            lock.unlock();
         }
-
-        changeGameState(3); // Game finished
-        System.out.println("[Lobby: " + lobbyName + "] Game ended.");
     }
 
     /**
@@ -429,6 +669,7 @@ public class Lobby implements Runnable {
      * @return true if it's his turn
      */
     public boolean isCurrentPlayer(String name) {
+        List<String> playerOrder = snapshot.getPlayerOrder();
         if (playerOrder.isEmpty() || currentPlayerIndex < 0 || currentPlayerIndex >= playerOrder.size()) {
             return false;
         }
@@ -438,44 +679,191 @@ public class Lobby implements Runnable {
 
     /**
      * Sets the next player as active (after turn or NEXT). It also sends the information message
-     * whose turn it is to all players in the lobby.
+     * whose turn it is to all players in the lobby. Players who won are skipped, and so are players
+     * who are away unless nobody else is left. The deadline of the new turn starts.
      */
     public void advanceTurn() {
-        System.out.println("Advancing turn. Current index before increment: " + currentPlayerIndex);
-        int safety = 0;
-        String currentPlayer;
+        lock.lock();
+        try {
+            cancelTurnTimer();
+            System.out.println("Advancing turn. Current index before increment: " + currentPlayerIndex);
+            int safety = 0;
+            String currentPlayer;
+            LobbySnapshot current = snapshot;
+            List<String> playerOrder = current.getPlayerOrder();
+            boolean skipAway = hasPresentPlayer(current);
 
-        if (currentPlayerIndex < 0) {
-            currentPlayerIndex = 0;
-        }
+            if (currentPlayerIndex < 0) {
+                currentPlayerIndex = 0;
+            }
 
-        do {
-            currentPlayerIndex = (currentPlayerIndex + 1) % playerOrder.size();
-            currentPlayer = playerOrder.get(currentPlayerIndex);
-            safety++;
+            do {
+                currentPlayerIndex = (currentPlayerIndex + 1) % playerOrder.size();
+                currentPlayer = playerOrder.get(currentPlayerIndex);
+                safety++;
+
+                // Sicherheitsabbruch: falls alle Spieler gewonnen haben
+                if (safety > playerOrder.size()) {
+                    System.out.println("No eligible players left to take a turn.");
+                    return; // beende advanceTurn(), kein gültiger Spieler mehr da
+                }
+            } while (current.getWinners().contains(currentPlayer)
+                    || (skipAway && awayPlayers.contains(currentPlayer)));
 
-            // Sicherheitsabbruch: falls alle Spieler gewonnen haben
-            if (safety > playerOrder.size()) {
-                System.out.println("No eligible players left to take a turn.");
-                return; // beende advanceTurn(), kein gültiger Spieler mehr da
+            User currentUser = UserList.getUserByName(currentPlayer);
+            if (currentUser != null) {
+                currentUser.setHasRolled(false); // resets dice status
             }
-        } while (winners.contains(currentPlayer));
 
-        User currentUser = UserList.getUserByName(currentPlayer);
-        if (currentUser != null) {
-            currentUser.setHasRolled(false); // resets dice status
+            OutboundFrame turnFrame = OutboundFrame.of(Command.INFO, "It's " + currentPlayer + "'s turn");
+            for (String player : current.getPlayers()) {
+                turnFrame.sendTo(UserList.getUserByName(player));
+            }
+            startTurnTimer(currentPlayer);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        for (String player : players) {
-            User u = UserList.getUserByName(player);
-            if (u != null) {
-                ProtocolWriterServer writer = new ProtocolWriterServer(Server.clientWriters, u.getOut());
-                try {
-                    writer.sendCommandAndString(Command.INFO, "It's " + currentPlayer + "'s turn");
-                } catch (IOException e) {
-                    System.err.println("Error sending turn info to " + player);
+    /**
+     * Sets the time a player has for a turn in all lobbies. It applies from the next turn on.
+     *
+     * @param seconds The time in seconds, or 0 to turn the deadlines off.
+     */
+    public static void setTurnSeconds(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("The time for a turn cannot be negative: " + seconds);
+        }
+        turnSeconds = seconds;
+    }
+
+    /**
+     * Returns the time a player has for a turn.
+     *
+     * @return the time in seconds, or 0 if turns have no deadline
+     */
+    public static long getTurnSeconds() {
+        return turnSeconds;
+    }
+
+    /**
+     * Records that a player sent a game command. The player's missed turns are forgotten, and a player
+     * who was away takes part in the turns again.
+     *
+     * @param playerName The nickname of the player.
+     */
+    public void playerActive(String playerName) {
+        lock.lock();
+        try {
+            missedTurns.remove(playerName);
+            if (awayPlayers.remove(playerName)) {
+                OutboundFrame backFrame = OutboundFrame.of(Command.INFO, playerName + " is back and takes part again.");
+                for (String player : snapshot.getPlayers()) {
+                    backFrame.sendTo(UserList.getUserByName(player));
                 }
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether a player is away and skipped.
+     *
+     * @param playerName The nickname of the player.
+     * @return true if the player missed too many turns
+     */
+    public boolean isAway(String playerName) {
+        lock.lock();
+        try {
+            return awayPlayers.contains(playerName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether a player who has not finished yet is not away.
+     *
+     * @param current The snapshot of the players.
+     * @return true if at least one such player exists
+     */
+    private boolean hasPresentPlayer(LobbySnapshot current) {
+        for (String player : current.getPlayerOrder()) {
+            if (!current.getWinners().contains(player) && !awayPlayers.contains(player)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts the deadline of a turn in the {@link ServerTimers}. When it expires, the turn ends in the
+     * mailbox of this lobby. Called while holding the lock.
+     *
+     * @param playerName The player whose turn starts.
+     */
+    private void startTurnTimer(String playerName) {
+        long seconds = turnSeconds;
+        if (seconds <= 0 || gamestate != 2) {
+            return;
+        }
+        long turn = ++turnNumber;
+        turnTimer = mailbox.schedule(() -> turnExpired(playerName, turn), seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Cancels the deadline of the current turn. Called while holding the lock.
+     */
+    private void cancelTurnTimer() {
+        turnNumber++;
+        if (turnTimer != null) {
+            turnTimer.cancel(false);
+            turnTimer = null;
+        }
+    }
+
+    /**
+     * Ends the current turn as if its deadline had expired.
+     */
+    void expireTurn() {
+        lock.lock();
+        try {
+            String playerName = getCurrentPlayer();
+            if (playerName != null) {
+                turnExpired(playerName, turnNumber);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends a turn whose deadline expired, as if the player had sent NEXT. A player who missed
+     * {@link #AFK_STRIKES} turns in a row is marked as away.
+     *
+     * @param playerName The player whose turn expired.
+     * @param turn       The number of the turn.
+     */
+    private void turnExpired(String playerName, long turn) {
+        lock.lock();
+        try {
+            if (gamestate != 2 || turn != turnNumber || !playerName.equals(getCurrentPlayer())) {
+                return;
+            }
+            int missed = missedTurns.merge(playerName, 1, Integer::sum);
+            String text = "Time is up for " + playerName + ".";
+            if (missed >= AFK_STRIKES && awayPlayers.add(playerName)) {
+                text += " " + playerName + " is away and will be skipped until they send a game command.";
+            }
+            OutboundFrame timeoutFrame = OutboundFrame.of(Command.INFO, text);
+            for (String player : snapshot.getPlayers()) {
+                timeoutFrame.sendTo(UserList.getUserByName(player));
+            }
+            ServerMetrics.turnTimedOut();
+            advanceTurn();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -485,7 +873,12 @@ public class Lobby implements Runnable {
      * @param nickname The nickname of the player at the finish line.
      */
     public void addWinner(String nickname) {
-        winners.add(nickname);
+        lock.lock();
+        try {
+            snapshot = snapshot.withWinner(nickname);
+        } finally {
+            lock.unlock();
+        }
     }
 
 
@@ -495,7 +888,7 @@ public class Lobby implements Runnable {
      * @return the host's name
      */
     public String getHostName() {
-        return hostName;
+        return snapshot.getHostName();
     }
 
     /**
@@ -505,6 +898,7 @@ public class Lobby implements Runnable {
      * @return true if the user is the host, false otherwise
      */
     public boolean isHost(String userName) {
+        String hostName = snapshot.getHostName();
         return hostName != null && hostName.equals(userName);
     }
 
@@ -515,29 +909,18 @@ public class Lobby implements Runnable {
      * @param newUsername The username that was selected.
      */
     public void updateUsername(String oldUsername, String newUsername) {
-        if (players.contains(oldUsername) && !oldUsername.equals(newUsername)) {
-            int index = players.indexOf(oldUsername);
-            players.set(index, newUsername);
-
-            if (isHost(oldUsername)) {
-                this.hostName = newUsername;
-            }
-
-            GameBoard board = playerGameBoards.remove(oldUsername);
-            if (board != null) {
-                playerGameBoards.put(newUsername, board);
-            }
-
-            int ordIdx = playerOrder.indexOf(oldUsername);
-            if (ordIdx >= 0) {
-                playerOrder.set(ordIdx, newUsername);
-            }
+        lock.lock();
+        try {
+            if (snapshot.getPlayers().contains(oldUsername) && !oldUsername.equals(newUsername)) {
+                snapshot = snapshot.withRenamedPlayer(oldUsername, newUsername);
 
-            for (int i = 0; i < winners.size(); i++) {
-                if (winners.get(i).equals(oldUsername)) {
-                    winners.set(i, newUsername);
+                GameBoard board = playerGameBoards.remove(oldUsername);
+                if (board != null) {
+                    playerGameBoards.put(newUsername, board);
                 }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -547,6 +930,7 @@ public class Lobby implements Runnable {
      * @return the username of the current player or null if no player is set
      */
     public String getCurrentPlayer() {
+        List<String> playerOrder = snapshot.getPlayerOrder();
         if (playerOrder.isEmpty() || currentPlayerIndex < 0
                 || currentPlayerIndex >= playerOrder.size()) {
             return null;
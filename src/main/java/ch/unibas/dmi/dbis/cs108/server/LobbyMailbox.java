@@ -0,0 +1,169 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code LobbyMailbox} runs the commands of one {@link Lobby} one after the other. The reader
+ * threads of the players only put their commands that change the lobby (the game commands, RADY,
+ * FNSH, VELO, NICK and leaving with JOIN or QCNF) into the mailbox; at most one thread at a time takes
+ * them out and runs them, in the order they arrived. The game logic of a lobby therefore never runs
+ * concurrently with itself, while different lobbies run in parallel.
+ * <p>
+ * The mailbox runs on the worker thread of its shard (see {@link LobbyShards}) and only occupies it
+ * while it has commands. Timers of the lobby are scheduled with {@link #schedule(Runnable, long,
+ * TimeUnit)} and also run as commands of the mailbox. Each command runs in its own
+ * {@link OutboundBatch}, so its messages are sent with one write per recipient as before.
+ * </p>
+ */
+public class LobbyMailbox implements Executor {
+
+    /**
+     * Logger for commands that fail.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(LobbyMailbox.class);
+
+    /**
+     * The maximum number of commands that are run before the thread is handed back to the other
+     * lobbies of the shard.
+     */
+    private static final int MAX_COMMANDS_PER_RUN = 64;
+
+    /**
+     * The commands that wait to be run.
+     */
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set while a run of the mailbox is scheduled or in progress.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * The number of commands that were run since the load was last taken.
+     */
+    private final AtomicLong load = new AtomicLong();
+
+    /**
+     * The executor of the shard that runs the mailbox.
+     */
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * The thread that is currently running the commands, or {@code null}.
+     */
+    private volatile Thread owner;
+
+    /**
+     * Creates a mailbox that runs on the given executor.
+     *
+     * @param executor The executor that runs the commands.
+     */
+    public LobbyMailbox(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Puts a command into the mailbox. It runs after all commands that were put in before.
+     *
+     * @param command The command.
+     */
+    @Override
+    public void execute(Runnable command) {
+        commands.add(command);
+        schedule();
+    }
+
+    /**
+     * Puts a command into the mailbox after a delay. The delay is kept by the {@link ServerTimers} of
+     * the server, not by the shard.
+     *
+     * @param command The command.
+     * @param delay   The delay.
+     * @param unit    The unit of the delay.
+     * @return the future of the timer, which can be cancelled
+     */
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return Server.timers.schedule(this, command, delay, unit);
+    }
+
+    /**
+     * Moves the mailbox to the executor of another shard. A run that is in progress finishes on the
+     * old executor; all later runs use the new one, so the order of the commands is kept.
+     *
+     * @param executor The executor of the new shard.
+     */
+    void moveTo(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Checks whether the calling thread is the one that runs the commands of this mailbox.
+     *
+     * @return true if called from a command of this mailbox
+     */
+    public boolean isOwner() {
+        return owner == Thread.currentThread();
+    }
+
+    /**
+     * Returns the number of commands that wait to be run.
+     *
+     * @return the number of waiting commands
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * Returns the number of commands that were run since the last call and starts counting again.
+     *
+     * @return the number of commands run
+     */
+    long takeLoad() {
+        return load.getAndSet(0);
+    }
+
+    /**
+     * Hands the mailbox to the executor unless it is already scheduled or running.
+     */
+    private void schedule() {
+        if (!commands.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::runCommands);
+        }
+    }
+
+    /**
+     * Runs the waiting commands. A failing command is logged and does not stop the others.
+     */
+    private void runCommands() {
+        owner = Thread.currentThread();
+        try {
+            Runnable command;
+            int run = 0;
+            while (run < MAX_COMMANDS_PER_RUN && (command = commands.poll()) != null) {
+                run++;
+                load.incrementAndGet();
+                try {
+                    OutboundBatch.run(command::run);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while running a lobby command", e);
+                }
+            }
+            ServerMetrics.lobbyCommandsRun(run);
+        } finally {
+            owner = null;
+            scheduled.set(false);
+            schedule();
+        }
+    }
+}
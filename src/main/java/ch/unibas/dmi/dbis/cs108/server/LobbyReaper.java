@@ -0,0 +1,255 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code LobbyReaper} retires game lobbies that are no longer used, so the lobby list of a server
+ * that runs for a long time does not keep growing:
+ * <ul>
+ *     <li>A lobby without players, e.g. one that was created but never joined, is removed after
+ *     {@link #DEFAULT_EMPTY_GRACE} minutes.</li>
+ *     <li>A lobby whose game is finished and that did not change for {@link #DEFAULT_FINISHED_GRACE}
+ *     minutes is retired: its players are moved back to the "Welcome" lobby and the lobby is
+ *     removed.</li>
+ * </ul>
+ * A removed lobby is closed and releases its mailbox, its timers and the game boards of its players.
+ * Each round is a short task on the {@link ServerTimers}; its counts are kept for the metrics.
+ */
+public class LobbyReaper {
+
+    /**
+     * The default time in minutes a lobby may be empty before it is removed.
+     */
+    public static final long DEFAULT_EMPTY_GRACE = 5;
+
+    /**
+     * The default time in minutes a finished game may stay untouched before its lobby is retired.
+     */
+    public static final long DEFAULT_FINISHED_GRACE = 30;
+
+    /**
+     * The time between two rounds, in seconds.
+     */
+    public static final long PERIOD = 60;
+
+    /**
+     * The lobbies that are checked.
+     */
+    private final LobbyRegistry lobbies;
+
+    /**
+     * The time a lobby may be empty, in milliseconds.
+     */
+    private final long emptyGrace;
+
+    /**
+     * The time a finished game may stay untouched, in milliseconds.
+     */
+    private final long finishedGrace;
+
+    /**
+     * The timers that run the rounds.
+     */
+    private final ServerTimers timers;
+
+    /**
+     * The timer of the rounds, or {@code null} before {@link #start()}.
+     */
+    private ScheduledFuture<?> rounds;
+
+    /**
+     * The counts of the last round.
+     */
+    private volatile Counts lastCounts = new Counts(0, 0, 0, 0);
+
+    /**
+     * Creates a reaper. It checks the lobbies every {@link #PERIOD} seconds once it is started with
+     * {@link #start()}.
+     *
+     * @param lobbies       The lobbies that are checked.
+     * @param timers        The timers that run the rounds.
+     * @param emptyGrace    The time a lobby may be empty, in minutes.
+     * @param finishedGrace The time a finished game may stay untouched, in minutes.
+     */
+    public LobbyReaper(LobbyRegistry lobbies, ServerTimers timers, long emptyGrace, long finishedGrace) {
+        this.lobbies = lobbies;
+        this.emptyGrace = TimeUnit.MINUTES.toMillis(emptyGrace);
+        this.finishedGrace = TimeUnit.MINUTES.toMillis(finishedGrace);
+        this.timers = timers;
+    }
+
+    /**
+     * Starts the rounds on the timers. Called once the reaper is fully created, so a round never sees
+     * a half-built reaper.
+     *
+     * @return this reaper
+     */
+    public synchronized LobbyReaper start() {
+        if (rounds == null) {
+            rounds = timers.scheduleAtFixedRate(() -> reap(System.currentTimeMillis()), PERIOD, PERIOD,
+                    TimeUnit.SECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Checks all lobbies once. Empty lobbies are removed right away; finished lobbies are handed to
+     * their mailbox, which retires them after the commands that are already queued.
+     *
+     * @param now The current time in milliseconds.
+     * @return the number of lobbies that were removed or handed to their mailbox to be retired
+     */
+    int reap(long now) {
+        int removed = 0;
+        int retiring = 0;
+        for (Lobby lobby : lobbies) {
+            if (lobby.isWelcome()) {
+                continue;
+            }
+            long idle = now - lobby.getLastChange();
+            if (lobby.getPlayers().isEmpty()) {
+                if (idle >= emptyGrace && lobbies.removeIfEmpty(lobby)) {
+                    System.out.println("[Lobby: " + lobby.getLobbyName() + "] Removed because it was empty.");
+                    removed++;
+                }
+            } else if (lobby.getGameState() == 3 && idle >= finishedGrace) {
+                lobby.submit(() -> retire(lobby));
+                retiring++;
+            }
+        }
+        if (removed > 0) {
+            ServerMetrics.lobbiesReaped(removed);
+            Server.updateAllClients();
+        }
+        lastCounts = count(now);
+        return removed + retiring;
+    }
+
+    /**
+     * Returns the number of lobbies without the "Welcome" lobby, as counted by the last round.
+     *
+     * @return the number of game lobbies
+     */
+    public int getLobbyCount() {
+        return lastCounts.lobbies;
+    }
+
+    /**
+     * Returns the counts of the last round as text for the server metrics.
+     *
+     * @return the number of lobbies, empty ones, finished ones and the age of the oldest one
+     */
+    public String summary() {
+        Counts counts = lastCounts;
+        return counts.lobbies + " (empty " + counts.empty + ", finished " + counts.finished
+                + ", oldest " + TimeUnit.MILLISECONDS.toMinutes(counts.oldestAge) + " min)";
+    }
+
+    /**
+     * Stops checking the lobbies.
+     */
+    public synchronized void shutdown() {
+        if (rounds != null) {
+            rounds.cancel(false);
+        }
+    }
+
+    /**
+     * Moves the players of a finished lobby back to the "Welcome" lobby, which removes the lobby once
+     * the last one has left. Runs in the mailbox of the lobby; a lobby whose game was started again
+     * in the meantime is kept.
+     *
+     * @param lobby The finished lobby.
+     */
+    private void retire(Lobby lobby) {
+        if (lobby.getGameState() != 3 || !lobbies.contains(lobby)) {
+            return;
+        }
+        OutboundFrame frame = OutboundFrame.of(Command.INFO,
+                "The lobby " + lobby.getLobbyName() + " was closed because its game is over.");
+        for (String player : lobby.getPlayers()) {
+            User user = UserList.getUserByName(player);
+            if (user == null) {
+                lobby.removePlayer(player);
+                continue;
+            }
+            frame.sendTo(user);
+            Server.joinLobby(LobbyRegistry.WELCOME, user.getId());
+        }
+        if (lobbies.removeIfEmpty(lobby) || !lobbies.contains(lobby)) {
+            System.out.println("[Lobby: " + lobby.getLobbyName() + "] Retired because its game is over.");
+            ServerMetrics.lobbiesReaped(1);
+            Server.updateAllClients();
+        }
+    }
+
+    /**
+     * Counts the game lobbies.
+     *
+     * @param now The current time in milliseconds.
+     * @return the counts
+     */
+    private Counts count(long now) {
+        int total = 0;
+        int empty = 0;
+        int finished = 0;
+        long oldestAge = 0;
+        for (Lobby lobby : lobbies) {
+            if (lobby.isWelcome()) {
+                continue;
+            }
+            total++;
+            if (lobby.getPlayers().isEmpty()) {
+                empty++;
+            } else if (lobby.getGameState() == 3) {
+                finished++;
+            }
+            oldestAge = Math.max(oldestAge, now - lobby.getCreatedAt());
+        }
+        return new Counts(total, empty, finished, oldestAge);
+    }
+
+    /**
+     * The counts of one round.
+     */
+    private static final class Counts {
+
+        /**
+         * The number of game lobbies.
+         */
+        private final int lobbies;
+
+        /**
+         * The number of lobbies without players.
+         */
+        private final int empty;
+
+        /**
+         * The number of lobbies whose game is finished.
+         */
+        private final int finished;
+
+        /**
+         * The age of the oldest lobby in milliseconds.
+         */
+        private final long oldestAge;
+
+        /**
+         * Creates the counts of a round.
+         *
+         * @param lobbies   The number of game lobbies.
+         * @param empty     The number of lobbies without players.
+         * @param finished  The number of lobbies whose game is finished.
+         * @param oldestAge The age of the oldest lobby in milliseconds.
+         */
+        private Counts(int lobbies, int empty, int finished, long oldestAge) {
+            this.lobbies = lobbies;
+            this.empty = empty;
+            this.finished = finished;
+            this.oldestAge = oldestAge;
+        }
+    }
+}
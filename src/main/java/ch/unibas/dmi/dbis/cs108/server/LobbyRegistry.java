@@ -0,0 +1,135 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code LobbyRegistry} holds all lobbies of the server, including the "Welcome" lobby. The
+ * lobbies are kept in a {@link ConcurrentHashMap} by their normalized (lower-case) name:
+ * <ul>
+ *     <li>{@link #get(String)} finds a lobby in constant time, ignoring the case of the name.</li>
+ *     <li>{@link #add(Lobby)} creates a lobby only if no lobby with that name exists, atomically,
+ *     so two clients cannot create the same lobby twice.</li>
+ *     <li>Iterating is weakly consistent: it never throws a
+ *     {@link java.util.ConcurrentModificationException}, even while lobbies are created or
+ *     removed, and needs no lock.</li>
+ *     <li>{@link #removeIfEmpty(Lobby)} removes a game lobby after its last player has left.</li>
+ * </ul>
+ */
+public class LobbyRegistry extends AbstractCollection<Lobby> {
+
+    /**
+     * The name of the lobby every user is in after connecting. It is never removed.
+     */
+    public static final String WELCOME = "Welcome";
+
+    /**
+     * The lobbies by their normalized name.
+     */
+    private final ConcurrentHashMap<String, Lobby> lobbies = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the lobby with the given name.
+     *
+     * @param lobbyName The name of the lobby, in any case.
+     * @return the lobby, or null if no lobby with this name exists
+     */
+    public Lobby get(String lobbyName) {
+        return (lobbyName != null) ? lobbies.get(normalize(lobbyName)) : null;
+    }
+
+    /**
+     * Adds a lobby unless a lobby with the same name (ignoring the case) already exists.
+     *
+     * @param lobby The new lobby.
+     * @return true if the lobby was added, false if the name is taken
+     */
+    @Override
+    public boolean add(Lobby lobby) {
+        return lobbies.putIfAbsent(normalize(lobby.getLobbyName()), lobby) == null;
+    }
+
+    /**
+     * Removes a lobby.
+     *
+     * @param o The lobby to remove.
+     * @return true if the lobby was registered and is now removed
+     */
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Lobby lobby && lobbies.remove(normalize(lobby.getLobbyName()), lobby);
+    }
+
+    /**
+     * Removes a game lobby if it has no players left. The lobby is closed in the same step, so a
+     * player who found it just before cannot join it any more. The "Welcome" lobby is never removed.
+     *
+     * @param lobby The lobby a player has left.
+     * @return true if the lobby was removed
+     */
+    public boolean removeIfEmpty(Lobby lobby) {
+        if (lobby == null || lobby.getLobbyName().equalsIgnoreCase(WELCOME)) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        lobbies.computeIfPresent(normalize(lobby.getLobbyName()), (name, registered) -> {
+            if (registered == lobby && lobby.closeIfEmpty()) {
+                removed[0] = true;
+                return null;
+            }
+            return registered;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Checks whether a lobby is registered.
+     *
+     * @param o The lobby.
+     * @return true if this exact lobby is registered
+     */
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Lobby lobby && lobbies.get(normalize(lobby.getLobbyName())) == lobby;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over all lobbies.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Lobby> iterator() {
+        return lobbies.values().iterator();
+    }
+
+    /**
+     * Returns the number of lobbies.
+     *
+     * @return the number of lobbies, including the "Welcome" lobby
+     */
+    @Override
+    public int size() {
+        return lobbies.size();
+    }
+
+    /**
+     * Removes all lobbies. Useful for unit tests.
+     */
+    @Override
+    public void clear() {
+        lobbies.clear();
+    }
+
+    /**
+     * Returns the key of a lobby name.
+     *
+     * @param lobbyName The lobby name.
+     * @return the name in lower case
+     */
+    private static String normalize(String lobbyName) {
+        return lobbyName.toLowerCase(Locale.ROOT);
+    }
+}
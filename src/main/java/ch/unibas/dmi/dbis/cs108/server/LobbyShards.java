@@ -0,0 +1,295 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code LobbyShards} run the game lobbies on a fixed number of worker threads, the shards. Every
+ * lobby gets a {@link LobbyMailbox} on the shard that its name hashes to, and all of its work runs
+ * there: the game commands, the turn changes and broadcasts they cause, and the game timer. A shard
+ * runs the lobbies assigned to it one after the other, so the number of threads no longer grows with
+ * the number of lobbies and games.
+ * <p>
+ * Every {@link #REBALANCE_PERIOD} seconds the shards compare how many commands they ran. If one shard
+ * ran much more than the least busy one, one of its busy lobbies migrates there. A lobby only changes
+ * the shard between two runs of its mailbox, so its commands stay in order.
+ * </p>
+ */
+public class LobbyShards {
+
+    /**
+     * The default number of shards: one per available processor.
+     */
+    public static final int DEFAULT_SHARDS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The interval between two rebalancing rounds, in seconds.
+     */
+    public static final long REBALANCE_PERIOD = 10;
+
+    /**
+     * The minimum number of commands the busiest shard must have run in a round before lobbies are
+     * migrated.
+     */
+    private static final long MIN_REBALANCE_LOAD = 100;
+
+    /**
+     * The shards.
+     */
+    private final Shard[] shards;
+
+    /**
+     * Set once the rebalancing was started.
+     */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Creates the given number of shards, each with its own daemon thread. The rebalancing begins
+     * with {@link #start()}.
+     *
+     * @param count The number of shards.
+     */
+    public LobbyShards(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            String name = "lobby-shard-" + i;
+            shards[i] = new Shard(i, Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    /**
+     * Starts rebalancing every {@link #REBALANCE_PERIOD} seconds if there is more than one shard.
+     * Called once the shards are fully created, so a round never sees half-built shards.
+     *
+     * @return these shards
+     */
+    public LobbyShards start() {
+        if (shards.length > 1 && started.compareAndSet(false, true)) {
+            shards[0].executor.scheduleAtFixedRate(this::rebalance, REBALANCE_PERIOD, REBALANCE_PERIOD,
+                    TimeUnit.SECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard a lobby name hashes to. The name is compared without case, like in the
+     * {@link LobbyRegistry}.
+     *
+     * @param lobbyName The name of the lobby.
+     * @return the index of the shard
+     */
+    public int shardOf(String lobbyName) {
+        return Math.floorMod(lobbyName.toLowerCase(Locale.ROOT).hashCode(), shards.length);
+    }
+
+    /**
+     * Creates the mailbox for a new lobby on the shard its name hashes to.
+     *
+     * @param lobbyName The name of the lobby.
+     * @return the mailbox of the lobby
+     */
+    public LobbyMailbox createMailbox(String lobbyName) {
+        Shard shard = shards[shardOf(lobbyName)];
+        LobbyMailbox mailbox = new LobbyMailbox(shard.executor);
+        shard.mailboxes.add(mailbox);
+        return mailbox;
+    }
+
+    /**
+     * Removes the mailbox of a lobby that was closed. Commands that still wait in it are run.
+     *
+     * @param mailbox The mailbox of the lobby.
+     */
+    public void release(LobbyMailbox mailbox) {
+        for (Shard shard : shards) {
+            shard.mailboxes.remove(mailbox);
+        }
+    }
+
+    /**
+     * Returns the shard that currently runs a mailbox.
+     *
+     * @param mailbox The mailbox of a lobby.
+     * @return the index of the shard, or -1 if the mailbox was released
+     */
+    public int shardOf(LobbyMailbox mailbox) {
+        for (Shard shard : shards) {
+            if (shard.mailboxes.contains(mailbox)) {
+                return shard.index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of lobbies on a shard.
+     *
+     * @param shard The index of the shard.
+     * @return the number of lobbies
+     */
+    public int getLobbyCount(int shard) {
+        return shards[shard].mailboxes.size();
+    }
+
+    /**
+     * Returns the number of commands that wait in the lobbies of a shard.
+     *
+     * @param shard The index of the shard.
+     * @return the number of waiting commands
+     */
+    public int getQueuedCommands(int shard) {
+        int queued = 0;
+        for (LobbyMailbox mailbox : shards[shard].mailboxes) {
+            queued += mailbox.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Returns the number of commands a shard ran in the last rebalancing round.
+     *
+     * @param shard The index of the shard.
+     * @return the load of the shard
+     */
+    public long getLastLoad(int shard) {
+        return shards[shard].lastLoad;
+    }
+
+    /**
+     * Compares the load of the shards since the last round and migrates one busy lobby from the
+     * busiest to the least busy shard if that makes the load more even.
+     */
+    void rebalance() {
+        Shard busiest = null;
+        Shard idlest = null;
+        for (Shard shard : shards) {
+            long load = 0;
+            for (LobbyMailbox mailbox : shard.mailboxes) {
+                long mailboxLoad = mailbox.takeLoad();
+                shard.loads.put(mailbox, mailboxLoad);
+                load += mailboxLoad;
+            }
+            shard.loads.keySet().retainAll(shard.mailboxes);
+            shard.lastLoad = load;
+            if (busiest == null || load > busiest.lastLoad) {
+                busiest = shard;
+            }
+            if (idlest == null || load < idlest.lastLoad) {
+                idlest = shard;
+            }
+        }
+        if (busiest == idlest || busiest.lastLoad < MIN_REBALANCE_LOAD
+                || busiest.lastLoad <= 2 * idlest.lastLoad) {
+            return;
+        }
+        long difference = busiest.lastLoad - idlest.lastLoad;
+        LobbyMailbox candidate = null;
+        long candidateLoad = 0;
+        for (var entry : busiest.loads.entrySet()) {
+            long load = entry.getValue();
+            if (load > candidateLoad && load < difference) {
+                candidate = entry.getKey();
+                candidateLoad = load;
+            }
+        }
+        if (candidate != null && busiest.mailboxes.remove(candidate)) {
+            busiest.loads.remove(candidate);
+            idlest.mailboxes.add(candidate);
+            candidate.moveTo(idlest.executor);
+            busiest.lastLoad -= candidateLoad;
+            idlest.lastLoad += candidateLoad;
+            ServerMetrics.lobbyMigrated();
+        }
+    }
+
+    /**
+     * Returns the load of all shards as text for the server log.
+     *
+     * @return e.g. {@code [0: 3 lobbies/0 queued/120 run, 1: 2 lobbies/1 queued/80 run]}
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder("[");
+        for (Shard shard : shards) {
+            if (shard.index > 0) {
+                summary.append(", ");
+            }
+            summary.append(shard.index).append(": ")
+                    .append(getLobbyCount(shard.index)).append(" lobbies/")
+                    .append(getQueuedCommands(shard.index)).append(" queued/")
+                    .append(shard.lastLoad).append(" run");
+        }
+        return summary.append(']').toString();
+    }
+
+    /**
+     * Stops the threads of all shards. Used when the server shuts down.
+     */
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * One worker thread with the lobbies assigned to it.
+     */
+    private static class Shard {
+
+        /**
+         * The index of the shard.
+         */
+        private final int index;
+
+        /**
+         * The single thread that runs the lobbies of the shard.
+         */
+        private final ScheduledExecutorService executor;
+
+        /**
+         * The mailboxes of the lobbies on this shard.
+         */
+        private final Set<LobbyMailbox> mailboxes = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The number of commands each lobby ran in the last round. Only used by the rebalancing.
+         */
+        private final ConcurrentHashMap<LobbyMailbox, Long> loads = new ConcurrentHashMap<>();
+
+        /**
+         * The number of commands the shard ran in the last round.
+         */
+        private volatile long lastLoad;
+
+        /**
+         * Creates a shard.
+         *
+         * @param index    The index of the shard.
+         * @param executor The thread of the shard.
+         */
+        private Shard(int index, ScheduledExecutorService executor) {
+            this.index = index;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code LobbySnapshot} is an immutable view of the members of a {@link Lobby}: the players, their
+ * turn order, the host, the winners and the ready flags. A lobby publishes a new snapshot for every
+ * change, so readers get a consistent view without a lock and without copying the lists.
+ * <p>
+ * The {@code with...} methods return a changed copy and leave this snapshot unchanged. If nothing
+ * changes, they return this snapshot.
+ * </p>
+ */
+public final class LobbySnapshot {
+
+    /**
+     * The snapshot of a lobby without players.
+     */
+    public static final LobbySnapshot EMPTY = new LobbySnapshot(List.of(), List.of(), null, List.of(), Map.of());
+
+    /**
+     * The players in the lobby, in the order they joined.
+     */
+    private final List<String> players;
+
+    /**
+     * The order in which the players take their turns.
+     */
+    private final List<String> playerOrder;
+
+    /**
+     * The name of the host, or {@code null} if the lobby is empty.
+     */
+    private final String hostName;
+
+    /**
+     * The players that reached the finish, in the order they reached it.
+     */
+    private final List<String> winners;
+
+    /**
+     * The ready flag of each player.
+     */
+    private final Map<String, Boolean> readyStatus;
+
+    /**
+     * Creates a snapshot from lists that are no longer changed by the caller.
+     *
+     * @param players     The players.
+     * @param playerOrder The turn order.
+     * @param hostName    The host.
+     * @param winners     The winners.
+     * @param readyStatus The ready flags.
+     */
+    private LobbySnapshot(List<String> players, List<String> playerOrder, String hostName,
+                          List<String> winners, Map<String, Boolean> readyStatus) {
+        this.players = Collections.unmodifiableList(players);
+        this.playerOrder = Collections.unmodifiableList(playerOrder);
+        this.hostName = hostName;
+        this.winners = Collections.unmodifiableList(winners);
+        this.readyStatus = Collections.unmodifiableMap(readyStatus);
+    }
+
+    /**
+     * Returns the players in the lobby.
+     *
+     * @return the unmodifiable list of player names
+     */
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the order in which the players take their turns.
+     *
+     * @return the unmodifiable turn order
+     */
+    public List<String> getPlayerOrder() {
+        return playerOrder;
+    }
+
+    /**
+     * Returns the name of the host.
+     *
+     * @return the host, or {@code null} if the lobby is empty
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Returns the players that reached the finish.
+     *
+     * @return the unmodifiable list of winners
+     */
+    public List<String> getWinners() {
+        return winners;
+    }
+
+    /**
+     * Returns the ready flag of each player.
+     *
+     * @return the unmodifiable map from player name to ready flag
+     */
+    public Map<String, Boolean> getReadyStatus() {
+        return readyStatus;
+    }
+
+    /**
+     * Checks whether there are players and all of them are ready.
+     *
+     * @return true if all players are ready
+     */
+    public boolean allReady() {
+        return !readyStatus.isEmpty() && !readyStatus.containsValue(false);
+    }
+
+    /**
+     * Returns a snapshot with a new player, who is not ready yet. The first player becomes the host.
+     *
+     * @param name The name of the player.
+     * @return the new snapshot
+     */
+    public LobbySnapshot withPlayer(String name) {
+        if (players.contains(name)) {
+            return this;
+        }
+        List<String> newPlayers = new ArrayList<>(players);
+        newPlayers.add(name);
+        List<String> newOrder = new ArrayList<>(playerOrder);
+        newOrder.add(name);
+        Map<String, Boolean> newReady = new LinkedHashMap<>(readyStatus);
+        newReady.putIfAbsent(name, false);
+        return new LobbySnapshot(newPlayers, newOrder, hostName == null ? name : hostName, winners, newReady);
+    }
+
+    /**
+     * Returns a snapshot without a player. If the player was the host, the next player that joined
+     * becomes the host.
+     *
+     * @param name The name of the player.
+     * @return the new snapshot
+     */
+    public LobbySnapshot withoutPlayer(String name) {
+        List<String> newPlayers = new ArrayList<>(players);
+        newPlayers.remove(name);
+        List<String> newOrder = new ArrayList<>(playerOrder);
+        newOrder.remove(name);
+        List<String> newWinners = new ArrayList<>(winners);
+        newWinners.remove(name);
+        Map<String, Boolean> newReady = new LinkedHashMap<>(readyStatus);
+        newReady.remove(name);
+        String newHost = hostName;
+        if (name.equalsIgnoreCase(hostName)) {
+            newHost = newPlayers.isEmpty() ? null : newPlayers.getFirst();
+        }
+        return new LobbySnapshot(newPlayers, newOrder, newHost, newWinners, newReady);
+    }
+
+    /**
+     * Returns a snapshot in which a player has a new name.
+     *
+     * @param oldName The previous name of the player.
+     * @param newName The new name of the player.
+     * @return the new snapshot
+     */
+    public LobbySnapshot withRenamedPlayer(String oldName, String newName) {
+        if (!players.contains(oldName) || oldName.equals(newName)) {
+            return this;
+        }
+        Map<String, Boolean> newReady = new LinkedHashMap<>();
+        readyStatus.forEach((name, ready) -> newReady.put(name.equals(oldName) ? newName : name, ready));
+        return new LobbySnapshot(rename(players, oldName, newName), rename(playerOrder, oldName, newName),
+                oldName.equals(hostName) ? newName : hostName, rename(winners, oldName, newName), newReady);
+    }
+
+    /**
+     * Returns a snapshot with one more winner.
+     *
+     * @param name The name of the player that reached the finish.
+     * @return the new snapshot
+     */
+    public LobbySnapshot withWinner(String name) {
+        List<String> newWinners = new ArrayList<>(winners);
+        newWinners.add(name);
+        return new LobbySnapshot(players, playerOrder, hostName, newWinners, readyStatus);
+    }
+
+    /**
+     * Returns a snapshot without winners, for a new game.
+     *
+     * @return the new snapshot
+     */
+    public LobbySnapshot withoutWinners() {
+        return winners.isEmpty() ? this : new LobbySnapshot(players, playerOrder, hostName, List.of(), readyStatus);
+    }
+
+    /**
+     * Returns a snapshot in which a player is ready. Unknown players are ignored.
+     *
+     * @param name The name of the player.
+     * @return the new snapshot
+     */
+    public LobbySnapshot withReady(String name) {
+        if (!readyStatus.containsKey(name) || readyStatus.get(name)) {
+            return this;
+        }
+        Map<String, Boolean> newReady = new LinkedHashMap<>(readyStatus);
+        newReady.put(name, true);
+        return new LobbySnapshot(players, playerOrder, hostName, winners, newReady);
+    }
+
+    /**
+     * Returns a snapshot in which every player has a ready flag. Existing flags are kept; the missing
+     * ones are added as not ready.
+     *
+     * @return the new snapshot
+     */
+    public LobbySnapshot withReadyStatusList() {
+        return withReadyFlags(new LinkedHashMap<>(readyStatus));
+    }
+
+    /**
+     * Returns a snapshot in which every player is not ready.
+     *
+     * @return the new snapshot
+     */
+    public LobbySnapshot withReadyReset() {
+        return withReadyFlags(new LinkedHashMap<>());
+    }
+
+    /**
+     * Returns a snapshot with the given ready flags, in which the players without a flag are not ready.
+     *
+     * @param newReady The ready flags to keep, changed by this method.
+     * @return the new snapshot
+     */
+    private LobbySnapshot withReadyFlags(Map<String, Boolean> newReady) {
+        for (String player : players) {
+            newReady.putIfAbsent(player, false);
+        }
+        return new LobbySnapshot(players, playerOrder, hostName, winners, newReady);
+    }
+
+    /**
+     * Returns a copy of a list in which one name is replaced.
+     *
+     * @param names   The list.
+     * @param oldName The name to replace.
+     * @param newName The replacement.
+     * @return the changed copy
+     */
+    private static List<String> rename(List<String> names, String oldName, String newName) {
+        List<String> renamed = new ArrayList<>(names);
+        renamed.replaceAll(name -> name.equals(oldName) ? newName : name);
+        return renamed;
+    }
+}
@@ -0,0 +1,369 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.ProtocolReaderServer;
+import ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@code NioConnection} is the state of one client in the {@link NioServer} engine. It decodes the
+ * line based protocol from the bytes read by its {@link NioEventLoop}, passes every line to a
+ * {@link ProtocolReaderServer} and collects the replies in a bounded {@link OutboundQueue} that the
+ * loop drains with gathering writes.
+ * <p>
+ * The connection offers an {@link OutputStream} that is registered in the {@link UserList}, so all
+ * existing code that writes to {@link User#getOut()} works unchanged. Like in the blocking engine,
+ * the lifecycle of the connection is kept in a {@link ClientSession}.
+ * </p>
+ */
+class NioConnection {
+
+    /**
+     * Logger for recording connection errors.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(NioConnection.class);
+
+    /**
+     * Size of the buffer used for reading from the channel.
+     */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum length of a single protocol line in bytes. Longer lines close the connection.
+     */
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * The loop that owns this connection.
+     */
+    private final NioEventLoop loop;
+
+    /**
+     * The channel of the client.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * The selection key of the channel in the loop's selector.
+     */
+    private final SelectionKey key;
+
+    /**
+     * Buffer the channel is read into.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * Bytes of the line that is currently being received.
+     */
+    private byte[] lineBuffer = new byte[256];
+
+    /**
+     * Number of valid bytes in {@link #lineBuffer}.
+     */
+    private int lineLength;
+
+    /**
+     * Messages that were taken from the {@link #outputStream} but could not be written completely yet. Only
+     * used on the loop thread.
+     */
+    private final ArrayDeque<ByteBuffer> unwritten = new ArrayDeque<>();
+
+    /**
+     * Set while the connection is queued in the loop for a write attempt.
+     */
+    private final AtomicBoolean writeRequested = new AtomicBoolean();
+
+    /**
+     * Set once the connection is closed.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * The queue that other classes write their messages for this client to. A flush hands the queued
+     * messages to the event loop, which writes them without blocking the calling thread.
+     */
+    private final OutboundQueue outputStream = new OutboundQueue(OutboundQueue.DEFAULT_CAPACITY,
+            OverflowPolicy.DEFAULTS, this::requestWrite);
+
+    /**
+     * The lifecycle of this connection, or {@code null} until the connection is opened.
+     */
+    private ClientSession session;
+
+    /**
+     * The writer that is added to {@link Server#clientWriters} for broadcasts.
+     */
+    private PrintWriter broadcastWriter;
+
+    /**
+     * The reader that interprets the decoded lines.
+     */
+    private ProtocolReaderServer protocolReader;
+
+    /**
+     * Writer used for the welcome message.
+     */
+    private ProtocolWriterServer heartbeatWriter;
+
+    /**
+     * The number of the client on the server.
+     */
+    private int clientNumber;
+
+    /**
+     * The ID of the user of this connection.
+     */
+    private int userId;
+
+    /**
+     * Creates a new connection for an accepted channel.
+     *
+     * @param loop    The loop that owns the connection.
+     * @param channel The channel of the client.
+     * @param key     The selection key of the channel.
+     */
+    NioConnection(NioEventLoop loop, SocketChannel channel, SelectionKey key) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Registers the client as a new user, like the blocking engine does, and sends the welcome
+     * message.
+     *
+     * @throws IOException If the welcome message could not be sent.
+     */
+    void open() throws IOException {
+        clientNumber = Server.clientConnected();
+        userId = Server.addNewUser("Client" + clientNumber, outputStream);
+        System.out.println("Connection established for Client: " + clientNumber);
+
+        session = new ClientSession(clientNumber, userId);
+        session.onClose(() -> {
+            closed.set(true);
+            releaseOnLoop();
+        });
+        HeartbeatService.Heartbeat heartbeat = Server.heartbeats.register(session, outputStream,
+                () -> loop.execute(this::timedOut));
+        protocolReader = new ProtocolReaderServer(userId, outputStream, heartbeat, session::close);
+        heartbeatWriter = new ProtocolWriterServer(Server.clientWriters, outputStream);
+        broadcastWriter = new ClientWriter(outputStream);
+        Server.clientWriters.add(broadcastWriter);
+
+        session.activate();
+        heartbeatWriter.sendInfo("Welcome to the Server!\n");
+    }
+
+    /**
+     * Reads all available bytes from the channel and handles every complete line. Called by the loop
+     * when the channel is readable.
+     */
+    void read() {
+        try {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && !closed.get()) {
+                byte b = readBuffer.get();
+                if (b == '\n') {
+                    handleLine();
+                } else {
+                    appendToLine(b);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Error when reading from Client {}: {}", clientNumber, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Appends a byte to the line that is currently received. Closes the connection if the line gets
+     * too long.
+     *
+     * @param b The received byte.
+     */
+    private void appendToLine(byte b) {
+        if (lineLength == lineBuffer.length) {
+            if (lineLength >= MAX_LINE_LENGTH) {
+                throw new IllegalStateException("Line too long from Client " + clientNumber);
+            }
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.min(lineLength * 2, MAX_LINE_LENGTH));
+        }
+        lineBuffer[lineLength++] = b;
+    }
+
+    /**
+     * Decodes the completed line and passes it to the {@link ProtocolReaderServer}.
+     *
+     * @throws IOException If a reply could not be sent.
+     */
+    private void handleLine() throws IOException {
+        int length = lineLength;
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        String line = new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+        lineLength = 0;
+        protocolReader.handleLine(line);
+    }
+
+    /**
+     * Writes as much of the queued output as the channel accepts, using one gathering write for all
+     * queued messages. If data is left, the loop is asked to report when the channel is writable
+     * again.
+     */
+    void write() {
+        writeRequested.set(false);
+        if (closed.get()) {
+            return;
+        }
+        if (outputStream.isOverflowed()) {
+            System.out.println("Client " + clientNumber + " does not read its messages and is disconnected ("
+                    + ServerMetrics.summary() + ")");
+            close();
+            return;
+        }
+        try {
+            writeQueued();
+            if (unwritten.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ);
+            } else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error when writing to Client {}: {}", clientNumber, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Writes the QCNF of the {@link HeartbeatService} and closes the connection, because the client
+     * did not answer a PING in time. Runs on the loop thread.
+     */
+    private void timedOut() {
+        write();
+        close();
+    }
+
+    /**
+     * Closes the connection and cleans up like {@link ClientHandler#disconnectClient()}: the user is
+     * removed from its lobby and the user list, and the server is informed. Calling this method more
+     * than once has no effect.
+     */
+    void close() {
+        if (session != null) {
+            session.close();
+        } else if (closed.compareAndSet(false, true)) {
+            releaseOnLoop();
+        }
+    }
+
+    /**
+     * Runs {@link #release()} on the loop thread, directly if the caller already is the loop thread.
+     */
+    private void releaseOnLoop() {
+        if (!loop.inLoop()) {
+            loop.execute(this::release);
+            return;
+        }
+        release();
+    }
+
+    /**
+     * Releases the channel and all server-side state of the client. The messages that are still
+     * queued are sent first, as far as the channel accepts them. Runs on the loop thread.
+     */
+    private void release() {
+        System.out.println("Connection closed for Client " + clientNumber);
+        key.cancel();
+        drain();
+        outputStream.close();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error while closing client channel: " + e.getMessage());
+        }
+        loop.remove(this);
+        if (broadcastWriter != null) {
+            Server.clientWriters.remove(broadcastWriter);
+        }
+        if (protocolReader == null) {
+            return;
+        }
+        String nickname = UserList.getUserName(userId);
+        if (nickname != null) {
+            Lobby userLobby = Server.getLobbyOfUser(userId);
+            if (userLobby != null) {
+                Server.leaveLobby(userLobby, nickname);
+            }
+        }
+        UserList.removeUser(userId);
+        Server.updateAllClients();
+        Server.ClientDisconnected();
+    }
+
+    /**
+     * Writes the messages that are still queued, e.g. the last INFO before a disconnect, as far as the
+     * channel accepts them without blocking. Runs on the loop thread before the channel is closed.
+     */
+    private void drain() {
+        try {
+            writeQueued();
+        } catch (IOException e) {
+            System.err.println("Could not send the last messages to Client " + clientNumber + ": " + e.getMessage());
+        }
+        unwritten.clear();
+    }
+
+    /**
+     * Moves the queued messages behind the unwritten ones and writes them with gathering writes until
+     * all are written or the channel accepts no more bytes.
+     *
+     * @throws IOException If the channel could not be written.
+     */
+    private void writeQueued() throws IOException {
+        byte[] frame;
+        while ((frame = outputStream.poll()) != null) {
+            unwritten.add(ByteBuffer.wrap(frame));
+        }
+        while (!unwritten.isEmpty()) {
+            ByteBuffer[] buffers = unwritten.toArray(new ByteBuffer[0]);
+            long written = channel.write(buffers);
+            ServerMetrics.outboundWritten(written);
+            while (!unwritten.isEmpty() && !unwritten.peekFirst().hasRemaining()) {
+                unwritten.pollFirst();
+            }
+            if (written == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Asks the loop for a write attempt, unless one is already pending. Called when messages were
+     * flushed into the {@link OutboundQueue}.
+     */
+    private void requestWrite() {
+        if (!closed.get() && writeRequested.compareAndSet(false, true)) {
+            loop.requestWrite(this);
+        }
+    }
+}
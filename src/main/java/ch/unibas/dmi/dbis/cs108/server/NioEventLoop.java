@@ -0,0 +1,227 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@code NioEventLoop} serves a group of client connections with a single thread. It waits on a
+ * {@link Selector} for readable and writable channels, lets every {@link NioConnection} decode and
+ * handle its messages and writes pending replies. The heartbeat PINGs are sent by the
+ * {@link HeartbeatService}.
+ * <p>
+ * All channel operations happen on the loop thread. Other threads (e.g. a lobby broadcasting to a
+ * player of another loop) only queue work and wake the selector up.
+ * </p>
+ */
+class NioEventLoop implements Runnable {
+
+    /**
+     * Logger for recording selector errors.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(NioEventLoop.class);
+
+    /**
+     * Maximum time in milliseconds the selector waits before the loop checks whether it should stop.
+     */
+    private static final long SELECT_TIMEOUT = 1000;
+
+    /**
+     * The index of this loop, used in logs and thread names.
+     */
+    private final int index;
+
+    /**
+     * The selector that watches all channels of this loop.
+     */
+    private final Selector selector;
+
+    /**
+     * Tasks that other threads want to run on the loop thread, e.g. registering a channel.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Connections that have flushed new data and need a write attempt.
+     */
+    private final Queue<NioConnection> pendingWriters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * All open connections of this loop. Only used on the loop thread.
+     */
+    private final Set<NioConnection> connections = new HashSet<>();
+
+    /**
+     * The thread that runs this loop.
+     */
+    private volatile Thread loopThread;
+
+    /**
+     * Flag used to stop the loop.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new event loop with its own selector.
+     *
+     * @param index The index of the loop.
+     * @throws IOException If the selector could not be opened.
+     */
+    NioEventLoop(int index) throws IOException {
+        this.index = index;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hands a freshly accepted channel to this loop. The registration itself happens on the loop
+     * thread.
+     *
+     * @param channel The non-blocking channel of the new client.
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, channel, key);
+                key.attach(connection);
+                connections.add(connection);
+                connection.open();
+            } catch (IOException e) {
+                LOGGER.error("Could not register a new connection on loop {}", index, e);
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop thread. If the caller already is the loop thread, the task is queued
+     * without waking the selector.
+     *
+     * @param task The task to run.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Marks a connection as having pending output. The write happens on the loop thread after the
+     * current batch of events, so several messages are sent with one gathering write.
+     *
+     * @param connection The connection that has flushed data.
+     */
+    void requestWrite(NioConnection connection) {
+        pendingWriters.add(connection);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Checks whether the calling thread is the thread of this loop.
+     *
+     * @return true if called from the loop thread
+     */
+    boolean inLoop() {
+        return Thread.currentThread() == loopThread;
+    }
+
+    /**
+     * Removes a closed connection from this loop.
+     *
+     * @param connection The closed connection.
+     */
+    void remove(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * Stops the loop and closes its selector.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * The main loop: waits for events, handles reads and writes and runs queued tasks.
+     */
+    @Override
+    public void run() {
+        loopThread = Thread.currentThread();
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT);
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (connection == null || !key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.write();
+                    }
+                }
+
+                runTasks();
+                flushPendingWriters();
+            } catch (IOException e) {
+                LOGGER.error("Error in event loop {}", index, e);
+            }
+        }
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            connection.close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error("Error when closing the selector of loop {}", index, e);
+        }
+    }
+
+    /**
+     * Runs all tasks that were queued by other threads.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Task failed on loop {}", index, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the queued output of every connection that flushed since the last write attempt.
+     */
+    private void flushPendingWriters() {
+        NioConnection connection;
+        while ((connection = pendingWriters.poll()) != null) {
+            connection.write();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The {@code NioServer} is the non-blocking server engine. Instead of three threads per client, it
+ * serves all clients with a fixed number of {@link NioEventLoop}s (one per core by default). Each
+ * loop owns a {@link java.nio.channels.Selector} and decodes the text protocol of its connections
+ * from {@link java.nio.ByteBuffer}s. The decoded lines are handed to the same
+ * {@link ch.unibas.dmi.dbis.cs108.network.ProtocolReaderServer} as in the blocking engine, so the
+ * {@link Server} and {@link Lobby} logic stays the same.
+ * <p>
+ * New connections are accepted on the thread that calls {@link #run()} and are distributed
+ * round-robin over the event loops.
+ * </p>
+ */
+public class NioServer {
+
+    /**
+     * Logger for recording accept errors.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(NioServer.class);
+
+    /**
+     * The port the server listens on.
+     */
+    private final int port;
+
+    /**
+     * The event loops that serve the accepted connections.
+     */
+    private final NioEventLoop[] loops;
+
+    /**
+     * The channel that accepts new client connections.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Index of the event loop that gets the next accepted connection.
+     */
+    private int nextLoop;
+
+    /**
+     * Creates a new {@code NioServer}.
+     *
+     * @param port      The port the server listens on.
+     * @param loopCount The number of event loops (and therefore threads) to use.
+     */
+    public NioServer(int port, int loopCount) {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("At least one event loop is needed: " + loopCount);
+        }
+        this.port = port;
+        this.loops = new NioEventLoop[loopCount];
+    }
+
+    /**
+     * Returns the default number of event loops, which is the number of available cores.
+     *
+     * @return the number of available processors
+     */
+    public static int defaultLoopCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Opens the server channel and starts all event loops.
+     *
+     * @throws IOException If the port could not be bound or a selector could not be opened.
+     */
+    public void bind() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(i);
+            Thread loopThread = new Thread(loops[i], "nio-loop-" + i);
+            loopThread.setDaemon(true);
+            loopThread.start();
+        }
+    }
+
+    /**
+     * Returns the port the server channel is bound to. Useful if the server was created with port 0.
+     *
+     * @return the local port, or -1 if the server is not bound
+     * @throws IOException If the local address could not be read.
+     */
+    public int getLocalPort() throws IOException {
+        if (serverChannel == null) {
+            return -1;
+        }
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Accepts new connections until the server channel is closed. Every connection is handed to the
+     * next event loop.
+     */
+    public void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                NioEventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                loop.register(channel);
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    LOGGER.error("Error while accepting a connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the server channel and stops all event loops.
+     */
+    public void close() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error when closing the server channel: {}", e.getMessage());
+        }
+        for (NioEventLoop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An {@code OutboundBatch} collects the messages that are produced while the server handles one
+ * inbound command. A single MOVE, for example, sends a {@code +POS} message to every lobby member,
+ * possibly the winner messages and the turn messages of {@code advanceTurn()}. While a batch is open
+ * on the current thread, the {@link OutboundQueue}s only collect these messages; the writers of the
+ * affected connections are woken up once when the batch is closed and send everything that is queued
+ * with one write.
+ * <p>
+ * Batches are opened with {@link #run(Action)} and may be nested; only the end of the outermost
+ * batch releases the messages:
+ * </p>
+ * <pre>{@code
+ * OutboundBatch.run(() -> {
+ *     // send messages to any number of clients
+ * });
+ * }</pre>
+ */
+public final class OutboundBatch {
+
+    /**
+     * The batch that is open on the current thread, if any.
+     */
+    private static final ThreadLocal<OutboundBatch> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The queues that received messages during this batch, in the order of their first message.
+     */
+    private final Set<OutboundQueue> queues = new LinkedHashSet<>();
+
+    /**
+     * The number of nested {@link #run(Action)} calls that have not finished yet.
+     */
+    private int depth;
+
+    /**
+     * Batches are only created by {@link #run(Action)}.
+     */
+    private OutboundBatch() {
+    }
+
+    /**
+     * Runs an action inside a batch: its messages are released when the action has finished, or when
+     * it failed. If a batch is already open on the current thread, the action joins it.
+     *
+     * @param action The action that sends messages.
+     * @param <E>    The exception the action may throw.
+     * @throws E If the action fails.
+     */
+    public static <E extends Exception> void run(Action<E> action) throws E {
+        OutboundBatch batch = open();
+        try {
+            action.run();
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Opens a batch on the current thread, or joins the batch that is already open.
+     *
+     * @return the batch, which must be closed by the caller
+     */
+    private static OutboundBatch open() {
+        OutboundBatch batch = CURRENT.get();
+        if (batch == null) {
+            batch = new OutboundBatch();
+            CURRENT.set(batch);
+        }
+        batch.depth++;
+        return batch;
+    }
+
+    /**
+     * Returns the batch that is open on the current thread.
+     *
+     * @return the open batch, or {@code null} if messages are sent right away
+     */
+    static OutboundBatch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Remembers a queue that received a message during this batch.
+     *
+     * @param queue The queue to release when the batch is closed.
+     */
+    void add(OutboundQueue queue) {
+        queues.add(queue);
+    }
+
+    /**
+     * Closes this batch. If it is the outermost batch of the thread, the writers of all queues that
+     * received messages are woken up.
+     */
+    private void close() {
+        if (--depth > 0) {
+            return;
+        }
+        CURRENT.remove();
+        for (OutboundQueue queue : queues) {
+            queue.release();
+        }
+        queues.clear();
+    }
+
+    /**
+     * An action that runs inside a batch.
+     *
+     * @param <E> The exception the action may throw.
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+
+        /**
+         * Runs the action.
+         *
+         * @throws E If the action fails.
+         */
+        void run() throws E;
+    }
+}
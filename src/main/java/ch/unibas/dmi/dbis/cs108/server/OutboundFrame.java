@@ -0,0 +1,129 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An {@code OutboundFrame} is a protocol message that is encoded once and can then be sent to any
+ * number of clients. The frame keeps its UTF-8 bytes, including the line break, in an array that is
+ * never changed, so the {@link OutboundQueue}s of all recipients share the same bytes instead of
+ * encoding and copying the message for every recipient.
+ * <pre>{@code
+ * OutboundFrame frame = OutboundFrame.of(Command.INFO, "It's " + currentPlayer + "'s turn");
+ * for (String player : players) {
+ *     frame.sendTo(UserList.getUserByName(player));
+ * }
+ * }</pre>
+ */
+public final class OutboundFrame {
+
+    /**
+     * The encoded message including its line break. Never modified.
+     */
+    private final byte[] bytes;
+
+    /**
+     * The command of the message, or {@code null} if the message does not start with one.
+     */
+    private final Command command;
+
+    /**
+     * Creates a frame from encoded bytes.
+     *
+     * @param bytes   The encoded message including its line break.
+     * @param command The command of the message.
+     */
+    private OutboundFrame(byte[] bytes, Command command) {
+        this.bytes = bytes;
+        this.command = command;
+    }
+
+    /**
+     * Encodes an already formatted protocol message.
+     *
+     * @param message The message without line break, e.g. {@code LIST%[a, b]}.
+     * @return the encoded frame
+     */
+    public static OutboundFrame of(String message) {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        return new OutboundFrame(bytes, OutboundQueue.commandOf(bytes));
+    }
+
+    /**
+     * Encodes a command with its text, formatted like {@link ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer}
+     * does it.
+     *
+     * @param command The protocol command.
+     * @param text    The text after the separator, may be empty.
+     * @return the encoded frame
+     */
+    public static OutboundFrame of(Command command, String text) {
+        byte[] bytes = (command + Command.SEPARATOR + text + "\n").getBytes(StandardCharsets.UTF_8);
+        return new OutboundFrame(bytes, command);
+    }
+
+    /**
+     * Returns the command of this frame.
+     *
+     * @return the command, or {@code null} if the message does not start with one
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    /**
+     * Returns the number of encoded bytes, including the line break.
+     *
+     * @return the length of the frame
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * Returns the shared encoded bytes. Callers must not modify the array.
+     *
+     * @return the encoded message including its line break
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Sends this frame to the given stream. If the stream is an {@link OutboundQueue}, the frame is
+     * queued without copying; any other stream gets the bytes written and flushed.
+     *
+     * @param out The output stream of a client.
+     * @throws IOException If the frame could not be written to a plain stream.
+     */
+    public void sendTo(OutputStream out) throws IOException {
+        if (out instanceof OutboundQueue queue) {
+            queue.send(this);
+            return;
+        }
+        synchronized (out) {
+            out.write(bytes);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends this frame to a user. Users that are {@code null} are skipped, and write errors are
+     * logged, so the frame can be sent in a loop over all members of a lobby.
+     *
+     * @param user The recipient, may be {@code null}.
+     */
+    public void sendTo(User user) {
+        if (user == null) {
+            return;
+        }
+        try {
+            sendTo(user.getOut());
+        } catch (IOException e) {
+            System.err.println("Error sending " + command + " to " + user.getNickname() + ": " + e.getMessage());
+        }
+    }
+}
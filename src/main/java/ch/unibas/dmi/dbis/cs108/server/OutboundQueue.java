@@ -0,0 +1,612 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@code OutboundQueue} is the bounded queue of messages that wait to be sent to one client. It
+ * is an {@link OutputStream}, so it is registered as the stream of the {@link User} and every
+ * {@link ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer} writes into it as before. The written
+ * bytes are split into messages at the line breaks, and writing a message never blocks on the
+ * network: the queue is drained by the connection's own writer, see {@link #drainTo(OutputStream)}.
+ * <p>
+ * If the client reads too slowly and the queue is full, the configured {@link OverflowPolicy}s
+ * decide what happens: outdated snapshots are coalesced, chat is dropped, or the queue is marked as
+ * overflowed so that the connection can disconnect the slow consumer. The queue depth and the
+ * dropped messages are counted per queue and in the {@link ServerMetrics}.
+ * </p>
+ * <p>
+ * Inside an {@link OutboundBatch}, queued messages do not wake the writer. The writer is woken once
+ * when the batch is closed and then sends all waiting messages with a single write.
+ * </p>
+ */
+public class OutboundQueue extends OutputStream {
+
+    /**
+     * The default maximum number of queued messages per connection.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * All commands by their name, used to classify the queued messages.
+     */
+    private static final Map<String, Command> COMMANDS = new HashMap<>();
+
+    static {
+        for (Command command : Command.values()) {
+            COMMANDS.put(command.name(), command);
+        }
+    }
+
+    /**
+     * The maximum number of queued messages.
+     */
+    private final int capacity;
+
+    /**
+     * The policies applied when the queue is full.
+     */
+    private final Set<OverflowPolicy> policies;
+
+    /**
+     * Called after a flush when messages are waiting, or {@code null} if the queue is drained by a
+     * thread that waits in {@link #take()}.
+     */
+    private final Runnable readyCallback;
+
+    /**
+     * Lock protecting all fields below.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a message was queued or the queue was closed.
+     */
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * The queued messages, oldest first.
+     */
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * The last queued {@code SYNC} whose snapshot messages have not all been queued yet, or
+     * {@code null}.
+     */
+    private Frame openSync;
+
+    /**
+     * Bytes of a message whose line break has not been written yet.
+     */
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+    /**
+     * Set once the queue is closed. Remaining messages can still be taken.
+     */
+    private boolean closed;
+
+    /**
+     * Set when a message could not be queued and the {@link OverflowPolicy#DISCONNECT} policy applies.
+     */
+    private boolean overflowed;
+
+    /**
+     * The highest number of messages that were queued at the same time.
+     */
+    private int maxDepth;
+
+    /**
+     * Number of messages of this queue that were dropped.
+     */
+    private long droppedCount;
+
+    /**
+     * Number of messages of this queue that were replaced by a newer snapshot.
+     */
+    private long coalescedCount;
+
+    /**
+     * Creates a queue with the default capacity and policies that is drained by a waiting thread.
+     */
+    public OutboundQueue() {
+        this(DEFAULT_CAPACITY, OverflowPolicy.DEFAULTS, null);
+    }
+
+    /**
+     * Creates a new queue.
+     *
+     * @param capacity      The maximum number of queued messages.
+     * @param policies      The policies applied when the queue is full.
+     * @param readyCallback Called after a flush when messages are waiting, may be {@code null}.
+     */
+    public OutboundQueue(int capacity, Set<OverflowPolicy> policies, Runnable readyCallback) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.policies = policies.isEmpty() ? EnumSet.noneOf(OverflowPolicy.class) : EnumSet.copyOf(policies);
+        this.readyCallback = readyCallback;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * Queues the written bytes. Every completed line becomes one message; the rest is kept until its
+     * line break is written. Bytes written after the queue was closed or overflowed are discarded.
+     *
+     * @param b   The data.
+     * @param off The start offset in the data.
+     * @param len The number of bytes to write.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) {
+        lock.lock();
+        try {
+            if (closed || overflowed) {
+                return;
+            }
+            int start = off;
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                if (b[i] == '\n') {
+                    partial.write(b, start, i + 1 - start);
+                    byte[] bytes = partial.toByteArray();
+                    offer(commandOf(bytes), bytes);
+                    partial.reset();
+                    start = i + 1;
+                }
+            }
+            partial.write(b, start, end - start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues an already encoded frame. The bytes of the frame are shared, not copied, so the same frame
+     * can be queued for any number of clients.
+     *
+     * @param frame The frame to send.
+     */
+    public void send(OutboundFrame frame) {
+        lock.lock();
+        try {
+            if (closed || overflowed) {
+                return;
+            }
+            offer(frame.getCommand(), frame.bytes());
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    /**
+     * Informs the owner of the queue that messages are waiting or that the queue has overflowed.
+     */
+    @Override
+    public void flush() {
+        OutboundBatch batch = OutboundBatch.current();
+        if (batch != null) {
+            batch.add(this);
+            return;
+        }
+        notifyReady();
+    }
+
+    /**
+     * Wakes the writer of this queue after the {@link OutboundBatch} that collected its messages was
+     * closed.
+     */
+    void release() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        notifyReady();
+    }
+
+    /**
+     * Runs the ready callback if messages are waiting or the queue has overflowed.
+     */
+    private void notifyReady() {
+        if (readyCallback == null) {
+            return;
+        }
+        boolean ready;
+        lock.lock();
+        try {
+            ready = !frames.isEmpty() || overflowed;
+        } finally {
+            lock.unlock();
+        }
+        if (ready) {
+            readyCallback.run();
+        }
+    }
+
+    /**
+     * Queues one complete message and applies the overflow policies if the queue is full. Must be
+     * called with the lock held.
+     *
+     * @param command The command of the message, may be {@code null}.
+     * @param bytes   The encoded message including its line break.
+     */
+    private void offer(Command command, byte[] bytes) {
+        Frame frame = new Frame(command, bytes);
+        if (command == Command.SYNC) {
+            frame.sync = frame;
+            frame.missing = EnumSet.of(Command.LIST, Command.GLST, Command.LOME);
+        } else if (openSync != null && openSync.missing.remove(command)) {
+            frame.sync = openSync;
+        }
+        if (frames.size() >= capacity && !makeRoom(frame)) {
+            return;
+        }
+        frames.add(frame);
+        if (command == Command.SYNC) {
+            openSync = frame;
+        } else if (openSync != null && openSync.missing.isEmpty()) {
+            openSync = null;
+        }
+        ServerMetrics.outboundDepthChanged(1);
+        maxDepth = Math.max(maxDepth, frames.size());
+        OutboundBatch batch = OutboundBatch.current();
+        if (batch != null) {
+            batch.add(this);
+        } else {
+            changed.signalAll();
+        }
+    }
+
+    /**
+     * Tries to free a slot for a new message in a full queue.
+     *
+     * @param frame The message that should be queued.
+     * @return true if the message can be queued, false if it was dropped
+     */
+    private boolean makeRoom(Frame frame) {
+        if (policies.contains(OverflowPolicy.COALESCE)) {
+            if (frame.sync != null && removeOutdatedPresence(frame.sync)) {
+                return true;
+            }
+            if (frame.sync == null && OverflowPolicy.isSnapshot(frame.command) && removeOutdated(frame)) {
+                return true;
+            }
+        }
+        if (policies.contains(OverflowPolicy.DROP_CHAT)) {
+            if (OverflowPolicy.isChat(frame.command)) {
+                dropped();
+                return false;
+            }
+            Iterator<Frame> iterator = frames.iterator();
+            while (iterator.hasNext()) {
+                if (OverflowPolicy.isChat(iterator.next().command)) {
+                    iterator.remove();
+                    ServerMetrics.outboundDepthChanged(-1);
+                    dropped();
+                    return true;
+                }
+            }
+        }
+        dropped();
+        if (policies.contains(OverflowPolicy.DISCONNECT)) {
+            overflowed = true;
+            ServerMetrics.slowConsumerDisconnected();
+            ServerMetrics.outboundDepthChanged(-frames.size());
+            droppedCount += frames.size();
+            frames.clear();
+            openSync = null;
+            changed.signalAll();
+        }
+        return false;
+    }
+
+    /**
+     * Removes a queued snapshot of the same command, which the new one makes outdated. The new
+     * snapshot is then queued at the end, so it never overtakes the messages that were sent before it.
+     * Snapshots that belong to a {@code SYNC} are only removed together with it.
+     *
+     * @param frame The new snapshot.
+     * @return true if an older snapshot was removed
+     */
+    private boolean removeOutdated(Frame frame) {
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            Frame queued = iterator.next();
+            if (queued.command == frame.command && queued.sync == null) {
+                iterator.remove();
+                coalesced();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the presence messages that are queued before a {@code SYNC}: older {@code SYNC}s with
+     * their snapshots, {@code DLTA}s and snapshots. The complete snapshot that follows the
+     * {@code SYNC} replaces all of them, so a {@code SYNC} and its snapshot are always kept or removed
+     * together and never overtake a delta.
+     *
+     * @param sync The {@code SYNC} of the new message, queued or about to be queued.
+     * @return true if a message was removed
+     */
+    private boolean removeOutdatedPresence(Frame sync) {
+        boolean removed = false;
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            Frame queued = iterator.next();
+            if (queued == sync) {
+                break;
+            }
+            if (queued.command == Command.SYNC || queued.command == Command.DLTA
+                    || OverflowPolicy.isSnapshot(queued.command)) {
+                iterator.remove();
+                coalesced();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Counts a message that was removed because a newer snapshot replaces it. Must be called with the
+     * lock held.
+     */
+    private void coalesced() {
+        ServerMetrics.outboundDepthChanged(-1);
+        coalescedCount++;
+        ServerMetrics.messageCoalesced();
+    }
+
+    /**
+     * Counts a dropped message.
+     */
+    private void dropped() {
+        droppedCount++;
+        ServerMetrics.messageDropped();
+    }
+
+    /**
+     * Returns the command at the start of an encoded message.
+     *
+     * @param bytes The encoded message.
+     * @return the command, or {@code null} if the message does not start with a known command
+     */
+    static Command commandOf(byte[] bytes) {
+        int end = 0;
+        while (end < bytes.length && end < 8 && bytes[end] >= 'A' && bytes[end] <= 'Z') {
+            end++;
+        }
+        return COMMANDS.get(new String(bytes, 0, end, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Takes the oldest queued message without waiting.
+     *
+     * @return the encoded message, or {@code null} if the queue is empty
+     */
+    public byte[] poll() {
+        lock.lock();
+        try {
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the oldest queued message and waits for one if the queue is empty.
+     *
+     * @return the encoded message, or {@code null} once the queue is closed and empty or overflowed
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public byte[] take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (frames.isEmpty() && !closed && !overflowed) {
+                changed.await();
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest queued message. Must be called with the lock held.
+     *
+     * @return the encoded message, or {@code null} if the queue is empty
+     */
+    private byte[] removeFirst() {
+        Frame frame = frames.poll();
+        if (frame == null) {
+            return null;
+        }
+        ServerMetrics.outboundDepthChanged(-1);
+        return frame.bytes;
+    }
+
+    /**
+     * Writes all messages of this queue to the given stream until the queue is closed and empty or
+     * has overflowed. All messages that are waiting when the writer wakes up are sent with one write
+     * and one flush. This is the writer loop of a blocking connection and runs on its own thread, so a
+     * slow client only blocks this thread.
+     *
+     * @param target The stream of the client's socket.
+     * @throws IOException          If writing to the client fails.
+     * @throws InterruptedException If the writing thread is interrupted.
+     */
+    public void drainTo(OutputStream target) throws IOException, InterruptedException {
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        while (takeAll(pending)) {
+            pending.writeTo(target);
+            target.flush();
+            ServerMetrics.outboundWritten(pending.size());
+            pending.reset();
+        }
+    }
+
+    /**
+     * Waits for messages and moves all waiting messages into the given buffer.
+     *
+     * @param pending The buffer for the messages.
+     * @return false once the queue is closed and empty or overflowed
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    private boolean takeAll(ByteArrayOutputStream pending) throws InterruptedException {
+        lock.lock();
+        try {
+            while (frames.isEmpty() && !closed && !overflowed) {
+                changed.await();
+            }
+            byte[] frame;
+            while ((frame = removeFirst()) != null) {
+                pending.write(frame, 0, frame.length);
+            }
+            return pending.size() > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue. New messages are discarded, already queued messages can still be taken.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return the queue depth
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether the queue overflowed and the client should be disconnected.
+     *
+     * @return true if a message could not be queued under the {@link OverflowPolicy#DISCONNECT} policy
+     */
+    public boolean isOverflowed() {
+        lock.lock();
+        try {
+            return overflowed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the highest number of messages that were queued at the same time.
+     *
+     * @return the maximum queue depth
+     */
+    public int getMaxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages of this queue that were dropped.
+     *
+     * @return the number of dropped messages
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages of this queue that were replaced by a newer snapshot.
+     *
+     * @return the number of coalesced messages
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A queued message with its command.
+     */
+    private static final class Frame {
+
+        /**
+         * The command of the message, or {@code null} if it is unknown.
+         */
+        private final Command command;
+
+        /**
+         * The encoded message including its line break.
+         */
+        private final byte[] bytes;
+
+        /**
+         * The {@code SYNC} this message belongs to: the frame itself for a {@code SYNC}, the
+         * {@code SYNC} before it for its snapshots, otherwise {@code null}.
+         */
+        private Frame sync;
+
+        /**
+         * For a {@code SYNC}, the snapshot commands that have not been queued after it yet.
+         */
+        private Set<Command> missing;
+
+        /**
+         * Creates a new frame.
+         *
+         * @param command The command of the message.
+         * @param bytes   The encoded message.
+         */
+        private Frame(Command command, byte[] bytes) {
+            this.command = command;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The {@code OverflowPolicy} enum defines how an {@link OutboundQueue} reacts when a client does not
+ * read its messages fast enough and the queue fills up. The policies of a queue are applied in the
+ * order in which they are declared here.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * A queued {@code LIST}, {@code GLST} or {@code LOME} message is removed when a newer one of the
+     * same command does not fit, because each of them is a complete snapshot and the older one is
+     * outdated. The newer one is queued at the end. A {@code SYNC} and the snapshots after it form
+     * one group: when a message of the group does not fit, the presence messages queued before the
+     * {@code SYNC} are removed instead, because the group replaces them.
+     */
+    COALESCE,
+
+    /**
+     * Chat messages ({@code CHAT}, {@code WISP}, {@code BROD}) are dropped to make room for game
+     * messages.
+     */
+    DROP_CHAT,
+
+    /**
+     * If no other policy frees a slot, the client is disconnected as a slow consumer instead of
+     * losing a game message.
+     */
+    DISCONNECT;
+
+    /**
+     * The policies used by the server: all of them.
+     */
+    public static final Set<OverflowPolicy> DEFAULTS = Collections.unmodifiableSet(EnumSet.allOf(OverflowPolicy.class));
+
+    /**
+     * Checks whether messages of the given command are complete snapshots that can be coalesced.
+     *
+     * @param command The command of a message, may be {@code null}.
+     * @return true for {@code LIST}, {@code GLST} and {@code LOME}
+     */
+    static boolean isSnapshot(Command command) {
+        return command == Command.LIST || command == Command.GLST || command == Command.LOME;
+    }
+
+    /**
+     * Checks whether messages of the given command are chat messages that may be dropped.
+     *
+     * @param command The command of a message, may be {@code null}.
+     * @return true for {@code CHAT}, {@code WISP} and {@code BROD}
+     */
+    static boolean isChat(Command command) {
+        return command == Command.CHAT || command == Command.WISP || command == Command.BROD;
+    }
+}
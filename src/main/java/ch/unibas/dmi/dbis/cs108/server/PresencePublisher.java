@@ -0,0 +1,356 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+import ch.unibas.dmi.dbis.cs108.network.PresenceState;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code PresencePublisher} sends the presence information of the server to all clients: the
+ * users, the game lobbies with their state and the members of each lobby.
+ * <p>
+ * Code that changes users, nicknames or lobbies only marks the presence as dirty with
+ * {@link #markDirty()}. The publisher coalesces all changes and publishes at most once per minimum
+ * interval. A publication compares the server with the last published {@link PresenceState} and
+ * broadcasts only the differences as versioned {@code DLTA} messages. New users, and clients that
+ * missed a version, get a complete snapshot: {@code SYNC} with the version, followed by
+ * {@code LIST}, {@code GLST} and {@code LOME}. If too much changed at once, the snapshot is broadcast
+ * instead of the deltas.
+ * </p>
+ * <p>
+ * The number of messages that the old behaviour (three snapshot broadcasts for every change and
+ * every PONG) would have sent in addition is counted in
+ * {@link ServerMetrics#getPresenceMessagesSaved()}.
+ * </p>
+ */
+public class PresencePublisher {
+
+    /**
+     * Logger for recording errors while publishing.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(PresencePublisher.class);
+
+    /**
+     * The default minimum interval between two publications, in milliseconds.
+     */
+    public static final long DEFAULT_MIN_INTERVAL = 250;
+
+    /**
+     * The number of snapshot messages the server used to send for every update: LIST, GLST and LOME.
+     */
+    private static final int MESSAGES_PER_UPDATE = 3;
+
+    /**
+     * The maximum number of deltas of one publication. If more changed, a snapshot is broadcast.
+     */
+    private static final int MAX_DELTAS = 32;
+
+    /**
+     * The scheduler that runs the publications.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * The minimum interval between two publications, in milliseconds.
+     */
+    private volatile long minInterval;
+
+    /**
+     * Set while a publication is scheduled and has not started yet.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * The number of changes that were reported since the last publication.
+     */
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+
+    /**
+     * Users that were added since the last publication and need the complete presence information.
+     */
+    private final Set<Integer> newUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Time of the last publication in milliseconds.
+     */
+    private volatile long lastPublish;
+
+    /**
+     * The last published presence information. Only used by the publishing thread.
+     */
+    private final PresenceState published = new PresenceState();
+
+    /**
+     * The nicknames of the published users by their ID, used to recognise nickname changes. Only used
+     * by the publishing thread.
+     */
+    private final Map<Integer, String> publishedUsers = new LinkedHashMap<>();
+
+    /**
+     * Creates a publisher with its own scheduler thread.
+     *
+     * @param minInterval The minimum interval between two publications, in milliseconds.
+     */
+    public PresencePublisher(long minInterval) {
+        this(minInterval, Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "presence-publisher");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates a publisher that runs its publications on the given scheduler.
+     *
+     * @param minInterval The minimum interval between two publications, in milliseconds.
+     * @param scheduler   The scheduler for the publications.
+     */
+    public PresencePublisher(long minInterval, ScheduledExecutorService scheduler) {
+        this.minInterval = minInterval;
+        this.scheduler = scheduler;
+        published.setVersion(0);
+    }
+
+    /**
+     * Changes the minimum interval between two publications.
+     *
+     * @param minInterval The new interval in milliseconds.
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Returns the minimum interval between two publications.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Reports that users, nicknames or lobbies changed. A publication is scheduled unless one is
+     * already waiting; it runs as soon as the minimum interval since the last one has passed.
+     */
+    public void markDirty() {
+        pendingChanges.incrementAndGet();
+        if (scheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, lastPublish + minInterval - System.currentTimeMillis());
+            scheduler.schedule(this::publish, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reports a new user, who gets the complete presence information with the next publication.
+     *
+     * @param userId The ID of the new user.
+     */
+    public void userAdded(int userId) {
+        newUsers.add(userId);
+        markDirty();
+    }
+
+    /**
+     * Sends a complete snapshot to a client with the next publication, because the client missed a
+     * version.
+     *
+     * @param userId The ID of the user of the client.
+     */
+    public void resync(int userId) {
+        userAdded(userId);
+    }
+
+    /**
+     * Counts an update that is no longer sent, e.g. the one every PONG used to trigger.
+     */
+    public void updateSkipped() {
+        ServerMetrics.presenceMessagesSaved((long) MESSAGES_PER_UPDATE * Server.clientWriters.size());
+    }
+
+    /**
+     * Broadcasts the changes since the last publication and sends snapshots to new users. Runs on the
+     * scheduler.
+     */
+    void publish() {
+        scheduled.set(false);
+        lastPublish = System.currentTimeMillis();
+        int changes = pendingChanges.getAndSet(0);
+        try {
+            OutboundBatch.run(() -> send(changes));
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not publish the presence information", e);
+        }
+    }
+
+    /**
+     * Broadcasts the deltas, or the snapshot if too much changed, and sends snapshots to new users.
+     *
+     * @param changes The number of changes that were reported since the last publication.
+     */
+    private void send(int changes) {
+        List<String> deltas = computeDeltas();
+        int recipients = Server.clientWriters.size();
+        long sent = 0;
+        if (deltas.size() > MAX_DELTAS) {
+            for (String message : snapshotMessages()) {
+                Server.broadcast(message);
+            }
+            sent += (long) (MESSAGES_PER_UPDATE + 1) * recipients;
+        } else {
+            for (String delta : deltas) {
+                Server.broadcast(delta);
+            }
+            sent += (long) deltas.size() * recipients;
+        }
+
+        for (Integer userId : newUsers) {
+            newUsers.remove(userId);
+            User user = UserList.getUser(userId);
+            if (user == null) {
+                continue;
+            }
+            for (String message : snapshotMessages()) {
+                OutboundFrame.of(message).sendTo(user);
+                sent++;
+            }
+        }
+        ServerMetrics.presencePublished();
+        ServerMetrics.presenceMessagesSaved(Math.max(0, (long) changes * MESSAGES_PER_UPDATE * recipients - sent));
+    }
+
+    /**
+     * Returns the published version of the presence information.
+     *
+     * @return the version of the last delta or snapshot
+     */
+    long getVersion() {
+        return published.getVersion();
+    }
+
+    /**
+     * Builds the snapshot of the published state.
+     *
+     * @return the {@code SYNC} message followed by the {@code LIST}, {@code GLST} and {@code LOME}
+     * messages
+     */
+    private List<String> snapshotMessages() {
+        List<String> messages = new ArrayList<>();
+        messages.add(Command.SYNC + Command.SEPARATOR + published.getVersion());
+        messages.addAll(Arrays.asList(published.snapshotMessages()));
+        return messages;
+    }
+
+    /**
+     * Compares the server with the published state, applies every difference to the published state
+     * and returns the differences as delta messages. The users and lobbies of the server are read in
+     * place; only the users that joined since the last publication are collected and sorted by ID.
+     *
+     * @return the delta messages in the order of their versions
+     */
+    private List<String> computeDeltas() {
+        List<String> deltas = new ArrayList<>();
+
+        Iterator<Map.Entry<Integer, String>> iterator = publishedUsers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, String> entry = iterator.next();
+            User user = UserList.getUser(entry.getKey());
+            String nickname = user != null ? user.getNickname() : null;
+            if (nickname == null) {
+                iterator.remove();
+                delta(deltas, PresenceState.Op.DELU, entry.getValue());
+            } else if (!nickname.equals(entry.getValue())) {
+                delta(deltas, PresenceState.Op.RENU, entry.getValue(), nickname);
+                entry.setValue(nickname);
+            }
+        }
+        List<User> joined = new ArrayList<>();
+        for (User user : UserList.getUsers()) {
+            if (!publishedUsers.containsKey(user.getId())) {
+                joined.add(user);
+            }
+        }
+        joined.sort(Comparator.comparingInt(User::getId));
+        for (User user : joined) {
+            publishedUsers.put(user.getId(), user.getNickname());
+            delta(deltas, PresenceState.Op.ADDU, user.getNickname());
+        }
+
+        for (String lobbyName : published.getLobbyNames()) {
+            Lobby lobby = Server.lobbies.get(lobbyName);
+            if (lobby == null || !lobby.getLobbyName().equals(lobbyName)) {
+                delta(deltas, PresenceState.Op.DELL, lobbyName);
+            }
+        }
+        for (Lobby lobby : Server.lobbies) {
+            if (lobby.isWelcome()) {
+                continue;
+            }
+            String lobbyName = lobby.getLobbyName();
+            String state = stateText(lobby.getGameState());
+            String publishedState = published.getLobbyState(lobbyName);
+            if (publishedState == null) {
+                delta(deltas, PresenceState.Op.ADDL, lobbyName, state);
+            } else if (!publishedState.equals(state)) {
+                delta(deltas, PresenceState.Op.STAL, lobbyName, state);
+            }
+            List<String> members = lobby.getPlayers();
+            List<String> publishedMembers = published.getLobbyMembers(lobbyName);
+            for (String member : publishedMembers) {
+                if (!members.contains(member)) {
+                    delta(deltas, PresenceState.Op.DELM, lobbyName, member);
+                }
+            }
+            for (String member : members) {
+                if (!publishedMembers.contains(member)) {
+                    delta(deltas, PresenceState.Op.ADDM, lobbyName, member);
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Applies one difference to the published state with the next version and adds its message.
+     *
+     * @param deltas The list of delta messages.
+     * @param op     The operation.
+     * @param args   The arguments of the operation.
+     */
+    private void delta(List<String> deltas, PresenceState.Op op, String... args) {
+        long version = published.getVersion() + 1;
+        published.apply(op, args);
+        published.setVersion(version);
+        deltas.add(PresenceState.deltaMessage(version, op, args));
+    }
+
+    /**
+     * Returns the text for a game state as it is shown in the game list.
+     *
+     * @param gameState The game state of a lobby.
+     * @return "open", "running", "finished" or "unknown"
+     */
+    private static String stateText(int gameState) {
+        return switch (gameState) {
+            case 1 -> "open";
+            case 2 -> "running";
+            case 3 -> "finished";
+            default -> "unknown";
+        };
+    }
+}
@@ -1,8 +1,12 @@
 package ch.unibas.dmi.dbis.cs108.server;
 
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
 import ch.unibas.dmi.dbis.cs108.game.Dice;
 import ch.unibas.dmi.dbis.cs108.game.Field;
 import ch.unibas.dmi.dbis.cs108.game.GameBoard;
+import ch.unibas.dmi.dbis.cs108.game.MoveGenerator;
+import ch.unibas.dmi.dbis.cs108.game.ReachableFields;
+import ch.unibas.dmi.dbis.cs108.game.Tablebase;
 import ch.unibas.dmi.dbis.cs108.network.Command;
 import ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer;
 import org.apache.logging.log4j.LogManager;
@@ -11,8 +15,12 @@ import org.apache.logging.log4j.Logger;
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -53,9 +61,62 @@ public class Server {
     public static int port;
 
     /**
-     * List of all active game lobbies, including the default "Welcome" lobby.
+     * The engine that handles the client connections of this server.
      */
-    public static List<Lobby> lobbies = new ArrayList<>();
+    private final ServerEngine engine;
+
+    /**
+     * The non-blocking engine, if the server was started with {@link ServerEngine#NIO}.
+     */
+    private static NioServer nioServer;
+
+    /**
+     * The number of seconds the server waits for new clients after the last one left.
+     */
+    public static final long SHUTDOWN_GRACE_SECONDS = 120;
+
+    /**
+     * The timers of the server, e.g. the end of a game or the shutdown of an empty server.
+     */
+    public static final ServerTimers timers = new ServerTimers("server-timers");
+
+    /**
+     * Watches the connections of all clients with PING and PONG.
+     */
+    public static final HeartbeatService heartbeats = new HeartbeatService(timers, HeartbeatService.DEFAULT_INTERVAL)
+            .start();
+
+    /**
+     * The timer that shuts down the server when no client came back, or {@code null}.
+     */
+    private static ScheduledFuture<?> shutdownTimer;
+
+    /**
+     * The worker threads that run the game commands of the lobbies.
+     */
+    public static final LobbyShards shards = new LobbyShards(LobbyShards.DEFAULT_SHARDS).start();
+
+    /**
+     * Registry of all active game lobbies, including the default "Welcome" lobby.
+     */
+    public static final LobbyRegistry lobbies = new LobbyRegistry();
+
+    /**
+     * Retires lobbies that are empty or whose game is long over.
+     */
+    public static final LobbyReaper reaper = new LobbyReaper(lobbies, timers, LobbyReaper.DEFAULT_EMPTY_GRACE,
+            LobbyReaper.DEFAULT_FINISHED_GRACE).start();
+
+    /**
+     * Publishes the player and lobby information to all clients, see {@link #updateAllClients()}.
+     */
+    public static final PresencePublisher presence = new PresencePublisher(PresencePublisher.DEFAULT_MIN_INTERVAL);
+
+    /**
+     * The highscore list, read once at startup and written behind on its own thread.
+     */
+    public static final HighscoreService highscores = new HighscoreService(Path.of(Highscore.getHighscoreFilePath()),
+            timers, HighscoreService.DEFAULT_WRITE_DELAY);
 
     /**
      * Maps each client's OutputStream to its ProtocolWriterServer for directed messaging.
@@ -63,12 +124,28 @@ public class Server {
     public static Map<OutputStream, ProtocolWriterServer> protocolWriters = new HashMap<>();
 
     /**
-     * Constructor of the server class
+     * The solved standard board, or {@code null} if no tablebase file was found at startup.
+     */
+    private static volatile Tablebase tablebase;
+
+    /**
+     * Constructor of the server class. The server uses the {@link ServerEngine#BLOCKING} engine.
      *
      * @param port The port number.
      */
     public Server(int port) {
+        this(port, ServerEngine.BLOCKING);
+    }
+
+    /**
+     * Constructor of the server class with a selectable engine.
+     *
+     * @param port   The port number.
+     * @param engine The engine that handles the client connections.
+     */
+    public Server(int port, ServerEngine engine) {
         this.port = port;
+        this.engine = engine;
     }
 
     /**
@@ -81,23 +158,28 @@ public class Server {
 
     public void start() {
         try {
-            out.println("Waiting for port " + port + "...");
+            out.println("Waiting for port " + port + "... (engine: " + engine.getName() + ")");
+            loadTablebase(Path.of(Tablebase.DEFAULT_FILE));
+            if (engine == ServerEngine.NIO) {
+                startNio();
+                return;
+            }
             echod = new ServerSocket(port);
             createLobby("Welcome", null);
 
             while (true) {
                 Socket clientSocket = echod.accept();
-                activeClients.incrementAndGet();
-                int clientNumber = activeClients.get();
-                int userId = addNewUser("Client" + activeClients.get(), clientSocket.getOutputStream());
-                out.println("Connection established for Client: " + activeClients.get());
-
-                ClientHandler cH = new ClientHandler(clientNumber, clientSocket, userId);
-                Thread cHT = new Thread(cH);
+                int clientNumber = clientConnected();
+                OutboundQueue outbound = new OutboundQueue();
+                int userId = addNewUser("Client" + clientNumber, outbound);
+                out.println("Connection established for Client: " + clientNumber);
+
+                ThreadFactory connectionThreads = engine.connectionThreads();
+                ClientHandler cH = new ClientHandler(clientNumber, clientSocket, userId, connectionThreads, outbound);
+                Thread cHT = connectionThreads.newThread(cH);
                 cHT.start();
 
-                PrintWriter clientWriter = new PrintWriter(
-                        new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8), true);
+                PrintWriter clientWriter = new ClientWriter(outbound);
                 clientWriters.add(clientWriter);
 
             }
@@ -108,6 +190,58 @@ public class Server {
         }
     }
 
+    /**
+     * Starts the {@link NioServer} engine with one event loop per core and accepts connections on the
+     * calling thread.
+     *
+     * @throws IOException If the port could not be bound.
+     */
+    private void startNio() throws IOException {
+        nioServer = new NioServer(port, NioServer.defaultLoopCount());
+        nioServer.bind();
+        createLobby("Welcome", null);
+        nioServer.run();
+    }
+
+    /**
+     * Memory-maps the tablebase of the standard board if the file exists. The server runs without it
+     * otherwise.
+     *
+     * @param file The tablebase file written by the {@code TablebaseSolver}.
+     */
+    static void loadTablebase(Path file) {
+        if (!Files.exists(file)) {
+            LOGGER.info("No tablebase found at {}", file.toAbsolutePath());
+            return;
+        }
+        try {
+            tablebase = Tablebase.load(BoardTopology.STANDARD, file);
+            LOGGER.info("Tablebase loaded, {} rolls expected from the start",
+                    tablebase.expectedRolls(BoardTopology.STANDARD.getStartField()));
+        } catch (IOException e) {
+            LOGGER.error("Could not load the tablebase {}", file, e);
+        }
+    }
+
+    /**
+     * Returns the solved standard board.
+     *
+     * @return the tablebase, or {@code null} if none was loaded
+     */
+    public static Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Counts a newly accepted client connection.
+     *
+     * @return The number of the new client, which is the number of active clients.
+     */
+    static int clientConnected() {
+        cancelShutdown();
+        return activeClients.incrementAndGet();
+    }
+
     /**
      * Adds a new user to the user list.
      *
@@ -116,13 +250,15 @@ public class Server {
      * @return The unique user-ID.
      */
     public static int addNewUser(String userName, OutputStream clientOut) {
-        return UserList.addUser(userName, clientOut);
+        int userId = UserList.addUser(userName, clientOut);
+        presence.userAdded(userId);
+        return userId;
     }
 
     /**
      * Informs the server that a client has left. The active clients are reduced by 1 and the number
-     * of clients still active is displayed. If there are no more active clients, a thread is started
-     * that waits 60 seconds for new clients. After 60 seconds, the server is shut down.
+     * of clients still active is displayed. If there are no more active clients, a timer waits
+     * {@link #SHUTDOWN_GRACE_SECONDS} for new clients. If none came, the server is shut down.
      */
     public static void ClientDisconnected() {
         activeClients.decrementAndGet();
@@ -130,16 +266,27 @@ public class Server {
 
         if (activeClients.get() <= 0) {
             out.println("Wait 2 min for new clients...");
-            new Thread(() -> {
-                try {
-                    Thread.sleep(120000);
+            synchronized (Server.class) {
+                if (shutdownTimer != null) {
+                    shutdownTimer.cancel(false);
+                }
+                shutdownTimer = timers.schedule(() -> {
                     if (activeClients.get() == 0) {
                         out.println("No new clients. Server is shutting down.");
                         shutdownServer();
                     }
-                } catch (InterruptedException ignored) {
-                }
-            }).start();
+                }, SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Cancels the shutdown of an empty server because a client connected.
+     */
+    private static synchronized void cancelShutdown() {
+        if (shutdownTimer != null) {
+            shutdownTimer.cancel(false);
+            shutdownTimer = null;
         }
     }
 
@@ -148,7 +295,13 @@ public class Server {
      */
     public static void shutdownServer() {
         try {
-            echod.close();
+            if (nioServer != null) {
+                nioServer.close();
+            }
+            if (echod != null) {
+                echod.close();
+            }
+            highscores.shutdown();
             System.exit(0);
         } catch (IOException e) {
             LOGGER.error("Error when closing the Server: {}", e.getMessage(), e);
@@ -190,24 +343,12 @@ public class Server {
         }
 
         String oldNickname = user.getNickname();
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(oldNickname)) {
-                userLobby = lobby;
-                break;
-            }
-        }
+        Lobby userLobby = user.getLobby();
         if (userLobby != null) {
-            for (String player : userLobby.players) {
-                User u = UserList.getUserByName(player);
-                if (u != null) {
-                    ProtocolWriterServer writer = new ProtocolWriterServer(clientWriters, u.getOut());
-                    try {
-                        writer.sendInfo("Player " + oldNickname + " changed their nickname to: " + finalNick);
-                    } catch (IOException e) {
-                        LOGGER.error("Error sending nickname info to {}", player, e);
-                    }
-                }
+            OutboundFrame frame = OutboundFrame.of(Command.INFO,
+                    "Player " + oldNickname + " changed their nickname to: " + finalNick);
+            for (String player : userLobby.getPlayers()) {
+                frame.sendTo(UserList.getUserByName(player));
             }
         }
         // updates nickname
@@ -255,7 +396,7 @@ public class Server {
             protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
             protocolWriters.put(user.getOut(), protocolWriterServer);
         }
-        Lobby userlobby = getLobbyOfPlayer(user.getNickname());
+        Lobby userlobby = user.getLobby();
         if (userlobby == null) {
             return;
         }
@@ -299,8 +440,11 @@ public class Server {
         user.setHasRolled(true);
         String colorText = Arrays.toString(roll);
 
+        ReachableFields reachable = MoveGenerator.STANDARD.generate(board, roll);
+
         try {
             protocolWriterServer.sendCommandAndString(Command.ROLL, colorText);
+            protocolWriterServer.sendCommandAndString(Command.REAC, String.join(",", reachable.getFieldIds()));
         } catch (IOException e) {
             LOGGER.error("Error sending rolled colors", e);
         }
@@ -316,7 +460,7 @@ public class Server {
     public static void checkField(Integer userId, String fieldId) {
         User user = UserList.getUser(userId);
         ProtocolWriterServer protocolWriterServer = protocolWriters.get(user.getOut());
-        Lobby userlobby = getLobbyOfPlayer(user.getNickname());
+        Lobby userlobby = user.getLobby();
         if (protocolWriterServer == null) {
             protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
             protocolWriters.put(user.getOut(), protocolWriterServer);
@@ -343,17 +487,7 @@ public class Server {
             return;
         }
         String nickname = user.getNickname();
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(nickname)) {
-                userLobby = lobby;
-                break;
-            }
-        }
-        if (userLobby == null) {
-            return;
-        }
-        GameBoard gameBoard = userLobby.getGameBoard(nickname);
+        GameBoard gameBoard = userlobby.getGameBoard(nickname);
         if (gameBoard.isValidField(fieldId)) {
             Field selectedField = gameBoard.getFieldById(fieldId);
             gameBoard.addSelectedField(selectedField);
@@ -393,13 +527,7 @@ public class Server {
             protocolWriters.put(user.getOut(), protocolWriterServer);
         }
         String nickname = user.getNickname();
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(nickname)) {
-                userLobby = lobby;
-                break;
-            }
-        }
+        Lobby userLobby = user.getLobby();
         if (userLobby == null) {
             return;
         }
@@ -447,13 +575,7 @@ public class Server {
 
         ProtocolWriterServer protocolWriterServer = getOrCreateWriter(user);
         String nickname = user.getNickname();
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(nickname)) {
-                userLobby = lobby;
-                break;
-            }
-        }
+        Lobby userLobby = user.getLobby();
         if (userLobby == null) {
             return;
         }
@@ -471,21 +593,12 @@ public class Server {
         board.moveToLastSelected();
         board.consumeLastRoll();
         Field newField = board.getCurrentField();
+        OutboundFrame frame = OutboundFrame.of(Command.INFO, "+POS " + nickname + " moved to the Field " + newField.getFieldId());
         for (String playerName : userLobby.getPlayers()) {
-            User otherUser = UserList.getUserByName(playerName);
-            if (otherUser == null) {
-                continue;
-            }
-
-            ProtocolWriterServer writer = new ProtocolWriterServer(clientWriters, otherUser.getOut());
-            try {
-                writer.sendCommandAndString(Command.INFO, "+POS " + nickname + " moved to the Field " + newField.getFieldId());
-            } catch (IOException e) {
-                LOGGER.error("Error sending move info to {}", playerName, e);
-            }
+            frame.sendTo(UserList.getUserByName(playerName));
         }
 
-        if (newField.getFieldId().equals("blue10") || newField.getFieldId().equals("pink10")) {
+        if (board.getTopology().isFinish(newField)) {
             won(userId);
         }
 
@@ -496,17 +609,13 @@ public class Server {
      * Broadcasts a message to all connected clients.
      *
      * <p>This method constructs a broadcast message by prepending the {@code BROD} command name
-     * and a separator to the given message. It then iterates over all client writers and sends the
-     * formatted message to each client.
+     * and a separator to the given message. It then sends the formatted message to each client with
+     * {@link #broadcast(String)}.
      *
      * @param message The message to be broadcast to all clients.
      */
     public static void broadcastToAll(String message) {
-        String broadcastMessage = Command.BROD.name() + Command.SEPARATOR + message;
-        for (PrintWriter writer : clientWriters) {
-            writer.println(broadcastMessage);
-            writer.flush();
-        }
+        broadcast(Command.BROD.name() + Command.SEPARATOR + message);
     }
 
     /**
@@ -516,22 +625,20 @@ public class Server {
      * @param userId    The user's ID that wants to create the lobby.
      */
     public static void createLobby(String lobbyName, Integer userId) {
-        for (Lobby lobby : lobbies) {
-            if (lobbyName.equalsIgnoreCase(lobby.getLobbyName())) {
-                if (userId != null) {
-                    User user = UserList.getUser(userId);
-                    ProtocolWriterServer writer = getOrCreateWriter(user);
-                    try {
-                        writer.sendInfo("This lobby already exists.");
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
+        Lobby lobby = new Lobby(lobbyName);
+        if (!lobbies.add(lobby)) {
+            shards.release(lobby.getMailbox());
+            if (userId != null) {
+                User user = UserList.getUser(userId);
+                ProtocolWriterServer writer = getOrCreateWriter(user);
+                try {
+                    writer.sendInfo("This lobby already exists.");
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
-                return;
             }
+            return;
         }
-        Lobby lobby = new Lobby(lobbyName);
-        lobbies.add(lobby);
         if (userId != null) {
             User user = UserList.getUser(userId);
             ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters,
@@ -548,9 +655,15 @@ public class Server {
     /**
      * Adds the specified user to the given lobby by name.
      * <p>
-     * If the user is currently in the "Welcome" lobby, they will be removed from it automatically
-     * before joining the new lobby. If the lobby is full, the user will be notified. If the lobby
-     * does not exist, an informational message will be sent to the user.
+     * If the user is currently in another lobby, e.g. the "Welcome" lobby, they will be removed from it
+     * automatically before joining the new lobby. If the lobby is full, the user will be notified. If
+     * the lobby does not exist, an informational message will be sent to the user.
+     * </p>
+     * <p>
+     * Each lobby is only changed in its own mailbox: the user leaves the old lobby in the mailbox of
+     * the old lobby, which then hands the user to the mailbox of the new one. Both steps may therefore
+     * run after this method returned.
+     * </p>
      *
      * @param lobbyName The name of the lobby to join.
      * @param userId    The ID of the user requesting to join the lobby.
@@ -560,91 +673,124 @@ public class Server {
         if (user == null) {
             return;
         }
-        ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
-        boolean lobbyFound = false;
+        Lobby lobby = lobbies.get(lobbyName);
+        if (lobby == null) {
+            try {
+                ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
+                protocolWriterServer.sendInfo("Lobby " + lobbyName + " does not exist!");
+            } catch (IOException e) {
+                System.err.println("Error sending 'lobby not found' info.");
+            }
+            return;
+        }
 
-        for (Lobby lobby : lobbies) {
-            if (lobby.getLobbyName().equals(lobbyName)) {
-                lobbyFound = true;
-
-                String userName = user.getNickname();
-                for (Lobby otherLobby : lobbies) {
-                    if (otherLobby.getPlayers().contains(userName)) {
-                        otherLobby.removePlayer(userName);
-                        System.out.println("User '" + userName + "' removed from lobby: " + otherLobby.getLobbyName());
-                        for (String player : otherLobby.getPlayers()) {
-                            User users = UserList.getUserByName(player);
-                            if (users != null && !otherLobby.getLobbyName().equals("Welcome")) {
-                                ProtocolWriterServer writer = Server.getOrCreateWriter(users);
-                                try {
-                                    writer.sendInfo("+LFT " + userName + " has left the lobby.");
-                                } catch (IOException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }
-                        }
-                        if (otherLobby.getGameState() == 2) {
-                            if (otherLobby.players.size() < 2) {
-                                otherLobby.changeGameState(3);
-                                otherLobby.readyStatus.clear();
-                                for (String player : otherLobby.players) {
-                                    otherLobby.readyStatus.put(player, false);
-                                }
-                                for (String player : otherLobby.getPlayers()) {
-                                    User u = UserList.getUserByName(player);
-                                    if (u != null) {
-                                        ProtocolWriterServer writer = Server.getOrCreateWriter(u);
-                                        try {
-                                            writer.sendInfo("The game has stopped due to too few players!");
-                                        } catch (IOException e) {
-                                            throw new RuntimeException(e);
-                                        }
-                                    }
-                                }
-                            }
-                        }
+        Lobby otherLobby = user.getLobby();
+        if (otherLobby == null) {
+            lobby.runInMailbox(() -> addToLobby(lobby, user));
+            return;
+        }
+        otherLobby.runInMailbox(() -> {
+            if (user.getLobby() != otherLobby) {
+                // The user was moved by another command in the meantime.
+                return;
+            }
+            String userName = user.getNickname();
+            if (!otherLobby.isWelcome()) {
+                OutboundFrame frame = OutboundFrame.of(Command.INFO, "+LFT " + userName + " has left the lobby.");
+                for (String player : otherLobby.getPlayers()) {
+                    if (!player.equals(userName)) {
+                        frame.sendTo(UserList.getUserByName(player));
                     }
                 }
+            }
+            removeFromLobby(otherLobby, userName);
+            if (otherLobby != lobby) {
+                lobbies.removeIfEmpty(otherLobby);
+            }
+            lobby.runInMailbox(() -> addToLobby(lobby, user));
+        });
+    }
 
-                if (!lobby.isFull()) {
-                    boolean success = lobby.addPlayers(userId);
-                    if (success) {
-                        try {
-                            protocolWriterServer.sendCommandAndString(Command.JOIN, lobbyName);
-                            for (String member : lobby.getPlayers()) {
-                                User u = UserList.getUserByName(member);
-                                assert u != null;
-                                String color = u.getBikeColor();    // you stored this in VELO handler
-                                if (color != null) {
-                                    protocolWriterServer.sendCommandAndString(Command.VELO,
-                                            member + " " + color); // replays every members bike color
-                                }
-                            }
-                            if (!lobbyName.equalsIgnoreCase("Welcome")) {
-                                protocolWriterServer.sendInfo("Please select a bike!");
-                            }
-                        } catch (IOException e) {
-                            System.err.println("Error sending JOIN or INFO to user " + userId);
+    /**
+     * Removes a player from a lobby, e.g. when the user disconnects. The lobby is changed in its
+     * mailbox, see {@link Lobby#runInMailbox(Runnable)}, and removed from the server once it is empty.
+     *
+     * @param lobby    The lobby of the player.
+     * @param nickname The nickname of the player.
+     */
+    public static void leaveLobby(Lobby lobby, String nickname) {
+        lobby.runInMailbox(() -> {
+            removeFromLobby(lobby, nickname);
+            lobbies.removeIfEmpty(lobby);
+            updateAllClients();
+        });
+    }
+
+    /**
+     * Removes a player from a lobby and stops a running game that has too few players left. Runs in
+     * the mailbox of the lobby.
+     *
+     * @param lobby    The lobby of the player.
+     * @param nickname The nickname of the player.
+     */
+    private static void removeFromLobby(Lobby lobby, String nickname) {
+        lobby.removePlayer(nickname);
+        System.out.println("User '" + nickname + "' removed from lobby: " + lobby.getLobbyName());
+        if (lobby.getGameState() == 2 && lobby.getPlayers().size() < 2) {
+            lobby.changeGameState(3);
+            lobby.resetReadyStatus();
+            OutboundFrame frame = OutboundFrame.of(Command.INFO, "The game has stopped due to too few players!");
+            for (String player : lobby.getPlayers()) {
+                frame.sendTo(UserList.getUserByName(player));
+            }
+        }
+    }
+
+    /**
+     * Adds a user to a lobby and sends them the lobby and the bike colors of its members. Runs in the
+     * mailbox of the lobby.
+     *
+     * @param lobby The lobby to join.
+     * @param user  The user who joins.
+     */
+    private static void addToLobby(Lobby lobby, User user) {
+        ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
+        String lobbyName = lobby.getLobbyName();
+        if (!lobby.isFull()) {
+            boolean success = lobby.addPlayers(user.getId());
+            if (success) {
+                try {
+                    protocolWriterServer.sendCommandAndString(Command.JOIN, lobbyName);
+                    for (String member : lobby.getPlayers()) {
+                        User u = UserList.getUserByName(member);
+                        assert u != null;
+                        String color = u.getBikeColor();    // you stored this in VELO handler
+                        if (color != null) {
+                            protocolWriterServer.sendCommandAndString(Command.VELO,
+                                    member + " " + color); // replays every members bike color
                         }
                     }
-                } else {
-                    try {
-                        protocolWriterServer.sendInfo("Lobby " + lobbyName + " is full!");
-                    } catch (IOException e) {
-                        System.err.println("Error sending full lobby info.");
+                    if (!lobby.isWelcome()) {
+                        protocolWriterServer.sendInfo("Please select a bike!");
                     }
+                } catch (IOException e) {
+                    System.err.println("Error sending JOIN or INFO to user " + user.getId());
+                }
+            } else if (lobby.isClosed()) {
+                try {
+                    protocolWriterServer.sendInfo("Lobby " + lobbyName + " does not exist!");
+                } catch (IOException e) {
+                    System.err.println("Error sending 'lobby not found' info.");
                 }
-                break; // No need to keep looping
             }
-        }
-
-        if (!lobbyFound) {
+        } else {
             try {
-                protocolWriterServer.sendInfo("Lobby " + lobbyName + " does not exist!");
+                protocolWriterServer.sendInfo("Lobby " + lobbyName + " is full!");
             } catch (IOException e) {
-                System.err.println("Error sending 'lobby not found' info.");
+                System.err.println("Error sending full lobby info.");
             }
         }
+        updateAllClients();
     }
 
     /**
@@ -688,18 +834,26 @@ public class Server {
     }
 
     /**
-     * Returns the lobby that contains the given player.
+     * Returns the lobby that contains the given player. The lobby is kept in the {@link User}, so
+     * this is a lookup in the nickname index of the {@link UserList} and does not scan the lobbies.
      *
      * @param playerName the name of the player
      * @return the Lobby object the player is in, or null if not found
      */
     public static Lobby getLobbyOfPlayer(String playerName) {
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(playerName)) {
-                return lobby;
-            }
-        }
-        return null;
+        User user = UserList.findUser(playerName);
+        return (user != null) ? user.getLobby() : null;
+    }
+
+    /**
+     * Returns the lobby that contains the given user.
+     *
+     * @param userId the ID of the user
+     * @return the Lobby object the user is in, or null if not found
+     */
+    public static Lobby getLobbyOfUser(int userId) {
+        User user = UserList.getUser(userId);
+        return (user != null) ? user.getLobby() : null;
     }
 
     /**
@@ -710,27 +864,21 @@ public class Server {
     public static void won(int userId) {
         User user = UserList.getUser(userId);
         String nickname = user.getNickname();
-        Lobby userlobby = getLobbyOfPlayer(user.getNickname());
+        Lobby userlobby = user.getLobby();
         if (userlobby == null) {
             return;
         }
         boolean setHigh = false;
+        OutboundFrame winFrame = userlobby.getPodestPlace() == 1
+                ? OutboundFrame.of(Command.INFO, "+WINN " + nickname + " won the game!")
+                : OutboundFrame.of(Command.INFO, "+WINN " + nickname + " is on the " + userlobby.getPodestPlace() + ". place!");
         for (String player : userlobby.getPlayers()) {
             User lobbyUser = UserList.getUserByName(player);
             if (lobbyUser != null) {
-                ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, lobbyUser.getOut());
-                try {
-                    if (userlobby.getPodestPlace() == 1) {
-                        protocolWriterServer.sendInfo("+WINN " + nickname + " won the game!");
-                    } else {
-                        protocolWriterServer.sendInfo("+WINN " + nickname + " is on the " + userlobby.getPodestPlace() + ". place!");
-                    }
-                    if (!setHigh) {
-                        setHighscore(nickname, user.getRollCount());
-                        setHigh = true;
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Could not send Info.", e);
+                winFrame.sendTo(lobbyUser);
+                if (!setHigh) {
+                    setHighscore(nickname, user.getRollCount());
+                    setHigh = true;
                 }
             }
         }
@@ -738,9 +886,9 @@ public class Server {
         userlobby.incrementPodestPlace(); //podestPlace gets incremented by 1.
 
 
-        if (userlobby.getPlayers().size() - userlobby.winners.size() == 1) {
+        if (userlobby.getPlayers().size() - userlobby.getWinners().size() == 1) {
             for (String player : userlobby.getPlayers()) {
-                if (!userlobby.winners.contains(player)) {
+                if (!userlobby.getWinners().contains(player)) {
                     userlobby.addWinner(player);
 
                     for (String lobbyPlayer : userlobby.getPlayers()) {
@@ -749,7 +897,7 @@ public class Server {
                             ProtocolWriterServer protocolWriterServer = Server.getOrCreateWriter(lobbyUser);
                             try {
                                 protocolWriterServer.sendInfo("+WINN " + player + " is on the " + userlobby.getPodestPlace() + ". place!");
-                                String winnersList = String.join(", ", userlobby.winners);
+                                String winnersList = String.join(", ", userlobby.getWinners());
                                 protocolWriterServer.sendCommandAndString(Command.WINN, winnersList);
                             } catch (IOException e) {
                                 LOGGER.error("Could not send Info.", e);
@@ -779,85 +927,48 @@ public class Server {
     }
 
     /**
-     * Sends updated player and lobby information to all connected clients. This method constructs and
-     * broadcasts three types of updates: A player list update (command: {@code LIST}) containing all
-     * currently connected usernames. A game lobby list update (command: {@code GLST}) containing each
-     * non-Welcome lobby's name, game state, and players. Lobby-specific member lists (command:
-     * {@code LOME}) that show members in each lobby, sent to all clients (could be refined per
-     * lobby). These messages are formatted as simple protocol strings and dispatched using
-     * {@link #broadcast(String)}.
+     * Informs all connected clients about changed player and lobby information: the player list
+     * ({@code LIST}), the game lobby list ({@code GLST}) and the lobby members ({@code LOME}). The
+     * update is not sent right away; the {@link PresencePublisher} coalesces all changes and sends
+     * only the messages whose content changed, at most once per minimum interval.
      */
     public static void updateAllClients() {
-        List<String> allPlayers = UserList.getAllUsernames();
-        String playerListMessage = Command.LIST + Command.SEPARATOR + allPlayers;
-
-        // builds the game lobby list update message
-        List<Lobby> realLobbies = Server.lobbies.stream()
-                .filter(l -> !l.getLobbyName().equalsIgnoreCase("Welcome"))
-                .toList();
-        List<String> lobbyInfo = new ArrayList<>();
-        List<String> lobbyMembers = new ArrayList<>();
-        for (Lobby lobby : realLobbies) {
-            List<String> players = lobby.getPlayers();
-            String memberlist = String.join(" | ", players);
-            String stateText = switch (lobby.getGameState()) {
-                case 1 -> "open";
-                case 2 -> "running";
-                case 3 -> "finished";
-                default -> "unknown";
-            };
-            lobbyInfo.add(
-                    "[Lobby: " + lobby.getLobbyName() + "] " + stateText); // + " | Players: " + players);
-            lobbyMembers.add("[Lobby: " + lobby.getLobbyName() + "] " + "Players: " + memberlist);
-        }
-        String gameListMessage = "GLST" + Command.SEPARATOR + lobbyInfo;
-        String lobbyMemberMessage = "LOME" + Command.SEPARATOR + lobbyMembers;
-        broadcast(playerListMessage);
-        broadcast(gameListMessage);
-        broadcast(lobbyMemberMessage);
+        presence.markDirty();
     }
 
     /**
-     * Sends a single text message to all connected clients. This method writes the given message
-     * string to each {@link PrintWriter} in the list of client connections, followed by a flush to
-     * ensure delivery.
+     * Sends a single text message to all connected clients. The message is encoded once into an
+     * {@link OutboundFrame} that every {@link ClientWriter} queues without copying; any other
+     * {@link PrintWriter} in the list of client connections gets the message printed, followed by a
+     * flush to ensure delivery.
      *
      * @param message The text message to send to all clients
      */
     public static void broadcast(String message) {
+        OutboundFrame frame = OutboundFrame.of(message);
         for (PrintWriter writer : clientWriters) {
-            writer.println(message);
-            writer.flush();
+            if (writer instanceof ClientWriter clientWriter) {
+                clientWriter.send(frame);
+            } else {
+                writer.println(message);
+                writer.flush();
+            }
         }
     }
 
     /**
-     * Sends a single informational message to all clients in the same lobby. This method writes the
-     * given message string to each {@link PrintWriter} in the list of the lobby, followed by a flush
-     * to ensure delivery.
+     * Sends a single informational message to all clients in the same lobby. The message is encoded
+     * once into an {@link OutboundFrame} that is sent to every member of the lobby.
      *
      * @param message  The text message to send to all clients
      * @param nickname The nickname that belongs in the lobby and who is the trigger of the message.
      */
     public static void broadcastInLobby(String message, String nickname) {
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(nickname)) {
-                userLobby = lobby;
-                break;
-            }
-        }
+        Lobby userLobby = getLobbyOfPlayer(nickname);
         if (userLobby != null) {
-            for (String player : userLobby.players) {
-                User u = UserList.getUserByName(player);
-                if (u != null) {
-                    ProtocolWriterServer writer = new ProtocolWriterServer(clientWriters, u.getOut());
-                    try {
-                        writer.sendInfo(message);
-                    } catch (IOException e) {
-                        LOGGER.error("Error sending turn info to {}", player, e);
-                    }
-                }
+            OutboundFrame frame = OutboundFrame.of(Command.INFO, message);
+            for (String player : userLobby.getPlayers()) {
+                frame.sendTo(UserList.getUserByName(player));
             }
         }
     }
@@ -875,6 +986,9 @@ public class Server {
      * Shuts down the server if it is not already closed.
      */
     public static void shutdownServerA() {
+        if (nioServer != null) {
+            nioServer.close();
+        }
         try {
             if (echod != null && !echod.isClosed()) {
                 echod.close();
@@ -885,31 +999,20 @@ public class Server {
     }
 
     /**
-     * Reads the data in the Highscore.txt-file and sends it to the Client via the
-     * ProtocolWriterServer
+     * Sends the highscore list to the Client via the ProtocolWriterServer. The list is kept in memory by
+     * the {@link HighscoreService}, so no file is read.
      *
      * @param userId The ID from the user that sent the request for the HighscoreList.
      */
     public void getHighscoreList(int userId) {
         User user = UserList.getUser(userId);
         ProtocolWriterServer protocolWriterServer = new ProtocolWriterServer(clientWriters, user.getOut());
-        String path = Highscore.getHighscoreFilePath();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            StringBuilder highscoreList = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                highscoreList.append(line).append("|");
-            }
-            br.close();
-            protocolWriterServer.sendData(highscoreList.toString());
-            broadcast(Command.HIGH + Command.SEPARATOR + highscoreList.toString());
-
-        } catch (FileNotFoundException e) {
-            LOGGER.error("Highscore file not found.", e);
-        } catch (IOException e) {
-            LOGGER.error("Error sending Highscore file.", e);
+        StringBuilder highscoreList = new StringBuilder();
+        for (String line : highscores.getLines()) {
+            highscoreList.append(line).append("|");
         }
+        protocolWriterServer.sendData(highscoreList.toString());
+        broadcast(Command.HIGH + Command.SEPARATOR + highscoreList.toString());
     }
 
     /**
@@ -929,14 +1032,13 @@ public class Server {
     }
 
     /**
-     * This method calls the addHighscoreEntry-method in the Highscore-class. This is need so the players and
-     * there rollCount gets written in the Highscorelist.
+     * Adds the player and their rollCount to the highscore list. The list changes in memory; the
+     * {@link HighscoreService} writes the file later on its own thread.
      *
      * @param nickname  The nickname of the player
      * @param rollCount The number of rolls the player needed to get to the finishline.
      */
     public static void setHighscore(String nickname, int rollCount) {
-        Highscore highscore = new Highscore();
-        highscore.addHighscoreEntry(nickname, rollCount);
+        highscores.add(nickname, rollCount);
     }
 }
\ No newline at end of file
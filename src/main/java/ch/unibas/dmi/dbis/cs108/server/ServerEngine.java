@@ -0,0 +1,88 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The {@code ServerEngine} enum defines how the {@link Server} handles its client connections. The
+ * engine is chosen at startup, e.g. {@code server 8090 --engine=nio}.
+ */
+public enum ServerEngine {
+
+    /**
+     * Every client gets its own {@link ClientHandler}, reader thread and writer thread.
+     */
+    BLOCKING("blocking"),
+
+    /**
+     * Like {@link #BLOCKING}, but the {@link ClientHandler}, its reader and its writer run on virtual
+     * threads, so an idle client only costs a few kilobytes instead of three platform thread stacks.
+     */
+    VIRTUAL("virtual"),
+
+    /**
+     * All clients are served by a few {@link NioServer} event loops (one per core) that use a
+     * {@link java.nio.channels.Selector}.
+     */
+    NIO("nio");
+
+    /**
+     * The prefix of the command line option that selects the engine.
+     */
+    public static final String OPTION = "--engine=";
+
+    /**
+     * The name of the engine as it is written on the command line.
+     */
+    private final String name;
+
+    /**
+     * Creates a new engine constant.
+     *
+     * @param name The name of the engine on the command line.
+     */
+    ServerEngine(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the engine as it is written on the command line.
+     *
+     * @return the name of the engine
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the factory for the threads that serve a single client connection. The
+     * {@link #VIRTUAL} engine creates virtual threads, all other engines create platform threads.
+     *
+     * @return the thread factory for per-connection tasks
+     */
+    public ThreadFactory connectionThreads() {
+        if (this == VIRTUAL) {
+            return Thread.ofVirtual().name("client-", 0).factory();
+        }
+        return Thread.ofPlatform().factory();
+    }
+
+    /**
+     * Finds the engine that belongs to a command line option like {@code --engine=nio}.
+     *
+     * @param option The command line option.
+     * @return the selected engine
+     * @throws IllegalArgumentException If the option is not a valid engine option.
+     */
+    public static ServerEngine fromOption(String option) {
+        if (option == null || !option.startsWith(OPTION)) {
+            throw new IllegalArgumentException("Not an engine option: " + option);
+        }
+        String value = option.substring(OPTION.length());
+        for (ServerEngine engine : values()) {
+            if (engine.name.equalsIgnoreCase(value)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown server engine: " + value);
+    }
+}
@@ -0,0 +1,364 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code ServerMetrics} class collects counters about the server's network traffic. The counters
+ * are summed up over all connections and can be read at any time, e.g. for logging or tests.
+ */
+public final class ServerMetrics {
+
+    /**
+     * Number of messages that currently wait in the outbound queues of all connections.
+     */
+    private static final AtomicLong outboundDepth = new AtomicLong();
+
+    /**
+     * Number of outbound messages that were dropped because a queue was full.
+     */
+    private static final LongAdder droppedMessages = new LongAdder();
+
+    /**
+     * Number of outbound messages that were replaced by a newer snapshot before they were sent.
+     */
+    private static final LongAdder coalescedMessages = new LongAdder();
+
+    /**
+     * Number of clients that were disconnected because they did not read their messages.
+     */
+    private static final LongAdder slowConsumerDisconnects = new LongAdder();
+
+    /**
+     * Number of writes of outbound messages to client sockets.
+     */
+    private static final LongAdder outboundWrites = new LongAdder();
+
+    /**
+     * Number of bytes written to client sockets.
+     */
+    private static final LongAdder outboundBytes = new LongAdder();
+
+    /**
+     * Number of presence publications (LIST, GLST and LOME) that were run.
+     */
+    private static final LongAdder presencePublications = new LongAdder();
+
+    /**
+     * Number of presence messages that were not sent because updates were coalesced, unchanged or
+     * no longer triggered by a PONG.
+     */
+    private static final LongAdder presenceMessagesSaved = new LongAdder();
+
+    /**
+     * Number of game commands and timers that were run by the lobby shards.
+     */
+    private static final LongAdder lobbyCommandsRun = new LongAdder();
+
+    /**
+     * Number of lobbies that migrated to another shard.
+     */
+    private static final LongAdder lobbyMigrations = new LongAdder();
+
+    /**
+     * Number of PING messages sent to silent clients.
+     */
+    private static final LongAdder pingsSent = new LongAdder();
+
+    /**
+     * Number of clients disconnected because they did not answer a PING.
+     */
+    private static final LongAdder heartbeatTimeouts = new LongAdder();
+
+    /**
+     * Number of turns that ended because their deadline expired.
+     */
+    private static final LongAdder turnTimeouts = new LongAdder();
+
+    /**
+     * Number of lobbies the {@link LobbyReaper} removed.
+     */
+    private static final LongAdder lobbiesReaped = new LongAdder();
+
+    /**
+     * Number of times the {@link HighscoreService} wrote the highscore file.
+     */
+    private static final LongAdder highscoreWrites = new LongAdder();
+
+    /**
+     * No instances, all counters are static.
+     */
+    private ServerMetrics() {
+    }
+
+    /**
+     * Adds the given difference to the number of queued outbound messages.
+     *
+     * @param delta The change of the queue depth.
+     */
+    static void outboundDepthChanged(long delta) {
+        outboundDepth.addAndGet(delta);
+    }
+
+    /**
+     * Counts a dropped outbound message.
+     */
+    static void messageDropped() {
+        droppedMessages.increment();
+    }
+
+    /**
+     * Counts an outbound message that was replaced by a newer snapshot.
+     */
+    static void messageCoalesced() {
+        coalescedMessages.increment();
+    }
+
+    /**
+     * Counts a client that was disconnected as a slow consumer.
+     */
+    static void slowConsumerDisconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    /**
+     * Counts one write of outbound messages to a client socket.
+     *
+     * @param bytes The number of bytes written.
+     */
+    static void outboundWritten(long bytes) {
+        outboundWrites.increment();
+        outboundBytes.add(bytes);
+    }
+
+    /**
+     * Counts a presence publication.
+     */
+    static void presencePublished() {
+        presencePublications.increment();
+    }
+
+    /**
+     * Adds to the number of presence messages that were not sent.
+     *
+     * @param messages The number of messages saved.
+     */
+    static void presenceMessagesSaved(long messages) {
+        presenceMessagesSaved.add(messages);
+    }
+
+    /**
+     * Adds to the number of lobby commands that were run.
+     *
+     * @param commands The number of commands run.
+     */
+    static void lobbyCommandsRun(long commands) {
+        lobbyCommandsRun.add(commands);
+    }
+
+    /**
+     * Counts a lobby that migrated to another shard.
+     */
+    static void lobbyMigrated() {
+        lobbyMigrations.increment();
+    }
+
+    /**
+     * Counts a PING sent to a silent client.
+     */
+    static void pingSent() {
+        pingsSent.increment();
+    }
+
+    /**
+     * Counts a client that did not answer a PING in time.
+     */
+    static void heartbeatTimeout() {
+        heartbeatTimeouts.increment();
+    }
+
+    /**
+     * Counts a turn that ended because its deadline expired.
+     */
+    static void turnTimedOut() {
+        turnTimeouts.increment();
+    }
+
+    /**
+     * Counts lobbies that the {@link LobbyReaper} removed.
+     *
+     * @param lobbies The number of removed lobbies.
+     */
+    static void lobbiesReaped(int lobbies) {
+        lobbiesReaped.add(lobbies);
+    }
+
+    /**
+     * Counts a write of the highscore file.
+     */
+    static void highscoreWritten() {
+        highscoreWrites.increment();
+    }
+
+    /**
+     * Returns the number of messages that currently wait in all outbound queues.
+     *
+     * @return the total outbound queue depth
+     */
+    public static long getOutboundDepth() {
+        return outboundDepth.get();
+    }
+
+    /**
+     * Returns the number of outbound messages dropped so far.
+     *
+     * @return the number of dropped messages
+     */
+    public static long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * Returns the number of outbound messages that were replaced by a newer snapshot.
+     *
+     * @return the number of coalesced messages
+     */
+    public static long getCoalescedMessages() {
+        return coalescedMessages.sum();
+    }
+
+    /**
+     * Returns the number of clients disconnected as slow consumers.
+     *
+     * @return the number of slow consumer disconnects
+     */
+    public static long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.sum();
+    }
+
+    /**
+     * Returns the number of writes to client sockets. Each write is one system call.
+     *
+     * @return the number of outbound writes
+     */
+    public static long getOutboundWrites() {
+        return outboundWrites.sum();
+    }
+
+    /**
+     * Returns the number of bytes written to client sockets.
+     *
+     * @return the number of outbound bytes
+     */
+    public static long getOutboundBytes() {
+        return outboundBytes.sum();
+    }
+
+    /**
+     * Returns the number of presence publications.
+     *
+     * @return the number of publications
+     */
+    public static long getPresencePublications() {
+        return presencePublications.sum();
+    }
+
+    /**
+     * Returns the number of presence messages that were not sent compared to sending every update.
+     *
+     * @return the number of messages saved
+     */
+    public static long getPresenceMessagesSaved() {
+        return presenceMessagesSaved.sum();
+    }
+
+    /**
+     * Returns the number of game commands and timers run by the lobby shards.
+     *
+     * @return the number of lobby commands
+     */
+    public static long getLobbyCommandsRun() {
+        return lobbyCommandsRun.sum();
+    }
+
+    /**
+     * Returns the number of lobbies that migrated to another shard.
+     *
+     * @return the number of migrations
+     */
+    public static long getLobbyMigrations() {
+        return lobbyMigrations.sum();
+    }
+
+    /**
+     * Returns the number of PING messages sent to silent clients.
+     *
+     * @return the number of PINGs
+     */
+    public static long getPingsSent() {
+        return pingsSent.sum();
+    }
+
+    /**
+     * Returns the number of clients disconnected because they did not answer a PING.
+     *
+     * @return the number of heartbeat timeouts
+     */
+    public static long getHeartbeatTimeouts() {
+        return heartbeatTimeouts.sum();
+    }
+
+    /**
+     * Returns the number of turns that ended because their deadline expired.
+     *
+     * @return the number of turn timeouts
+     */
+    public static long getTurnTimeouts() {
+        return turnTimeouts.sum();
+    }
+
+    /**
+     * Returns the number of lobbies the {@link LobbyReaper} removed.
+     *
+     * @return the number of reaped lobbies
+     */
+    public static long getLobbiesReaped() {
+        return lobbiesReaped.sum();
+    }
+
+    /**
+     * Returns the number of times the {@link HighscoreService} wrote the highscore file.
+     *
+     * @return the number of highscore writes
+     */
+    public static long getHighscoreWrites() {
+        return highscoreWrites.sum();
+    }
+
+    /**
+     * Returns all counters as one line of text for the server log.
+     *
+     * @return a summary of the metrics
+     */
+    public static String summary() {
+        return "outbound depth=" + getOutboundDepth()
+                + ", dropped=" + getDroppedMessages()
+                + ", coalesced=" + getCoalescedMessages()
+                + ", slow consumers=" + getSlowConsumerDisconnects()
+                + ", writes=" + getOutboundWrites()
+                + ", bytes=" + getOutboundBytes()
+                + ", presence publications=" + getPresencePublications()
+                + ", presence messages saved=" + getPresenceMessagesSaved()
+                + ", lobby commands=" + getLobbyCommandsRun()
+                + ", lobby migrations=" + getLobbyMigrations()
+                + ", lobby shards=" + Server.shards.summary()
+                + ", game lobbies=" + Server.reaper.summary()
+                + ", lobbies reaped=" + getLobbiesReaped()
+                + ", pending timers=" + Server.timers.getPendingTimers()
+                + ", pings=" + getPingsSent()
+                + ", heartbeat timeouts=" + getHeartbeatTimeouts()
+                + ", turn timeouts=" + getTurnTimeouts()
+                + ", highscore writes=" + getHighscoreWrites()
+                + String.format(", mean rtt=%.1f ms", Server.heartbeats.getMeanRoundTripMillis());
+    }
+}
@@ -0,0 +1,117 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ServerTimers} own the timers of the server: the end of a game, the grace period before
+ * an empty server shuts down, the heartbeat deadlines of the clients and the turn deadlines. All of
+ * them wait on one daemon thread, so a timer is an entry in a queue and not a sleeping thread.
+ * <p>
+ * A timer only decides when something happens. The work itself is handed to the executor it belongs
+ * to, e.g. the {@link LobbyMailbox} of a lobby, so it runs in order with the other commands there.
+ * Cancelled timers are removed from the queue at once, so games that are restarted or left early do
+ * not leave timers behind.
+ * </p>
+ */
+public class ServerTimers {
+
+    /**
+     * Logger for timers that fail.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(ServerTimers.class);
+
+    /**
+     * The executor whose thread waits for all timers.
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Creates the timers with their own daemon thread.
+     *
+     * @param threadName The name of the timer thread.
+     */
+    public ServerTimers(String threadName) {
+        executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Runs a short task on the timer thread after a delay. Longer work should be handed to another
+     * executor with {@link #schedule(Executor, Runnable, long, TimeUnit)}.
+     *
+     * @param task  The task.
+     * @param delay The delay.
+     * @param unit  The unit of the delay.
+     * @return the future of the timer, which can be cancelled
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(() -> runLogged(task), delay, unit);
+    }
+
+    /**
+     * Hands a task to an executor after a delay.
+     *
+     * @param target The executor that runs the task.
+     * @param task   The task.
+     * @param delay  The delay.
+     * @param unit   The unit of the delay.
+     * @return the future of the timer, which can be cancelled until the task was handed over
+     */
+    public ScheduledFuture<?> schedule(Executor target, Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(() -> runLogged(() -> target.execute(task)), delay, unit);
+    }
+
+    /**
+     * Runs a short task on the timer thread again and again.
+     *
+     * @param task   The task.
+     * @param delay  The delay before the first run.
+     * @param period The time between two runs.
+     * @param unit   The unit of the delay and the period.
+     * @return the future of the timer, which can be cancelled
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long delay, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(() -> runLogged(task), delay, period, unit);
+    }
+
+    /**
+     * Returns the number of timers that wait to expire.
+     *
+     * @return the number of pending timers
+     */
+    public int getPendingTimers() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Cancels all timers and stops the timer thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a task and logs its failure, so a failing timer neither stays silent nor stops a periodic
+     * one.
+     *
+     * @param task The task.
+     */
+    private static void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while running a timer", e);
+        }
+    }
+}
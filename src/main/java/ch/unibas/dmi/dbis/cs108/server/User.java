@@ -1,6 +1,7 @@
 package ch.unibas.dmi.dbis.cs108.server;
 
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class represents a connected user. It stores the user ID, the current nickname, and an
@@ -14,12 +15,18 @@ import java.io.OutputStream;
 public class User {
 
     private final int id;
-    private String nickname;
+    private volatile String nickname;
     private final OutputStream out;
     private String bikeColor;
     private boolean hasRolled;
     private int rollCount;
 
+    /**
+     * The lobby the user is currently in. Maintained by {@link Lobby#addPlayers(int)} and
+     * {@link Lobby#removePlayer(String)}.
+     */
+    private final AtomicReference<Lobby> lobby = new AtomicReference<>();
+
     /**
      * Constructor for creating a new user.
      *
@@ -63,6 +70,34 @@ public class User {
         this.nickname = nickname;
     }
 
+    /**
+     * Returns the lobby the user is currently in.
+     *
+     * @return The lobby, or null if the user is in no lobby
+     */
+    public Lobby getLobby() {
+        return lobby.get();
+    }
+
+    /**
+     * Records that the user joined a lobby.
+     *
+     * @param lobby The lobby the user is now in
+     */
+    void enterLobby(Lobby lobby) {
+        this.lobby.set(lobby);
+    }
+
+    /**
+     * Records that the user left a lobby. Has no effect if the user has already moved to another
+     * lobby.
+     *
+     * @param lobby The lobby the user left
+     */
+    void leaveLobby(Lobby lobby) {
+        this.lobby.compareAndSet(lobby, null);
+    }
+
     /**
      * Returns the OutputStream used for communication with the client.
      *
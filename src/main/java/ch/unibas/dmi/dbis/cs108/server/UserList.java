@@ -2,15 +2,22 @@ package ch.unibas.dmi.dbis.cs108.server;
 
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-
-import static ch.unibas.dmi.dbis.cs108.server.Server.lobbies;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class manages a list of users connected to the server. It provides methods for adding,
  * removing, and retrieving user information.
+ * <p>
+ * Besides the users by ID, the list keeps an index from the lower-case nickname to the user, so that
+ * the lookups by nickname in the loops over lobby members take constant time. Adding, renaming and
+ * removing a user change both maps under one lock; the lookups themselves do not lock.
+ * </p>
  *
  * @author milo
  */
@@ -19,6 +26,18 @@ public class UserList {
     private static final ConcurrentHashMap<Integer, User> userMap = new ConcurrentHashMap<>();
     private static final AtomicInteger userIdCounter = new AtomicInteger(0);
 
+    /**
+     * The users by their normalized nickname (see {@link #normalize(String)}). If several users have
+     * the same nickname, the one that got it first is indexed.
+     */
+    private static final ConcurrentHashMap<String, User> nameIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Lock that keeps {@link #userMap} and {@link #nameIndex} consistent while users are added,
+     * renamed or removed.
+     */
+    private static final ReentrantLock indexLock = new ReentrantLock();
+
     /**
      * Adds a new user to the list.
      *
@@ -29,7 +48,14 @@ public class UserList {
 
     public static int addUser(String userName, OutputStream out) {
         int userId = userIdCounter.incrementAndGet();
-        userMap.put(userId, new User(userId, userName, out));
+        User user = new User(userId, userName, out);
+        indexLock.lock();
+        try {
+            userMap.put(userId, user);
+            nameIndex.putIfAbsent(normalize(userName), user);
+        } finally {
+            indexLock.unlock();
+        }
         return userId;
     }
 
@@ -41,8 +67,17 @@ public class UserList {
      */
 
     public static String removeUser(int userId) {
-        User user = userMap.remove(userId);
-        return (user != null) ? user.getNickname() : null;
+        indexLock.lock();
+        try {
+            User user = userMap.remove(userId);
+            if (user == null) {
+                return null;
+            }
+            unindex(user);
+            return user.getNickname();
+        } finally {
+            indexLock.unlock();
+        }
     }
 
     /**
@@ -58,15 +93,15 @@ public class UserList {
     }
 
     /**
-     * Checks whether a nickname already exists in the UserList.
+     * Checks whether a nickname already exists in the UserList. Nicknames that only differ in case
+     * count as the same, because the lookups by nickname ignore the case.
      *
      * @param nickname The nickname to check.
      * @return true if the nickname already exists, false otherwise.
      */
 
     public static boolean containsUserName(String nickname) {
-        return userMap.values().stream()
-                .anyMatch(user -> user.getNickname().equals(nickname));
+        return nickname != null && nameIndex.containsKey(normalize(nickname));
     }
 
     /**
@@ -79,14 +114,15 @@ public class UserList {
     public static void updateUserName(int userId, String newNickname) {
         User user = userMap.get(userId);
         String oldNickname = user.getNickname();
-        user.setNickname(newNickname);
-        Lobby userLobby = null;
-        for (Lobby lobby : lobbies) {
-            if (lobby.getPlayers().contains(oldNickname)) {
-                userLobby = lobby;
-                break;
-            }
+        indexLock.lock();
+        try {
+            unindex(user);
+            user.setNickname(newNickname);
+            nameIndex.putIfAbsent(normalize(newNickname), user);
+        } finally {
+            indexLock.unlock();
         }
+        Lobby userLobby = user.getLobby();
         if (userLobby != null) {
             userLobby.updateUsername(oldNickname, newNickname);
         }
@@ -104,18 +140,16 @@ public class UserList {
     }
 
     /**
-     * This method can be used to retrieve the user's ID if only the user's nickname is known. This is
-     * done with a for-loop, which checks all User-objects. If the specified nickname matches one in
-     * the list, the ID of the user is returned.
+     * This method can be used to retrieve the user's ID if only the user's nickname is known. The
+     * nickname is looked up in the index, ignoring the case.
      *
      * @param nickname The nickname of the user from whom the ID is to be retrieved.
      * @return The ID of the user with the specific nickname.
      */
     public static int getUserId(String nickname) {
-        for (User user : userMap.values()) {
-            if (user.getNickname().equalsIgnoreCase(nickname)) {
-                return user.getId();
-            }
+        User user = findUser(nickname);
+        if (user != null) {
+            return user.getId();
         }
         // Handle case where user is not found, e.g., throw exception or return a special value.
         System.err.println("User with nickname '" + nickname + "' not found.");
@@ -129,15 +163,24 @@ public class UserList {
      * @return the user-object or null, if no user with such a nickname exists.
      */
     public static User getUserByName(String nickname) {
-        for (User user : userMap.values()) {
-            if (user.getNickname().equalsIgnoreCase(nickname)) {
-                return user;
-            }
+        User user = findUser(nickname);
+        if (user != null) {
+            return user;
         }
         System.err.println("User with nickname '" + nickname + "' not found.");
         return null;
     }
 
+    /**
+     * Looks up a user by nickname, ignoring the case, without reporting a missing user.
+     *
+     * @param nickname nickname of searched user.
+     * @return the user-object or null, if no user with such a nickname exists.
+     */
+    static User findUser(String nickname) {
+        return (nickname != null) ? nameIndex.get(normalize(nickname)) : null;
+    }
+
     /**
      * Returns a list of all currently connected users' nicknames.
      *
@@ -151,11 +194,72 @@ public class UserList {
         return usernames;
     }
 
+    /**
+     * Returns all currently connected users, ordered by their ID.
+     *
+     * @return List of users
+     */
+    public static List<User> getAllUsers() {
+        List<User> users = new ArrayList<>(userMap.values());
+        users.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return users;
+    }
+
+    /**
+     * Returns a live view of all currently connected users, in no particular order. Unlike
+     * {@link #getAllUsers()} nothing is copied or sorted; users that join or leave while the view is
+     * iterated may or may not be seen.
+     *
+     * @return the connected users
+     */
+    public static Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(userMap.values());
+    }
+
     /**
      * Clears the user list and resets the ID counter. Useful for unit tests.
      */
     public static void clear() {
-        userMap.clear();
-        userIdCounter.set(0);
+        indexLock.lock();
+        try {
+            userMap.clear();
+            nameIndex.clear();
+            userIdCounter.set(0);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the key of a nickname in the index.
+     *
+     * @param nickname The nickname.
+     * @return the nickname in lower case
+     */
+    static String normalize(String nickname) {
+        return nickname.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes a user from the nickname index. If another user has the same nickname, that user is
+     * indexed instead. Must be called while holding {@link #indexLock}.
+     *
+     * @param user The user whose nickname is removed.
+     */
+    private static void unindex(User user) {
+        String key = normalize(user.getNickname());
+        if (!nameIndex.remove(key, user)) {
+            return;
+        }
+        User next = null;
+        for (User other : userMap.values()) {
+            if (other != user && normalize(other.getNickname()).equals(key)
+                    && (next == null || other.getId() < next.getId())) {
+                next = other;
+            }
+        }
+        if (next != null) {
+            nameIndex.put(key, next);
+        }
     }
 }
\ No newline at end of file
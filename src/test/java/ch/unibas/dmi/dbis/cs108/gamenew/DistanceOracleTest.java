@@ -0,0 +1,77 @@
+package ch.unibas.dmi.dbis.cs108.gamenew;
+
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
+import ch.unibas.dmi.dbis.cs108.game.DistanceOracle;
+import ch.unibas.dmi.dbis.cs108.game.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link DistanceOracle} of the standard board.
+ */
+public class DistanceOracleTest {
+
+  /**
+   * The standard board.
+   */
+  private final BoardTopology topology = BoardTopology.STANDARD;
+
+  /**
+   * Verifies a few known distances and the finish fields.
+   */
+  @Test
+  void testKnownDistances() {
+    DistanceOracle oracle = topology.getDistances();
+    Field white1 = topology.getFieldById("white1");
+    Field yellow1 = topology.getFieldById("yellow1");
+    Field blue10 = topology.getFieldById("blue10");
+
+    assertSame(oracle, topology.getDistances());
+    assertEquals(0, oracle.distance(white1, white1));
+    assertEquals(1, oracle.distance(white1, yellow1));
+    assertEquals(0, oracle.distanceToFinish(blue10));
+    assertEquals(1, oracle.distanceToFinish(topology.getFieldById("orange10")));
+    assertTrue(topology.isFinish(topology.getFieldById("pink10")));
+    assertFalse(topology.isFinish(white1));
+    assertEquals(DistanceOracle.UNREACHABLE, oracle.distance(yellow1, white1));
+  }
+
+  /**
+   * Verifies every distance against a breadth-first search over the neighbor sets of the fields.
+   */
+  @Test
+  void testMatchesSearchOverNeighborSets() {
+    DistanceOracle oracle = topology.getDistances();
+    for (int from = 0; from < topology.size(); from++) {
+      Map<Field, Integer> expected = new HashMap<>();
+      Queue<Field> queue = new ArrayDeque<>();
+      expected.put(topology.getField(from), 0);
+      queue.add(topology.getField(from));
+      while (!queue.isEmpty()) {
+        Field field = queue.poll();
+        for (Field neighbor : field.getNeighbors()) {
+          if (!expected.containsKey(neighbor)) {
+            expected.put(neighbor, expected.get(field) + 1);
+            queue.add(neighbor);
+          }
+        }
+      }
+      int finish = Math.min(
+          expected.getOrDefault(topology.getFieldById("blue10"), Integer.MAX_VALUE),
+          expected.getOrDefault(topology.getFieldById("pink10"), Integer.MAX_VALUE));
+      for (int to = 0; to < topology.size(); to++) {
+        assertEquals(expected.getOrDefault(topology.getField(to), DistanceOracle.UNREACHABLE),
+            oracle.distance(from, to));
+      }
+      assertEquals(finish == Integer.MAX_VALUE ? DistanceOracle.UNREACHABLE : finish,
+          oracle.distanceToFinish(from));
+    }
+    assertNotEquals(DistanceOracle.UNREACHABLE, oracle.distanceToFinish(topology.getStartField()));
+  }
+}
@@ -398,5 +398,36 @@ class GameBoardTest {
     assertNull(board.getLastSelectedField(), "getLastSelectedField should return null after clearing");
   }
 
+  /**
+   * Verifies that two boards share the fields of the standard topology but keep their own current
+   * field and selection.
+   */
+  @Test
+  void testBoardsShareTopologyButNotState() {
+    GameBoard other = new GameBoard();
+    assertSame(board.getTopology(), other.getTopology());
+    assertSame(board.getFieldById("blue3"), other.getFieldById("blue3"));
+    assertEquals(55, board.getTopology().size());
 
+    board.setCurrentField(board.getFieldById("purple1"));
+    board.addSelectedField(board.getFieldById("red1"));
+
+    assertEquals("purple1", board.getCurrentField().getFieldId());
+    assertEquals("white1", other.getCurrentField().getFieldId());
+    assertTrue(other.selectedFieldsEmpty());
+  }
+
+  /**
+   * Verifies that the shared fields cannot be changed and that only fields of the board can become
+   * the current field.
+   */
+  @Test
+  void testTopologyIsReadOnly() {
+    Field white1 = board.getFieldById("white1");
+    assertThrows(UnsupportedOperationException.class,
+        () -> white1.addNeighbor(board.getFieldById("blue10")));
+    assertThrows(IllegalArgumentException.class,
+        () -> board.setCurrentField(new Field("nonexistent1", "yellow")));
+    assertEquals(white1, board.getTopology().getField(white1.getIndex()));
+  }
 }
@@ -0,0 +1,82 @@
+package ch.unibas.dmi.dbis.cs108.gamenew;
+
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
+import ch.unibas.dmi.dbis.cs108.game.GameSimulator;
+import ch.unibas.dmi.dbis.cs108.game.SimulationResult;
+import ch.unibas.dmi.dbis.cs108.game.SimulationStrategy;
+import ch.unibas.dmi.dbis.cs108.game.Tablebase;
+import ch.unibas.dmi.dbis.cs108.game.TablebaseSolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link GameSimulator}.
+ */
+public class GameSimulatorTest {
+
+  /**
+   * Verifies that greedy players finish every game and that the wins of all seats add up.
+   */
+  @Test
+  void testGreedyGamesFinish() {
+    SimulationResult result = new GameSimulator(SimulationStrategy.GREEDY, SimulationStrategy.GREEDY,
+        SimulationStrategy.GREEDY).run(2_000, 1);
+
+    assertEquals(2_000, result.getGames());
+    assertEquals(0, result.getUnfinished());
+    assertEquals(result.getGames(), result.getWins(0) + result.getWins(1) + result.getWins(2));
+    assertTrue(result.getMeanRollsToWin() > 1);
+    assertTrue(result.getRollsToWinQuantile(0.5) <= result.getRollsToWinQuantile(0.9));
+    assertTrue(result.getGamesPerSecond() > 0);
+  }
+
+  /**
+   * Verifies that a simulation with the same seed gives the same result, although the games run in
+   * parallel.
+   */
+  @Test
+  void testSameSeedSameResult() {
+    GameSimulator simulator = new GameSimulator(SimulationStrategy.RANDOM, SimulationStrategy.GREEDY);
+    SimulationResult first = simulator.run(1_000, 42);
+    SimulationResult second = simulator.run(1_000, 42);
+
+    assertEquals(first.getWins(0), second.getWins(0));
+    assertEquals(first.getUnfinished(), second.getUnfinished());
+    assertEquals(first.getMeanRollsToWin(), second.getMeanRollsToWin());
+  }
+
+  /**
+   * Verifies that the optimal strategy of the tablebase beats a random player and needs fewer rolls
+   * than a greedy one.
+   */
+  @Test
+  void testOptimalStrategyWins(@TempDir Path dir) throws IOException {
+    TablebaseSolver solver = new TablebaseSolver(BoardTopology.STANDARD);
+    solver.solve();
+    Path file = dir.resolve(Tablebase.DEFAULT_FILE);
+    solver.write(file);
+    SimulationStrategy optimal = SimulationStrategy.optimal(Tablebase.load(BoardTopology.STANDARD, file));
+
+    SimulationResult result = new GameSimulator(optimal, SimulationStrategy.RANDOM).run(2_000, 7);
+    assertTrue(result.getWinRate(0) > 0.5, "Expected the optimal player to win most games.");
+
+    double greedy = new GameSimulator(SimulationStrategy.GREEDY, SimulationStrategy.GREEDY)
+        .run(2_000, 7).getMeanRollsToWin();
+    double best = new GameSimulator(optimal, optimal).run(2_000, 7).getMeanRollsToWin();
+    System.out.println("Rolls to win with two players: " + greedy + " greedy, " + best + " optimal");
+    assertTrue(best <= greedy + 0.5);
+  }
+
+  /**
+   * Verifies that games need 2 to 4 players.
+   */
+  @Test
+  void testPlayerCount() {
+    assertThrows(IllegalArgumentException.class, () -> new GameSimulator(SimulationStrategy.GREEDY));
+  }
+}
@@ -0,0 +1,93 @@
+package ch.unibas.dmi.dbis.cs108.gamenew;
+
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
+import ch.unibas.dmi.dbis.cs108.game.Field;
+import ch.unibas.dmi.dbis.cs108.game.GameBoard;
+import ch.unibas.dmi.dbis.cs108.game.MoveGenerator;
+import ch.unibas.dmi.dbis.cs108.game.ReachableFields;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MoveGenerator}.
+ */
+public class MoveGeneratorTest {
+
+  /**
+   * The colors of the dice.
+   */
+  private static final String[] DICE_COLORS = {"purple", "yellow", "orange", "blue", "pink", "red"};
+
+  /**
+   * Verifies the reachable fields from the start with a small roll.
+   */
+  @Test
+  void testReachableFromStart() {
+    MoveGenerator generator = new MoveGenerator(BoardTopology.STANDARD);
+    GameBoard board = new GameBoard();
+    ReachableFields reachable = generator.generate(board, new String[]{"yellow", "red", null});
+
+    assertEquals(List.of("yellow1", "red1"), reachable.getFieldIds());
+    assertEquals(List.of(board.getFieldById("yellow1"), board.getFieldById("red1")),
+        reachable.getChain(board.getFieldById("red1")));
+    assertTrue(reachable.getChain(board.getFieldById("blue1")).isEmpty());
+  }
+
+  /**
+   * Verifies that rolls with the same colors in a different order share one memoized result.
+   */
+  @Test
+  void testMemoizedPerColors() {
+    MoveGenerator generator = new MoveGenerator(BoardTopology.STANDARD);
+    Field start = BoardTopology.STANDARD.getStartField();
+    ReachableFields first = generator.generate(start, new String[]{"blue", "yellow", "red"});
+    ReachableFields second = generator.generate(start, new String[]{"red", "blue", "yellow"});
+
+    assertSame(first, second);
+    assertEquals(1, generator.cacheSize());
+  }
+
+  /**
+   * Verifies on random positions and rolls that every best chain is accepted by the board, one
+   * field after the other, and that every field the board accepts as first selection is reachable.
+   */
+  @Test
+  void testChainsAreValidSelections() {
+    Random random = new Random(3);
+    BoardTopology topology = BoardTopology.STANDARD;
+    for (int round = 0; round < 500; round++) {
+      Field from = topology.getField(random.nextInt(topology.size()));
+      String[] roll = new String[6];
+      for (int i = 0; i < roll.length; i++) {
+        roll[i] = DICE_COLORS[random.nextInt(DICE_COLORS.length)];
+      }
+      ReachableFields reachable = MoveGenerator.STANDARD.generate(from, roll);
+
+      for (String fieldId : reachable.getFieldIds()) {
+        GameBoard board = new GameBoard();
+        board.setCurrentField(from);
+        board.setLastRoll(roll.clone());
+        List<Field> chain = reachable.getChain(board.getFieldById(fieldId));
+        assertEquals(fieldId, chain.getLast().getFieldId());
+        for (Field field : chain) {
+          assertTrue(board.isValidField(field.getFieldId()), field.getFieldId() + " in chain to " + fieldId);
+          board.addSelectedField(field);
+        }
+      }
+      for (int i = 0; i < topology.size(); i++) {
+        Field target = topology.getField(i);
+        GameBoard board = new GameBoard();
+        board.setCurrentField(from);
+        board.setLastRoll(roll.clone());
+        if (target != from && board.isValidField(target.getFieldId())) {
+          assertTrue(reachable.contains(target), target.getFieldId() + " from " + from.getFieldId());
+          assertEquals(1, reachable.getChain(target).size());
+        }
+      }
+    }
+  }
+}
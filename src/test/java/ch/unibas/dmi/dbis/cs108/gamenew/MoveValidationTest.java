@@ -0,0 +1,168 @@
+package ch.unibas.dmi.dbis.cs108.gamenew;
+
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
+import ch.unibas.dmi.dbis.cs108.game.Field;
+import ch.unibas.dmi.dbis.cs108.game.GameBoard;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the move validation of the {@link GameBoard} with the neighbor masks of the
+ * {@link BoardTopology} against the validation with neighbor sets it replaced.
+ */
+public class MoveValidationTest {
+
+  /**
+   * The colors of the dice.
+   */
+  private static final String[] DICE_COLORS = {"purple", "yellow", "orange", "blue", "pink", "red"};
+
+  /**
+   * The validation with neighbor sets and a regular expression, as it was before the masks.
+   */
+  private static boolean isValidFieldWithSets(GameBoard board, List<Field> selected, String fieldId) {
+    Field targetField = board.getFieldById(fieldId);
+    String fieldColor = fieldId.split("\\d")[0];
+    boolean isNeighbor = board.getCurrentField().getNeighbors().contains(targetField);
+    boolean isConnectedNeighbor = false;
+    for (Field selectedField : selected) {
+      if (selectedField.getNeighbors().contains(targetField)) {
+        isConnectedNeighbor = true;
+        break;
+      }
+    }
+    if (isNeighbor || isConnectedNeighbor) {
+      for (int i = 0; i < board.colors.length; i++) {
+        if (fieldColor.equals(board.colors[i])) {
+          board.colors[i] = null;
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates a board with a random current field, up to three selected fields and a random roll.
+   */
+  private static GameBoard randomBoard(Random random, List<Field> selected) {
+    BoardTopology topology = BoardTopology.STANDARD;
+    GameBoard board = new GameBoard();
+    board.setCurrentField(topology.getField(random.nextInt(topology.size())));
+    int count = random.nextInt(4);
+    for (int i = 0; i < count; i++) {
+      Field field = topology.getField(random.nextInt(topology.size()));
+      board.addSelectedField(field);
+      selected.add(field);
+    }
+    String[] roll = new String[6];
+    for (int i = 0; i < roll.length; i++) {
+      roll[i] = DICE_COLORS[random.nextInt(DICE_COLORS.length)];
+    }
+    board.setLastRoll(roll);
+    return board;
+  }
+
+  /**
+   * Verifies on many random boards that both validations accept the same fields and use up the same
+   * colors.
+   */
+  @Test
+  void testMasksMatchNeighborSets() {
+    Random random = new Random(42);
+    BoardTopology topology = BoardTopology.STANDARD;
+    for (int round = 0; round < 2_000; round++) {
+      long seed = random.nextLong();
+      List<Field> selected = new ArrayList<>();
+      GameBoard withMasks = randomBoard(new Random(seed), selected);
+      GameBoard withSets = randomBoard(new Random(seed), new ArrayList<>());
+      String fieldId = topology.getField(random.nextInt(topology.size())).getFieldId();
+
+      assertEquals(isValidFieldWithSets(withSets, selected, fieldId), withMasks.isValidField(fieldId),
+          "Validation differs for " + fieldId);
+      assertArrayEquals(withSets.colors, withMasks.colors);
+    }
+  }
+
+  /**
+   * Verifies that the frontier follows the selection: selecting a field adds its neighbors, and
+   * deselecting it removes them again.
+   */
+  @Test
+  void testFrontierFollowsSelection() {
+    GameBoard board = new GameBoard();
+    BoardTopology topology = board.getTopology();
+    Field white1 = board.getFieldById("white1");
+    Field yellow1 = board.getFieldById("yellow1");
+    assertEquals(topology.getNeighborMask(white1.getIndex()), board.getFrontierMask());
+
+    board.addSelectedField(yellow1);
+    assertTrue(board.inSelectedField(yellow1));
+    assertNotEquals(0, board.getFrontierMask() & BoardTopology.mask(board.getFieldById("red1")));
+
+    board.setLastRoll(new String[]{null, null, null, null, null, null});
+    board.deselectFields(yellow1);
+    assertEquals(0, board.getSelectedMask());
+    assertEquals(topology.getNeighborMask(white1.getIndex()), board.getFrontierMask());
+    assertEquals(10, Long.bitCount(topology.getColorMask("blue")));
+  }
+
+  /**
+   * Compares the validation with masks against the validation with neighbor sets.
+   */
+  @Test
+  void testValidationBenchmark() {
+    Random random = new Random(7);
+    int boards = 1_000;
+    List<GameBoard> maskBoards = new ArrayList<>();
+    List<GameBoard> setBoards = new ArrayList<>();
+    List<List<Field>> selections = new ArrayList<>();
+    String[] targets = new String[boards];
+    String[][] rolls = new String[boards][];
+    for (int i = 0; i < boards; i++) {
+      long seed = random.nextLong();
+      List<Field> selected = new ArrayList<>();
+      maskBoards.add(randomBoard(new Random(seed), new ArrayList<>()));
+      setBoards.add(randomBoard(new Random(seed), selected));
+      selections.add(selected);
+      rolls[i] = maskBoards.get(i).colors.clone();
+      targets[i] = BoardTopology.STANDARD.getField(random.nextInt(BoardTopology.STANDARD.size())).getFieldId();
+    }
+
+    long setNanos = Long.MAX_VALUE;
+    long maskNanos = Long.MAX_VALUE;
+    int valid = 0;
+    for (int round = 0; round < 20; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < boards; i++) {
+        GameBoard board = setBoards.get(i);
+        board.colors = Arrays.copyOf(rolls[i], 6);
+        if (isValidFieldWithSets(board, selections.get(i), targets[i])) {
+          valid++;
+        }
+      }
+      setNanos = Math.min(setNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < boards; i++) {
+        GameBoard board = maskBoards.get(i);
+        board.colors = Arrays.copyOf(rolls[i], 6);
+        if (board.isValidField(targets[i])) {
+          valid--;
+        }
+      }
+      maskNanos = Math.min(maskNanos, System.nanoTime() - start);
+    }
+    System.out.println("Move validation: " + setNanos / boards + " ns with neighbor sets, "
+        + maskNanos / boards + " ns with masks");
+
+    assertEquals(0, valid);
+    assertTrue(maskNanos < setNanos, "Expected the masks to be faster than the neighbor sets.");
+  }
+}
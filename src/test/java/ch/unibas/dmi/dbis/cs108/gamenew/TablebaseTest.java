@@ -0,0 +1,123 @@
+package ch.unibas.dmi.dbis.cs108.gamenew;
+
+import ch.unibas.dmi.dbis.cs108.game.BoardTopology;
+import ch.unibas.dmi.dbis.cs108.game.Field;
+import ch.unibas.dmi.dbis.cs108.game.MoveGenerator;
+import ch.unibas.dmi.dbis.cs108.game.Tablebase;
+import ch.unibas.dmi.dbis.cs108.game.TablebaseSolver;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TablebaseSolver} and the {@link Tablebase} it writes.
+ */
+public class TablebaseTest {
+
+  /**
+   * The colors of the dice.
+   */
+  private static final String[] DICE_COLORS = {"purple", "yellow", "orange", "blue", "pink", "red"};
+
+  /**
+   * The solved standard board.
+   */
+  private static TablebaseSolver solver;
+
+  /**
+   * Solves the standard board once for all tests.
+   */
+  @BeforeAll
+  static void solve() {
+    solver = new TablebaseSolver(BoardTopology.STANDARD);
+    solver.solve();
+  }
+
+  /**
+   * Verifies that every full roll gets a number below {@link Tablebase#ROLL_COUNT} and that rolls
+   * with the same colors get the same number.
+   */
+  @Test
+  void testRollIndexIgnoresOrder() {
+    Random random = new Random(11);
+    Set<Integer> indexes = new HashSet<>();
+    for (int i = 0; i < 20_000; i++) {
+      String[] roll = new String[6];
+      for (int d = 0; d < roll.length; d++) {
+        roll[d] = DICE_COLORS[random.nextInt(DICE_COLORS.length)];
+      }
+      int index = Tablebase.rollIndex(roll);
+      assertTrue(index >= 0 && index < Tablebase.ROLL_COUNT);
+      String[] reversed = {roll[5], roll[4], roll[3], roll[2], roll[1], roll[0]};
+      assertEquals(index, Tablebase.rollIndex(reversed));
+      indexes.add(index);
+    }
+    assertEquals(462, Tablebase.ROLL_COUNT);
+    assertTrue(indexes.size() > 400, "Expected most rolls to appear");
+    assertThrows(IllegalArgumentException.class, () -> Tablebase.rollIndex(new String[]{"red", null}));
+  }
+
+  /**
+   * Verifies the solved values: 0 on the finish, finite and larger than the distance elsewhere,
+   * and the best move always leads to a reachable field with a smaller value.
+   */
+  @Test
+  void testSolvedValues() {
+    BoardTopology topology = BoardTopology.STANDARD;
+    Field start = topology.getStartField();
+    assertEquals(0, solver.expectedRolls(topology.getFieldById("blue10").getIndex()));
+    double fromStart = solver.expectedRolls(start.getIndex());
+    assertTrue(fromStart > 1 && Double.isFinite(fromStart), "From the start: " + fromStart);
+    System.out.println("Tablebase solved in " + solver.getIterations() + " iterations, "
+        + fromStart + " rolls expected from the start");
+
+    String[] roll = {"yellow", "red", "purple", "blue", "pink", "orange"};
+    int target = solver.bestMove(start.getIndex(), Tablebase.rollIndex(roll));
+    assertTrue(target >= 0);
+    assertTrue(MoveGenerator.STANDARD.generate(start, roll).contains(topology.getField(target)));
+    assertTrue(solver.expectedRolls(target) < fromStart);
+  }
+
+  /**
+   * Verifies that the written file is mapped with the same values and moves.
+   */
+  @Test
+  void testWriteAndLoad(@TempDir Path dir) throws IOException {
+    BoardTopology topology = BoardTopology.STANDARD;
+    Path file = dir.resolve(Tablebase.DEFAULT_FILE);
+    solver.write(file);
+    Tablebase tablebase = Tablebase.load(topology, file);
+
+    Random random = new Random(5);
+    for (int i = 0; i < 1_000; i++) {
+      Field field = topology.getField(random.nextInt(topology.size()));
+      String[] roll = new String[6];
+      for (int d = 0; d < roll.length; d++) {
+        roll[d] = DICE_COLORS[random.nextInt(DICE_COLORS.length)];
+      }
+      assertEquals((float) solver.expectedRolls(field.getIndex()), tablebase.expectedRolls(field));
+      int best = solver.bestMove(field.getIndex(), Tablebase.rollIndex(roll));
+      Field move = tablebase.bestMove(field, roll);
+      assertEquals(best, move == null ? -1 : move.getIndex());
+    }
+  }
+
+  /**
+   * Verifies that a file that is not a tablebase is rejected.
+   */
+  @Test
+  void testRejectsOtherFiles(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("other.tablebase");
+    Files.write(file, new byte[64]);
+    assertThrows(IOException.class, () -> Tablebase.load(BoardTopology.STANDARD, file));
+  }
+}
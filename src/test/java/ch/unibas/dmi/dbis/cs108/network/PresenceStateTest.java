@@ -0,0 +1,83 @@
+package ch.unibas.dmi.dbis.cs108.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the versioned {@link PresenceState}.
+ */
+public class PresenceStateTest {
+
+  /**
+   * Verifies that a client state built from a snapshot follows the deltas of the server and ends up
+   * with the same snapshot.
+   */
+  @Test
+  void testDeltasReproduceSnapshot() {
+    PresenceState server = new PresenceState();
+    server.setVersion(0);
+    PresenceState client = new PresenceState();
+    client.setUsers(List.of());
+    client.setGames(List.of());
+    client.setMembers(List.of());
+    client.setVersion(0);
+
+    String[][] changes = {
+        {"ADDU", "alice"}, {"ADDU", "bob"}, {"ADDL", "Race", "open"}, {"ADDM", "Race", "alice"},
+        {"ADDM", "Race", "bob"}, {"RENU", "alice", "carol"}, {"STAL", "Race", "running"},
+        {"DELM", "Race", "bob"}, {"DELU", "bob"}
+    };
+    for (String[] change : changes) {
+      PresenceState.Op op = PresenceState.Op.valueOf(change[0]);
+      String[] args = List.of(change).subList(1, change.length).toArray(new String[0]);
+      long version = server.getVersion() + 1;
+      server.apply(op, args);
+      server.setVersion(version);
+      String message = PresenceState.deltaMessage(version, op, args);
+      assertTrue(client.applyDelta(message.substring("DLTA%".length())));
+    }
+
+    assertEquals(9, client.getVersion());
+    assertArrayEquals(server.snapshotMessages(), client.snapshotMessages());
+    assertEquals(List.of("carol"), client.getUsers());
+    assertEquals(List.of("[Lobby: Race] running"), client.getGames());
+    assertEquals(List.of("[Lobby: Race] Players: carol"), client.getMembers());
+  }
+
+  /**
+   * Verifies that a delta is rejected when the state is not synchronized or a version is missing.
+   */
+  @Test
+  void testRejectsGaps() {
+    PresenceState state = new PresenceState();
+    assertFalse(state.applyDelta("1%ADDU%alice"));
+
+    state.setVersion(5);
+    assertFalse(state.applyDelta("7%ADDU%alice"));
+    assertFalse(state.applyDelta("5%ADDU%alice"));
+    assertTrue(state.getUsers().isEmpty());
+    assertTrue(state.applyDelta("6%ADDU%alice"));
+    assertEquals(6, state.getVersion());
+    assertThrows(IllegalArgumentException.class, () -> state.applyDelta("7%ADDU"));
+  }
+
+  /**
+   * Verifies that the snapshot messages are parsed in the format the server sends.
+   */
+  @Test
+  void testParsesSnapshot() {
+    PresenceState state = new PresenceState();
+    state.setUsers(List.of("alice", "bob"));
+    state.setGames(List.of("[Lobby: Race] open", "[Lobby: Sprint] finished"));
+    state.setMembers(List.of("[Lobby: Race] Players: alice | bob", "[Lobby: Sprint] Players: "));
+
+    assertEquals("open", state.getLobbyState("Race"));
+    assertEquals(List.of("alice", "bob"), state.getLobbyMembers("Race"));
+    assertTrue(state.getLobbyMembers("Sprint").isEmpty());
+    assertEquals("LOME%[[Lobby: Race] Players: alice | bob, [Lobby: Sprint] Players: ]",
+        state.snapshotMessages()[2]);
+  }
+}
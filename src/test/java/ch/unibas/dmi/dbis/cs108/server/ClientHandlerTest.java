@@ -4,7 +4,14 @@ import ch.unibas.dmi.dbis.cs108.network.ProtocolWriterServer;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -49,4 +56,89 @@ public class ClientHandlerTest {
     // Assert: Verify message
     assertTrue(messageSent, "Expected welcome message to be sent.");
   }
+
+  /**
+   * Verifies that the handler also works when it runs with the virtual thread engine and that the
+   * handler thread ends once the reader has finished.
+   */
+  @Test
+  void testRunOnVirtualThreads() throws Exception {
+    Socket mockSocket = mock(Socket.class);
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    InputStream inStream = new ByteArrayInputStream(new byte[0]); // reader ends immediately
+
+    when(mockSocket.getOutputStream()).thenReturn(outStream);
+    when(mockSocket.getInputStream()).thenReturn(inStream);
+    when(mockSocket.isClosed()).thenReturn(false);
+
+    ClientHandler clientHandler = new ClientHandler(1, mockSocket, 1,
+        ServerEngine.VIRTUAL.connectionThreads());
+    Thread handlerThread = ServerEngine.VIRTUAL.connectionThreads().newThread(clientHandler);
+    assertTrue(handlerThread.isVirtual());
+
+    handlerThread.start();
+    handlerThread.join(1000);
+
+    assertFalse(handlerThread.isAlive(), "Handler should end when its reader has ended.");
+    assertTrue(outStream.toString().contains("Welcome to the Server!"));
+    clientHandler.disconnectClient();
+  }
+
+  /**
+   * Load test: many idle clients are connected over real sockets. The handler threads must park
+   * until their session is closed instead of spinning, so together they use almost no CPU time.
+   */
+  @Test
+  void testIdleHandlersUseNoCpu() throws Exception {
+    int clients = 50;
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    List<Socket> clientSockets = new ArrayList<>();
+    List<Thread> handlerThreads = new ArrayList<>();
+    List<ClientSession> sessions = new ArrayList<>();
+
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      for (int i = 0; i < clients; i++) {
+        clientSockets.add(new Socket("localhost", serverSocket.getLocalPort()));
+        ClientHandler handler = new ClientHandler(1000 + i, serverSocket.accept(), 1000 + i);
+        sessions.add(handler.getSession());
+        Thread handlerThread = new Thread(handler, "load-handler-" + i);
+        handlerThread.start();
+        handlerThreads.add(handlerThread);
+      }
+
+      long deadline = System.currentTimeMillis() + 5000;
+      for (Thread handlerThread : handlerThreads) {
+        while (handlerThread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+          Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, handlerThread.getState());
+      }
+
+      long cpuBefore = 0;
+      for (Thread handlerThread : handlerThreads) {
+        cpuBefore += threadBean.getThreadCpuTime(handlerThread.threadId());
+      }
+      Thread.sleep(500);
+      long cpuAfter = 0;
+      for (Thread handlerThread : handlerThreads) {
+        cpuAfter += threadBean.getThreadCpuTime(handlerThread.threadId());
+      }
+
+      // A single spinning thread alone would use about 500 ms in this window.
+      long usedMillis = TimeUnit.NANOSECONDS.toMillis(cpuAfter - cpuBefore);
+      assertTrue(usedMillis < 50, "Idle handlers used " + usedMillis + " ms of CPU time.");
+    } finally {
+      for (Socket clientSocket : clientSockets) {
+        clientSocket.close();
+      }
+    }
+
+    CompletableFuture.allOf(sessions.stream()
+        .map(ClientSession::closeFuture)
+        .toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    for (Thread handlerThread : handlerThreads) {
+      handlerThread.join(1000);
+      assertFalse(handlerThread.isAlive());
+    }
+  }
 }
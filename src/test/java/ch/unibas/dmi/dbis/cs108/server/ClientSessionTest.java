@@ -0,0 +1,126 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the lifecycle of a {@link ClientSession}.
+ */
+public class ClientSessionTest {
+
+  /**
+   * Verifies that a session moves from CONNECTING over ACTIVE to CLOSED and completes its close
+   * future.
+   */
+  @Test
+  void testStateTransitions() {
+    ClientSession session = new ClientSession(1, 7);
+    assertEquals(ClientSession.State.CONNECTING, session.getState());
+    assertTrue(session.isOpen());
+
+    assertTrue(session.activate());
+    assertEquals(ClientSession.State.ACTIVE, session.getState());
+    assertFalse(session.activate());
+
+    assertTrue(session.close());
+    assertEquals(ClientSession.State.CLOSED, session.getState());
+    assertFalse(session.isOpen());
+    assertTrue(session.closeFuture().isDone());
+    assertFalse(session.activate());
+    assertEquals(7, session.getUserId());
+  }
+
+  /**
+   * Verifies that the close hooks run once, in order, even if several threads close the session at
+   * the same time.
+   */
+  @Test
+  void testHooksRunOnceOnConcurrentClose() throws InterruptedException {
+    ClientSession session = new ClientSession(1, 1);
+    List<String> calls = new ArrayList<>();
+    session.onClose(() -> calls.add("socket"));
+    session.onClose(() -> calls.add("user"));
+    session.activate();
+
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger winners = new AtomicInteger();
+    List<Thread> closers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Thread closer = new Thread(() -> {
+        try {
+          start.await();
+          if (session.close()) {
+            winners.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      closer.start();
+      closers.add(closer);
+    }
+    start.countDown();
+    for (Thread closer : closers) {
+      closer.join(1000);
+    }
+
+    assertEquals(1, winners.get());
+    assertEquals(List.of("socket", "user"), calls);
+  }
+
+  /**
+   * Verifies that a hook registered after the close runs immediately and that a failing hook does
+   * not stop the other hooks.
+   */
+  @Test
+  void testLateHookAndFailingHook() {
+    ClientSession session = new ClientSession(1, 1);
+    AtomicInteger runs = new AtomicInteger();
+    session.onClose(() -> {
+      throw new IllegalStateException("hook failed");
+    });
+    session.onClose(runs::incrementAndGet);
+    session.close();
+    assertEquals(1, runs.get());
+
+    session.onClose(runs::incrementAndGet);
+    assertEquals(2, runs.get());
+  }
+
+  /**
+   * Verifies that a thread waiting in {@link ClientSession#awaitClose()} is parked and wakes up when
+   * the session is closed.
+   */
+  @Test
+  void testAwaitCloseParksUntilClosed() throws InterruptedException {
+    ClientSession session = new ClientSession(1, 1);
+    CountDownLatch woken = new CountDownLatch(1);
+    Thread waiter = new Thread(() -> {
+      try {
+        session.awaitClose();
+        woken.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+
+    long deadline = System.currentTimeMillis() + 1000;
+    while (waiter.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.WAITING, waiter.getState());
+    assertEquals(1, woken.getCount());
+
+    session.close();
+    assertTrue(woken.await(1, TimeUnit.SECONDS));
+  }
+}
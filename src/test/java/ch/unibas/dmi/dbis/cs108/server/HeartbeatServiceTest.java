@@ -0,0 +1,178 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link HeartbeatService}. The tests run the sweeps themselves and move the clock of
+ * the service; the interval of one hour keeps the timer from finding anything to do.
+ */
+public class HeartbeatServiceTest {
+
+  /**
+   * The interval of the tests in milliseconds.
+   */
+  private static final long INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * The interval of the tests in nanoseconds.
+   */
+  private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(INTERVAL);
+
+  /**
+   * The clock of the service in nanoseconds.
+   */
+  private final AtomicLong clock = new AtomicLong(1_000_000);
+
+  /**
+   * The timers of the service.
+   */
+  private ServerTimers timers;
+
+  /**
+   * The service under test.
+   */
+  private HeartbeatService service;
+
+  /**
+   * Creates the service.
+   */
+  @BeforeEach
+  void setup() {
+    timers = new ServerTimers("test-timers");
+    service = new HeartbeatService(timers, INTERVAL, clock::get).start();
+  }
+
+  /**
+   * Stops the service.
+   */
+  @AfterEach
+  void cleanup() {
+    service.shutdown();
+    timers.shutdown();
+  }
+
+  /**
+   * Verifies that only a client that was silent for the interval gets a PING, and that its PONG
+   * measures the round trip time.
+   */
+  @Test
+  void testPingsOnlySilentClients() {
+    ByteArrayOutputStream silentOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream busyOut = new ByteArrayOutputStream();
+    HeartbeatService.Heartbeat silent = service.register(new ClientSession(1, 101), silentOut, () -> {
+    });
+    service.register(new ClientSession(2, 102), busyOut, () -> {
+    });
+    clock.addAndGet(5_000_000);
+    service.activity(102);
+    clock.addAndGet(INTERVAL_NANOS - 1);
+
+    service.sweep();
+    assertEquals(Command.PING + Command.SEPARATOR + System.lineSeparator(), silentOut.toString());
+    assertEquals("", busyOut.toString());
+    assertEquals(-1, silent.getRoundTripMillis());
+
+    clock.addAndGet(3_000_000);
+    service.pongReceived(101);
+    assertEquals(3.0, silent.getRoundTripMillis());
+    assertEquals(3.0, service.getMeanRoundTripMillis());
+  }
+
+  /**
+   * Verifies that a client that does not answer gets a QCNF and is disconnected after another
+   * interval.
+   */
+  @Test
+  void testSilentClientTimesOut() throws InterruptedException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CountDownLatch disconnected = new CountDownLatch(1);
+    service.register(new ClientSession(1, 101), out, disconnected::countDown);
+    clock.addAndGet(INTERVAL_NANOS);
+    service.sweep();
+    clock.addAndGet(INTERVAL_NANOS - 1);
+    service.sweep();
+    assertEquals(1, disconnected.getCount());
+
+    clock.incrementAndGet();
+    service.sweep();
+    assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+    assertTrue(out.toString().contains("QCNF"));
+    assertNull(service.get(101));
+  }
+
+  /**
+   * Verifies that any message after a PING counts as an answer.
+   */
+  @Test
+  void testAnyMessageCountsAsAnswer() {
+    CountDownLatch disconnected = new CountDownLatch(1);
+    ClientSession session = new ClientSession(1, 101);
+    service.register(session, new ByteArrayOutputStream(), disconnected::countDown);
+    clock.addAndGet(INTERVAL_NANOS);
+    service.sweep();
+
+    clock.incrementAndGet();
+    service.activity(101);
+    clock.addAndGet(INTERVAL_NANOS - 1);
+    service.sweep();
+    assertEquals(1, disconnected.getCount());
+    assertNotNull(service.get(101));
+
+    session.close();
+    assertNull(service.get(101));
+  }
+
+  /**
+   * Verifies that a message that arrives between the PING and the PONG does not keep the PONG from
+   * measuring the round trip time, even if a sweep runs in between.
+   */
+  @Test
+  void testMessageBeforePongKeepsRoundTrip() {
+    HeartbeatService.Heartbeat heartbeat = service.register(new ClientSession(1, 101),
+        new ByteArrayOutputStream(), () -> {
+        });
+    clock.addAndGet(INTERVAL_NANOS);
+    service.sweep();
+
+    clock.addAndGet(1_000_000);
+    service.activity(101);
+    service.sweep();
+    clock.addAndGet(1_000_000);
+    service.pongReceived(101);
+
+    assertEquals(2.0, heartbeat.getRoundTripMillis());
+  }
+
+  /**
+   * Measures a sweep over 20'000 clients, of which none needs a PING.
+   */
+  @Test
+  void testSweepBenchmark() {
+    int clients = 20_000;
+    for (int i = 0; i < clients; i++) {
+      service.register(new ClientSession(i, 1000 + i), new ByteArrayOutputStream(), () -> {
+      });
+    }
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < 20; round++) {
+      long start = System.nanoTime();
+      service.sweep();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.println("Heartbeat sweep over " + clients + " clients: " + best / 1000 + " µs");
+
+    assertEquals(clients, service.size());
+    assertTrue(best < TimeUnit.MILLISECONDS.toNanos(500), "A sweep should take far less than its period.");
+  }
+
+}
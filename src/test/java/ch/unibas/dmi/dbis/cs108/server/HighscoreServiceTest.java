@@ -0,0 +1,95 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link HighscoreService}. Each test works on its own file in a temporary directory.
+ */
+public class HighscoreServiceTest {
+
+  /**
+   * The directory of the highscore file.
+   */
+  @TempDir
+  Path dir;
+
+  /**
+   * The timers of the service.
+   */
+  private final ServerTimers timers = new ServerTimers("test-timers");
+
+  /**
+   * Stops the timers.
+   */
+  @AfterEach
+  void cleanup() {
+    timers.shutdown();
+  }
+
+  /**
+   * Verifies that the list is ordered by rolls, keeps older entries first on equal rolls and keeps
+   * only the best {@link HighscoreService#MAX_ENTRIES} entries.
+   */
+  @Test
+  void testKeepsBestEntriesInOrder() throws IOException {
+    Path file = dir.resolve("highscore.txt");
+    Files.write(file, List.of("1. Ada, rolls: 5", "2. Ben, rolls: 8", "not an entry"));
+    HighscoreService service = new HighscoreService(file, timers, TimeUnit.HOURS.toMillis(1));
+
+    assertTrue(service.add("Cleo", 5));
+    assertTrue(service.add("Dan", 3));
+    assertEquals(List.of("1. Dan, rolls: 3", "2. Ada, rolls: 5", "3. Cleo, rolls: 5", "4. Ben, rolls: 8"),
+        service.getLines());
+
+    for (int i = 0; i < 6; i++) {
+      service.add("Player" + i, 6);
+    }
+    assertTrue(service.add("Eve", 4));
+    assertFalse(service.add("Late", 6));
+    List<String> lines = service.getLines();
+    assertEquals(HighscoreService.MAX_ENTRIES, lines.size());
+    assertEquals("2. Eve, rolls: 4", lines.get(1));
+    assertEquals("10. Player5, rolls: 6", lines.get(9));
+    assertEquals(List.of("1. Ada, rolls: 5", "2. Ben, rolls: 8", "not an entry"), Files.readAllLines(file));
+    service.shutdown();
+  }
+
+  /**
+   * Verifies that several entries are written together after the delay, that no temporary file is
+   * left behind and that a new service reads the same list.
+   */
+  @Test
+  void testWritesBehind() throws IOException, InterruptedException {
+    Path file = dir.resolve("highscore.txt");
+    HighscoreService service = new HighscoreService(file, timers, 50);
+    long writes = ServerMetrics.getHighscoreWrites();
+    service.add("Ada", 7);
+    service.add("Ben", 4);
+    assertFalse(Files.exists(file));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (ServerMetrics.getHighscoreWrites() == writes && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("1. Ben, rolls: 4", "2. Ada, rolls: 7"), Files.readAllLines(file));
+    assertEquals(writes + 1, ServerMetrics.getHighscoreWrites());
+    try (var files = Files.list(dir)) {
+      assertEquals(List.of(file), files.toList());
+    }
+    service.shutdown();
+
+    HighscoreService reloaded = new HighscoreService(file, timers, 50);
+    assertEquals(service.getLines(), reloaded.getLines());
+    reloaded.shutdown();
+  }
+}
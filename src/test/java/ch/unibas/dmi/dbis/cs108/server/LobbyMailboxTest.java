@@ -0,0 +1,122 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the {@link LobbyMailbox}.
+ */
+public class LobbyMailboxTest {
+
+  /**
+   * Verifies that commands from many threads never run concurrently and that the commands of each
+   * thread run in the order they were submitted.
+   */
+  @Test
+  void testRunsCommandsOneAtATimeInOrder() throws InterruptedException {
+    ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+    LobbyMailbox mailbox = new LobbyMailbox(executor);
+    int threads = 4;
+    int commands = 1000;
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+    List<List<Integer>> seen = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      seen.add(Collections.synchronizedList(new ArrayList<>()));
+    }
+    CountDownLatch done = new CountDownLatch(threads * commands);
+
+    List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int producer = t;
+      producers.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < commands; i++) {
+          int number = i;
+          mailbox.execute(() -> {
+            if (running.incrementAndGet() > 1) {
+              overlaps.incrementAndGet();
+            }
+            assertTrue(mailbox.isOwner());
+            seen.get(producer).add(number);
+            running.decrementAndGet();
+            done.countDown();
+          });
+        }
+      }));
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(0, overlaps.get(), "Commands of one lobby must not run concurrently.");
+    for (List<Integer> numbers : seen) {
+      assertEquals(commands, numbers.size());
+      for (int i = 0; i < commands; i++) {
+        assertEquals(i, numbers.get(i));
+      }
+    }
+    assertFalse(mailbox.isOwner());
+    executor.shutdownNow();
+  }
+
+  /**
+   * Verifies that two lobbies on different shards run their commands in parallel: each command waits
+   * until the command of the other lobby has started.
+   */
+  @Test
+  void testLobbiesRunInParallel() throws InterruptedException {
+    assumeTrue(Server.shards.getShardCount() > 1, "needs more than one shard");
+    Lobby first = new Lobby("First");
+    String secondName = "Second";
+    for (int i = 0; Server.shards.shardOf(secondName) == Server.shards.shardOf("First"); i++) {
+      secondName = "Second" + i;
+    }
+    Lobby second = new Lobby(secondName);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch finished = new CountDownLatch(2);
+    Runnable command = () -> {
+      started.countDown();
+      try {
+        if (started.await(5, TimeUnit.SECONDS)) {
+          finished.countDown();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    first.submit(command);
+    second.submit(command);
+
+    assertTrue(finished.await(10, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Verifies that a failing command does not stop the following ones.
+   */
+  @Test
+  void testFailingCommandDoesNotStopMailbox() throws InterruptedException {
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    LobbyMailbox mailbox = new LobbyMailbox(executor);
+    CountDownLatch after = new CountDownLatch(1);
+    mailbox.execute(() -> {
+      throw new IllegalStateException("expected in this test");
+    });
+    mailbox.execute(after::countDown);
+
+    assertTrue(after.await(1, TimeUnit.SECONDS));
+    assertEquals(0, mailbox.size());
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,107 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the {@link LobbyReaper}. The rounds are run by the tests with chosen times.
+ */
+public class LobbyReaperTest {
+
+  /**
+   * The timers of the reaper.
+   */
+  private final ServerTimers timers = new ServerTimers("test-timers");
+
+  /**
+   * Stops the timers and removes the lobbies and users of a test.
+   */
+  @AfterEach
+  void cleanup() {
+    timers.shutdown();
+    Server.lobbies.remove(Server.lobbies.get("Race"));
+    UserList.clear();
+  }
+
+  /**
+   * Verifies that an empty lobby is removed after the grace period, and that the "Welcome" lobby and
+   * lobbies with players stay.
+   */
+  @Test
+  void testRemovesEmptyLobbies() {
+    LobbyRegistry registry = new LobbyRegistry();
+    LobbyReaper reaper = new LobbyReaper(registry, timers, 5, 30);
+    Lobby welcome = new Lobby(LobbyRegistry.WELCOME);
+    Lobby empty = new Lobby("Empty");
+    Lobby busy = new Lobby("Busy");
+    registry.add(welcome);
+    registry.add(empty);
+    registry.add(busy);
+    busy.addPlayers(UserList.addUser("Mia", mock(OutputStream.class)));
+    long now = System.currentTimeMillis();
+
+    assertEquals(0, reaper.reap(now + TimeUnit.MINUTES.toMillis(4)));
+    assertEquals(2, reaper.getLobbyCount());
+
+    assertEquals(1, reaper.reap(now + TimeUnit.MINUTES.toMillis(6)));
+    assertNull(registry.get("Empty"));
+    assertTrue(empty.isClosed());
+    assertSame(welcome, registry.get(LobbyRegistry.WELCOME));
+    assertSame(busy, registry.get("Busy"));
+    assertEquals(1, reaper.getLobbyCount());
+    assertTrue(reaper.summary().startsWith("1 (empty 0, finished 0"));
+    reaper.shutdown();
+  }
+
+  /**
+   * Verifies that a lobby whose game is long over is retired and its players are back in the
+   * "Welcome" lobby.
+   */
+  @Test
+  void testRetiresFinishedLobbies() {
+    Server.createLobby(LobbyRegistry.WELCOME, null);
+    Server.createLobby("Race", null);
+    LobbyReaper reaper = new LobbyReaper(Server.lobbies, timers, 5, 30);
+    Lobby race = Server.lobbies.get("Race");
+    int ada = UserList.addUser("Ada", mock(OutputStream.class));
+    int ben = UserList.addUser("Ben", mock(OutputStream.class));
+    Server.joinLobby("Race", ada);
+    Server.joinLobby("Race", ben);
+    awaitMailbox(race);
+    race.changeGameState(3);
+    long now = System.currentTimeMillis();
+
+    assertEquals(0, reaper.reap(now + TimeUnit.MINUTES.toMillis(29)));
+    assertSame(race, Server.lobbies.get("Race"));
+
+    long reaped = ServerMetrics.getLobbiesReaped();
+    assertEquals(1, reaper.reap(now + TimeUnit.MINUTES.toMillis(31)));
+    awaitMailbox(race);
+    assertEquals(reaped + 1, ServerMetrics.getLobbiesReaped());
+    assertNull(Server.lobbies.get("Race"));
+    assertTrue(race.isClosed());
+    assertEquals(List.of(), race.getPlayers());
+    assertSame(Server.lobbies.get(LobbyRegistry.WELCOME), Server.getLobbyOfUser(ada));
+    assertSame(Server.lobbies.get(LobbyRegistry.WELCOME), Server.getLobbyOfUser(ben));
+    reaper.shutdown();
+  }
+
+  /**
+   * Waits until the commands that were submitted to the mailbox of a lobby so far have run.
+   *
+   * @param lobby The lobby.
+   */
+  private static void awaitMailbox(Lobby lobby) {
+    CountDownLatch done = new CountDownLatch(1);
+    lobby.submit(done::countDown);
+    assertDoesNotThrow(() -> assertTrue(done.await(5, TimeUnit.SECONDS)));
+  }
+}
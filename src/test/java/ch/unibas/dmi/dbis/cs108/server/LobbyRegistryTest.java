@@ -0,0 +1,105 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the {@link LobbyRegistry}.
+ */
+public class LobbyRegistryTest {
+
+  private final LobbyRegistry registry = new LobbyRegistry();
+
+  /**
+   * Clears the user list.
+   */
+  @AfterEach
+  void cleanup() {
+    UserList.clear();
+  }
+
+  /**
+   * Verifies that lobbies are found by name regardless of the case and cannot be created twice.
+   */
+  @Test
+  void testLookupAndCreateIfAbsent() {
+    Lobby race = new Lobby("Race");
+    assertTrue(registry.add(race));
+    assertFalse(registry.add(new Lobby("RACE")), "A lobby with the same name must not be added.");
+
+    assertSame(race, registry.get("race"));
+    assertNull(registry.get("Sprint"));
+    assertTrue(registry.contains(race));
+    assertEquals(1, registry.size());
+  }
+
+  /**
+   * Verifies that only empty game lobbies are removed and that a removed lobby accepts no players.
+   */
+  @Test
+  void testRemoveIfEmpty() {
+    Lobby welcome = new Lobby(LobbyRegistry.WELCOME);
+    Lobby race = new Lobby("Race");
+    registry.add(welcome);
+    registry.add(race);
+    int userId = UserList.addUser("Mia", mock(OutputStream.class));
+    race.addPlayers(userId);
+
+    assertFalse(registry.removeIfEmpty(race), "A lobby with players must stay.");
+    assertFalse(registry.removeIfEmpty(welcome), "The Welcome lobby must stay.");
+
+    race.removePlayer("Mia");
+    assertTrue(registry.removeIfEmpty(race));
+    assertNull(registry.get("Race"));
+    assertTrue(race.isClosed());
+    assertFalse(race.addPlayers(userId), "A removed lobby must not accept players.");
+    assertSame(welcome, registry.get("welcome"));
+  }
+
+  /**
+   * Verifies that concurrent creates and iterations neither fail nor create a lobby twice.
+   */
+  @Test
+  void testConcurrentCreates() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        int created = 0;
+        for (int i = 0; i < 500; i++) {
+          if (registry.add(new Lobby("Lobby" + i))) {
+            created++;
+          }
+          for (Lobby lobby : registry) {
+            assertNotNull(lobby.getLobbyName());
+          }
+        }
+        return created;
+      }));
+    }
+    start.countDown();
+    int created = 0;
+    for (Future<Integer> result : results) {
+      created += result.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    assertEquals(500, created);
+    assertEquals(500, registry.size());
+  }
+}
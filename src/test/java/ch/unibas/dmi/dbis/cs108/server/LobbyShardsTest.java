@@ -0,0 +1,134 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link LobbyShards}.
+ */
+public class LobbyShardsTest {
+
+  /**
+   * Runs a command in a mailbox and returns the name of the thread it ran on.
+   */
+  private static String threadOf(LobbyMailbox mailbox) throws InterruptedException {
+    AtomicReference<String> thread = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+    mailbox.execute(() -> {
+      thread.set(Thread.currentThread().getName());
+      done.countDown();
+    });
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    return thread.get();
+  }
+
+  /**
+   * Runs the given number of commands in a mailbox and waits until they are done.
+   */
+  private static void runCommands(LobbyMailbox mailbox, int count) throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(count);
+    for (int i = 0; i < count; i++) {
+      mailbox.execute(done::countDown);
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Returns a lobby name that hashes to the given shard.
+   */
+  private static String nameOnShard(LobbyShards shards, int shard, String prefix) {
+    String name = prefix;
+    for (int i = 0; shards.shardOf(name) != shard; i++) {
+      name = prefix + i;
+    }
+    return name;
+  }
+
+  /**
+   * Verifies that a lobby is assigned by its name, without case, and runs on the thread of its shard.
+   */
+  @Test
+  void testLobbyRunsOnShardOfItsName() throws InterruptedException {
+    LobbyShards shards = new LobbyShards(4);
+    assertEquals(shards.shardOf("GameLobby"), shards.shardOf("gamelobby"));
+
+    LobbyMailbox mailbox = shards.createMailbox("GameLobby");
+    int shard = shards.shardOf("GameLobby");
+    assertEquals(shard, shards.shardOf(mailbox));
+    assertEquals(1, shards.getLobbyCount(shard));
+    assertEquals("lobby-shard-" + shard, threadOf(mailbox));
+
+    shards.release(mailbox);
+    assertEquals(-1, shards.shardOf(mailbox));
+    assertEquals(0, shards.getLobbyCount(shard));
+    shards.shutdown();
+  }
+
+  /**
+   * Verifies that a busy lobby migrates from the busiest shard to an idle one and keeps running its
+   * commands there.
+   */
+  @Test
+  void testBusyLobbyMigratesToIdleShard() throws InterruptedException {
+    LobbyShards shards = new LobbyShards(2);
+    LobbyMailbox first = shards.createMailbox(nameOnShard(shards, 0, "first"));
+    LobbyMailbox second = shards.createMailbox(nameOnShard(shards, 0, "second"));
+    LobbyMailbox idle = shards.createMailbox(nameOnShard(shards, 1, "idle"));
+    long migrations = ServerMetrics.getLobbyMigrations();
+
+    runCommands(first, 300);
+    runCommands(second, 200);
+    shards.rebalance();
+
+    assertEquals(1, shards.shardOf(first));
+    assertEquals(0, shards.shardOf(second));
+    assertEquals(1, shards.shardOf(idle));
+    assertEquals(1, shards.getLobbyCount(0));
+    assertEquals(2, shards.getLobbyCount(1));
+    assertEquals(migrations + 1, ServerMetrics.getLobbyMigrations());
+    assertEquals("lobby-shard-1", threadOf(first));
+    assertTrue(shards.summary().startsWith("[0: 1 lobbies/0 queued/200 run"));
+    shards.shutdown();
+  }
+
+  /**
+   * Verifies that a single busy lobby stays on its shard, because moving it would not even out the
+   * load.
+   */
+  @Test
+  void testSingleBusyLobbyStays() throws InterruptedException {
+    LobbyShards shards = new LobbyShards(2);
+    LobbyMailbox busy = shards.createMailbox(nameOnShard(shards, 0, "busy"));
+
+    runCommands(busy, 500);
+    shards.rebalance();
+
+    assertEquals(0, shards.shardOf(busy));
+    shards.shutdown();
+  }
+
+  /**
+   * Verifies that a timer of a mailbox runs as a command on the thread of its shard.
+   */
+  @Test
+  void testTimerRunsInMailbox() throws InterruptedException {
+    LobbyShards shards = new LobbyShards(2);
+    LobbyMailbox mailbox = shards.createMailbox(nameOnShard(shards, 1, "timer"));
+    AtomicReference<String> thread = new AtomicReference<>();
+    CountDownLatch fired = new CountDownLatch(1);
+    mailbox.schedule(() -> {
+      assertTrue(mailbox.isOwner());
+      thread.set(Thread.currentThread().getName());
+      fired.countDown();
+    }, 10, TimeUnit.MILLISECONDS);
+
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertEquals("lobby-shard-1", thread.get());
+    shards.shutdown();
+  }
+}
@@ -0,0 +1,81 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link LobbySnapshot}.
+ */
+public class LobbySnapshotTest {
+
+  /**
+   * Verifies that changes return new snapshots and leave the old ones unchanged.
+   */
+  @Test
+  void testChangesDoNotAffectOldSnapshot() {
+    LobbySnapshot first = LobbySnapshot.EMPTY.withPlayer("Alice");
+    LobbySnapshot second = first.withPlayer("Bob").withWinner("Bob");
+
+    assertEquals(List.of("Alice"), first.getPlayers());
+    assertTrue(first.getWinners().isEmpty());
+    assertEquals(List.of("Alice", "Bob"), second.getPlayers());
+    assertEquals(List.of("Bob"), second.getWinners());
+    assertEquals("Alice", second.getHostName());
+    assertThrows(UnsupportedOperationException.class, () -> second.getPlayers().add("Eve"));
+  }
+
+  /**
+   * Verifies that removing the host makes the next player the host and removes all traces of the
+   * player.
+   */
+  @Test
+  void testRemoveHost() {
+    LobbySnapshot snapshot = LobbySnapshot.EMPTY.withPlayer("Alice").withPlayer("Bob")
+        .withWinner("Alice").withoutPlayer("Alice");
+
+    assertEquals(List.of("Bob"), snapshot.getPlayers());
+    assertEquals(List.of("Bob"), snapshot.getPlayerOrder());
+    assertEquals("Bob", snapshot.getHostName());
+    assertTrue(snapshot.getWinners().isEmpty());
+    assertEquals(Map.of("Bob", false), snapshot.getReadyStatus());
+    assertNull(snapshot.withoutPlayer("Bob").getHostName());
+  }
+
+  /**
+   * Verifies that a rename reaches the players, the order, the host, the winners and the ready
+   * flags.
+   */
+  @Test
+  void testRenamePlayer() {
+    LobbySnapshot snapshot = LobbySnapshot.EMPTY.withPlayer("Alice").withPlayer("Bob")
+        .withReady("Alice").withWinner("Alice").withRenamedPlayer("Alice", "Ann");
+
+    assertEquals(List.of("Ann", "Bob"), snapshot.getPlayers());
+    assertEquals(List.of("Ann", "Bob"), snapshot.getPlayerOrder());
+    assertEquals("Ann", snapshot.getHostName());
+    assertEquals(List.of("Ann"), snapshot.getWinners());
+    assertTrue(snapshot.getReadyStatus().get("Ann"));
+    assertFalse(snapshot.getReadyStatus().containsKey("Alice"));
+  }
+
+  /**
+   * Verifies the ready flags: all players must be ready, and a reset clears every flag.
+   */
+  @Test
+  void testReadyFlags() {
+    LobbySnapshot snapshot = LobbySnapshot.EMPTY.withPlayer("Alice").withPlayer("Bob").withReady("Alice");
+    assertFalse(snapshot.allReady());
+
+    snapshot = snapshot.withReady("Bob");
+    assertTrue(snapshot.allReady());
+    assertSame(snapshot, snapshot.withReady("Eve"));
+
+    assertFalse(snapshot.withReadyReset().allReady());
+    assertTrue(snapshot.withReadyStatusList().allReady());
+    assertFalse(LobbySnapshot.EMPTY.allReady());
+  }
+}
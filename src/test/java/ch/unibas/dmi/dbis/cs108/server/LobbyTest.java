@@ -88,7 +88,7 @@ public class LobbyTest {
     lobby.addWinner("Player1");
 
     // Assert that "Player1" is added to the winners list
-    assertTrue(lobby.winners.contains("Player1"));
+    assertTrue(lobby.getWinners().contains("Player1"));
   }
 
   /**
@@ -105,11 +105,11 @@ public class LobbyTest {
 
     // Create the ready status list and ensure the player is initially not ready
     lobby.makeReadyStatusList();
-    assertFalse(lobby.readyStatus.get("ReadyPlayer"));
+    assertFalse(lobby.getSnapshot().getReadyStatus().get("ReadyPlayer"));
 
     // Set the player as ready
     lobby.makeReady("ReadyPlayer");
-    assertTrue(lobby.readyStatus.get("ReadyPlayer"));
+    assertTrue(lobby.getSnapshot().getReadyStatus().get("ReadyPlayer"));
   }
 
   /**
@@ -261,4 +261,93 @@ public class LobbyTest {
     // Assert that the game state is now "running"
     assertEquals(2, lobby.getGameState());
   }
+
+  /**
+   * Verifies that the lobby of a user is kept up to date when the user joins, is renamed and
+   * leaves, so that it can be found without scanning the lobbies.
+   */
+  @Test
+  void testLobbyOfUserFollowsMembership() {
+    int userId = UserList.addUser("Mara", mock(OutputStream.class));
+    Lobby other = new Lobby("OtherLobby");
+
+    lobby.addPlayers(userId);
+    assertSame(lobby, Server.getLobbyOfUser(userId));
+    assertSame(lobby, Server.getLobbyOfPlayer("Mara"));
+
+    UserList.updateUserName(userId, "Nora");
+    assertSame(lobby, Server.getLobbyOfPlayer("Nora"));
+    assertEquals(List.of("Nora"), lobby.getPlayers());
+
+    other.addPlayers(userId);
+    lobby.removePlayer("Nora");
+    assertSame(other, Server.getLobbyOfUser(userId), "Leaving the old lobby must not clear the new one.");
+
+    other.removePlayer("Nora");
+    assertNull(Server.getLobbyOfUser(userId));
+    assertNull(Server.getLobbyOfPlayer("Nora"));
+  }
+
+  /**
+   * Verifies that an expired turn passes on like NEXT, that a player who misses two turns in a row
+   * is skipped, and that a game command brings the player back.
+   */
+  @Test
+  void testExpiredTurnsMarkPlayerAway() {
+    UserList.clear();
+    for (String name : List.of("Ada", "Ben", "Cleo")) {
+      lobby.addPlayers(UserList.addUser(name, mock(OutputStream.class)));
+    }
+    lobby.changeGameState(2);
+    lobby.advanceTurn();
+    assertEquals("Ben", lobby.getCurrentPlayer());
+
+    lobby.expireTurn();
+    assertEquals("Cleo", lobby.getCurrentPlayer());
+    assertFalse(lobby.isAway("Ben"));
+    lobby.advanceTurn();
+    lobby.advanceTurn();
+    assertEquals("Ben", lobby.getCurrentPlayer());
+
+    lobby.expireTurn();
+    assertTrue(lobby.isAway("Ben"));
+    assertEquals("Cleo", lobby.getCurrentPlayer());
+    lobby.advanceTurn();
+    assertEquals("Ada", lobby.getCurrentPlayer());
+    lobby.advanceTurn();
+    assertEquals("Cleo", lobby.getCurrentPlayer(), "An away player must be skipped.");
+
+    lobby.playerActive("Ben");
+    assertFalse(lobby.isAway("Ben"));
+    lobby.advanceTurn();
+    lobby.advanceTurn();
+    assertEquals("Ben", lobby.getCurrentPlayer());
+    lobby.changeGameState(3);
+  }
+
+  /**
+   * Verifies that the deadline of a turn is driven by the server timers and ends the turn in the
+   * mailbox of the lobby.
+   */
+  @Test
+  void testTurnDeadlineExpires() throws InterruptedException {
+    UserList.clear();
+    Lobby.setTurnSeconds(1);
+    try {
+      for (String name : List.of("Ada", "Ben")) {
+        lobby.addPlayers(UserList.addUser(name, mock(OutputStream.class)));
+      }
+      lobby.changeGameState(2);
+      lobby.submit(lobby::advanceTurn);
+
+      long end = System.currentTimeMillis() + 5000;
+      while (!"Ada".equals(lobby.getCurrentPlayer()) && System.currentTimeMillis() < end) {
+        Thread.sleep(20);
+      }
+      assertEquals("Ada", lobby.getCurrentPlayer());
+      lobby.changeGameState(3);
+    } finally {
+      Lobby.setTurnSeconds(Lobby.DEFAULT_TURN_SECONDS);
+    }
+  }
 }
@@ -0,0 +1,146 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link NioServer} engine. A real socket connects to the engine and talks the text
+ * protocol with it.
+ */
+public class NioServerTest {
+
+  private NioServer nioServer;
+
+  /**
+   * Starts a NIO engine with one event loop on a free port.
+   */
+  @BeforeEach
+  void startEngine() throws IOException {
+    UserList.clear();
+    Server.lobbies.clear();
+    nioServer = new NioServer(0, 1);
+    nioServer.bind();
+    Thread acceptor = new Thread(nioServer::run);
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Stops the engine and clears the server state.
+   */
+  @AfterEach
+  void stopEngine() {
+    nioServer.close();
+    UserList.clear();
+    Server.lobbies.clear();
+  }
+
+  /**
+   * Reads lines until one starts with the given prefix.
+   */
+  private String readUntil(BufferedReader reader, String prefix) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(prefix)) {
+        return line;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Verifies that a client connected to the NIO engine gets the welcome message and that its
+   * commands are handled by the usual server logic.
+   */
+  @Test
+  void testWelcomeAndNicknameChange() throws IOException {
+    try (Socket socket = new Socket("localhost", nioServer.getLocalPort())) {
+      socket.setSoTimeout(5000);
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      OutputStream out = socket.getOutputStream();
+
+      assertEquals("INFO%Welcome to the Server!", readUntil(reader, "INFO%"));
+
+      out.write("NICK%NioPlayer\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      assertEquals("NICK%NioPlayer", readUntil(reader, "NICK%"));
+      assertTrue(UserList.containsUserName("NioPlayer"));
+    }
+  }
+
+  /**
+   * Verifies that a line split over several TCP segments is decoded as one message.
+   */
+  @Test
+  void testLineSplitOverSeveralWrites() throws Exception {
+    try (Socket socket = new Socket("localhost", nioServer.getLocalPort())) {
+      socket.setSoTimeout(5000);
+      socket.setTcpNoDelay(true);
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      OutputStream out = socket.getOutputStream();
+      readUntil(reader, "INFO%");
+
+      out.write("NICK%Spl".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      Thread.sleep(100);
+      out.write("it\r\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      assertEquals("NICK%Split", readUntil(reader, "NICK%"));
+    }
+  }
+
+  /**
+   * Verifies that closing the socket removes the user from the user list.
+   */
+  @Test
+  void testDisconnectRemovesUser() throws Exception {
+    Socket socket = new Socket("localhost", nioServer.getLocalPort());
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    readUntil(reader, "INFO%");
+    assertEquals(1, UserList.getAllUsernames().size());
+
+    socket.close();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!UserList.getAllUsernames().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertTrue(UserList.getAllUsernames().isEmpty(), "User should be removed after disconnect");
+  }
+
+  /**
+   * Verifies that the last message before a disconnect reaches the client before the channel is
+   * closed.
+   */
+  @Test
+  void testQuitSendsLastMessage() throws IOException {
+    try (Socket socket = new Socket("localhost", nioServer.getLocalPort())) {
+      socket.setSoTimeout(5000);
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      OutputStream out = socket.getOutputStream();
+      readUntil(reader, "INFO%");
+
+      out.write("QCNF%YES\n".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      assertEquals("INFO%Disconnecting...", readUntil(reader, "INFO%"));
+      assertNull(readUntil(reader, "INFO%"));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.game.GameBoard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link OutboundBatch}, including a before/after comparison of the number of writes
+ * a MOVE causes.
+ */
+public class OutboundBatchTest {
+
+  /**
+   * Clears the server state.
+   */
+  @AfterEach
+  void cleanup() {
+    Server.lobbies.clear();
+    Server.protocolWriters.clear();
+    Server.clientWriters.clear();
+    UserList.clear();
+  }
+
+  /**
+   * Writes a line into the queue like a ProtocolWriterServer does.
+   */
+  private void send(OutputStream queue, String line) throws Exception {
+    queue.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    queue.flush();
+  }
+
+  /**
+   * Verifies that a queue inside nested batches is released once, when the outermost batch closes.
+   */
+  @Test
+  void testNestedBatchReleasesOnce() throws Exception {
+    AtomicInteger wakeups = new AtomicInteger();
+    OutboundQueue queue = new OutboundQueue(16, OverflowPolicy.DEFAULTS, wakeups::incrementAndGet);
+
+    OutboundBatch.run(() -> {
+      OutboundBatch.run(() -> {
+        send(queue, "INFO%one");
+        send(queue, "INFO%two");
+      });
+      send(queue, "INFO%three");
+      assertEquals(0, wakeups.get());
+    });
+
+    assertEquals(1, wakeups.get());
+    assertNull(OutboundBatch.current());
+    assertEquals(3, queue.size());
+  }
+
+  /**
+   * Verifies that the messages of one batch reach the socket with a single write.
+   */
+  @Test
+  void testBatchIsWrittenAtOnce() throws Exception {
+    OutboundQueue queue = new OutboundQueue();
+    AtomicInteger writes = new AtomicInteger();
+    StringBuilder received = new StringBuilder();
+    OutputStream socket = new OutputStream() {
+      @Override
+      public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public synchronized void write(byte[] b, int off, int len) {
+        writes.incrementAndGet();
+        received.append(new String(b, off, len, StandardCharsets.UTF_8));
+      }
+    };
+    Thread writer = new Thread(() -> {
+      try {
+        queue.drainTo(socket);
+      } catch (Exception e) {
+        fail(e);
+      }
+    });
+    writer.start();
+
+    OutboundBatch.run(() -> {
+      for (int i = 0; i < 5; i++) {
+        send(queue, "INFO%" + i);
+      }
+    });
+    queue.close();
+    writer.join(1000);
+
+    assertEquals(1, writes.get());
+    assertEquals("INFO%0\nINFO%1\nINFO%2\nINFO%3\nINFO%4\n", received.toString());
+  }
+
+  /**
+   * Sets up a lobby with four players whose queues count how often their writer is woken up, and
+   * lets the first player move.
+   *
+   * @param batched Whether the move runs inside an {@link OutboundBatch}, as it does when it is
+   *                handled by the ProtocolReaderServer.
+   * @return the number of writer wake-ups, which is the number of writes to the sockets
+   */
+  private int wakeupsForMove(boolean batched) {
+    cleanup();
+    AtomicInteger wakeups = new AtomicInteger();
+    Lobby lobby = new Lobby("BatchLobby");
+    int mover = -1;
+    for (int i = 0; i < 4; i++) {
+      OutboundQueue queue = new OutboundQueue(OutboundQueue.DEFAULT_CAPACITY, OverflowPolicy.DEFAULTS,
+          wakeups::incrementAndGet);
+      int userId = UserList.addUser("player" + i, queue);
+      lobby.addPlayers(userId);
+      if (i == 0) {
+        mover = userId;
+      }
+    }
+    Server.lobbies.add(lobby);
+    GameBoard board = lobby.getGameBoard("player0");
+    board.setLastRoll(new String[]{"purple", "yellow", "blue"});
+    board.addSelectedField(board.getFieldById("purple1"));
+
+    if (batched) {
+      int player = mover;
+      OutboundBatch.run(() -> Server.moveToLastSelectedField(player));
+    } else {
+      Server.moveToLastSelectedField(mover);
+    }
+    return wakeups.get();
+  }
+
+  /**
+   * Before/after comparison for a MOVE in a lobby of four: without batching every message causes its
+   * own write, with batching every player gets exactly one write.
+   */
+  @Test
+  void testMoveFanOutWritesOncePerPlayer() {
+    int before = wakeupsForMove(false);
+    int after = wakeupsForMove(true);
+    System.out.println("MOVE in a lobby of 4: " + before + " writes without batching, " + after + " with batching");
+
+    assertEquals(4, after);
+    assertTrue(before >= 2 * after, "Expected at least two messages per player without batching.");
+  }
+}
@@ -0,0 +1,74 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import ch.unibas.dmi.dbis.cs108.network.Command;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link OutboundFrame}s that are encoded once and shared by all recipients.
+ */
+public class OutboundFrameTest {
+
+  /**
+   * Clears the broadcast writers.
+   */
+  @AfterEach
+  void cleanup() {
+    Server.clientWriters.clear();
+  }
+
+  /**
+   * Verifies that a frame is formatted like a ProtocolWriterServer message and knows its command.
+   */
+  @Test
+  void testEncoding() {
+    OutboundFrame frame = OutboundFrame.of(Command.INFO, "It's Jana's turn");
+    assertEquals(Command.INFO, frame.getCommand());
+    assertEquals("INFO%It's Jana's turn\n", new String(frame.bytes(), StandardCharsets.UTF_8));
+    assertEquals(Command.LIST, OutboundFrame.of("LIST%[a, b]").getCommand());
+    assertEquals("STRT%\n", new String(OutboundFrame.of(Command.STRT, "").bytes(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Verifies that all queues receive the very same bytes and that plain streams get a copy written.
+   */
+  @Test
+  void testSharedAcrossRecipients() throws Exception {
+    OutboundFrame frame = OutboundFrame.of(Command.INFO, "+POS Jana moved to the Field purple1");
+    OutboundQueue first = new OutboundQueue();
+    OutboundQueue second = new OutboundQueue();
+    ByteArrayOutputStream plain = new ByteArrayOutputStream();
+
+    frame.sendTo(first);
+    frame.sendTo(second);
+    frame.sendTo(plain);
+
+    assertSame(frame.bytes(), first.poll());
+    assertSame(frame.bytes(), second.poll());
+    assertEquals("INFO%+POS Jana moved to the Field purple1\n", plain.toString(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Verifies that a broadcast queues the shared frame for every {@link ClientWriter} and still prints
+   * to other writers.
+   */
+  @Test
+  void testBroadcastUsesFrames() {
+    OutboundQueue queue = new OutboundQueue();
+    PrintWriter plainWriter = mock(PrintWriter.class);
+    Server.clientWriters.add(new ClientWriter(queue));
+    Server.clientWriters.add(plainWriter);
+
+    Server.broadcast("GLST%[]");
+
+    assertEquals("GLST%[]\n", new String(queue.poll(), StandardCharsets.UTF_8));
+    verify(plainWriter).println("GLST%[]");
+  }
+}
@@ -0,0 +1,196 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bounded {@link OutboundQueue} and its {@link OverflowPolicy}s.
+ */
+public class OutboundQueueTest {
+
+  /**
+   * Writes a line into the queue.
+   */
+  private void send(OutputStream queue, String line) throws Exception {
+    queue.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    queue.flush();
+  }
+
+  /**
+   * Takes the next message as a string without its line break.
+   */
+  private String next(OutboundQueue queue) {
+    byte[] frame = queue.poll();
+    return frame == null ? null : new String(frame, StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * Verifies that written bytes become one message per line, even if a line is written in parts.
+   */
+  @Test
+  void testSplitsLines() throws Exception {
+    OutboundQueue queue = new OutboundQueue();
+    queue.write("INFO%a\nINF".getBytes(StandardCharsets.UTF_8));
+    assertEquals(1, queue.size());
+    queue.write("O%b\n".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("INFO%a", next(queue));
+    assertEquals("INFO%b", next(queue));
+    assertNull(next(queue));
+  }
+
+  /**
+   * Verifies that a full queue removes an outdated LIST and queues the newer one at the end.
+   */
+  @Test
+  void testCoalescesSnapshotsWhenFull() throws Exception {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DEFAULTS, null);
+    long coalescedBefore = ServerMetrics.getCoalescedMessages();
+    send(queue, "LIST%[a]");
+    send(queue, "INFO%hello");
+    send(queue, "LIST%[a, b]");
+
+    assertEquals(2, queue.size());
+    assertFalse(queue.isOverflowed());
+    assertEquals(1, queue.getCoalescedCount());
+    assertEquals(coalescedBefore + 1, ServerMetrics.getCoalescedMessages());
+    assertEquals("INFO%hello", next(queue));
+    assertEquals("LIST%[a, b]", next(queue));
+  }
+
+  /**
+   * Verifies that snapshots are not coalesced while the queue has room.
+   */
+  @Test
+  void testKeepsSnapshotsWhileNotFull() throws Exception {
+    OutboundQueue queue = new OutboundQueue();
+    send(queue, "LIST%[a]");
+    send(queue, "LIST%[a, b]");
+
+    assertEquals(0, queue.getCoalescedCount());
+    assertEquals("LIST%[a]", next(queue));
+    assertEquals("LIST%[a, b]", next(queue));
+  }
+
+  /**
+   * Verifies that a full queue keeps a SYNC together with its snapshots and removes the presence
+   * messages queued before it, so no snapshot overtakes a delta.
+   */
+  @Test
+  void testCoalescesSyncWithItsSnapshots() throws Exception {
+    OutboundQueue queue = new OutboundQueue(8, OverflowPolicy.DEFAULTS, null);
+    send(queue, "SYNC%1");
+    send(queue, "LIST%[a]");
+    send(queue, "GLST%");
+    send(queue, "LOME%");
+    send(queue, "DLTA%2%ADDU%b");
+    send(queue, "INFO%hello");
+    send(queue, "DLTA%3%ADDU%c");
+    send(queue, "SYNC%3");
+    send(queue, "LIST%[a, b, c]");
+    send(queue, "GLST%");
+    send(queue, "LOME%");
+
+    assertFalse(queue.isOverflowed());
+    assertEquals(6, queue.getCoalescedCount());
+    assertEquals("INFO%hello", next(queue));
+    assertEquals("SYNC%3", next(queue));
+    assertEquals("LIST%[a, b, c]", next(queue));
+    assertEquals("GLST%", next(queue));
+    assertEquals("LOME%", next(queue));
+    assertNull(next(queue));
+  }
+
+  /**
+   * Verifies that a snapshot without a SYNC never replaces a snapshot that belongs to a SYNC.
+   */
+  @Test
+  void testKeepsSnapshotsOfSync() throws Exception {
+    OutboundQueue queue = new OutboundQueue(4, EnumSet.of(OverflowPolicy.COALESCE), null);
+    send(queue, "SYNC%1");
+    send(queue, "LIST%[a]");
+    send(queue, "GLST%");
+    send(queue, "LOME%");
+    send(queue, "LIST%[a, b]");
+
+    assertEquals(0, queue.getCoalescedCount());
+    assertEquals(1, queue.getDroppedCount());
+    assertEquals("SYNC%1", next(queue));
+    assertEquals("LIST%[a]", next(queue));
+  }
+
+  /**
+   * Verifies that a full queue drops chat messages, and evicts queued chat to make room for game
+   * messages.
+   */
+  @Test
+  void testDropsChatWhenFull() throws Exception {
+    OutboundQueue queue = new OutboundQueue(2, EnumSet.of(OverflowPolicy.DROP_CHAT), null);
+    send(queue, "CHAT%bob%hi");
+    send(queue, "INFO%one");
+    send(queue, "CHAT%bob%dropped");
+    send(queue, "INFO%two");
+
+    assertEquals(2, queue.getDroppedCount());
+    assertFalse(queue.isOverflowed());
+    assertEquals("INFO%one", next(queue));
+    assertEquals("INFO%two", next(queue));
+  }
+
+  /**
+   * Verifies that a full queue without other options overflows, so that the slow consumer can be
+   * disconnected, and that the waiting writer is woken up.
+   */
+  @Test
+  void testDisconnectsSlowConsumer() throws Exception {
+    AtomicInteger ready = new AtomicInteger();
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DEFAULTS, ready::incrementAndGet);
+    long slowBefore = ServerMetrics.getSlowConsumerDisconnects();
+    send(queue, "INFO%one");
+    send(queue, "INFO%two");
+    send(queue, "INFO%three");
+
+    assertTrue(queue.isOverflowed());
+    assertEquals(0, queue.size());
+    assertEquals(2, queue.getMaxDepth());
+    assertEquals(slowBefore + 1, ServerMetrics.getSlowConsumerDisconnects());
+    assertEquals(3, ready.get());
+    assertNull(queue.take());
+
+    send(queue, "INFO%ignored");
+    assertEquals(0, queue.size());
+  }
+
+  /**
+   * Verifies that the writer loop sends all queued messages and ends once the queue is closed.
+   */
+  @Test
+  void testDrainToWritesUntilClosed() throws Exception {
+    OutboundQueue queue = new OutboundQueue();
+    ByteArrayOutputStream socket = new ByteArrayOutputStream();
+    Thread writer = new Thread(() -> {
+      try {
+        queue.drainTo(socket);
+      } catch (Exception e) {
+        fail(e);
+      }
+    });
+    writer.start();
+
+    send(queue, "INFO%one");
+    send(queue, "PING%");
+    queue.close();
+    send(queue, "INFO%too late");
+    writer.join(1000);
+
+    assertFalse(writer.isAlive());
+    assertEquals("INFO%one\nPING%\n", socket.toString(StandardCharsets.UTF_8));
+  }
+}
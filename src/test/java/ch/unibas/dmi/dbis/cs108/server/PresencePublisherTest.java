@@ -0,0 +1,154 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the {@link PresencePublisher}.
+ */
+public class PresencePublisherTest {
+
+  private OutboundQueue firstQueue;
+  private OutboundQueue secondQueue;
+  private int firstId;
+
+  /**
+   * Registers two connected users with their broadcast writers.
+   */
+  @BeforeEach
+  void setup() throws InterruptedException {
+    // let a publication of the server's own publisher from an earlier test run out
+    Thread.sleep(2 * PresencePublisher.DEFAULT_MIN_INTERVAL);
+    Server.lobbies.clear();
+    Server.clientWriters.clear();
+    UserList.clear();
+    firstQueue = new OutboundQueue();
+    secondQueue = new OutboundQueue();
+    firstId = UserList.addUser("alice", firstQueue);
+    UserList.addUser("bob", secondQueue);
+    Server.clientWriters.add(new ClientWriter(firstQueue));
+    Server.clientWriters.add(new ClientWriter(secondQueue));
+  }
+
+  /**
+   * Clears the server state.
+   */
+  @AfterEach
+  void cleanup() {
+    Server.lobbies.clear();
+    Server.clientWriters.clear();
+    UserList.clear();
+  }
+
+  /**
+   * Takes all queued messages of a queue.
+   */
+  private List<String> drain(OutboundQueue queue) {
+    List<String> messages = new ArrayList<>();
+    byte[] frame;
+    while ((frame = queue.poll()) != null) {
+      messages.add(new String(frame, StandardCharsets.UTF_8).trim());
+    }
+    return messages;
+  }
+
+  /**
+   * Verifies that only the changes are sent as versioned deltas and that nothing is sent without a
+   * change.
+   */
+  @Test
+  void testPublishesOnlyDeltas() {
+    PresencePublisher publisher = new PresencePublisher(0, mock(ScheduledExecutorService.class));
+    publisher.publish();
+    List<String> first = drain(firstQueue);
+    assertEquals(List.of("DLTA%1%ADDU%alice", "DLTA%2%ADDU%bob"), first);
+    assertEquals(first, drain(secondQueue));
+
+    publisher.publish();
+    assertTrue(drain(firstQueue).isEmpty());
+
+    UserList.updateUserName(firstId, "carol");
+    publisher.publish();
+    assertEquals(List.of("DLTA%3%RENU%alice%carol"), drain(firstQueue));
+  }
+
+  /**
+   * Verifies that a new user gets a complete snapshot with the current version.
+   */
+  @Test
+  void testNewUserGetsSnapshot() {
+    PresencePublisher publisher = new PresencePublisher(0, mock(ScheduledExecutorService.class));
+    publisher.publish();
+    drain(firstQueue);
+    drain(secondQueue);
+
+    Server.lobbies.add(new Lobby("Race"));
+    OutboundQueue newQueue = new OutboundQueue();
+    int newId = UserList.addUser("dave", newQueue);
+    Server.clientWriters.add(new ClientWriter(newQueue));
+    publisher.userAdded(newId);
+    publisher.publish();
+
+    assertEquals(List.of("DLTA%3%ADDU%dave", "DLTA%4%ADDL%Race%open"), drain(secondQueue));
+    List<String> received = drain(newQueue);
+    assertEquals(List.of("SYNC%4", "LIST%[alice, bob, dave]", "GLST%[[Lobby: Race] open]",
+        "LOME%[[Lobby: Race] Players: ]"), received.subList(received.size() - 4, received.size()));
+
+    drain(firstQueue);
+    publisher.resync(firstId);
+    publisher.publish();
+    assertEquals("SYNC%4", drain(firstQueue).get(0));
+    assertTrue(drain(secondQueue).isEmpty());
+  }
+
+  /**
+   * Verifies that a large change is broadcast as a snapshot instead of many deltas.
+   */
+  @Test
+  void testLargeChangeSendsSnapshot() {
+    PresencePublisher publisher = new PresencePublisher(0, mock(ScheduledExecutorService.class));
+    publisher.publish();
+    drain(firstQueue);
+    for (int i = 0; i < 40; i++) {
+      UserList.addUser("user" + i, new OutboundQueue());
+    }
+    publisher.publish();
+    List<String> received = drain(firstQueue);
+    assertEquals(4, received.size());
+    assertEquals("SYNC%42", received.get(0));
+    assertTrue(received.get(1).startsWith("LIST%[alice, bob, user0"));
+  }
+
+  /**
+   * Verifies that a burst of changes is published once after the minimum interval and that the
+   * messages saved are counted.
+   */
+  @Test
+  void testCoalescesBurst() throws InterruptedException {
+    PresencePublisher publisher = new PresencePublisher(100);
+    long savedBefore = ServerMetrics.getPresenceMessagesSaved();
+    for (int i = 0; i < 10; i++) {
+      publisher.markDirty();
+    }
+    Thread.sleep(50);
+    assertTrue(drain(firstQueue).size() <= 2);
+    Thread.sleep(300);
+    drain(firstQueue);
+
+    publisher.markDirty();
+    Thread.sleep(300);
+    assertTrue(drain(firstQueue).isEmpty(), "Nothing changed, so nothing should be sent.");
+
+    // 11 changes would have been 66 messages to two clients; 4 deltas were sent
+    assertTrue(ServerMetrics.getPresenceMessagesSaved() - savedBefore >= 60);
+  }
+}
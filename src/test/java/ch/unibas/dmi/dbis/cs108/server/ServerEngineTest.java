@@ -0,0 +1,41 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ServerEngine}, which selects how the server handles its connections.
+ */
+public class ServerEngineTest {
+
+  /**
+   * Verifies that the command line option is parsed into the matching engine.
+   */
+  @Test
+  void testFromOption() {
+    assertEquals(ServerEngine.NIO, ServerEngine.fromOption("--engine=nio"));
+    assertEquals(ServerEngine.VIRTUAL, ServerEngine.fromOption("--engine=VIRTUAL"));
+    assertEquals(ServerEngine.BLOCKING, ServerEngine.fromOption("--engine=blocking"));
+  }
+
+  /**
+   * Verifies that invalid options are rejected.
+   */
+  @Test
+  void testFromOptionRejectsUnknownEngine() {
+    assertThrows(IllegalArgumentException.class, () -> ServerEngine.fromOption("--engine=fast"));
+    assertThrows(IllegalArgumentException.class, () -> ServerEngine.fromOption("nio"));
+  }
+
+  /**
+   * Verifies that only the virtual engine creates virtual threads for the connections.
+   */
+  @Test
+  void testConnectionThreads() {
+    Runnable noop = () -> {
+    };
+    assertTrue(ServerEngine.VIRTUAL.connectionThreads().newThread(noop).isVirtual());
+    assertFalse(ServerEngine.BLOCKING.connectionThreads().newThread(noop).isVirtual());
+  }
+}
@@ -10,6 +10,9 @@ import java.io.OutputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -49,7 +52,19 @@ public class ServerTest {
   @Test
   void testCreateLobbyAddsIt() {
     Server.createLobby("GameLobby", null); // Create a new lobby
-    assertEquals("GameLobby", Server.lobbies.get(0).getLobbyName()); // Ensure the lobby is added
+    assertEquals("GameLobby", Server.lobbies.get("gamelobby").getLobbyName()); // Ensure the lobby is added
+  }
+
+  /**
+   * Verifies that creating a lobby whose name exists does not leave a mailbox on the shards.
+   */
+  @Test
+  void testDuplicateLobbyReleasesMailbox() {
+    Server.createLobby("Twin", null);
+    int shard = Server.shards.shardOf("Twin");
+    int count = Server.shards.getLobbyCount(shard);
+    Server.createLobby("twin", null);
+    assertEquals(count, Server.shards.getLobbyCount(shard));
   }
 
   /**
@@ -73,11 +88,60 @@ public class ServerTest {
 
     Server.createLobby("RealLobby", null); // Create a real lobby
     Server.joinLobby("RealLobby", id); // Join the real lobby
+    awaitMailbox(Server.lobbies.get("RealLobby"));
 
     assertEquals("RealLobby", Server.getLobbyOfPlayer("NewPlayer")
         .getLobbyName()); // Verify the player is in the correct lobby
   }
 
+  /**
+   * Verifies that a player who moves from one game lobby to another leaves the old one in its
+   * mailbox and enters the new one in the new mailbox, and that the empty old lobby is removed.
+   */
+  @Test
+  void testJoinMovesThroughBothMailboxes() {
+    int id = UserList.addUser("Mover", mock(OutputStream.class));
+    Server.createLobby("From", null);
+    Server.createLobby("To", null);
+    Lobby from = Server.lobbies.get("From");
+    Lobby to = Server.lobbies.get("To");
+    Server.joinLobby("From", id);
+    awaitMailbox(from);
+
+    Server.joinLobby("To", id);
+    awaitMailbox(from);
+    awaitMailbox(to);
+
+    assertSame(to, Server.getLobbyOfUser(id));
+    assertEquals(List.of("Mover"), to.getPlayers());
+    assertTrue(from.isClosed());
+    assertNull(Server.lobbies.get("From"));
+  }
+
+  /**
+   * Verifies that joining the "Welcome" lobby happens right away on the calling thread.
+   */
+  @Test
+  void testJoinWelcomeRunsDirectly() {
+    int id = UserList.addUser("Idle", mock(OutputStream.class));
+    Server.createLobby("Welcome", null);
+
+    Server.joinLobby("Welcome", id);
+
+    assertSame(Server.lobbies.get("Welcome"), Server.getLobbyOfUser(id));
+  }
+
+  /**
+   * Waits until the commands that were submitted to the mailbox of a lobby so far have run.
+   *
+   * @param lobby The lobby.
+   */
+  private static void awaitMailbox(Lobby lobby) {
+    CountDownLatch done = new CountDownLatch(1);
+    lobby.submit(done::countDown);
+    assertDoesNotThrow(() -> assertTrue(done.await(5, TimeUnit.SECONDS)));
+  }
+
   /**
    * Ensures that broadcast sends a correctly formatted BROD message to all clients.
    */
@@ -0,0 +1,77 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ServerTimers}.
+ */
+public class ServerTimersTest {
+
+  /**
+   * Verifies that many waiting timers share one thread and that cancelled timers leave the queue at
+   * once.
+   */
+  @Test
+  void testCancelledTimersAreRemoved() {
+    ServerTimers timers = new ServerTimers("test-timers");
+    ScheduledFuture<?>[] futures = new ScheduledFuture<?>[10_000];
+    int threadsBefore = Thread.activeCount();
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = timers.schedule(() -> fail("Cancelled timer ran"), 1, TimeUnit.HOURS);
+    }
+    assertEquals(futures.length, timers.getPendingTimers());
+    assertTrue(Thread.activeCount() <= threadsBefore + 1);
+
+    for (ScheduledFuture<?> future : futures) {
+      future.cancel(false);
+    }
+    assertEquals(0, timers.getPendingTimers());
+    timers.shutdown();
+  }
+
+  /**
+   * Verifies that a timer hands its task to the given executor.
+   */
+  @Test
+  void testTaskRunsOnTargetExecutor() throws InterruptedException {
+    ServerTimers timers = new ServerTimers("test-timers");
+    ScheduledExecutorService target = Executors.newSingleThreadScheduledExecutor(
+        task -> new Thread(task, "target"));
+    AtomicReference<String> thread = new AtomicReference<>();
+    CountDownLatch fired = new CountDownLatch(1);
+    timers.schedule(target, () -> {
+      thread.set(Thread.currentThread().getName());
+      fired.countDown();
+    }, 10, TimeUnit.MILLISECONDS);
+
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertEquals("target", thread.get());
+    target.shutdownNow();
+    timers.shutdown();
+  }
+
+  /**
+   * Verifies that a failing periodic timer keeps running.
+   */
+  @Test
+  void testFailingPeriodicTimerContinues() throws InterruptedException {
+    ServerTimers timers = new ServerTimers("test-timers");
+    CountDownLatch runs = new CountDownLatch(3);
+    timers.scheduleAtFixedRate(() -> {
+      runs.countDown();
+      throw new IllegalStateException("expected in this test");
+    }, 0, 5, TimeUnit.MILLISECONDS);
+
+    assertTrue(runs.await(5, TimeUnit.SECONDS));
+    timers.shutdown();
+  }
+}
@@ -0,0 +1,114 @@
+package ch.unibas.dmi.dbis.cs108.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the nickname index of the {@link UserList}.
+ */
+public class UserListIndexTest {
+
+  /**
+   * Starts every test with an empty user list.
+   */
+  @BeforeEach
+  void setup() {
+    UserList.clear();
+  }
+
+  /**
+   * Clears the user list.
+   */
+  @AfterEach
+  void cleanup() {
+    UserList.clear();
+  }
+
+  /**
+   * Verifies that the lookups by nickname ignore the case.
+   */
+  @Test
+  void testLookupIgnoresCase() {
+    int id = UserList.addUser("Jana", new ByteArrayOutputStream());
+    assertEquals(id, UserList.getUserId("jana"));
+    assertEquals(id, UserList.getUserByName("JANA").getId());
+    assertTrue(UserList.containsUserName("jAnA"));
+    assertEquals(-1, UserList.getUserId("Julia"));
+    assertNull(UserList.getUserByName("Julia"));
+  }
+
+  /**
+   * Verifies that renaming and removing a user keep the index consistent.
+   */
+  @Test
+  void testRenameAndRemove() {
+    int id = UserList.addUser("Client1", new ByteArrayOutputStream());
+    UserList.updateUserName(id, "Milo");
+    assertFalse(UserList.containsUserName("Client1"));
+    assertEquals(id, UserList.getUserId("milo"));
+
+    UserList.removeUser(id);
+    assertFalse(UserList.containsUserName("Milo"));
+    assertNull(UserList.getUserByName("Milo"));
+  }
+
+  /**
+   * Verifies that a second user with the same nickname is found once the first one has left.
+   */
+  @Test
+  void testDuplicateNicknames() {
+    int first = UserList.addUser("Anna", new ByteArrayOutputStream());
+    int second = UserList.addUser("anna", new ByteArrayOutputStream());
+    assertEquals(first, UserList.getUserId("Anna"));
+
+    UserList.removeUser(first);
+    assertEquals(second, UserList.getUserId("Anna"));
+  }
+
+  /**
+   * Compares the lookups by nickname with the linear scan they replace, with 10'000 users.
+   */
+  @Test
+  void testLookupBenchmark() {
+    int users = 10_000;
+    for (int i = 0; i < users; i++) {
+      UserList.addUser("Player" + i, new ByteArrayOutputStream());
+    }
+    List<User> all = UserList.getAllUsers();
+    int lookups = 1_000;
+
+    long scanNanos = Long.MAX_VALUE;
+    long indexNanos = Long.MAX_VALUE;
+    for (int round = 0; round < 5; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < lookups; i++) {
+        String nickname = "player" + (i * 7919 % users);
+        User found = null;
+        for (User user : all) {
+          if (user.getNickname().equalsIgnoreCase(nickname)) {
+            found = user;
+            break;
+          }
+        }
+        assertNotNull(found);
+      }
+      scanNanos = Math.min(scanNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      for (int i = 0; i < lookups; i++) {
+        assertNotNull(UserList.getUserByName("player" + (i * 7919 % users)));
+      }
+      indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+    }
+    System.out.println("Lookup by nickname with " + users + " users: " + scanNanos / lookups
+        + " ns with a linear scan, " + indexNanos / lookups + " ns with the index");
+
+    assertTrue(indexNanos * 10 < scanNanos, "Expected the index to be much faster than a scan.");
+  }
+}